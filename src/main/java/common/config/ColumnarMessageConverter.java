@@ -0,0 +1,46 @@
+package common.config;
+
+import common.Result;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import service.algorithm.impl.ColumnarCodec;
+
+import java.io.IOException;
+
+/**
+ * 列式二进制响应转换器
+ * 客户端 Accept 为 application/x-sim-columnar 时以 {@link ColumnarCodec} 写出 Result；只写不读
+ */
+public class ColumnarMessageConverter extends AbstractHttpMessageConverter<Result> {
+
+    public ColumnarMessageConverter() {
+        super(MediaType.parseMediaType(ColumnarCodec.MEDIA_TYPE_VALUE));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Result.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Result readInternal(Class<? extends Result> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("列式格式只用于响应", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Result result, HttpOutputMessage outputMessage) throws IOException {
+        if (!ColumnarCodec.supports(result.getData())) {
+            throw new HttpMessageNotWritableException("该接口的响应不支持列式格式，请使用 application/json");
+        }
+        ColumnarCodec.write(outputMessage.getBody(), result);
+    }
+}
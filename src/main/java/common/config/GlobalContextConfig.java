@@ -1,24 +1,21 @@
 package common.config;
 
 import model.bo.GlobalContext;
-import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 /**
- * 负责在 Spring 容器启动后，将 PhysicsConfig 注入到 GlobalContext 单例中
- * 使得非 Spring 管理的实体对象（如 BaseDevice）也可以通过 GlobalContext 访问物理配置。
+ * 默认仿真会话的上下文
+ * 将 PhysicsConfig 注入 GlobalContext.getInstance() 并注册为 Bean，供引擎与服务通过构造器获取；
+ * 其他会话的上下文由 SimSessionManager 自行创建，不经过 Spring 容器。
  */
 @Configuration
-public class GlobalContextConfig implements InitializingBean {
+public class GlobalContextConfig {
 
-    private final PhysicsConfig physicsConfig;
-
-    public GlobalContextConfig(PhysicsConfig physicsConfig) {
-        this.physicsConfig = physicsConfig;
-    }
-
-    @Override
-    public void afterPropertiesSet() {
-        GlobalContext.getInstance().setPhysicsConfig(physicsConfig);
+    @Bean
+    public GlobalContext globalContext(PhysicsConfig physicsConfig) {
+        GlobalContext context = GlobalContext.getInstance();
+        context.setPhysicsConfig(physicsConfig);
+        return context;
     }
-}
\ No newline at end of file
+}
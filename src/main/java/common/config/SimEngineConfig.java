@@ -0,0 +1,74 @@
+package common.config;
+
+import common.consts.EventQueueTypeEnum;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 仿真引擎参数
+ */
+@Configuration
+@ConfigurationProperties(prefix = "sim.engine")
+@Data
+public class SimEngineConfig {
+
+    /**
+     * 事件队列实现 (sim.engine.event-queue-type)
+     * 非 BLOCKING_HEAP 的实现不加锁，依赖引擎自身的单写保证
+     */
+    private EventQueueTypeEnum eventQueueType = EventQueueTypeEnum.BLOCKING_HEAP;
+
+    /**
+     * 指令环形队列容量 (sim.engine.command-queue-capacity)，向上取整为 2 的幂
+     * 队列满时提交线程退避等待，不丢弃指令
+     */
+    private int commandQueueCapacity = 1024;
+
+    /**
+     * 同一进程内允许同时存在的仿真会话数上限 (sim.engine.max-sessions)，含默认会话
+     */
+    private int maxSessions = 16;
+
+    /**
+     * 检查点文件目录 (sim.engine.checkpoint-dir)
+     */
+    private String checkpointDir = "checkpoints";
+
+    /**
+     * 指令日志目录 (sim.engine.journal-dir)
+     */
+    private String journalDir = "journals";
+
+    /**
+     * 事件日志段文件目录 (sim.engine.event-log-dir)，每个会话一个子目录
+     * 默认会话启动时接续已有段文件，其他会话创建时清空、删除时移除
+     */
+    private String eventLogDir = "eventlog";
+
+    /**
+     * 事件日志单段文件大小 (sim.engine.event-log-segment-bytes)，写满后滚动到新段
+     */
+    private int eventLogSegmentBytes = 16 * 1024 * 1024;
+
+    /**
+     * 每个会话最多保留的事件日志段数 (sim.engine.event-log-max-segments)，0 表示不限
+     */
+    private int eventLogMaxSegments = 0;
+
+    /**
+     * 推送订阅的发送线程数 (sim.engine.stream-threads)，所有会话共享
+     */
+    private int streamThreads = 2;
+
+    /**
+     * 每个订阅者最多积压的未发送事件数 (sim.engine.stream-max-backlog)
+     * 超出时丢弃最旧的部分并发送 gap 通知，客户端可按游标从 /sim/events 补读
+     */
+    private int streamMaxBacklog = 10_000;
+
+    /**
+     * 推送时每条消息最多携带的事件数 (sim.engine.stream-batch-size)
+     */
+    private int streamBatchSize = 256;
+}
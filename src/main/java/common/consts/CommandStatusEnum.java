@@ -0,0 +1,18 @@
+package common.consts;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 批量指令中单条指令的执行结果
+ */
+@Getter
+@AllArgsConstructor
+public enum CommandStatusEnum {
+    APPLIED("01", "已执行"),
+    FAILED("02", "执行失败"),
+    REJECTED("03", "校验未通过，未执行");
+
+    private final String code;
+    private final String desc;
+}
@@ -0,0 +1,35 @@
+package common.consts;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import model.dto.request.AssignTaskReq;
+import model.dto.request.ChargeCommandReq;
+import model.dto.request.CraneMoveReq;
+import model.dto.request.CraneOperationReq;
+import model.dto.request.FenceControlReq;
+import model.dto.request.MoveCommandReq;
+import model.dto.request.StepBatchReq;
+import model.dto.request.StepUntilReq;
+
+/**
+ * 外部指令类型（指令日志记录与重放用）
+ * requestType 为重放时还原请求体的类型，无请求体的指令为 null
+ */
+@Getter
+@AllArgsConstructor
+public enum CommandTypeEnum {
+    MOVE("01", "集卡移动", MoveCommandReq.class),
+    CRANE_MOVE("02", "起重机移动", CraneMoveReq.class),
+    ASSIGN("03", "任务指派", AssignTaskReq.class),
+    FENCE("04", "栅栏控制", FenceControlReq.class),
+    CRANE_OP("05", "起重机作业", CraneOperationReq.class),
+    CHARGE("06", "集卡充电", ChargeCommandReq.class),
+    CANCEL("07", "取消事件", Long.class),
+    STEP_NEXT("08", "单事件推进", null),
+    STEP_BATCH("09", "批量推进", StepBatchReq.class),
+    STEP_UNTIL("10", "条件推进", StepUntilReq.class);
+
+    private final String code;
+    private final String desc;
+    private final Class<?> requestType;
+}
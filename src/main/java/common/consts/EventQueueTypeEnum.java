@@ -0,0 +1,18 @@
+package common.consts;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 事件队列实现类型
+ */
+@Getter
+@AllArgsConstructor
+public enum EventQueueTypeEnum {
+    BLOCKING_HEAP("01", "加锁二叉堆 (PriorityBlockingQueue，默认)"),
+    BINARY_HEAP("02", "无锁二叉堆 (仅限单写线程)"),
+    CALENDAR("03", "日历队列 (仅限单写线程，时间聚集时均摊 O(1))");
+
+    private final String code;
+    private final String desc;
+}
@@ -0,0 +1,22 @@
+package common.consts;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 状态查询的过滤运算符
+ * 数值字段按数值比较，其他字段（含枚举名、布尔）按字符串比较
+ */
+@Getter
+@AllArgsConstructor
+public enum FilterOpEnum {
+    EQ("等于"),
+    NE("不等于"),
+    LT("小于"),
+    LE("小于等于"),
+    GT("大于"),
+    GE("大于等于"),
+    IN("属于列表");
+
+    private final String desc;
+}
@@ -0,0 +1,19 @@
+package common.consts;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 状态查询的实体类别
+ */
+@Getter
+@AllArgsConstructor
+public enum StateEntityEnum {
+    DEVICE("设备（集卡/岸桥/龙门吊）"),
+    FENCE("栅栏"),
+    CHARGING_STATION("充电桩"),
+    WORK_INSTRUCTION("作业指令"),
+    CONTAINER("集装箱");
+
+    private final String desc;
+}
@@ -0,0 +1,20 @@
+package common.consts;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 批量推进的停止原因
+ */
+@Getter
+@AllArgsConstructor
+public enum StepStopReasonEnum {
+    QUEUE_EMPTY("01", "事件队列已空"),
+    MAX_EVENTS("02", "达到最大事件数"),
+    SIM_TIME_REACHED("03", "下一个事件超过目标仿真时间"),
+    WALL_CLOCK_BUDGET("04", "达到墙钟时间预算"),
+    CONDITION_MATCHED("05", "命中停止条件");
+
+    private final String code;
+    private final String desc;
+}
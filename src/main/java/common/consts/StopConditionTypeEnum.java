@@ -0,0 +1,21 @@
+package common.consts;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 条件推进的停止条件类型
+ */
+@Getter
+@AllArgsConstructor
+public enum StopConditionTypeEnum {
+    EVENT_TYPE("01", "处理了指定类型的事件"),
+    SUBJECT("02", "指定主体参与了事件"),
+    DEVICE_IDLE_NO_TASK("03", "设备变为空闲且未绑定作业指令"),
+    WI_COMPLETE("04", "作业指令完成"),
+    STATE_ENTER("05", "设备进入指定状态"),
+    POWER_BELOW("06", "集卡电量降到阈值以下");
+
+    private final String code;
+    private final String desc;
+}
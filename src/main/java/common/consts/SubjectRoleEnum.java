@@ -0,0 +1,33 @@
+package common.consts;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 事件主体角色
+ * 事件主体按角色序号存放在定长数组中，查找即数组下标访问
+ */
+@Getter
+@AllArgsConstructor
+public enum SubjectRoleEnum {
+    TRUCK("集卡"),
+    CRANE("岸桥/龙门吊"),
+    DEVICE("任务指派的目标设备"),
+    FENCE("栅栏"),
+    STATION("充电桩"),
+    WI("作业指令");
+
+    private final String desc;
+
+    /** 角色总数 (主体数组长度) */
+    public static final int COUNT = values().length;
+
+    private static final SubjectRoleEnum[] VALUES = values();
+
+    /**
+     * 按序号获取角色 (避免 values() 每次复制数组)
+     */
+    public static SubjectRoleEnum of(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
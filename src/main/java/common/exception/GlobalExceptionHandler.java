@@ -1,10 +1,13 @@
 package common.exception;
 
 import common.Result;
+import engine.session.SimSession;
+import engine.session.SimSessionManager;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
-import service.algorithm.impl.SimulationErrorLog;
+
+import javax.servlet.http.HttpServletRequest;
 
 /**
  * 全局异常处理器
@@ -14,21 +17,22 @@ import service.algorithm.impl.SimulationErrorLog;
 @Slf4j
 public class GlobalExceptionHandler {
 
-    private final SimulationErrorLog errorLog;
+    private final SimSessionManager sessionManager;
 
-    public GlobalExceptionHandler(SimulationErrorLog errorLog) {
-        this.errorLog = errorLog;
+    public GlobalExceptionHandler(SimSessionManager sessionManager) {
+        this.sessionManager = sessionManager;
     }
 
     /**
      * 处理业务异常
      */
     @ExceptionHandler(BusinessException.class)
-    public Result handleBusinessException(BusinessException e) {
+    public Result handleBusinessException(BusinessException e, HttpServletRequest request) {
         log.warn("业务异常: {}", e.getMessage());
-        // 记录到错误日志
-        errorLog.recordEventProcessingError(null, null,
-                model.bo.GlobalContext.getInstance().getSimTime(),
+        // 记录到请求所属会话的错误日志
+        SimSession session = sessionManager.getOrDefault(request.getParameter("sessionId"));
+        session.getErrorLog().recordEventProcessingError(null, null,
+                session.getContext().getSimTime(),
                 "业务异常: " + e.getMessage(), e);
         return Result.error(e.getMessage());
     }
@@ -47,11 +51,12 @@ public class GlobalExceptionHandler {
      * 处理所有其他异常
      */
     @ExceptionHandler(Exception.class)
-    public Result handleException(Exception e) {
+    public Result handleException(Exception e, HttpServletRequest request) {
         log.error("系统异常", e);
-        // 记录到错误日志
-        errorLog.recordEventProcessingError(null, null,
-                model.bo.GlobalContext.getInstance().getSimTime(),
+        // 记录到请求所属会话的错误日志
+        SimSession session = sessionManager.getOrDefault(request.getParameter("sessionId"));
+        session.getErrorLog().recordEventProcessingError(null, null,
+                session.getContext().getSimTime(),
                 "系统异常: " + e.getClass().getSimpleName(), e);
         return Result.error("系统内部错误: " + e.getMessage());
     }
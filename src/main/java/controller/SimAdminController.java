@@ -1,42 +1,48 @@
 package controller;
 
 import common.Result;
-import engine.SimulationEngine;
+import engine.session.SimSession;
+import engine.session.SimSessionManager;
 import lombok.Data;
 import model.bo.GlobalContext;
 import model.entity.*;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import service.algorithm.impl.CheckpointService;
 
 import java.util.List;
 
 /**
- * 仿真场景管理接口：重置与读取
+ * 仿真场景管理接口：重置、装载与检查点
  */
 @RestController
 @RequestMapping("/sim/admin")
 public class SimAdminController {
 
-    private final SimulationEngine engine;
+    private final SimSessionManager sessionManager;
+    private final CheckpointService checkpointService;
 
-    public SimAdminController(SimulationEngine engine) {
-        this.engine = engine;
+    public SimAdminController(SimSessionManager sessionManager, CheckpointService checkpointService) {
+        this.sessionManager = sessionManager;
+        this.checkpointService = checkpointService;
     }
 
     /**
      * 清空当前场景（含全局数据与引擎事件队列/暂停状态，离散仿真重置后无待处理事件）
-     * 先持引擎锁再持上下文锁，避免与单事件推进并发导致读到一半清空的数据
+     * 在仿真单写线程上执行，与指令和推进严格串行
      */
     @PostMapping("/reset")
-    public Result reset() {
-        synchronized (engine) {
-            synchronized (GlobalContext.getInstance()) {
-                GlobalContext.getInstance().clearAll();
-                engine.reset();
-            }
-        }
+    public Result reset(@RequestParam(name = "sessionId", required = false) String sessionId) {
+        SimSession session = sessionManager.get(sessionId);
+        session.getCommandExecutor().run(() -> {
+            // 重置后的状态与指令日志的基准检查点无关，继续记录将无法重放
+            session.getJournal().stop();
+            session.getContext().clearAll();
+            session.getEngine().reset();
+        });
         return Result.success("重置成功");
     }
 
@@ -44,45 +50,63 @@ public class SimAdminController {
      * 从请求装载新场景
      */
     @PostMapping("/load")
-    public Result load(@RequestBody ScenarioLoadRequest req) {
-        synchronized (engine) {
-            synchronized (GlobalContext.getInstance()) {
-                GlobalContext ctx = GlobalContext.getInstance();
-                ctx.clearAll();
-                engine.reset();
-
-                //  逐个注入实体到内存 Map 中
-                if (req.getTrucks() != null) {
-                    req.getTrucks().forEach(t -> ctx.getTruckMap().put(t.getId(), t));
-                }
-                if (req.getQcDevices() != null) {
-                    req.getQcDevices().forEach(q -> ctx.getQcMap().put(q.getId(), q));
-                }
-                if (req.getAscDevices() != null) {
-                    req.getAscDevices().forEach(a -> ctx.getAscMap().put(a.getId(), a));
-                }
-                if (req.getFences() != null) {
-                    // 栅栏以 NodeId (或者专门的 FenceId) 作为 Key
-                    req.getFences().forEach(f -> ctx.getFenceMap().put(f.getNodeId(), f));
-                }
-                if (req.getChargingStations() != null) {
-                    req.getChargingStations().forEach(s -> ctx.getChargingStationMap().put(s.getStationCode(), s));
-                }
-                if (req.getYardBlocks() != null) {
-                    req.getYardBlocks().forEach(b -> ctx.getYardBlockMap().put(b.getBlockCode(), b));
-                }
+    public Result load(@RequestBody ScenarioLoadRequest req, @RequestParam(name = "sessionId", required = false) String sessionId) {
+        SimSession session = sessionManager.get(sessionId);
+        return session.getCommandExecutor().call(() -> {
+            session.getJournal().stop();
+            GlobalContext ctx = session.getContext();
+            ctx.clearAll();
+            session.getEngine().reset();
 
-                //  装载业务数据
-                if (req.getWorkInstructions() != null) {
-                    req.getWorkInstructions().forEach(w -> ctx.getWorkInstructionMap().put(w.getWiRefNo(), w));
-                }
-                if (req.getContainers() != null) {
-                    req.getContainers().forEach(c -> ctx.getContainerMap().put(c.getContainerId(), c));
-                }
+            //  逐个注入实体到内存 Map 中
+            if (req.getTrucks() != null) {
+                req.getTrucks().forEach(t -> ctx.getTruckMap().put(t.getId(), t));
+            }
+            if (req.getQcDevices() != null) {
+                req.getQcDevices().forEach(q -> ctx.getQcMap().put(q.getId(), q));
+            }
+            if (req.getAscDevices() != null) {
+                req.getAscDevices().forEach(a -> ctx.getAscMap().put(a.getId(), a));
+            }
+            if (req.getFences() != null) {
+                // 栅栏以 NodeId (或者专门的 FenceId) 作为 Key
+                req.getFences().forEach(f -> ctx.getFenceMap().put(f.getNodeId(), f));
+            }
+            if (req.getChargingStations() != null) {
+                req.getChargingStations().forEach(s -> ctx.getChargingStationMap().put(s.getStationCode(), s));
+            }
+            if (req.getYardBlocks() != null) {
+                req.getYardBlocks().forEach(b -> ctx.getYardBlockMap().put(b.getBlockCode(), b));
+            }
 
-                return Result.success("场景装载成功");
+            //  装载业务数据
+            if (req.getWorkInstructions() != null) {
+                req.getWorkInstructions().forEach(w -> ctx.getWorkInstructionMap().put(w.getWiRefNo(), w));
+            }
+            if (req.getContainers() != null) {
+                req.getContainers().forEach(c -> ctx.getContainerMap().put(c.getContainerId(), c));
             }
-        }
+
+            return Result.success("场景装载成功");
+        });
+    }
+
+    /**
+     * 将会话的全部状态写入二进制检查点文件（名称为空时使用会话ID）
+     */
+    @PostMapping("/checkpoint")
+    public Result checkpoint(@RequestParam(name = "name", required = false) String name,
+                             @RequestParam(name = "sessionId", required = false) String sessionId) {
+        return Result.success("检查点写入成功", checkpointService.checkpoint(sessionManager.get(sessionId), name));
+    }
+
+    /**
+     * 从检查点文件恢复会话状态，替换当前全部实体与待处理事件
+     */
+    @PostMapping("/restore")
+    public Result restore(@RequestParam(name = "name", required = false) String name,
+                          @RequestParam(name = "sessionId", required = false) String sessionId) {
+        return Result.success("检查点恢复成功", checkpointService.restore(sessionManager.get(sessionId), name));
     }
 
     /**
@@ -1,18 +1,19 @@
 package controller;
 
 import common.Result;
+import common.exception.BusinessException;
+import engine.session.SimSession;
+import engine.session.SimSessionManager;
 import model.dto.request.*;
-import model.dto.snapshot.*;
-import model.bo.GlobalContext;
 import model.dto.response.AssignTaskResp;
-import model.entity.*;
+import model.dto.response.CommandBatchResp;
+import model.dto.response.StepBatchResp;
+import model.dto.response.StepUntilResp;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
 import service.algorithm.ExternalAlgorithmApi;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
 /**
  * 仿真系统命令控制器
  */
@@ -20,56 +21,79 @@ import java.util.stream.Collectors;
 @RequestMapping("/sim/command")
 public class SimCommandController {
 
-    private final ExternalAlgorithmApi algorithmApi;
+    private final SimSessionManager sessionManager;
     @Autowired
-    public SimCommandController(ExternalAlgorithmApi algorithmApi) {
-        this.algorithmApi = algorithmApi;
+    public SimCommandController(SimSessionManager sessionManager) {
+        this.sessionManager = sessionManager;
+    }
+
+    // 请求参数 sessionId 指定的会话的算法接口，不带时为默认会话
+    private ExternalAlgorithmApi api(String sessionId) {
+        return sessionManager.get(sessionId).getAlgorithmApi();
     }
 
     //  移动控制 集卡/桥吊/龙门吊
 
     @PostMapping("/truck/move")
-    public Result moveTruck(@RequestBody MoveCommandReq req) {
-        return algorithmApi.moveDevice(req);
+    public Result moveTruck(@RequestBody MoveCommandReq req,
+                            @RequestParam(name = "sessionId", required = false) String sessionId) {
+        return api(sessionId).moveDevice(req);
     }
 
     @PostMapping("/crane/move")
-    public Result moveCrane(@RequestBody CraneMoveReq req) {
-        return algorithmApi.moveCrane(req);
+    public Result moveCrane(@RequestBody CraneMoveReq req,
+                            @RequestParam(name = "sessionId", required = false) String sessionId) {
+        return api(sessionId).moveCrane(req);
     }
 
     //   业务与环境控制 处理任务分配 设备具体操作及环境设施变更
 
     @PostMapping("/assign")
-    public Result assign(@RequestBody AssignTaskReq req) {
-        AssignTaskResp resp = algorithmApi.assignTask(req);
+    public Result assign(@RequestBody AssignTaskReq req,
+                         @RequestParam(name = "sessionId", required = false) String sessionId) {
+        AssignTaskResp resp = api(sessionId).assignTask(req);
         return Result.success(resp);
     }
     // 吊起操作的接口
     @PostMapping("/crane/operate")
-    public Result operateCrane(@RequestBody CraneOperationReq req) {
-        return algorithmApi.operateCrane(req);
+    public Result operateCrane(@RequestBody CraneOperationReq req,
+                               @RequestParam(name = "sessionId", required = false) String sessionId) {
+        return api(sessionId).operateCrane(req);
     }
     // 围栏
     @PostMapping("/fence")
-    public Result controlFence(@RequestBody FenceControlReq req) {
-        return algorithmApi.toggleFence(req);
+    public Result controlFence(@RequestBody FenceControlReq req,
+                               @RequestParam(name = "sessionId", required = false) String sessionId) {
+        return api(sessionId).toggleFence(req);
     }
     // 电集卡充电
     @PostMapping("/truck/charge")
-    public Result chargeTruck(@RequestBody ChargeCommandReq req) {
-        return algorithmApi.chargeTruck(req);
+    public Result chargeTruck(@RequestBody ChargeCommandReq req,
+                              @RequestParam(name = "sessionId", required = false) String sessionId) {
+        return api(sessionId).chargeTruck(req);
     }
 
-    //  仿真时钟（仅单事件推进，无时间窗/按步长推进）
+    /**
+     * 批量下发指令：一次请求携带不同类型的指令，在仿真单写线程上一次按顺序执行
+     * 单条失败不中断整批，返回每条指令的执行结果
+     */
+    @PostMapping("/batch")
+    public Result batch(@RequestBody CommandBatchReq req,
+                        @RequestParam(name = "sessionId", required = false) String sessionId) {
+        CommandBatchResp resp = api(sessionId).executeBatch(req);
+        return Result.success("批量指令完成: 执行 " + resp.getAppliedCount() + " 条, 失败 " + resp.getFailedCount()
+                + " 条, 未通过校验 " + resp.getRejectedCount() + " 条", resp);
+    }
+
+    //  仿真时钟（单事件推进与批量推进，均逐个事件处理，无时间窗/按步长推进）
 
     /**
      * 单事件推进：处理下一个到期事件，时钟推进到该事件时间
-     * 离散仿真的唯一推进方式，无批量、无时间窗
+     * 离散仿真的基本推进方式，无时间窗
      */
     @PostMapping("/step/next-event")
-    public Result stepNextEvent() {
-        model.dto.snapshot.EventLogEntryDto event = algorithmApi.stepNextEvent();
+    public Result stepNextEvent(@RequestParam(name = "sessionId", required = false) String sessionId) {
+        model.dto.snapshot.EventLogEntryDto event = api(sessionId).stepNextEvent();
         if (event == null) {
             return Result.success("没有待处理的事件");
         }
@@ -77,123 +101,85 @@ public class SimCommandController {
     }
 
     /**
-     * 取消事件
+     * 批量推进：一次调用处理最多 maxEvents 个事件或推进到 untilSimTime，可限定墙钟预算
+     * 内部仍逐个事件处理，沿用同一时间戳死循环检测
      */
-    @PostMapping("/event/cancel")
-    public Result cancelEvent(@RequestBody model.dto.request.CancelEventReq req) {
-        return algorithmApi.cancelEvent(req.getEventId());
+    @PostMapping("/step/batch")
+    public Result stepBatch(@RequestBody StepBatchReq req,
+                            @RequestParam(name = "sessionId", required = false) String sessionId) {
+        StepBatchResp resp = api(sessionId).stepBatch(req);
+        return Result.success("批量推进完成: " + resp.getStopReason().getDesc(), resp);
     }
 
     /**
-     * 下发本步控制指令后执行一次单事件推进，返回状态快照
-     * 无时间窗：先下发指令（生成事件），再处理下一个到期事件
+     * 条件推进：逐个处理事件直到任一停止条件命中，返回触发事件及其涉及的实体
+     * 用于只在决策点介入的外部调度算法
      */
-    @PostMapping("/stepWithCommands")
-    public Result stepWithCommands(@RequestBody StepWithCommandsReq req) {
-        if (req.getTruckMoves() != null) {
-            req.getTruckMoves().forEach(algorithmApi::moveDevice);
-        }
-        if (req.getCraneMoves() != null) {
-            req.getCraneMoves().forEach(algorithmApi::moveCrane);
-        }
-        if (req.getFenceControls() != null) {
-            req.getFenceControls().forEach(algorithmApi::toggleFence);
-        }
-        if (req.getCraneOps() != null) {
-            req.getCraneOps().forEach(algorithmApi::operateCrane);
-        }
-        if (req.getChargeCommands() != null) {
-            req.getChargeCommands().forEach(algorithmApi::chargeTruck);
-        }
-
-        algorithmApi.stepNextEvent();
-
-        //  返回当前快照
-        GlobalContext ctx = GlobalContext.getInstance();
-        PortSnapshotDto snapshot = new PortSnapshotDto();
-        snapshot.setSimTime(ctx.getSimTime());
-
-        // 设备
-        snapshot.setDevices(buildDeviceSnapshots(ctx));
-
-        // 栅栏
-        snapshot.setFences(buildFenceSnapshots(ctx));
-
-        // 充电桩
-        snapshot.setChargingStations(buildChargingStationSnapshots(ctx));
-
-        // 作业指令
-        snapshot.setWorkInstructions(buildWorkInstructionSnapshots(ctx));
-
-        return Result.success("单事件已处理", snapshot);
-    }
-
-    /**
-     * 构建设备快照列表
-     */
-    private List<DeviceSnapshotDto> buildDeviceSnapshots(GlobalContext ctx) {
-        return ctx.getTruckMap().values().stream().map(t -> {
-            DeviceSnapshotDto dto = new DeviceSnapshotDto();
-            dto.setId(t.getId());
-            dto.setType(t.getType());
-            dto.setState(t.getState());
-            dto.setPosX(t.getPosX());
-            dto.setPosY(t.getPosY());
-            dto.setPowerLevel(t.getPowerLevel());
-            dto.setNeedCharge(t.isNeedCharge());
-            dto.setCurrWiRefNo(t.getCurrWiRefNo());
-            return dto;
-        }).collect(Collectors.toList());
+    @PostMapping("/step/until")
+    public Result stepUntil(@RequestBody StepUntilReq req,
+                            @RequestParam(name = "sessionId", required = false) String sessionId) {
+        StepUntilResp resp = api(sessionId).stepUntil(req);
+        return Result.success("条件推进完成: " + resp.getStopReason().getDesc(), resp);
     }
 
     /**
-     * 构建栅栏快照列表
+     * 取消事件
      */
-    private List<FenceSnapshotDto> buildFenceSnapshots(GlobalContext ctx) {
-        return ctx.getFenceMap().values().stream().map(f -> {
-            FenceSnapshotDto dto = new FenceSnapshotDto();
-            dto.setNodeId(f.getNodeId());
-            dto.setBlockCode(f.getBlockCode());
-            dto.setPosX(f.getPosX());
-            dto.setPosY(f.getPosY());
-            dto.setRadius(f.getRadius());
-            dto.setSpeedLimit(f.getSpeedLimit());
-            dto.setStatus(f.getStatus());
-            dto.setWaitingTrucks(f.getWaitingTrucks());
-            return dto;
-        }).collect(Collectors.toList());
+    @PostMapping("/event/cancel")
+    public Result cancelEvent(@RequestBody model.dto.request.CancelEventReq req,
+                              @RequestParam(name = "sessionId", required = false) String sessionId) {
+        return api(sessionId).cancelEvent(parseEventId(req.getEventId()));
     }
 
     /**
-     * 构建充电桩快照列表
+     * 事件ID对外为字符串，入口处解析为内部 long
      */
-    private List<ChargingStationSnapshotDto> buildChargingStationSnapshots(GlobalContext ctx) {
-        return ctx.getChargingStationMap().values().stream().map(s -> {
-            ChargingStationSnapshotDto dto = new ChargingStationSnapshotDto();
-            dto.setStationCode(s.getStationCode());
-            dto.setStatus(s.getStatus());
-            dto.setPosX(s.getPosX());
-            dto.setPosY(s.getPosY());
-            dto.setTruckId(s.getTruckId());
-            dto.setChargeRate(s.getChargeRate());
-            return dto;
-        }).collect(Collectors.toList());
+    private long parseEventId(String eventId) {
+        if (eventId == null || eventId.trim().isEmpty()) {
+            throw new BusinessException("事件ID不能为空");
+        }
+        try {
+            return Long.parseLong(eventId.trim());
+        } catch (NumberFormatException e) {
+            throw new BusinessException("事件ID格式错误: " + eventId);
+        }
     }
 
     /**
-     * 构建作业指令快照列表
+     * 下发本步控制指令后执行一次单事件推进，返回状态快照
+     * 无时间窗：先下发指令（生成事件），再处理下一个到期事件；快照格式同 /sim/state/snapshot
+     * 指令与推进在同一个写线程任务内执行；任一指令失败时抛出，之前的指令已生效（需要逐条结果时用 /batch）
+     *
+     * @param since 上次收到的纪元；传入时只返回之后变化和删除的实体
      */
-    private List<WorkInstructionSnapshotDto> buildWorkInstructionSnapshots(GlobalContext ctx) {
-        return ctx.getWorkInstructionMap().values().stream().map(wi -> {
-            WorkInstructionSnapshotDto dto = new WorkInstructionSnapshotDto();
-            dto.setWiRefNo(wi.getWiRefNo());
-            dto.setContainerId(wi.getContainerId());
-            dto.setMoveKind(wi.getMoveKind());
-            dto.setFromPos(wi.getFromPos());
-            dto.setToPos(wi.getToPos());
-            dto.setWiStatus(wi.getWiStatus());
-            dto.setDispatchCheId(wi.getDispatchCheId());
-            return dto;
-        }).collect(Collectors.toList());
+    @PostMapping("/stepWithCommands")
+    public Result stepWithCommands(@RequestBody StepWithCommandsReq req,
+                                   @RequestParam(name = "since", required = false) Long since,
+                                   @RequestParam(name = "sessionId", required = false) String sessionId,
+                                   @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        SimSession session = sessionManager.get(sessionId);
+        ExternalAlgorithmApi algorithmApi = session.getAlgorithmApi();
+        session.getCommandExecutor().run(() -> {
+            if (req.getTruckMoves() != null) {
+                req.getTruckMoves().forEach(algorithmApi::moveDevice);
+            }
+            if (req.getCraneMoves() != null) {
+                req.getCraneMoves().forEach(algorithmApi::moveCrane);
+            }
+            if (req.getFenceControls() != null) {
+                req.getFenceControls().forEach(algorithmApi::toggleFence);
+            }
+            if (req.getCraneOps() != null) {
+                req.getCraneOps().forEach(algorithmApi::operateCrane);
+            }
+            if (req.getChargeCommands() != null) {
+                req.getChargeCommands().forEach(algorithmApi::chargeTruck);
+            }
+
+            algorithmApi.stepNextEvent();
+        });
+
+        //  返回本次推进后发布的快照（或相对 since 的增量）
+        return Result.success("单事件已处理", SimStateController.snapshotBody(session.getEpochPublisher(), since, accept));
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,8 @@
 package controller;
 
 import common.Result;
-import engine.SimulationEngine;
+import engine.session.SimSession;
+import engine.session.SimSessionManager;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -12,6 +13,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 仿真错误日志查询接口
@@ -21,20 +23,19 @@ import java.util.Set;
 @RequestMapping("/sim/errors")
 public class SimErrorController {
 
-    private final SimulationErrorLog errorLog;
-    private final SimulationEngine simulationEngine;
+    private final SimSessionManager sessionManager;
 
-    public SimErrorController(SimulationErrorLog errorLog, SimulationEngine simulationEngine) {
-        this.errorLog = errorLog;
-        this.simulationEngine = simulationEngine;
+    public SimErrorController(SimSessionManager sessionManager) {
+        this.sessionManager = sessionManager;
     }
 
     /**
      * 查询最近一段时间内的错误日志
      */
     @GetMapping
-    public Result listErrors(@RequestParam(name = "since", defaultValue = "0") long sinceSimTime) {
-        List<SimulationErrorLog.ErrorLogEntry> entries = errorLog.listSince(sinceSimTime);
+    public Result listErrors(@RequestParam(name = "since", defaultValue = "0") long sinceSimTime,
+                             @RequestParam(name = "sessionId", required = false) String sessionId) {
+        List<SimulationErrorLog.ErrorLogEntry> entries = sessionManager.get(sessionId).getErrorLog().listSince(sinceSimTime);
         return Result.success("查询成功", entries);
     }
 
@@ -42,23 +43,27 @@ public class SimErrorController {
      * 查询所有错误日志
      */
     @GetMapping("/all")
-    public Result listAllErrors() {
-        List<SimulationErrorLog.ErrorLogEntry> entries = errorLog.listAll();
+    public Result listAllErrors(@RequestParam(name = "sessionId", required = false) String sessionId) {
+        List<SimulationErrorLog.ErrorLogEntry> entries = sessionManager.get(sessionId).getErrorLog().listAll();
         return Result.success("查询成功", entries);
     }
 
     /**
-     * 查询所有被暂停的业务类型和事件
+     * 查询所有被暂停的业务类型和事件链
      */
     @GetMapping("/suspended-chains")
-    public Result listSuspendedEventChains() {
-        Set<common.consts.BizTypeEnum> suspendedBizTypes = simulationEngine.getSuspendedBizTypes();
-        Set<String> suspendedEventIds = simulationEngine.getSuspendedEventIds();
+    public Result listSuspendedEventChains(@RequestParam(name = "sessionId", required = false) String sessionId) {
+        SimSession session = sessionManager.get(sessionId);
+        Set<common.consts.BizTypeEnum> suspendedBizTypes = session.getEngine().getSuspendedBizTypes();
+        // 链ID在出口处格式化为字符串
+        Set<String> suspendedChainIds = session.getEngine().getSuspendedChainIds().stream()
+                .map(String::valueOf)
+                .collect(Collectors.toSet());
         Map<String, Object> result = new HashMap<>();
         result.put("suspendedBizTypes", suspendedBizTypes);
-        result.put("suspendedEventIds", suspendedEventIds);
+        result.put("suspendedChainIds", suspendedChainIds);
         result.put("bizTypeCount", suspendedBizTypes.size());
-        result.put("eventIdCount", suspendedEventIds.size());
+        result.put("chainIdCount", suspendedChainIds.size());
         return Result.success("查询成功", result);
     }
 }
\ No newline at end of file
@@ -1,8 +1,13 @@
 package controller;
 
 import common.Result;
+import common.consts.EventTypeEnum;
+import common.exception.BusinessException;
+import engine.session.SimSessionManager;
+import model.dto.request.EventLogQuery;
 import model.dto.snapshot.EventLogEntryDto;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -17,18 +22,63 @@ import java.util.List;
 @RequestMapping("/sim/events")
 public class SimEventController {
 
-    private final SimulationEventLog eventLog;
+    private static final int MAX_PAGE_SIZE = 10_000;
 
-    public SimEventController(SimulationEventLog eventLog) {
-        this.eventLog = eventLog;
+    private final SimSessionManager sessionManager;
+
+    public SimEventController(SimSessionManager sessionManager) {
+        this.sessionManager = sessionManager;
     }
 
     /**
-     * 查询最近一段时间内的事件
+     * 查询事件
+     * 只带 since 时返回仿真时间不早于 since 的全部事件（兼容旧调用）；
+     * 带 cursor/limit/type/subject/parent 任一参数时分页读取：从 cursor 开始（为空时按 since 二分定位），
+     * type/subject/parent 经倒排索引只访问命中记录，返回 nextCursor 供下次续读，不会漏读。
+     * Accept 为 application/x-sim-columnar 时返回列式二进制格式
      */
     @GetMapping
-    public Result listEvents(@RequestParam(name = "since", defaultValue = "0") long sinceSimTime) {
-        List<EventLogEntryDto> entries = eventLog.listSince(sinceSimTime);
-        return Result.success("查询成功", entries);
+    public Result listEvents(@RequestParam(name = "since", defaultValue = "0") long sinceSimTime,
+                             @RequestParam(name = "cursor", required = false) Long cursor,
+                             @RequestParam(name = "limit", required = false) Integer limit,
+                             @RequestParam(name = "type", required = false) EventTypeEnum type,
+                             @RequestParam(name = "subject", required = false) String subject,
+                             @RequestParam(name = "parent", required = false) Long parent,
+                             @RequestParam(name = "sessionId", required = false) String sessionId) {
+        SimulationEventLog eventLog = sessionManager.get(sessionId).getEventLog();
+        if (cursor == null && limit == null && type == null && subject == null && parent == null) {
+            List<EventLogEntryDto> entries = eventLog.listSince(sinceSimTime);
+            return Result.success("查询成功", entries);
+        }
+        if (cursor != null && cursor < 0) {
+            throw new BusinessException("cursor 不能为负");
+        }
+        EventLogQuery query = new EventLogQuery();
+        query.setCursor(cursor);
+        query.setSince(sinceSimTime);
+        query.setType(type);
+        query.setSubject(subject);
+        query.setParent(parent);
+        query.setLimit(pageSize(limit));
+        return Result.success("查询成功", eventLog.query(query));
+    }
+
+    /**
+     * 事件因果链：祖先事件与全部后代事件
+     */
+    @GetMapping("/{eventId}/chain")
+    public Result chain(@PathVariable("eventId") long eventId,
+                        @RequestParam(name = "limit", required = false) Integer limit,
+                        @RequestParam(name = "sessionId", required = false) String sessionId) {
+        SimulationEventLog eventLog = sessionManager.get(sessionId).getEventLog();
+        return Result.success("查询成功", eventLog.chain(eventId, pageSize(limit)));
+    }
+
+    private static int pageSize(Integer limit) {
+        int pageSize = limit != null ? limit : MAX_PAGE_SIZE;
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new BusinessException("limit 必须在 1 到 " + MAX_PAGE_SIZE + " 之间");
+        }
+        return pageSize;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package controller;
+
+import common.Result;
+import engine.session.SimSessionManager;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import service.algorithm.impl.JournalReplayService;
+
+/**
+ * 指令日志接口：记录外部指令并在进程内无头重放，用于复现长时间运行后出现的问题
+ */
+@RestController
+@RequestMapping("/sim/journal")
+public class SimJournalController {
+
+    private final SimSessionManager sessionManager;
+    private final JournalReplayService journalReplayService;
+
+    public SimJournalController(SimSessionManager sessionManager, JournalReplayService journalReplayService) {
+        this.sessionManager = sessionManager;
+        this.journalReplayService = journalReplayService;
+    }
+
+    /**
+     * 开始记录：写基准检查点并打开日志（名称为空时使用会话ID），已在记录时先结束原日志
+     */
+    @PostMapping("/start")
+    public Result start(@RequestParam(name = "name", required = false) String name,
+                        @RequestParam(name = "sessionId", required = false) String sessionId) {
+        return Result.success("指令日志开始记录", journalReplayService.start(sessionManager.get(sessionId), name));
+    }
+
+    /**
+     * 停止记录
+     */
+    @PostMapping("/stop")
+    public Result stop(@RequestParam(name = "sessionId", required = false) String sessionId) {
+        journalReplayService.stop(sessionManager.get(sessionId));
+        return Result.success("指令日志已停止记录");
+    }
+
+    /**
+     * 在临时会话中全速重放指令日志并校验事件序列是否一致
+     */
+    @PostMapping("/replay")
+    public Result replay(@RequestParam(name = "name") String name) {
+        return Result.success("指令日志重放完成", journalReplayService.replay(name));
+    }
+}
@@ -0,0 +1,81 @@
+package controller;
+
+import common.Result;
+import engine.session.SimSession;
+import engine.session.SimSessionManager;
+import model.dto.request.CreateSessionReq;
+import model.dto.response.SessionInfoResp;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 仿真会话管理接口
+ * 其他接口通过请求参数 sessionId 指定会话，不带时作用于默认会话
+ */
+@RestController
+@RequestMapping("/sim/sessions")
+public class SimSessionController {
+
+    private final SimSessionManager sessionManager;
+
+    public SimSessionController(SimSessionManager sessionManager) {
+        this.sessionManager = sessionManager;
+    }
+
+    /**
+     * 创建会话，可覆盖物理参数
+     */
+    @PostMapping
+    public Result create(@RequestBody(required = false) CreateSessionReq req) {
+        SimSession session = sessionManager.create(req);
+        return Result.success("会话创建成功", session.toInfo());
+    }
+
+    /**
+     * 从指定会话分叉出临时会话（what-if 推演），可独立推进，用完删除
+     */
+    @PostMapping("/{sessionId}/fork")
+    public Result fork(@PathVariable("sessionId") String sessionId,
+                       @RequestBody(required = false) CreateSessionReq req) {
+        SimSession session = sessionManager.fork(sessionId, req);
+        return Result.success("会话分叉成功", session.toInfo());
+    }
+
+    /**
+     * 查询所有会话
+     */
+    @GetMapping
+    public Result list() {
+        List<SessionInfoResp> infos = sessionManager.list().stream()
+                .sorted(Comparator.comparingLong(SimSession::getCreatedAt))
+                .map(SimSession::toInfo)
+                .collect(Collectors.toList());
+        return Result.success("查询成功", infos);
+    }
+
+    /**
+     * 查询单个会话
+     */
+    @GetMapping("/{sessionId}")
+    public Result get(@PathVariable("sessionId") String sessionId) {
+        return Result.success("查询成功", sessionManager.get(sessionId).toInfo());
+    }
+
+    /**
+     * 删除会话并停止其单写线程
+     */
+    @DeleteMapping("/{sessionId}")
+    public Result delete(@PathVariable("sessionId") String sessionId) {
+        sessionManager.remove(sessionId);
+        return Result.success("会话已删除");
+    }
+}
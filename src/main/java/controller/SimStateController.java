@@ -1,17 +1,35 @@
 package controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
 import common.Result;
+import common.consts.DeviceStateEnum;
+import common.consts.DeviceTypeEnum;
+import common.exception.BusinessException;
+import engine.session.SimSession;
+import engine.session.SimSessionManager;
 import model.bo.GlobalContext;
-import model.dto.snapshot.*;
-import model.entity.*;
+import model.dto.request.NearbyDeviceReq;
+import model.dto.request.StateQueryReq;
+import model.dto.response.StateQueryResp;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import service.algorithm.impl.ColumnarCodec;
+import service.algorithm.impl.DeviceSpatialService;
+import service.algorithm.impl.RawJson;
+import service.algorithm.impl.StateEpochPublisher;
 
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * 仿真状态查询接口
@@ -20,119 +38,156 @@ import java.util.stream.Collectors;
 @RequestMapping("/sim/state")
 public class SimStateController {
 
+    private final SimSessionManager sessionManager;
+    private final ObjectMapper objectMapper;
+    private final DeviceSpatialService spatialService;
+
+    // 各会话上下文最近一次全量状态的序列化结果，状态版本不变时直接复用；会话删除后随上下文回收
+    private final Map<GlobalContext, CachedState> allStateCache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public SimStateController(SimSessionManager sessionManager, ObjectMapper objectMapper,
+                              DeviceSpatialService spatialService) {
+        this.sessionManager = sessionManager;
+        this.objectMapper = objectMapper;
+        this.spatialService = spatialService;
+    }
+
     /**
      * 调试用所有接口
+     * 在仿真线程上把全局上下文直接序列化为字节，保证各实体来自同一时刻（会排在已提交的指令之后）；
+     * 引擎状态版本未变时复用上次的结果，并发请求共享同一份字节
      */
     @GetMapping("/all")
-    public Result getAllState() {
-        return Result.success("查询成功", GlobalContext.getInstance());
+    public Result getAllState(@RequestParam(name = "sessionId", required = false) String sessionId) {
+        SimSession session = sessionManager.get(sessionId);
+        RawJson json = session.getCommandExecutor().call(() -> {
+            GlobalContext context = session.getContext();
+            long version = session.getEngine().getStateVersion();
+            CachedState cached = allStateCache.get(context);
+            if (cached == null || cached.version != version) {
+                try {
+                    cached = new CachedState(version, new RawJson(objectMapper.writeValueAsBytes(context)));
+                } catch (JsonProcessingException e) {
+                    throw new BusinessException("状态序列化失败: " + e.getMessage());
+                }
+                allStateCache.put(context, cached);
+            }
+            return cached.json;
+        });
+        return Result.success("查询成功", new RawValue(json));
     }
 
     /**
-     * 获取当前仿真时刻的状态快照（离散仿真：状态仅在事件处理时改变）
+     * 获取最近一次发布的状态快照（离散仿真：状态仅在事件处理时改变）
+     * 无锁读取，不阻塞推进；epoch/simTime 标明快照对应的时刻
+     *
+     * Accept 为 application/x-sim-columnar 时返回列式二进制格式
+     *
+     * @param since 上次收到的纪元；传入时只返回之后变化和删除的实体
      */
     @GetMapping("/snapshot")
-    public Result getSnapshot() {
-        GlobalContext ctx = GlobalContext.getInstance();
-        PortSnapshotDto snapshot = new PortSnapshotDto();
-        snapshot.setSimTime(ctx.getSimTime());
-
-        // 组装各类实体的快照数据
-        snapshot.setDevices(buildDeviceSnapshots(ctx));
-        snapshot.setFences(buildFenceSnapshots(ctx));
-        snapshot.setChargingStations(buildChargingStationSnapshots(ctx));
-        snapshot.setWorkInstructions(buildWiSnapshots(ctx));
-
-        return Result.success("查询成功", snapshot);
+    public Result getSnapshot(@RequestParam(name = "since", required = false) Long since,
+                              @RequestParam(name = "sessionId", required = false) String sessionId,
+                              @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        StateEpochPublisher publisher = sessionManager.get(sessionId).getEpochPublisher();
+        return Result.success("查询成功", snapshotBody(publisher, since, accept));
     }
 
     /**
-     * 构建所有设备的快照
+     * 按条件查询最近一次发布的状态：过滤、字段投影与按ID分页
+     * 无锁读取，只扫描候选实体；各页可能来自不同纪元，响应中的 epoch 标明本页所用的纪元
      */
-    private List<DeviceSnapshotDto> buildDeviceSnapshots(GlobalContext ctx) {
-        List<DeviceSnapshotDto> allDevices = new ArrayList<>();
-
-        //  集卡 (Truck)
-        allDevices.addAll(mapToSnapshot(ctx.getTruckMap().values()));
-
-        //  岸桥 (QC)
-        allDevices.addAll(mapToSnapshot(ctx.getQcMap().values()));
+    @PostMapping("/query")
+    public Result query(@RequestBody StateQueryReq req,
+                        @RequestParam(name = "sessionId", required = false) String sessionId) {
+        StateQueryResp resp = sessionManager.get(sessionId).getEpochPublisher().query(req);
+        return Result.success("查询成功", resp);
+    }
 
-        //  龙门吊 (ASC)
-        allDevices.addAll(mapToSnapshot(ctx.getAscMap().values()));
+    /**
+     * 全部行驶中设备在 time 时刻的插值位置（列式），time 为空时取最近一次发布的仿真时间
+     * 无锁读取，按最近一次发布的行驶线段批量插值，适合地图按帧刷新
+     */
+    @GetMapping("/positions")
+    public Result movingPositions(@RequestParam(name = "time", required = false) Long time,
+                                  @RequestParam(name = "sessionId", required = false) String sessionId) {
+        return Result.success("查询成功", sessionManager.get(sessionId).getEpochPublisher().movingPositions(time));
+    }
 
-        return allDevices;
+    /**
+     * 指定设备在 [from, to] 内每隔 intervalMs 毫秒的位置采样，设备ID以逗号分隔
+     */
+    @GetMapping("/trajectory")
+    public Result trajectory(@RequestParam(name = "deviceIds") List<String> deviceIds,
+                             @RequestParam(name = "from") long from,
+                             @RequestParam(name = "to") long to,
+                             @RequestParam(name = "intervalMs") long intervalMs,
+                             @RequestParam(name = "sessionId", required = false) String sessionId) {
+        return Result.success("查询成功",
+                sessionManager.get(sessionId).getEpochPublisher().trajectories(deviceIds, from, to, intervalMs));
     }
 
     /**
-     * 通用设备映射逻辑
+     * 距查询点最近的 k 台设备（如某岸桥最近的空闲集卡），可按设备类型与状态过滤，多值参数以逗号分隔
+     * 查询点为 (x, y) 或 deviceId 对应设备的当前位置；行驶中的设备按当前仿真时间插值
      */
-    private List<DeviceSnapshotDto> mapToSnapshot(Collection<? extends BaseDevice> devices) {
-        return devices.stream().map(device -> {
-            DeviceSnapshotDto dto = new DeviceSnapshotDto();
-
-            // 基础属性 所有设备有
-            dto.setId(device.getId());
-            dto.setType(device.getType());
-            dto.setState(device.getState());
-            dto.setPosX(device.getPosX());
-            dto.setPosY(device.getPosY());
-            dto.setCurrWiRefNo(device.getCurrWiRefNo());
-
-            //  特有属性 (仅集卡
-            if (device instanceof Truck) {
-                Truck truck = (Truck) device;
-                dto.setPowerLevel(truck.getPowerLevel());
-                dto.setNeedCharge(truck.isNeedCharge());
-            }
+    @GetMapping("/devices/nearest")
+    public Result nearestDevices(@RequestParam(name = "x", required = false) Double x,
+                                 @RequestParam(name = "y", required = false) Double y,
+                                 @RequestParam(name = "deviceId", required = false) String deviceId,
+                                 @RequestParam(name = "k", required = false) Integer k,
+                                 @RequestParam(name = "types", required = false) List<DeviceTypeEnum> types,
+                                 @RequestParam(name = "states", required = false) List<DeviceStateEnum> states,
+                                 @RequestParam(name = "sessionId", required = false) String sessionId) {
+        NearbyDeviceReq req = nearbyReq(x, y, deviceId, types, states);
+        req.setK(k);
+        return Result.success("查询成功", spatialService.nearest(sessionManager.get(sessionId), req));
+    }
 
-            return dto;
-        }).collect(Collectors.toList());
+    /**
+     * 距查询点不超过 radius 米的全部设备，按距离升序，过滤条件同 {@link #nearestDevices}
+     */
+    @GetMapping("/devices/within")
+    public Result devicesWithin(@RequestParam(name = "x", required = false) Double x,
+                                @RequestParam(name = "y", required = false) Double y,
+                                @RequestParam(name = "deviceId", required = false) String deviceId,
+                                @RequestParam(name = "radius") Double radius,
+                                @RequestParam(name = "types", required = false) List<DeviceTypeEnum> types,
+                                @RequestParam(name = "states", required = false) List<DeviceStateEnum> states,
+                                @RequestParam(name = "sessionId", required = false) String sessionId) {
+        NearbyDeviceReq req = nearbyReq(x, y, deviceId, types, states);
+        req.setRadius(radius);
+        return Result.success("查询成功", spatialService.within(sessionManager.get(sessionId), req));
     }
 
-    private List<FenceSnapshotDto> buildFenceSnapshots(GlobalContext ctx) {
-        return ctx.getFenceMap().values().stream().map(f -> {
-            FenceSnapshotDto dto = new FenceSnapshotDto();
-            dto.setNodeId(f.getNodeId());
-            dto.setBlockCode(f.getBlockCode());
-            // 静态属性
-            dto.setPosX(f.getPosX());
-            dto.setPosY(f.getPosY());
-            dto.setRadius(f.getRadius());
-            dto.setSpeedLimit(f.getSpeedLimit());
-            // 动态状态 (是否阻塞 + 等待队列)
-            dto.setStatus(f.getStatus());
-            dto.setWaitingTrucks(f.getWaitingTrucks());
-            return dto;
-        }).collect(Collectors.toList());
+    private static NearbyDeviceReq nearbyReq(Double x, Double y, String deviceId,
+                                             List<DeviceTypeEnum> types, List<DeviceStateEnum> states) {
+        NearbyDeviceReq req = new NearbyDeviceReq();
+        req.setX(x);
+        req.setY(y);
+        req.setDeviceId(deviceId);
+        req.setTypes(types);
+        req.setStates(states);
+        return req;
     }
 
-    private List<ChargingStationSnapshotDto> buildChargingStationSnapshots(GlobalContext ctx) {
-        return ctx.getChargingStationMap().values().stream().map(s -> {
-            ChargingStationSnapshotDto dto = new ChargingStationSnapshotDto();
-            dto.setStationCode(s.getStationCode());
-            dto.setStatus(s.getStatus());
-            dto.setPosX(s.getPosX());
-            dto.setPosY(s.getPosY());
-            // 占用情况
-            dto.setTruckId(s.getTruckId());
-            dto.setChargeRate(s.getChargeRate());
-            return dto;
-        }).collect(Collectors.toList());
+    /**
+     * 快照响应体：增量、缓存的列式负载或缓存的 JSON
+     */
+    static Object snapshotBody(StateEpochPublisher publisher, Long since, String accept) {
+        if (since != null) {
+            return publisher.since(since);
+        }
+        return ColumnarCodec.accepts(accept) ? publisher.currentColumnar() : new RawValue(publisher.currentJson());
     }
 
-    private List<WorkInstructionSnapshotDto> buildWiSnapshots(GlobalContext ctx) {
-        return ctx.getWorkInstructionMap().values().stream().map(wi -> {
-            WorkInstructionSnapshotDto dto = new WorkInstructionSnapshotDto();
-            dto.setWiRefNo(wi.getWiRefNo());
-            dto.setContainerId(wi.getContainerId());
-            dto.setMoveKind(wi.getMoveKind());
-            // 起止点与状态流转
-            dto.setFromPos(wi.getFromPos());
-            dto.setToPos(wi.getToPos());
-            dto.setWiStatus(wi.getWiStatus());
-            dto.setDispatchCheId(wi.getDispatchCheId());
-            return dto;
-        }).collect(Collectors.toList());
+    private static final class CachedState {
+        final long version;
+        final RawJson json;
+
+        CachedState(long version, RawJson json) {
+            this.version = version;
+            this.json = json;
+        }
     }
-}
\ No newline at end of file
+}
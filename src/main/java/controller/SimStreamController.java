@@ -0,0 +1,70 @@
+package controller;
+
+import common.consts.EventTypeEnum;
+import engine.session.SimSessionManager;
+import model.dto.request.StreamSubscribeReq;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import service.algorithm.impl.StreamSink;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 仿真推送接口 (Server-Sent Events)
+ * 代替轮询 /sim/events 与 /sim/state/snapshot：订阅后按条件推送已处理的事件 (events)、
+ * 实体状态增量 (delta) 与积压丢弃通知 (gap)
+ */
+@RestController
+@RequestMapping("/sim/stream")
+public class SimStreamController {
+
+    private final SimSessionManager sessionManager;
+
+    public SimStreamController(SimSessionManager sessionManager) {
+        this.sessionManager = sessionManager;
+    }
+
+    /**
+     * 订阅推送，多值参数以逗号分隔；连接不超时，客户端断开即取消订阅
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam(name = "types", required = false) List<EventTypeEnum> types,
+                                @RequestParam(name = "deviceIds", required = false) List<String> deviceIds,
+                                @RequestParam(name = "minX", required = false) Double minX,
+                                @RequestParam(name = "minY", required = false) Double minY,
+                                @RequestParam(name = "maxX", required = false) Double maxX,
+                                @RequestParam(name = "maxY", required = false) Double maxY,
+                                @RequestParam(name = "cursor", required = false) Long cursor,
+                                @RequestParam(name = "sessionId", required = false) String sessionId) {
+        StreamSubscribeReq req = new StreamSubscribeReq();
+        req.setTypes(types);
+        req.setDeviceIds(deviceIds);
+        req.setMinX(minX);
+        req.setMinY(minY);
+        req.setMaxX(maxX);
+        req.setMaxY(maxY);
+        req.setCursor(cursor);
+
+        SseEmitter emitter = new SseEmitter(0L);
+        Runnable cancel = sessionManager.get(sessionId).getStreamHub().subscribe(req, new StreamSink() {
+            @Override
+            public void send(String name, Object data) throws IOException {
+                emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void complete() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(cancel);
+        emitter.onTimeout(cancel);
+        emitter.onError(e -> cancel.run());
+        return emitter;
+    }
+}
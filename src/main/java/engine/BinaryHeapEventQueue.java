@@ -0,0 +1,98 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * 无锁二叉堆事件队列
+ * 不做任何同步，仅在引擎单写线程内使用；比较逻辑内联，避免 Comparable 虚调用。
+ */
+public class BinaryHeapEventQueue implements EventQueue {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private SimEvent[] heap = new SimEvent[DEFAULT_CAPACITY];
+    private int size;
+
+    @Override
+    public void add(SimEvent event) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length << 1);
+        }
+        siftUp(size++, event);
+    }
+
+    @Override
+    public SimEvent poll() {
+        if (size == 0) {
+            return null;
+        }
+        SimEvent first = heap[0];
+        SimEvent last = heap[--size];
+        heap[size] = null;
+        if (size > 0) {
+            siftDown(0, last);
+        }
+        return first;
+    }
+
+    @Override
+    public SimEvent peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+    }
+
+    private void siftUp(int k, SimEvent event) {
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            SimEvent p = heap[parent];
+            if (!before(event, p)) {
+                break;
+            }
+            heap[k] = p;
+            k = parent;
+        }
+        heap[k] = event;
+    }
+
+    private void siftDown(int k, SimEvent event) {
+        int half = size >>> 1;
+        while (k < half) {
+            int child = (k << 1) + 1;
+            SimEvent c = heap[child];
+            int right = child + 1;
+            if (right < size && before(heap[right], c)) {
+                child = right;
+                c = heap[child];
+            }
+            if (!before(c, event)) {
+                break;
+            }
+            heap[k] = c;
+            k = child;
+        }
+        heap[k] = event;
+    }
+
+    // 与 SimEvent.compareTo 相同的 (triggerTime, eventId) 严格小于
+    static boolean before(SimEvent a, SimEvent b) {
+        if (a.getTriggerTime() != b.getTriggerTime()) {
+            return a.getTriggerTime() < b.getTriggerTime();
+        }
+        return a.getEventId() < b.getEventId();
+    }
+}
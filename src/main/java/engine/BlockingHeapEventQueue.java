@@ -0,0 +1,42 @@
+package engine;
+
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * 默认事件队列：加锁二叉堆
+ * 保持引擎原有行为，允许多线程并发入队。
+ */
+public class BlockingHeapEventQueue implements EventQueue {
+
+    private final PriorityBlockingQueue<SimEvent> queue = new PriorityBlockingQueue<>();
+
+    @Override
+    public void add(SimEvent event) {
+        queue.add(event);
+    }
+
+    @Override
+    public SimEvent poll() {
+        return queue.poll();
+    }
+
+    @Override
+    public SimEvent peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        queue.clear();
+    }
+}
@@ -0,0 +1,227 @@
+package engine;
+
+/**
+ * 日历队列 (Calendar Queue, R. Brown 1988)
+ * 将时间轴按 width 切成桶并循环映射到 nbuckets 个桶上，每个桶内按 (triggerTime, eventId) 有序链接。
+ * 移动类事件的触发时间高度聚集，桶宽自适应后入队/出队均摊 O(1)。
+ * 桶内链表直接复用 {@link SimEvent#queueNext}，入队不分配节点对象。
+ * 不做任何同步，仅在引擎单写线程内使用。
+ */
+public class CalendarEventQueue implements EventQueue {
+
+    private static final int MIN_BUCKETS = 16;
+    // 重新估算桶宽时采样的事件数
+    private static final int SAMPLE_SIZE = 25;
+
+    private SimEvent[] heads;
+    private SimEvent[] tails;
+    private int mask;            // 桶数 - 1 (桶数为 2 的幂)
+    private long width = 1L;     // 每个桶覆盖的时间宽度 (毫秒)
+    private int size;
+
+    // 当前扫描位置：lastBucket 桶在本轮中的时间窗为 [bucketTop - width, bucketTop)
+    private int lastBucket;
+    private long bucketTop;
+
+    private int growThreshold;
+    private int shrinkThreshold;
+    private boolean resizeEnabled = true;
+
+    public CalendarEventQueue() {
+        init(MIN_BUCKETS, 1L);
+        setPosition(0L);
+    }
+
+    @Override
+    public void add(SimEvent event) {
+        insert(event);
+        size++;
+        // 比当前扫描窗口更早的事件：把扫描位置拉回，保证不会漏掉
+        if (event.getTriggerTime() < bucketTop - width) {
+            setPosition(event.getTriggerTime());
+        }
+        if (resizeEnabled && size > growThreshold) {
+            resize(heads.length << 1);
+        }
+    }
+
+    @Override
+    public SimEvent poll() {
+        int bucket = locate();
+        if (bucket < 0) {
+            return null;
+        }
+        SimEvent event = heads[bucket];
+        heads[bucket] = event.queueNext;
+        if (heads[bucket] == null) {
+            tails[bucket] = null;
+        }
+        event.queueNext = null;
+        size--;
+        if (resizeEnabled && size < shrinkThreshold) {
+            resize(heads.length >> 1);
+        }
+        return event;
+    }
+
+    @Override
+    public SimEvent peek() {
+        int bucket = locate();
+        return bucket < 0 ? null : heads[bucket];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        init(MIN_BUCKETS, width);
+        setPosition(0L);
+    }
+
+    private void init(int nbuckets, long bucketWidth) {
+        heads = new SimEvent[nbuckets];
+        tails = new SimEvent[nbuckets];
+        mask = nbuckets - 1;
+        width = bucketWidth;
+        size = 0;
+        growThreshold = nbuckets << 1;
+        shrinkThreshold = nbuckets > MIN_BUCKETS ? nbuckets >> 1 : -1;
+    }
+
+    private void setPosition(long time) {
+        long slot = Math.floorDiv(time, width);
+        lastBucket = (int) (slot & mask);
+        bucketTop = (slot + 1) * width;
+    }
+
+    private int bucketOf(long time) {
+        return (int) (Math.floorDiv(time, width) & mask);
+    }
+
+    /**
+     * 有序插入桶内链表；触发时间单调、序号递增的常见情况直接追加到尾部
+     */
+    private void insert(SimEvent event) {
+        int bucket = bucketOf(event.getTriggerTime());
+        SimEvent head = heads[bucket];
+        if (head == null) {
+            event.queueNext = null;
+            heads[bucket] = event;
+            tails[bucket] = event;
+            return;
+        }
+        if (!BinaryHeapEventQueue.before(event, tails[bucket])) {
+            event.queueNext = null;
+            tails[bucket].queueNext = event;
+            tails[bucket] = event;
+            return;
+        }
+        if (BinaryHeapEventQueue.before(event, head)) {
+            event.queueNext = head;
+            heads[bucket] = event;
+            return;
+        }
+        SimEvent prev = head;
+        while (prev.queueNext != null && !BinaryHeapEventQueue.before(event, prev.queueNext)) {
+            prev = prev.queueNext;
+        }
+        event.queueNext = prev.queueNext;
+        prev.queueNext = event;
+    }
+
+    /**
+     * 定位最早事件所在的桶，并把扫描位置停在该桶；队列为空返回 -1
+     */
+    private int locate() {
+        if (size == 0) {
+            return -1;
+        }
+        int bucket = lastBucket;
+        long top = bucketTop;
+        for (int n = 0; n <= mask; n++) {
+            SimEvent head = heads[bucket];
+            if (head != null && head.getTriggerTime() < top) {
+                lastBucket = bucket;
+                bucketTop = top;
+                return bucket;
+            }
+            bucket = (bucket + 1) & mask;
+            top += width;
+        }
+
+        // 转完一整轮都没有落在当前窗口内的事件（事件间隔远大于一年），直接搜索最小桶头
+        int best = -1;
+        for (int b = 0; b <= mask; b++) {
+            SimEvent head = heads[b];
+            if (head != null && (best < 0 || BinaryHeapEventQueue.before(head, heads[best]))) {
+                best = b;
+            }
+        }
+        setPosition(heads[best].getTriggerTime());
+        return best;
+    }
+
+    /**
+     * 调整桶数并重新估算桶宽，所有事件重新散列
+     */
+    private void resize(int nbuckets) {
+        long newWidth = sampleWidth();
+        SimEvent[] oldHeads = heads;
+        init(nbuckets, newWidth);
+
+        SimEvent min = null;
+        for (SimEvent head : oldHeads) {
+            SimEvent e = head;
+            while (e != null) {
+                SimEvent next = e.queueNext;
+                insert(e);
+                size++;
+                if (min == null || BinaryHeapEventQueue.before(e, min)) {
+                    min = e;
+                }
+                e = next;
+            }
+        }
+        setPosition(min != null ? min.getTriggerTime() : 0L);
+    }
+
+    /**
+     * 从队首取出少量事件估算平均间隔，桶宽取去掉离群值后平均间隔的 3 倍
+     */
+    private long sampleWidth() {
+        int n = Math.min(size, SAMPLE_SIZE);
+        if (n < 2) {
+            return width;
+        }
+        resizeEnabled = false;
+        SimEvent[] sample = new SimEvent[n];
+        for (int i = 0; i < n; i++) {
+            sample[i] = poll();
+        }
+        double avg = (sample[n - 1].getTriggerTime() - sample[0].getTriggerTime()) / (double) (n - 1);
+        double sum = 0;
+        int count = 0;
+        for (int i = 1; i < n; i++) {
+            long separation = sample[i].getTriggerTime() - sample[i - 1].getTriggerTime();
+            if (separation <= avg * 2) {
+                sum += separation;
+                count++;
+            }
+        }
+        for (SimEvent e : sample) {
+            add(e);
+        }
+        resizeEnabled = true;
+
+        double separation = count > 0 ? sum / count : avg;
+        return Math.max(1L, (long) Math.ceil(separation * 3));
+    }
+}
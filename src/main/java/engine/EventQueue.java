@@ -0,0 +1,49 @@
+package engine;
+
+import common.consts.EventQueueTypeEnum;
+
+/**
+ * 事件队列扩展点
+ * 出队顺序必须与 {@link SimEvent#compareTo} 完全一致：先按 triggerTime，再按 eventId (即创建序号)。
+ */
+public interface EventQueue {
+
+    /**
+     * 入队
+     */
+    void add(SimEvent event);
+
+    /**
+     * 取出最早的事件，队列为空返回 null
+     */
+    SimEvent poll();
+
+    /**
+     * 查看最早的事件但不取出，队列为空返回 null
+     */
+    SimEvent peek();
+
+    int size();
+
+    boolean isEmpty();
+
+    void clear();
+
+    /**
+     * 按配置类型创建队列实例
+     */
+    static EventQueue create(EventQueueTypeEnum type) {
+        if (type == null) {
+            return new BlockingHeapEventQueue();
+        }
+        switch (type) {
+            case BINARY_HEAP:
+                return new BinaryHeapEventQueue();
+            case CALENDAR:
+                return new CalendarEventQueue();
+            case BLOCKING_HEAP:
+            default:
+                return new BlockingHeapEventQueue();
+        }
+    }
+}
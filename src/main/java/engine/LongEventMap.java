@@ -0,0 +1,163 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * 事件ID (long) 到事件的开放寻址哈希表
+ * 线性探测 + 删除时回移，键与值均存放在原始数组中，put/get/remove 不产生装箱与节点对象。
+ * 事件ID从 1 开始递增，0 作为空槽标记。非线程安全，由引擎锁保护。
+ */
+public class LongEventMap {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private SimEvent[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    public LongEventMap() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    public SimEvent get(long key) {
+        if (key == EMPTY) {
+            return null;
+        }
+        int i = slot(key);
+        while (true) {
+            long k = keys[i];
+            if (k == key) {
+                return values[i];
+            }
+            if (k == EMPTY) {
+                return null;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    public void put(long key, SimEvent value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("事件ID不能为 0");
+        }
+        int i = slot(key);
+        while (true) {
+            long k = keys[i];
+            if (k == key) {
+                values[i] = value;
+                return;
+            }
+            if (k == EMPTY) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size > resizeThreshold) {
+                    rehash(keys.length << 1);
+                }
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    public SimEvent remove(long key) {
+        if (key == EMPTY) {
+            return null;
+        }
+        int i = slot(key);
+        while (true) {
+            long k = keys[i];
+            if (k == EMPTY) {
+                return null;
+            }
+            if (k == key) {
+                SimEvent old = values[i];
+                shiftBack(i);
+                size--;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 遍历所有事件（顺序不确定）
+     */
+    public void forEachValue(Consumer<SimEvent> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                action.accept(values[i]);
+            }
+        }
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * 删除 i 处元素后把后续同簇元素前移，保持探测链不断
+     */
+    private void shiftBack(int i) {
+        int gap = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            long k = keys[j];
+            if (k == EMPTY) {
+                break;
+            }
+            int home = slot(k);
+            // home 不在 (gap, j] 区间内时才能前移到 gap
+            boolean movable = gap <= j ? (home <= gap || home > j) : (home <= gap && home > j);
+            if (movable) {
+                keys[gap] = k;
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = EMPTY;
+        values[gap] = null;
+    }
+
+    private int slot(long key) {
+        // 64 位混合，连续ID也能均匀散列
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new SimEvent[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * 0.6);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        SimEvent[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 有界多生产者单消费者环形队列
+ * 每个槽位带序号：生产者 CAS 抢占尾指针后写入元素，再以 volatile 写发布序号；
+ * 唯一的消费者按序号判断槽位是否就绪，头指针无需原子操作。全程无锁。
+ * 发布用 volatile 写而非 lazySet：调用方入队后还要读取消费者的挂起标志，
+ * 两者之间需要 StoreLoad 屏障，否则可能读到旧标志而漏掉唤醒（消费者只能等挂起超时）。
+ */
+public class MpscRingBuffer<E> {
+
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // 仅消费者线程读写
+    private long head;
+
+    public MpscRingBuffer(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        buffer = new Object[size];
+        sequences = new AtomicLongArray(size);
+        mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 入队（任意线程）
+     *
+     * @return 队列已满返回 false
+     */
+    public boolean offer(E element) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer[index] = element;
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 出队（仅消费者线程）
+     *
+     * @return 队列为空或下一个槽位尚未发布时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E element = (E) buffer[index];
+        buffer[index] = null;
+        sequences.lazySet(index, head + buffer.length);
+        head++;
+        return element;
+    }
+
+    /**
+     * 是否为空（仅消费者线程调用结果可靠）
+     */
+    public boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+}
@@ -0,0 +1,192 @@
+package engine;
+
+import common.config.SimEngineConfig;
+import common.exception.BusinessException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import service.algorithm.impl.StateEpochPublisher;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 仿真单写线程
+ * 独占 GlobalContext 与事件队列的写入：REST 线程把指令/推进请求放入无锁环形队列并拿到 Future，
+ * 仿真线程严格按入队顺序逐个执行，取代原先各接口上的 synchronized(context)。
+ * 每个任务结束后、结果交还调用方之前发布状态纪元，调用方随后读取的快照一定包含本次任务的效果。
+ */
+@Component
+@Slf4j
+public class SimCommandExecutor implements InitializingBean, DisposableBean {
+
+    // 空闲时先自旋若干次再挂起，兼顾突发指令的延迟与空闲 CPU
+    private static final int SPIN_TRIES = 200;
+    private static final long PARK_NANOS = 1_000_000L;
+    private static final long FULL_BACKOFF_NANOS = 10_000L;
+
+    private final MpscRingBuffer<CommandTask<?>> queue;
+    private final SimulationEngine engine;
+    private final StateEpochPublisher epochPublisher;
+    private volatile boolean running = true;
+    private volatile boolean sleeping;
+    private final String threadName;
+    private Thread writerThread;
+
+    @Autowired
+    public SimCommandExecutor(SimEngineConfig engineConfig, SimulationEngine engine, StateEpochPublisher epochPublisher) {
+        this(engineConfig, engine, epochPublisher, "sim-writer");
+    }
+
+    /**
+     * @param threadName 单写线程名，每个仿真会话一个线程
+     */
+    public SimCommandExecutor(SimEngineConfig engineConfig, SimulationEngine engine, StateEpochPublisher epochPublisher,
+                              String threadName) {
+        this.queue = new MpscRingBuffer<>(engineConfig.getCommandQueueCapacity());
+        this.engine = engine;
+        this.epochPublisher = epochPublisher;
+        this.threadName = threadName;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        writerThread = new Thread(this::runLoop, threadName);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join(5000);
+    }
+
+    /**
+     * 提交指令到仿真线程，立即返回 Future
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> command) {
+        CommandTask<T> task = new CommandTask<>(command);
+        if (Thread.currentThread() == writerThread) {
+            // 嵌套调用属于外层任务的一部分，由外层任务结束时统一发布
+            task.run(() -> { });
+            return task.future;
+        }
+        if (!running) {
+            throw new BusinessException("仿真线程已停止，指令未执行");
+        }
+        while (!queue.offer(task)) {
+            if (!running) {
+                throw new BusinessException("仿真线程已停止，指令未执行");
+            }
+            // 队列满：退避等待仿真线程消费，不丢弃指令
+            LockSupport.parkNanos(FULL_BACKOFF_NANOS);
+        }
+        if (!running) {
+            // 入队与停止交错：仿真线程可能已排空队列，不再等待
+            task.future.completeExceptionally(new BusinessException("仿真线程已停止，指令未执行"));
+            return task.future;
+        }
+        // offer 以 volatile 写发布槽位，与仿真线程“先置 sleeping 再查队列”构成 Dekker 式配对，不会漏唤醒
+        if (sleeping) {
+            LockSupport.unpark(writerThread);
+        }
+        return task.future;
+    }
+
+    /**
+     * 在仿真线程上执行指令并等待结果
+     * 仿真线程内的嵌套调用直接执行；指令抛出的异常原样抛给调用方（如 BusinessException 交给全局异常处理器）
+     */
+    public <T> T call(Callable<T> command) {
+        try {
+            return submit(command).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("等待仿真线程执行指令时被中断");
+        }
+    }
+
+    /**
+     * 在仿真线程上执行无返回值的指令并等待完成
+     */
+    public void run(Runnable command) {
+        call(() -> {
+            command.run();
+            return null;
+        });
+    }
+
+    private void runLoop() {
+        int idle = 0;
+        while (running) {
+            CommandTask<?> task = queue.poll();
+            if (task != null) {
+                idle = 0;
+                task.run(this::publishEpoch);
+                continue;
+            }
+            if (++idle < SPIN_TRIES) {
+                Thread.yield();
+                continue;
+            }
+            // 先声明将要挂起再复查队列，避免与生产者的唤醒错过
+            sleeping = true;
+            if (queue.isEmpty()) {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+            sleeping = false;
+        }
+        // 停止后未执行的指令以异常结束，避免调用方永久等待
+        CommandTask<?> task;
+        while ((task = queue.poll()) != null) {
+            task.future.completeExceptionally(new BusinessException("仿真线程已停止，指令未执行"));
+        }
+        log.info("仿真单写线程 [{}] 已停止", threadName);
+    }
+
+    private void publishEpoch() {
+        try {
+            epochPublisher.publish(engine.getStateVersion());
+        } catch (RuntimeException e) {
+            log.error("状态纪元发布失败", e);
+        }
+    }
+
+    private static final class CommandTask<T> {
+        private final Callable<T> command;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private CommandTask(Callable<T> command) {
+            this.command = command;
+        }
+
+        private void run(Runnable afterCommand) {
+            T result;
+            try {
+                result = command.call();
+            } catch (Throwable t) {
+                // 失败的指令也可能已改变状态
+                afterCommand.run();
+                future.completeExceptionally(t);
+                return;
+            }
+            afterCommand.run();
+            future.complete(result);
+        }
+    }
+}
@@ -1,54 +1,145 @@
 package engine;
 
+import common.consts.BizTypeEnum;
 import common.consts.EventTypeEnum;
+import common.consts.SubjectRoleEnum;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Data
 public class SimEvent implements Comparable<SimEvent> {
-    private String eventId;         // 本次事件唯一标识
-    private String parentEventId;   // 触发本事件的上游事件ID
+
+    /** 无父事件 (外部指令直接生成的根事件) */
+    public static final long NO_PARENT = 0L;
+
+    // 本次事件唯一标识 同时也是创建序号 单调递增 从 1 开始
+    @Setter(AccessLevel.NONE)
+    private long eventId;
+    private long parentEventId;     // 触发本事件的上游事件ID (NO_PARENT 表示根事件)
     private long triggerTime;       // 事件发生的绝对仿真时间戳
     private EventTypeEnum type;     // 事件类型
 
-    // 多主体参与 如 {"TRUCK": "T001", "CRANE": "QC01", "FENCE": "F01"}
-    private Map<String, String> subjects;
+    // 业务类型与链ID 调度时由引擎打标 (子事件继承父事件 根事件的链ID为自身ID)
+    @Setter(AccessLevel.NONE)
+    private BizTypeEnum bizType;
+    @Setter(AccessLevel.NONE)
+    private long chainId;
+
+    // 多主体参与 按 SubjectRoleEnum 序号存放 如 [TRUCK]=T001, [CRANE]=QC01, [FENCE]=F01
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final String[] subjects = new String[SubjectRoleEnum.COUNT];
 
     private Object data;            // 事件负载
     private boolean cancelled;      // 是否被取消
-    private long creationSequence;  // 创建序号
 
-    // 计数器 解决同一毫秒内的事件排序
-    private static final AtomicLong sequenceGenerator = new AtomicLong(0);
+    // 日历队列桶内链表指针 仅供 CalendarEventQueue 使用
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    SimEvent queueNext;
+
+    // 未经引擎调度的独立事件（如队列单测）使用的全局计数器；引擎调度的事件由各引擎按会话编号
+    private static final AtomicLong sequenceGenerator = new AtomicLong(NO_PARENT);
 
     // 构造函数
-    public SimEvent(String parentEventId, long triggerTime, EventTypeEnum type, Object data) {
-        this.eventId = UUID.randomUUID().toString();
+    public SimEvent(long parentEventId, long triggerTime, EventTypeEnum type, Object data) {
+        this(sequenceGenerator.incrementAndGet(), parentEventId, triggerTime, type, data);
+    }
+
+    /**
+     * 指定事件ID构造，由引擎按会话内序号分配，保证同一指令序列重放时事件ID完全一致
+     */
+    SimEvent(long eventId, long parentEventId, long triggerTime, EventTypeEnum type, Object data) {
+        this.eventId = eventId;
         this.parentEventId = parentEventId;
         this.triggerTime = triggerTime;
         this.type = type;
-        this.subjects = new HashMap<>();
         this.data = data;
         this.cancelled = false;
-        this.creationSequence = sequenceGenerator.getAndIncrement();
+    }
+
+    // 复制构造：保留事件ID与链信息，仅供会话分叉使用
+    private SimEvent(SimEvent source) {
+        this.eventId = source.eventId;
+        this.parentEventId = source.parentEventId;
+        this.triggerTime = source.triggerTime;
+        this.type = source.type;
+        this.bizType = source.bizType;
+        this.chainId = source.chainId;
+        System.arraycopy(source.subjects, 0, this.subjects, 0, this.subjects.length);
+        this.data = source.data;
+        this.cancelled = source.cancelled;
+    }
+
+    /**
+     * 按检查点中的原始字段重建事件（事件ID、链信息、取消标记均保留）
+     */
+    public static SimEvent restore(long eventId, long parentEventId, long triggerTime, EventTypeEnum type,
+                                   BizTypeEnum bizType, long chainId, String[] subjects, Object data, boolean cancelled) {
+        SimEvent event = new SimEvent(eventId, parentEventId, triggerTime, type, data);
+        event.stampChain(bizType, chainId);
+        System.arraycopy(subjects, 0, event.subjects, 0, event.subjects.length);
+        event.cancelled = cancelled;
+        return event;
+    }
+
+    /**
+     * 复制事件（会话分叉），事件ID不变；负载均为不可变对象，直接共享
+     */
+    SimEvent copy() {
+        return new SimEvent(this);
+    }
+
+    /**
+     * 写入业务类型与链ID，仅供引擎在调度或根事件开始处理时调用
+     */
+    void stampChain(BizTypeEnum bizType, long chainId) {
+        this.bizType = bizType;
+        this.chainId = chainId;
     }
 
     /**
      * 添加参与该事件的主体
      */
-    public void addSubject(String role, String targetId) {
-        this.subjects.put(role, targetId);
+    public void addSubject(SubjectRoleEnum role, String targetId) {
+        this.subjects[role.ordinal()] = targetId;
     }
 
     /**
      *  指定的ID
      */
-    public String getPrimarySubject(String role) {
-        return subjects.get(role);
+    public String getPrimarySubject(SubjectRoleEnum role) {
+        return subjects[role.ordinal()];
+    }
+
+    /**
+     * 事件涉及的设备ID：依次取 TRUCK、CRANE、DEVICE 角色
+     */
+    public String getDeviceSubject() {
+        String id = subjects[SubjectRoleEnum.TRUCK.ordinal()];
+        if (id == null) id = subjects[SubjectRoleEnum.CRANE.ordinal()];
+        if (id == null) id = subjects[SubjectRoleEnum.DEVICE.ordinal()];
+        return id;
+    }
+
+    /**
+     * 是否有任一角色的主体为指定ID
+     */
+    public boolean hasSubject(String targetId) {
+        for (String id : subjects) {
+            if (targetId.equals(id)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -59,6 +150,6 @@ public class SimEvent implements Comparable<SimEvent> {
             return timeCompare;
         }
         //  时间相同 按事件生成顺序排 确保先触发的并发事件先执行
-        return Long.compare(this.creationSequence, other.creationSequence);
+        return Long.compare(this.eventId, other.eventId);
     }
 }
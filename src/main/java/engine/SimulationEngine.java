@@ -1,11 +1,14 @@
 package engine;
 
 import common.config.PhysicsConfig;
+import common.config.SimEngineConfig;
 import common.consts.BizTypeEnum;
 import common.consts.DeviceStateEnum;
 import common.consts.DeviceTypeEnum;
 import common.consts.EventTypeEnum;
 import common.consts.FenceStateEnum;
+import common.consts.StepStopReasonEnum;
+import common.consts.SubjectRoleEnum;
 import common.consts.WiStatusEnum;
 import common.exception.BusinessException;
 import common.exception.SimulationDeadLoopException;
@@ -13,18 +16,22 @@ import common.util.GisUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import model.bo.GlobalContext;
-import model.dto.request.CraneMoveReq;
-import model.dto.request.CraneOperationReq;
-import model.dto.snapshot.EventLogEntryDto;
+import engine.condition.StopCondition;
+import engine.payload.ChargePayload;
+import engine.payload.CraneMovePayload;
+import engine.payload.CraneOpPayload;
+import engine.payload.MovePayload;
+import engine.payload.TaskPayload;
 import model.entity.*;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.PriorityBlockingQueue;
 
 import service.algorithm.impl.SimulationEventLog;
 import service.algorithm.impl.SimulationErrorLog;
@@ -35,29 +42,46 @@ import service.algorithm.impl.SimulationErrorLog;
 public class SimulationEngine implements InitializingBean {
     // 数据注入
     private final PhysicsConfig physicsConfig;
+    private final SimEngineConfig engineConfig;
     private final SimulationEventLog eventLog;
     private final SimulationErrorLog errorLog;
-    private final GlobalContext context = GlobalContext.getInstance();
-    private final PriorityBlockingQueue<SimEvent> eventQueue = new PriorityBlockingQueue<>();
+    private final GlobalContext context;
+    // 事件队列实现由 sim.engine.event-queue-type 决定，默认沿用加锁二叉堆
+    private EventQueue eventQueue;
     private final Map<EventTypeEnum, SimEventHandler> handlerMap = new EnumMap<>(EventTypeEnum.class);
     private final List<SimEventHandler> handlerBeans;
-    // 事件ID到事件的映射，用于取消事件
-    private final Map<String, SimEvent> eventIdMap = new ConcurrentHashMap<>();
+    // 事件ID到事件的映射，用于取消事件（原始 long 键开放寻址表，由引擎锁保护）
+    private final LongEventMap eventIdMap = new LongEventMap();
     // 被暂停的业务类型集合：事件链对应业务逻辑（BizTypeEnum），暂停时暂停整个业务
     private final java.util.Set<common.consts.BizTypeEnum> suspendedBizTypes = ConcurrentHashMap.newKeySet();
-    // 被暂停的事件ID集合（用于没有业务类型的独立事件，如充电、栅栏控制等）
-    private final java.util.Set<String> suspendedEventIds = ConcurrentHashMap.newKeySet();
+    // 被暂停的事件链ID集合（用于没有业务类型的独立事件链，如充电、栅栏控制等），每条链只占一项
+    private final java.util.Set<Long> suspendedChainIds = ConcurrentHashMap.newKeySet();
+    // 正在处理的事件，其处理器内调度的子事件从它继承业务类型与链ID
+    private SimEvent currentEvent;
+    // 根事件处理前调度的子事件，按链ID（根事件ID）分组；根事件开始处理、解析出业务类型后写入这些子事件
+    private final Map<Long, List<SimEvent>> unresolvedChildren = new HashMap<>();
+    // 状态版本：每处理一个事件或重置一次递增，供状态纪元发布判断是否需要重建快照
+    private long stateVersion;
+    // 会话内最后分配的事件ID：事件ID按会话从 1 递增，重置不回退
+    private long lastEventId;
+    // 已处理事件序列的滚动摘要，用于指令重放的确定性校验
+    private long eventDigest = DIGEST_SEED;
+
+    private static final long DIGEST_SEED = 0xcbf29ce484222325L;
+    private static final long DIGEST_PRIME = 0x100000001b3L;
 
     @Override
     public void afterPropertiesSet() {
+        eventQueue = EventQueue.create(engineConfig.getEventQueueType());
         // 通过 Spring 注入的处理器列表进行注册
         for (SimEventHandler handler : handlerBeans) {
             handlerMap.put(handler.getType(), handler);
         }
     }
-    // 注入新事件
-    public SimEvent scheduleEvent(String parentEventId, long triggerTime, EventTypeEnum type, Object data) {
-        SimEvent event = new SimEvent(parentEventId, triggerTime, type, data);
+    // 注入新事件（与推进共用引擎锁，保证非加锁队列实现只有单一写者）
+    public synchronized SimEvent scheduleEvent(long parentEventId, long triggerTime, EventTypeEnum type, Object data) {
+        SimEvent event = new SimEvent(++lastEventId, parentEventId, triggerTime, type, data);
+        stampChain(event);
         eventQueue.add(event);
         eventIdMap.put(event.getEventId(), event);
         return event;
@@ -68,7 +92,7 @@ public class SimulationEngine implements InitializingBean {
      * @param eventId 事件ID
      * @return 是否成功取消（事件存在且未被处理）
      */
-    public boolean cancelEvent(String eventId) {
+    public synchronized boolean cancelEvent(long eventId) {
         SimEvent event = eventIdMap.get(eventId);
         if (event == null) {
             return false;
@@ -79,130 +103,90 @@ public class SimulationEngine implements InitializingBean {
     }
 
     /**
-     * 从事件获取业务类型（BizTypeEnum）
-     * 事件链对应业务逻辑，通过多种方式获取业务类型：
-     * 1. 从事件数据中直接获取wiRefNo（CMD_ASSIGN_TASK事件）
-     * 2. 从事件的WI subject获取wiRefNo（WI_COMPLETE事件）
-     * 3. 通过设备的currWiRefNo获取（设备已绑定任务的事件）
-     * 4. 递归查找父事件链（如果父事件还在eventIdMap中）
+     * 在调度时为事件打上业务类型与链ID
+     * 父事件只能是正在处理的事件或仍在队列中的事件，子事件从它继承业务类型与链ID；根事件的链ID为自身ID，业务类型在其处理时解析一次。
+     * 所在链的根事件尚未处理时，子事件先登记在该链下，根事件解析出业务类型后写入。
+     *
+     * @throws BusinessException 父事件既不在处理中也不在队列中（已处理完或不存在），无法得知其链信息
      */
-    private common.consts.BizTypeEnum getBizTypeFromEvent(SimEvent event) {
-        if (event == null) {
-            return null;
+    private void stampChain(SimEvent event) {
+        long parentEventId = event.getParentEventId();
+        if (parentEventId == SimEvent.NO_PARENT) {
+            event.stampChain(null, event.getEventId());
+            return;
         }
-
-        // 方法1: 从事件数据中查找wiRefNo（如CMD_ASSIGN_TASK事件，最早获取业务类型）
-        if (event.getData() instanceof Map) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> payload = (Map<String, Object>) event.getData();
-            String wiRefNo = (String) payload.get("wiRefNo");
-            if (wiRefNo != null) {
-                WorkInstruction wi = context.getWorkInstructionMap().get(wiRefNo);
-                if (wi != null && wi.getMoveKind() != null) {
-                    return wi.getMoveKind();
-                }
-            }
+        SimEvent parent = currentEvent != null && currentEvent.getEventId() == parentEventId
+                ? currentEvent : eventIdMap.get(parentEventId);
+        if (parent == null) {
+            throw new BusinessException(String.format(
+                    "父事件不在处理中也不在队列中，无法继承事件链: ParentEventId=%d, Type=%s", parentEventId, event.getType()));
+        }
+        event.stampChain(parent.getBizType(), parent.getChainId());
+        if (parent.getBizType() == null && isPendingRoot(parent.getChainId())) {
+            unresolvedChildren.computeIfAbsent(parent.getChainId(), k -> new ArrayList<>()).add(event);
         }
+    }
 
-        // 方法2: 从事件的WI subject获取wiRefNo（如WI_COMPLETE事件）
-        String wiRefNoFromSubject = event.getPrimarySubject("WI");
-        if (wiRefNoFromSubject != null) {
-            WorkInstruction wi = context.getWorkInstructionMap().get(wiRefNoFromSubject);
-            if (wi != null && wi.getMoveKind() != null) {
-                return wi.getMoveKind();
+    private boolean isPendingRoot(long chainId) {
+        SimEvent root = eventIdMap.get(chainId);
+        return root != null && root.getParentEventId() == SimEvent.NO_PARENT && root != currentEvent;
+    }
+
+    /**
+     * 恢复或分叉后按待处理事件重建根事件处理前调度的子事件分组
+     */
+    private void rebuildUnresolvedChildren() {
+        unresolvedChildren.clear();
+        eventIdMap.forEachValue(event -> {
+            if (event.getParentEventId() != SimEvent.NO_PARENT && event.getBizType() == null
+                    && isPendingRoot(event.getChainId())) {
+                unresolvedChildren.computeIfAbsent(event.getChainId(), k -> new ArrayList<>()).add(event);
             }
-        }
+        });
+    }
 
-        // 方法3: 从事件的subjects中查找设备，通过设备的currWiRefNo获取业务类型
-        // 适用于设备已绑定任务的事件（CMD_TASK_ACK之后的事件）
-        String deviceId = event.getPrimarySubject("DEVICE");
-        if (deviceId == null) {
-            deviceId = event.getPrimarySubject("TRUCK");
+    /**
+     * 解析根事件的业务类型（BizTypeEnum），每个根事件只在开始处理时调用一次：
+     * 1. 从事件数据中直接获取wiRefNo（CMD_ASSIGN_TASK事件）
+     * 2. 从事件的WI subject获取wiRefNo（WI_COMPLETE事件）
+     * 3. 通过设备的currWiRefNo获取（设备已绑定任务的事件）
+     */
+    private common.consts.BizTypeEnum resolveBizType(SimEvent event) {
+        // 方法1: 从事件数据中查找wiRefNo（如CMD_ASSIGN_TASK事件，最早获取业务类型）
+        String wiRefNo = null;
+        if (event.getData() instanceof TaskPayload) {
+            wiRefNo = ((TaskPayload) event.getData()).getWiRefNo();
         }
-        if (deviceId == null) {
-            deviceId = event.getPrimarySubject("CRANE");
+        // 方法2: 从事件的WI subject获取wiRefNo（如WI_COMPLETE事件）
+        if (wiRefNo == null) {
+            wiRefNo = event.getPrimarySubject(SubjectRoleEnum.WI);
         }
-
-        if (deviceId != null) {
-            BaseDevice device = context.getDevice(deviceId);
-            if (device != null && device.getCurrWiRefNo() != null) {
-                WorkInstruction wi = context.getWorkInstructionMap().get(device.getCurrWiRefNo());
-                if (wi != null && wi.getMoveKind() != null) {
-                    return wi.getMoveKind();
-                }
+        // 方法3: 从事件的设备主体获取其当前绑定的任务
+        if (wiRefNo == null) {
+            String deviceId = event.getDeviceSubject();
+            BaseDevice device = deviceId != null ? context.getDevice(deviceId) : null;
+            if (device != null) {
+                wiRefNo = device.getCurrWiRefNo();
             }
         }
-
-        // 方法4: 递归查找父事件链（如果父事件还在eventIdMap中，说明未处理）
-        String parentEventId = event.getParentEventId();
-        if (parentEventId != null) {
-            SimEvent parentEvent = eventIdMap.get(parentEventId);
-            if (parentEvent != null) {
-                common.consts.BizTypeEnum bizType = getBizTypeFromEvent(parentEvent);
-                if (bizType != null) {
-                    return bizType;
-                }
-            }
+        if (wiRefNo == null) {
+            return null;
         }
-
-        return null;
+        WorkInstruction wi = context.getWorkInstructionMap().get(wiRefNo);
+        return wi != null ? wi.getMoveKind() : null;
     }
 
     /**
-     * 检查事件链是否被暂停
-     * 事件链对应业务逻辑（BizTypeEnum），优先检查业务类型是否被暂停
-     * 对于没有业务类型的独立事件（如充电、栅栏控制），基于parentEventId检查
+     * 检查事件链是否被暂停：业务类型与链ID两次 O(1) 查找
      * @param event 事件对象
      * @return 如果事件链被暂停返回true
      */
     private boolean isEventChainSuspended(SimEvent event) {
-        if (event == null) {
-            return false;
-        }
-
-        // 优先检查业务类型是否被暂停（事件链对应业务逻辑）
-        common.consts.BizTypeEnum bizType = getBizTypeFromEvent(event);
-        if (bizType != null) {
-            if (suspendedBizTypes.contains(bizType)) {
-                return true;
-            }
-        }
-
-        // 对于没有业务类型的独立事件，检查事件ID是否被暂停
-        String eventId = event.getEventId();
-        if (suspendedEventIds.contains(eventId)) {
+        common.consts.BizTypeEnum bizType = event.getBizType();
+        if (bizType != null && suspendedBizTypes.contains(bizType)) {
             return true;
         }
-
-        // 利用parentEventId递归检查父事件链
-        // 注意：如果父事件已被处理并从eventIdMap移除，无法直接检查
-        // 但可以通过检查父事件的业务类型是否被暂停（如果父事件有业务类型）
-        String parentEventId = event.getParentEventId();
-        if (parentEventId != null) {
-            // 检查父事件ID是否在暂停集合中（独立事件）
-            if (suspendedEventIds.contains(parentEventId)) {
-                suspendedEventIds.add(eventId); // 优化：缓存结果
-                return true;
-            }
-            // 如果父事件还在eventIdMap中（未处理），递归检查父事件链
-            SimEvent parentEvent = eventIdMap.get(parentEventId);
-            if (parentEvent != null) {
-                if (isEventChainSuspended(parentEvent)) {
-                    // 如果父事件链被暂停，根据父事件的业务类型决定暂停方式
-                    common.consts.BizTypeEnum parentBizType = getBizTypeFromEvent(parentEvent);
-                    if (parentBizType != null) {
-                        // 父事件有业务类型，当前事件也应该有（通过递归获取）
-                        // 这里已经通过suspendedBizTypes检查过了，直接返回true
-                    } else {
-                        // 父事件是独立事件，当前事件也标记为暂停
-                        suspendedEventIds.add(eventId);
-                    }
-                    return true;
-                }
-            }
-        }
-
-        return false;
+        return !suspendedChainIds.isEmpty() && suspendedChainIds.contains(event.getChainId());
     }
 
     /**
@@ -211,21 +195,17 @@ public class SimulationEngine implements InitializingBean {
      * @param event 导致暂停的事件
      */
     private void suspendEventChain(SimEvent event) {
-        if (event == null) {
-            return;
-        }
-
         // 优先基于业务类型暂停
-        common.consts.BizTypeEnum bizType = getBizTypeFromEvent(event);
+        common.consts.BizTypeEnum bizType = event.getBizType();
         if (bizType != null) {
             suspendedBizTypes.add(bizType);
             log.warn("业务链已暂停: BizType={}, EventId={}, 该业务类型的所有事件链将被跳过",
                     bizType.getDesc(), event.getEventId());
         } else {
-            // 对于没有业务类型的独立事件（如充电、栅栏控制），基于事件ID暂停
-            String eventId = event.getEventId();
-            suspendedEventIds.add(eventId);
-            log.warn("事件链已暂停: EventId={}, 该事件及其所有子事件（通过parentEventId关联）将被跳过", eventId);
+            // 对于没有业务类型的独立事件（如充电、栅栏控制），基于链ID暂停
+            suspendedChainIds.add(event.getChainId());
+            log.warn("事件链已暂停: EventId={}, ChainId={}, 同一根事件派生的所有事件将被跳过",
+                    event.getEventId(), event.getChainId());
         }
     }
 
@@ -238,26 +218,105 @@ public class SimulationEngine implements InitializingBean {
     }
 
     /**
-     * 获取所有被暂停的事件ID（供外部查询，用于没有业务类型的独立事件）
-     * @return 被暂停的事件ID集合
+     * 获取所有被暂停的事件链ID（供外部查询，用于没有业务类型的独立事件链）
+     * @return 被暂停的链ID集合（即链上根事件的ID）
      */
-    public java.util.Set<String> getSuspendedEventIds() {
-        return new java.util.HashSet<>(suspendedEventIds);
+    public java.util.Set<Long> getSuspendedChainIds() {
+        return new java.util.HashSet<>(suspendedChainIds);
     }
 
     /**
      * 重置仿真引擎状态（用于测试或场景切换）
-     * 清空事件队列、暂停状态，不影响 GlobalContext
+     * 清空事件队列、暂停状态，不修改 GlobalContext；场景可能已在实体表外被整体改写，下次发布按全量扫描
      */
     public synchronized void reset() {
         eventQueue.clear();
         eventIdMap.clear();
         suspendedBizTypes.clear();
-        suspendedEventIds.clear();
+        suspendedChainIds.clear();
+        currentEvent = null;
+        unresolvedChildren.clear();
+        // 事件ID不回绕，避免与历史日志中的ID重复；摘要只覆盖重置后处理的事件
+        eventDigest = DIGEST_SEED;
+        context.changeTracker().markAll();
+        stateVersion++;
+    }
+
+    /**
+     * 会话分叉：复制源引擎的待处理事件与暂停状态，需在源会话的单写线程上调用
+     * 待处理事件即 eventIdMap 中的全部事件（含已取消但尚未出队的），逐个复制后按原ID入队，
+     * 分叉后两边取消/打标互不影响；已处理事件的日志不复制
+     */
+    public synchronized void forkFrom(SimulationEngine source) {
+        reset();
+        synchronized (source) {
+            source.eventIdMap.forEachValue(event -> {
+                SimEvent copy = event.copy();
+                eventQueue.add(copy);
+                eventIdMap.put(copy.getEventId(), copy);
+            });
+            suspendedBizTypes.addAll(source.suspendedBizTypes);
+            suspendedChainIds.addAll(source.suspendedChainIds);
+            lastEventId = source.lastEventId;
+            eventDigest = source.eventDigest;
+        }
+        rebuildUnresolvedChildren();
+    }
+
+    /**
+     * 遍历待处理事件（含已取消但尚未出队的），顺序不确定；用于检查点
+     */
+    public synchronized void forEachPendingEvent(java.util.function.Consumer<SimEvent> action) {
+        eventIdMap.forEachValue(action);
+    }
+
+    /**
+     * 以检查点中的待处理事件、暂停状态、事件ID序号与事件摘要替换当前引擎状态
+     */
+    public synchronized void restoreState(List<SimEvent> pendingEvents, java.util.Set<BizTypeEnum> bizTypes,
+                                          java.util.Set<Long> chainIds, long lastEventId, long eventDigest) {
+        reset();
+        this.lastEventId = lastEventId;
+        this.eventDigest = eventDigest;
+        for (SimEvent event : pendingEvents) {
+            eventQueue.add(event);
+            eventIdMap.put(event.getEventId(), event);
+        }
+        rebuildUnresolvedChildren();
+        suspendedBizTypes.addAll(bizTypes);
+        suspendedChainIds.addAll(chainIds);
+    }
+
+    /**
+     * 引擎所属会话的上下文
+     */
+    public GlobalContext getContext() {
+        return context;
     }
 
     /**
-     * 单事件推进（离散仿真的唯一对外推进方式）
+     * 会话内最后分配的事件ID
+     */
+    public synchronized long getLastEventId() {
+        return lastEventId;
+    }
+
+    /**
+     * 已处理事件序列的滚动摘要
+     */
+    public synchronized long getEventDigest() {
+        return eventDigest;
+    }
+
+    /**
+     * 当前状态版本
+     */
+    public synchronized long getStateVersion() {
+        return stateVersion;
+    }
+
+    /**
+     * 单事件推进（离散仿真的基本对外推进方式，批量推进见 {@link #runBatch}）
      * 处理下一个到期事件，时钟推进到该事件时间；无时间窗、无按步长推进。
      *
      * @return 处理的事件，若无待处理事件则返回 null
@@ -282,14 +341,30 @@ public class SimulationEngine implements InitializingBean {
      * 处理单个事件的内部方法
      *
      * @param nextEvent 要处理的事件
+     * @return 事件是否被处理（被取消或所在事件链已暂停时返回 false）
      */
-    private void processEvent(SimEvent nextEvent) {
+    private boolean processEvent(SimEvent nextEvent) {
         // 检查事件是否被取消
         if (nextEvent.isCancelled()) {
             log.info("事件已取消，跳过处理: EventId={}, Type={}, Time={}",
                     nextEvent.getEventId(), nextEvent.getType(), nextEvent.getTriggerTime());
             eventIdMap.remove(nextEvent.getEventId());
-            return;
+            unresolvedChildren.remove(nextEvent.getEventId());
+            return false;
+        }
+
+        // 根事件在开始处理时解析一次业务类型，写入其处理前已调度的子事件，之后的子事件在调度时继承
+        if (nextEvent.getParentEventId() == SimEvent.NO_PARENT) {
+            List<SimEvent> children = unresolvedChildren.remove(nextEvent.getEventId());
+            if (nextEvent.getBizType() == null) {
+                BizTypeEnum bizType = resolveBizType(nextEvent);
+                nextEvent.stampChain(bizType, nextEvent.getChainId());
+                if (bizType != null && children != null) {
+                    for (SimEvent child : children) {
+                        child.stampChain(bizType, child.getChainId());
+                    }
+                }
+            }
         }
 
         // 检查事件链是否被暂停
@@ -297,27 +372,24 @@ public class SimulationEngine implements InitializingBean {
             log.warn("事件链已暂停，跳过处理: EventId={}, Type={}, Time={}, ParentEventId={}",
                     nextEvent.getEventId(), nextEvent.getType(), nextEvent.getTriggerTime(), nextEvent.getParentEventId());
             eventIdMap.remove(nextEvent.getEventId());
-            return;
+            return false;
         }
 
         // 从映射中移除已处理的事件
         eventIdMap.remove(nextEvent.getEventId());
+        stateVersion++;
 
         // 更新全局仿真时钟到事件触发时间（这是离散仿真的关键：时钟严格按事件时间推进）
         context.setSimTime(nextEvent.getTriggerTime());
 
         // 记录事件日志
-        EventLogEntryDto logEntry = new EventLogEntryDto();
-        logEntry.setSimTime(nextEvent.getTriggerTime());
-        logEntry.setType(nextEvent.getType());
-        logEntry.setEventId(nextEvent.getEventId());
-        logEntry.setParentEventId(nextEvent.getParentEventId());
-        logEntry.setSubjects(nextEvent.getSubjects());
-        eventLog.append(logEntry);
+        eventLog.append(nextEvent);
+        eventDigest = digest(eventDigest, nextEvent);
 
         // 处理事件
         SimEventHandler handler = handlerMap.get(nextEvent.getType());
         if (handler != null) {
+            currentEvent = nextEvent;
             try {
                 handler.handle(nextEvent, this, context);
             } catch (Exception e) {
@@ -332,25 +404,26 @@ public class SimulationEngine implements InitializingBean {
                 suspendEventChain(nextEvent);
 
                 // 不中断仿真，继续处理其他独立的事件链
+            } finally {
+                currentEvent = null;
             }
         } else {
             // 没有处理器的事件：记录警告（可能是预留的扩展点，如FENCE_OPEN、REACH_FETCH_POS等）
             log.warn("事件类型 {} 没有对应的处理器，事件将被忽略: EventId={}, Time={}",
                     nextEvent.getType(), nextEvent.getEventId(), nextEvent.getTriggerTime());
         }
+        return true;
     }
 
     /**
      * 推进仿真到指定时间（仅用于测试或内部回放，对外不暴露）
      * 与单事件推进机制一致：内部仍是一个一个事件串行处理，无时间窗、无按步长推进。
-     * 对外时钟推进方式仅为 {@link #stepNextEvent()}。
+     * 对外时钟推进方式为 {@link #stepNextEvent()} 与 {@link #runBatch}。
      *
      * @param targetSimTime 目标仿真时间（毫秒）
      */
     public synchronized void runUntil(long targetSimTime) {
-        int sameTimeEventCount = 0;
-        long lastProcessedTime = -1L;
-        int maxEventsPerTimestamp = physicsConfig.getMaxEventsPerTimestamp();
+        DeadLoopDetector detector = new DeadLoopDetector(physicsConfig.getMaxEventsPerTimestamp());
 
         while (!eventQueue.isEmpty()) {
             SimEvent nextEvent = eventQueue.peek();
@@ -360,7 +433,107 @@ public class SimulationEngine implements InitializingBean {
             }
 
             // 死循环检测：检查同一时间戳的事件数量
-            if (nextEvent.getTriggerTime() == lastProcessedTime) {
+            detector.check(nextEvent.getTriggerTime());
+
+            // 处理下一个事件（一个接一个）
+            eventQueue.poll();
+            processEvent(nextEvent);
+        }
+
+        // 离散仿真：时钟仅在此处和 processEvent 中更新。此处将时钟设为 targetSimTime，便于“推进到 T”的语义；状态仍以最后已处理事件为准。
+        context.setSimTime(targetSimTime);
+    }
+
+    /**
+     * 批量推进：在一次调用内串行处理事件，直到命中停止条件或达到任一上限
+     * 逐个事件处理，与 {@link #runUntil} 共用同一时间戳死循环检测。
+     * 因目标时间或队列为空而停止且指定了目标时间时，时钟推进到目标时间；否则停在最后处理的事件时间。
+     *
+     * @param maxEvents         最多出队的事件数（含被取消/暂停而跳过的事件）
+     * @param untilSimTime      目标仿真时间，只处理触发时间不晚于它的事件
+     * @param wallClockBudgetMs 墙钟时间预算（毫秒），小于等于 0 表示不限制
+     * @param condition         停止条件，仅对实际处理（未被取消/暂停）的事件回调
+     * @return 停止原因
+     */
+    public synchronized StepStopReasonEnum runBatch(int maxEvents, long untilSimTime, long wallClockBudgetMs,
+                                                    StopCondition condition) {
+        DeadLoopDetector detector = new DeadLoopDetector(physicsConfig.getMaxEventsPerTimestamp());
+        long deadline = wallClockBudgetMs > 0 ? System.nanoTime() + wallClockBudgetMs * 1_000_000L : Long.MAX_VALUE;
+        int processed = 0;
+        StepStopReasonEnum reason;
+
+        while (true) {
+            if (processed >= maxEvents) {
+                reason = StepStopReasonEnum.MAX_EVENTS;
+                break;
+            }
+            SimEvent nextEvent = eventQueue.peek();
+            if (nextEvent == null) {
+                reason = StepStopReasonEnum.QUEUE_EMPTY;
+                break;
+            }
+            if (nextEvent.getTriggerTime() > untilSimTime) {
+                reason = StepStopReasonEnum.SIM_TIME_REACHED;
+                break;
+            }
+            if (processed > 0 && System.nanoTime() >= deadline) {
+                reason = StepStopReasonEnum.WALL_CLOCK_BUDGET;
+                break;
+            }
+
+            detector.check(nextEvent.getTriggerTime());
+            eventQueue.poll();
+            condition.beforeEvent(nextEvent, context);
+            boolean handled = processEvent(nextEvent);
+            processed++;
+            if (handled && condition.afterEvent(nextEvent, context)) {
+                reason = StepStopReasonEnum.CONDITION_MATCHED;
+                break;
+            }
+        }
+
+        if (untilSimTime != Long.MAX_VALUE
+                && (reason == StepStopReasonEnum.SIM_TIME_REACHED || reason == StepStopReasonEnum.QUEUE_EMPTY)) {
+            context.setSimTime(Math.max(context.getSimTime(), untilSimTime));
+        }
+        return reason;
+    }
+
+    /**
+     * 把事件的ID、父ID、触发时间、类型与主体混入摘要 (FNV-1a 式逐字混合)
+     * 只使用会话内确定的值，同一指令序列重放得到相同摘要
+     */
+    private static long digest(long h, SimEvent event) {
+        h = mix(h, event.getEventId());
+        h = mix(h, event.getParentEventId());
+        h = mix(h, event.getTriggerTime());
+        h = mix(h, event.getType().ordinal());
+        for (int i = 0; i < SubjectRoleEnum.COUNT; i++) {
+            String subject = event.getPrimarySubject(SubjectRoleEnum.of(i));
+            h = mix(h, subject != null ? subject.hashCode() : 0);
+        }
+        return h;
+    }
+
+    private static long mix(long h, long value) {
+        h = (h ^ value) * DIGEST_PRIME;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * 同一时间戳死循环检测：同一触发时间连续处理的事件数超过阈值即抛出异常，通知外部算法
+     */
+    private final class DeadLoopDetector {
+        private final int maxEventsPerTimestamp;
+        private long lastProcessedTime = -1L;
+        private int sameTimeEventCount;
+
+        private DeadLoopDetector(int maxEventsPerTimestamp) {
+            this.maxEventsPerTimestamp = maxEventsPerTimestamp;
+        }
+
+        private void check(long triggerTime) {
+            if (triggerTime == lastProcessedTime) {
                 sameTimeEventCount++;
                 if (sameTimeEventCount > maxEventsPerTimestamp) {
                     // 记录死循环错误
@@ -373,17 +546,10 @@ public class SimulationEngine implements InitializingBean {
                 }
             } else {
                 // 新的时间戳，重置计数器
-                lastProcessedTime = nextEvent.getTriggerTime();
+                lastProcessedTime = triggerTime;
                 sameTimeEventCount = 1;
             }
-
-            // 处理下一个事件（一个接一个）
-            eventQueue.poll();
-            processEvent(nextEvent);
         }
-
-        // 离散仿真：时钟仅在此处和 processEvent 中更新。此处将时钟设为 targetSimTime，便于“推进到 T”的语义；状态仍以最后已处理事件为准。
-        context.setSimTime(targetSimTime);
     }
 
     /**
@@ -400,7 +566,7 @@ public class SimulationEngine implements InitializingBean {
 
         @Override
         public void handle(SimEvent event, SimulationEngine engine, GlobalContext context) {
-            String fenceId = event.getPrimarySubject("FENCE");
+            String fenceId = event.getPrimarySubject(SubjectRoleEnum.FENCE);
             Fence fence = context.getFenceMap().get(fenceId);
             if (fence != null) {
                 FenceStateEnum status = (FenceStateEnum) event.getData();
@@ -410,6 +576,7 @@ public class SimulationEngine implements InitializingBean {
                 if (FenceStateEnum.PASSABLE.equals(status)) {
                     fence.getWaitingTrucks().clear();
                 }
+                context.markDirty(fence);
 
                 log.info("栅栏 {} 状态已更新为: {}", fenceId, status.getDesc());
             }
@@ -427,15 +594,13 @@ public class SimulationEngine implements InitializingBean {
         }
 
         @Override
-        @SuppressWarnings("unchecked")
         public void handle(SimEvent event, SimulationEngine engine, GlobalContext context) {
-            String deviceId = event.getPrimarySubject("DEVICE");
-            if (deviceId == null) deviceId = event.getPrimarySubject("TRUCK");
+            String deviceId = event.getPrimarySubject(SubjectRoleEnum.DEVICE);
+            if (deviceId == null) deviceId = event.getPrimarySubject(SubjectRoleEnum.TRUCK);
             BaseDevice device = context.getDevice(deviceId);
             if (device == null) return;
-            Map<String, Object> payload = (Map<String, Object>) event.getData();
-            SimEvent ackEvent = engine.scheduleEvent(event.getEventId(), context.getSimTime(), EventTypeEnum.CMD_TASK_ACK, payload);
-            ackEvent.addSubject("DEVICE", deviceId);
+            SimEvent ackEvent = engine.scheduleEvent(event.getEventId(), context.getSimTime(), EventTypeEnum.CMD_TASK_ACK, event.getData());
+            ackEvent.addSubject(SubjectRoleEnum.DEVICE, deviceId);
         }
     }
     /**
@@ -450,16 +615,16 @@ public class SimulationEngine implements InitializingBean {
         }
 
         @Override
-        @SuppressWarnings("unchecked")
         public void handle(SimEvent event, SimulationEngine engine, GlobalContext context) {
-            String deviceId = event.getPrimarySubject("DEVICE");
+            String deviceId = event.getPrimarySubject(SubjectRoleEnum.DEVICE);
             BaseDevice device = context.getDevice(deviceId);
             if (device == null) return;
-            Map<String, Object> payload = (Map<String, Object>) event.getData();
-            device.setCurrWiRefNo((String) payload.get("wiRefNo"));
+            TaskPayload payload = (TaskPayload) event.getData();
+            device.setCurrWiRefNo(payload.getWiRefNo());
             if (device.getType() == DeviceTypeEnum.ASC || device.getType() == DeviceTypeEnum.QC) {
                 device.setState(DeviceStateEnum.WORKING);
             }
+            context.markDirty(device);
         }
     }
     /**
@@ -474,20 +639,18 @@ public class SimulationEngine implements InitializingBean {
         }
 
         @Override
-        @SuppressWarnings("unchecked")
         public void handle(SimEvent event, SimulationEngine engine, GlobalContext context) {
-            String truckId = event.getPrimarySubject("TRUCK");
+            String truckId = event.getPrimarySubject(SubjectRoleEnum.TRUCK);
             BaseDevice device = context.getDevice(truckId);
             if (device == null) throw new BusinessException("移动指令异常: 设备不存在");
-            Map<String, Object> payload = (Map<String, Object>) event.getData();
+            MovePayload payload = (MovePayload) event.getData();
 
-            Double speed = (Double) payload.get("speed");
-            Point target = (Point) payload.get("target");
-            device.setSpeed(speed);
-            device.setCurrentTargetPos(target);
+            device.setSpeed(payload.getSpeed());
+            device.setCurrentTargetPos(payload.getTarget());
+            context.markDirty(device);
 
             SimEvent moveStart = engine.scheduleEvent(event.getEventId(), context.getSimTime(), EventTypeEnum.MOVE_START, null);
-            moveStart.addSubject("TRUCK", truckId);
+            moveStart.addSubject(SubjectRoleEnum.TRUCK, truckId);
         }
     }
     /**
@@ -503,9 +666,7 @@ public class SimulationEngine implements InitializingBean {
 
         @Override
         public void handle(SimEvent event, SimulationEngine engine, GlobalContext context) {
-            String deviceId = event.getPrimarySubject("TRUCK");
-            if (deviceId == null) deviceId = event.getPrimarySubject("CRANE");
-            BaseDevice device = context.getDevice(deviceId);
+            BaseDevice device = context.getDevice(event.getDeviceSubject());
             if (device != null) {
                 device.onMoveStart(context.getSimTime(), engine, event.getEventId());
             }
@@ -524,13 +685,12 @@ public class SimulationEngine implements InitializingBean {
 
         @Override
         public void handle(SimEvent event, SimulationEngine engine, GlobalContext context) {
-            String id = event.getPrimarySubject("TRUCK");
-            if(id==null) id = event.getPrimarySubject("CRANE");
+            String id = event.getDeviceSubject();
             BaseDevice d = context.getDevice(id);
             if(d != null) {
                 d.onArrival((Point)event.getData(), context.getSimTime(), engine, event.getEventId());
                 SimEvent reportEvent = engine.scheduleEvent(event.getEventId(), context.getSimTime(), EventTypeEnum.REPORT_IDLE, null);
-                reportEvent.addSubject(d.getType() == DeviceTypeEnum.ASC || d.getType() == DeviceTypeEnum.QC ? "CRANE" : "TRUCK", id);
+                reportEvent.addSubject(d.getType() == DeviceTypeEnum.ASC || d.getType() == DeviceTypeEnum.QC ? SubjectRoleEnum.CRANE : SubjectRoleEnum.TRUCK, id);
             }
         }
     }
@@ -547,9 +707,7 @@ public class SimulationEngine implements InitializingBean {
 
         @Override
         public void handle(SimEvent event, SimulationEngine engine, GlobalContext context) {
-            String id = event.getPrimarySubject("TRUCK");
-            if(id==null) id = event.getPrimarySubject("CRANE");
-            log.info("设备 {} 动作结束，当前空闲", id);
+            log.info("设备 {} 动作结束，当前空闲", event.getDeviceSubject());
         }
     }
     /**
@@ -564,13 +722,11 @@ public class SimulationEngine implements InitializingBean {
         }
 
         @Override
-        @SuppressWarnings("unchecked")
         public void handle(SimEvent event, SimulationEngine engine, GlobalContext context) {
-            String truckId = event.getPrimarySubject("TRUCK");
+            String truckId = event.getPrimarySubject(SubjectRoleEnum.TRUCK);
             Truck truck = context.getTruckMap().get(truckId);
             if (truck == null) return;
-            Map<String, Object> payload = (Map<String, Object>) event.getData();
-            String stationId = (String) payload.get("stationId");
+            String stationId = ((ChargePayload) event.getData()).getStationId();
             ChargingStation station = context.getChargingStationMap().get(stationId);
             if (station == null) throw new BusinessException("充电桩不存在");
 
@@ -584,9 +740,11 @@ public class SimulationEngine implements InitializingBean {
             station.setTruckId(truckId);
             station.setStatus(DeviceStateEnum.WORKING.getCode());
             truck.setTargetStationId(stationId);
+            context.markDirty(station);
+            context.markDirty(truck);
             SimEvent chargeStart = engine.scheduleEvent(event.getEventId(), context.getSimTime(), EventTypeEnum.CHARGING_START, null);
-            chargeStart.addSubject("TRUCK", truckId);
-            chargeStart.addSubject("STATION", stationId);
+            chargeStart.addSubject(SubjectRoleEnum.TRUCK, truckId);
+            chargeStart.addSubject(SubjectRoleEnum.STATION, stationId);
         }
     }
     /**
@@ -602,21 +760,22 @@ public class SimulationEngine implements InitializingBean {
 
         @Override
         public void handle(SimEvent event, SimulationEngine engine, GlobalContext context) {
-            String truckId = event.getPrimarySubject("TRUCK");
+            String truckId = event.getPrimarySubject(SubjectRoleEnum.TRUCK);
             Truck truck = context.getTruckMap().get(truckId);
-            String stationId = event.getPrimarySubject("STATION");
+            String stationId = event.getPrimarySubject(SubjectRoleEnum.STATION);
             ChargingStation station = context.getChargingStationMap().get(stationId);
             if (truck != null && station != null) {
                 Double rate = station.getChargeRate();
                 if (rate == null || rate <= 0) rate = 10.0; // 默认充电速率 %/秒
                 truck.setState(DeviceStateEnum.CHARGING);
+                context.markDirty(truck);
                 double currentPower = truck.getPowerLevel() != null ? truck.getPowerLevel() : 0;
                 double powerNeeded = Truck.MAX_POWER_LEVEL - currentPower;
                 long chargeDurationMS = (long) ((powerNeeded / rate) * 1000); // 换算为毫秒
                 if (chargeDurationMS <= 0) chargeDurationMS = 1;
                 SimEvent fullEvent = engine.scheduleEvent(event.getEventId(), context.getSimTime() + chargeDurationMS, EventTypeEnum.CHARGE_FULL, null);
-                fullEvent.addSubject("TRUCK", truckId);
-                fullEvent.addSubject("STATION", stationId);
+                fullEvent.addSubject(SubjectRoleEnum.TRUCK, truckId);
+                fullEvent.addSubject(SubjectRoleEnum.STATION, stationId);
             }
         }
     }
@@ -633,22 +792,24 @@ public class SimulationEngine implements InitializingBean {
 
         @Override
         public void handle(SimEvent event, SimulationEngine engine, GlobalContext context) {
-            String truckId = event.getPrimarySubject("TRUCK");
+            String truckId = event.getPrimarySubject(SubjectRoleEnum.TRUCK);
             Truck truck = context.getTruckMap().get(truckId);
-            String stationId = event.getPrimarySubject("STATION");
+            String stationId = event.getPrimarySubject(SubjectRoleEnum.STATION);
             ChargingStation station = context.getChargingStationMap().get(stationId);
             if (truck != null) {
                 truck.setPowerLevel(Truck.MAX_POWER_LEVEL);
                 truck.setNeedCharge(false);
                 truck.setState(DeviceStateEnum.IDLE);
                 truck.setTargetStationId(null);
+                context.markDirty(truck);
             }
             if (station != null) {
                 station.setTruckId(null);
                 station.setStatus(DeviceStateEnum.IDLE.getCode());
+                context.markDirty(station);
             }
             SimEvent idleEvent = engine.scheduleEvent(event.getEventId(), context.getSimTime(), EventTypeEnum.REPORT_IDLE, null);
-            idleEvent.addSubject("TRUCK", truckId);
+            idleEvent.addSubject(SubjectRoleEnum.TRUCK, truckId);
         }
     }
 
@@ -665,12 +826,12 @@ public class SimulationEngine implements InitializingBean {
 
         @Override
         public void handle(SimEvent event, SimulationEngine engine, GlobalContext context) {
-            String fenceId = event.getPrimarySubject("FENCE");
+            String fenceId = event.getPrimarySubject(SubjectRoleEnum.FENCE);
             Fence fence = context.getFenceMap().get(fenceId);
             if (fence != null) {
                 FenceStateEnum status = (FenceStateEnum) event.getData();
                 SimEvent ctrlEvent = engine.scheduleEvent(event.getEventId(), context.getSimTime(), EventTypeEnum.FENCE_CONTROL, status);
-                ctrlEvent.addSubject("FENCE", fenceId);
+                ctrlEvent.addSubject(SubjectRoleEnum.FENCE, fenceId);
             }
         }
     }
@@ -687,31 +848,30 @@ public class SimulationEngine implements InitializingBean {
         }
 
         @Override
-        @SuppressWarnings("unchecked")
         public void handle(SimEvent event, SimulationEngine engine, GlobalContext context) {
-            String craneId = event.getPrimarySubject("CRANE");
+            String craneId = event.getPrimarySubject(SubjectRoleEnum.CRANE);
             BaseDevice device = context.getDevice(craneId);
             if (device == null) return;
-            Map<String, Object> payload = (Map<String, Object>) event.getData();
-            CraneMoveReq req = (CraneMoveReq) payload.get("req");
-            Double speed = (Double) payload.get("speed");
-            if (speed == null || speed <= 0) throw new BusinessException("speed无效");
-            double distance = req.getDistance() != null ? req.getDistance() : 0;
+            CraneMovePayload payload = (CraneMovePayload) event.getData();
+            double speed = payload.getSpeed();
+            if (speed <= 0) throw new BusinessException("speed无效");
+            double distance = payload.getDistance();
             long travelTimeMS = (long) ((distance / speed) * 1000);
-            device.setState(req.getMoveType());
+            device.setState(payload.getMoveType());
+            context.markDirty(device);
             // 计算目标点：ARRIVAL 事件需要 Point 数据供 onArrival 使用
-            double posX = device.getPosX() != null ? device.getPosX() : 0;
-            double posY = device.getPosY() != null ? device.getPosY() : 0;
+            double posX = device.getPosX();
+            double posY = device.getPosY();
             Point targetPoint;
-            if (DeviceStateEnum.MOVE_HORIZONTAL.equals(req.getMoveType())) {
+            if (DeviceStateEnum.MOVE_HORIZONTAL.equals(payload.getMoveType())) {
                 targetPoint = new Point(posX + distance, posY);
-            } else if (DeviceStateEnum.MOVE_VERTICAL.equals(req.getMoveType())) {
+            } else if (DeviceStateEnum.MOVE_VERTICAL.equals(payload.getMoveType())) {
                 targetPoint = new Point(posX, posY + distance);
             } else {
                 targetPoint = new Point(posX + distance, posY); // 默认水平
             }
             SimEvent arrEvent = engine.scheduleEvent(event.getEventId(), context.getSimTime() + travelTimeMS, EventTypeEnum.ARRIVAL, targetPoint);
-            arrEvent.addSubject("CRANE", device.getId());
+            arrEvent.addSubject(SubjectRoleEnum.CRANE, device.getId());
         }
     }
 
@@ -728,9 +888,9 @@ public class SimulationEngine implements InitializingBean {
 
         @Override
         public void handle(SimEvent event, SimulationEngine engine, GlobalContext context) {
-            CraneOperationReq req = (CraneOperationReq) event.getData();
-            SimEvent opEvent = engine.scheduleEvent(event.getEventId(), context.getSimTime() + req.getDurationMS(), req.getAction(), null);
-            opEvent.addSubject("CRANE", req.getCraneId());
+            CraneOpPayload payload = (CraneOpPayload) event.getData();
+            SimEvent opEvent = engine.scheduleEvent(event.getEventId(), context.getSimTime() + payload.getDurationMS(), payload.getAction(), null);
+            opEvent.addSubject(SubjectRoleEnum.CRANE, event.getPrimarySubject(SubjectRoleEnum.CRANE));
         }
     }
 
@@ -746,7 +906,7 @@ public class SimulationEngine implements InitializingBean {
         @Override
         public void handle(SimEvent event, SimulationEngine engine, GlobalContext context) {
             //  获取执行抓箱的设备
-            String deviceId = event.getPrimarySubject("CRANE");
+            String deviceId = event.getPrimarySubject(SubjectRoleEnum.CRANE);
             BaseDevice device = context.getDevice(deviceId);
 
             if (device != null) {
@@ -791,6 +951,7 @@ public class SimulationEngine implements InitializingBean {
                             //  更新箱子位置为当前设备ID 随着设备移动
                             String oldPos = container.getCurrentPos();
                             container.setCurrentPos(device.getId());
+                            context.markDirty(container);
 
                             log.info("事件[FETCH_DONE]: 设备 [{}] 完成抓箱。集装箱 [{}] 位置已从 [{}] 更新为设备上的 [{}]，业务类型: {}",
                                     deviceId, container.getContainerId(), oldPos, device.getId(),
@@ -823,10 +984,11 @@ public class SimulationEngine implements InitializingBean {
 
         @Override
         public void handle(SimEvent event, SimulationEngine engine, GlobalContext context) {
-            String deviceId = event.getPrimarySubject("CRANE");
+            String deviceId = event.getPrimarySubject(SubjectRoleEnum.CRANE);
             BaseDevice device = context.getDevice(deviceId);
             if (device != null) {
                 device.setState(DeviceStateEnum.IDLE);
+                context.markDirty(device);
                 String wiRefNo = device.getCurrWiRefNo();
                 if (wiRefNo == null) {
                     log.warn("事件[PUT_DONE]: 设备 [{}] 未绑定作业指令，跳过处理", deviceId);
@@ -844,13 +1006,14 @@ public class SimulationEngine implements InitializingBean {
                             Container container = context.getContainerMap().get(wi.getContainerId());
                             if (container != null && wi.getToPos() != null) {
                                 container.setCurrentPos(wi.getToPos());
+                                context.markDirty(container);
                                 log.info("事件[PUT_DONE]: 设备 [{}] 完成放箱。集装箱 [{}] 位置已更新为最终位置 [{}]，业务类型: {}",
                                         deviceId, container.getContainerId(), wi.getToPos(),
                                         common.util.BizTypeUtil.getFullDescription(wi.getMoveKind()));
                             }
                         }
                         SimEvent completeEvent = engine.scheduleEvent(event.getEventId(), context.getSimTime(), EventTypeEnum.WI_COMPLETE, null);
-                        completeEvent.addSubject("WI", device.getCurrWiRefNo());
+                        completeEvent.addSubject(SubjectRoleEnum.WI, device.getCurrWiRefNo());
                     } else if (isFetchDevice && wi.getCarryCheId() != null) {
                         // 抓箱设备放箱到集卡（卸船/装船/提箱等中间步骤，含DLVR/DIRECT_OUT）
                         if (wi.getContainerId() != null) {
@@ -858,6 +1021,7 @@ public class SimulationEngine implements InitializingBean {
                             if (container != null) {
                                 String oldPos = container.getCurrentPos();
                                 container.setCurrentPos(wi.getCarryCheId());
+                                context.markDirty(container);
                                 log.info("事件[PUT_DONE]: 设备 [{}] 完成放箱到集卡。集装箱 [{}] 位置已从 [{}] 更新为 [{}]，业务类型: {}",
                                         deviceId, container.getContainerId(), oldPos, wi.getCarryCheId(),
                                         common.util.BizTypeUtil.getFullDescription(wi.getMoveKind()));
@@ -889,9 +1053,12 @@ public class SimulationEngine implements InitializingBean {
 
         @Override
         public void handle(SimEvent event, SimulationEngine engine, GlobalContext context) {
-            String wiRefNo = event.getPrimarySubject("WI");
+            String wiRefNo = event.getPrimarySubject(SubjectRoleEnum.WI);
             WorkInstruction doneWi = context.getWorkInstructionMap().get(wiRefNo);
-            if (doneWi != null) doneWi.setWiStatus(WiStatusEnum.COMPLETED.getCode());
+            if (doneWi != null) {
+                doneWi.setWiStatus(WiStatusEnum.COMPLETED.getCode());
+                context.markDirty(doneWi);
+            }
         }
     }
 }
\ No newline at end of file
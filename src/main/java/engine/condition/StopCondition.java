@@ -0,0 +1,28 @@
+package engine.condition;
+
+import engine.SimEvent;
+import model.bo.GlobalContext;
+
+/**
+ * 推进停止条件
+ * 引擎在处理每个事件前后各回调一次；需要判断状态迁移的条件在 beforeEvent 中记录处理前的状态。
+ */
+@FunctionalInterface
+public interface StopCondition {
+
+    /** 不设条件，只受批量上限约束 */
+    StopCondition NEVER = (event, context) -> false;
+
+    /**
+     * 事件处理前回调
+     */
+    default void beforeEvent(SimEvent event, GlobalContext context) {
+    }
+
+    /**
+     * 事件处理后回调
+     *
+     * @return 命中返回 true，引擎在此事件之后停止
+     */
+    boolean afterEvent(SimEvent event, GlobalContext context);
+}
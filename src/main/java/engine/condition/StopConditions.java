@@ -0,0 +1,107 @@
+package engine.condition;
+
+import common.consts.DeviceStateEnum;
+import common.consts.EventTypeEnum;
+import common.consts.SubjectRoleEnum;
+import common.exception.BusinessException;
+import engine.SimEvent;
+import model.bo.GlobalContext;
+import model.dto.request.StopConditionReq;
+import model.entity.BaseDevice;
+import model.entity.Truck;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 由请求构建停止条件
+ * 设备相关条件只观察事件的设备主体：引擎中设备状态只由以该设备为主体的事件修改。
+ */
+public final class StopConditions {
+
+    private StopConditions() {
+    }
+
+    public static StopCondition of(StopConditionReq req) {
+        if (req == null || req.getType() == null) {
+            throw new BusinessException("停止条件错误: 条件类型 (type) 不能为空");
+        }
+        String subjectId = req.getSubjectId();
+        switch (req.getType()) {
+            case EVENT_TYPE: {
+                if (req.getEventTypes() == null || req.getEventTypes().isEmpty()) {
+                    throw new BusinessException("停止条件错误: EVENT_TYPE 必须指定 eventTypes");
+                }
+                Set<EventTypeEnum> types = EnumSet.copyOf(req.getEventTypes());
+                return (event, context) -> types.contains(event.getType())
+                        && (subjectId == null || event.hasSubject(subjectId));
+            }
+            case SUBJECT:
+                if (subjectId == null) {
+                    throw new BusinessException("停止条件错误: SUBJECT 必须指定 subjectId");
+                }
+                return (event, context) -> event.hasSubject(subjectId);
+            case WI_COMPLETE: {
+                String wiRefNo = req.getWiRefNo();
+                return (event, context) -> event.getType() == EventTypeEnum.WI_COMPLETE
+                        && (wiRefNo == null || wiRefNo.equals(event.getPrimarySubject(SubjectRoleEnum.WI)));
+            }
+            case DEVICE_IDLE_NO_TASK:
+                return new DeviceTransition(subjectId,
+                        d -> d.getState() == DeviceStateEnum.IDLE && d.getCurrWiRefNo() == null);
+            case STATE_ENTER: {
+                DeviceStateEnum state = req.getState();
+                if (state == null) {
+                    throw new BusinessException("停止条件错误: STATE_ENTER 必须指定 state");
+                }
+                return new DeviceTransition(subjectId, d -> d.getState() == state);
+            }
+            case POWER_BELOW: {
+                Double threshold = req.getPowerThreshold();
+                if (threshold == null) {
+                    throw new BusinessException("停止条件错误: POWER_BELOW 必须指定 powerThreshold");
+                }
+                return new DeviceTransition(subjectId, d -> d instanceof Truck
+                        && ((Truck) d).getPowerLevel() != null
+                        && ((Truck) d).getPowerLevel() < threshold);
+            }
+            default:
+                throw new BusinessException("停止条件错误: 不支持的条件类型 " + req.getType());
+        }
+    }
+
+    /**
+     * 设备状态迁移条件：事件处理前不满足、处理后满足时命中
+     */
+    private static final class DeviceTransition implements StopCondition {
+        private final String deviceId;
+        private final Predicate<BaseDevice> predicate;
+        private boolean matchedBefore;
+
+        private DeviceTransition(String deviceId, Predicate<BaseDevice> predicate) {
+            this.deviceId = deviceId;
+            this.predicate = predicate;
+        }
+
+        @Override
+        public void beforeEvent(SimEvent event, GlobalContext context) {
+            BaseDevice device = watchedDevice(event, context);
+            matchedBefore = device != null && predicate.test(device);
+        }
+
+        @Override
+        public boolean afterEvent(SimEvent event, GlobalContext context) {
+            BaseDevice device = watchedDevice(event, context);
+            return device != null && !matchedBefore && predicate.test(device);
+        }
+
+        private BaseDevice watchedDevice(SimEvent event, GlobalContext context) {
+            String id = event.getDeviceSubject();
+            if (id == null || (deviceId != null && !deviceId.equals(id))) {
+                return null;
+            }
+            return context.getDevice(id);
+        }
+    }
+}
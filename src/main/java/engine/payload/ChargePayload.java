@@ -0,0 +1,13 @@
+package engine.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * CMD_CHARGE 负载：目标充电桩
+ */
+@Getter
+@AllArgsConstructor
+public class ChargePayload {
+    private final String stationId; // 充电桩编号
+}
@@ -0,0 +1,26 @@
+package engine.payload;
+
+import common.consts.DeviceStateEnum;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import model.dto.request.CraneMoveReq;
+
+/**
+ * CMD_CRANE_MOVE 负载：岸桥/龙门吊水平或垂直移动
+ */
+@Getter
+@AllArgsConstructor
+public class CraneMovePayload {
+    private final DeviceStateEnum moveType; // 移动类型 (水平/垂直)
+    private final double distance;          // 移动距离 (米)
+    private final double speed;             // 移动速度 (米/秒)
+
+    /**
+     * 从请求复制参数，事件不持有可变的请求对象
+     */
+    public static CraneMovePayload of(CraneMoveReq req) {
+        return new CraneMovePayload(req.getMoveType(),
+                req.getDistance() != null ? req.getDistance() : 0,
+                req.getSpeed() != null ? req.getSpeed() : 0);
+    }
+}
@@ -0,0 +1,23 @@
+package engine.payload;
+
+import common.consts.EventTypeEnum;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import model.dto.request.CraneOperationReq;
+
+/**
+ * CMD_CRANE_OP 负载：抓箱/放箱作业
+ */
+@Getter
+@AllArgsConstructor
+public class CraneOpPayload {
+    private final EventTypeEnum action; // FETCH_DONE 或 PUT_DONE
+    private final long durationMS;      // 作业耗时
+
+    /**
+     * 从请求复制参数，事件不持有可变的请求对象
+     */
+    public static CraneOpPayload of(CraneOperationReq req) {
+        return new CraneOpPayload(req.getAction(), req.getDurationMS());
+    }
+}
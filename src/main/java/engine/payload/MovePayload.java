@@ -0,0 +1,15 @@
+package engine.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import model.entity.Point;
+
+/**
+ * CMD_MOVE 负载：单次点到点移动
+ */
+@Getter
+@AllArgsConstructor
+public class MovePayload {
+    private final Point target;   // 目标点
+    private final double speed;   // 外部算法指定的移动速度 (米/秒)
+}
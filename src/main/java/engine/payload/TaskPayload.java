@@ -0,0 +1,13 @@
+package engine.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * CMD_ASSIGN_TASK / CMD_TASK_ACK 负载：指派的作业指令
+ */
+@Getter
+@AllArgsConstructor
+public class TaskPayload {
+    private final String wiRefNo; // 作业指令编号
+}
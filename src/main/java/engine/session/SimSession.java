@@ -0,0 +1,98 @@
+package engine.session;
+
+import common.config.PhysicsConfig;
+import engine.SimCommandExecutor;
+import engine.SimulationEngine;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import model.bo.GlobalContext;
+import model.dto.response.SessionInfoResp;
+import model.dto.snapshot.PortSnapshotDto;
+import service.algorithm.ExternalAlgorithmApi;
+import service.algorithm.impl.CommandJournal;
+import service.algorithm.impl.EventStreamHub;
+import service.algorithm.impl.SimulationErrorLog;
+import service.algorithm.impl.SimulationEventLog;
+import service.algorithm.impl.StateEpochPublisher;
+
+/**
+ * 仿真会话
+ * 一套互相独立的仿真世界：上下文、物理参数、事件队列（引擎）、事件/错误日志、单写线程与状态纪元。
+ * 不同会话之间不共享任何可变状态，可在各自的单写线程上并行推进。
+ */
+@Getter
+@Slf4j
+public class SimSession {
+
+    private final String id;
+    private final boolean defaultSession;
+    private final String parentSessionId;
+    private final long createdAt = System.currentTimeMillis();
+    private final GlobalContext context;
+    private final PhysicsConfig physicsConfig;
+    private final SimulationEngine engine;
+    private final SimulationEventLog eventLog;
+    private final SimulationErrorLog errorLog;
+    private final StateEpochPublisher epochPublisher;
+    private final SimCommandExecutor commandExecutor;
+    private final ExternalAlgorithmApi algorithmApi;
+    private final CommandJournal journal;
+    private final EventStreamHub streamHub;
+
+    SimSession(String id, boolean defaultSession, String parentSessionId,
+               GlobalContext context, PhysicsConfig physicsConfig,
+               SimulationEngine engine, SimulationEventLog eventLog, SimulationErrorLog errorLog,
+               StateEpochPublisher epochPublisher, SimCommandExecutor commandExecutor,
+               ExternalAlgorithmApi algorithmApi, CommandJournal journal, EventStreamHub streamHub) {
+        this.id = id;
+        this.defaultSession = defaultSession;
+        this.parentSessionId = parentSessionId;
+        this.context = context;
+        this.physicsConfig = physicsConfig;
+        this.engine = engine;
+        this.eventLog = eventLog;
+        this.errorLog = errorLog;
+        this.epochPublisher = epochPublisher;
+        this.commandExecutor = commandExecutor;
+        this.algorithmApi = algorithmApi;
+        this.journal = journal;
+        this.streamHub = streamHub;
+    }
+
+    /**
+     * 会话概要，纪元与仿真时间取自最近发布的快照，不进入单写线程
+     */
+    public SessionInfoResp toInfo() {
+        PortSnapshotDto snapshot = epochPublisher.current();
+        SessionInfoResp info = new SessionInfoResp();
+        info.setSessionId(id);
+        info.setDefaultSession(defaultSession);
+        info.setParentSessionId(parentSessionId);
+        info.setCreatedAt(createdAt);
+        info.setEpoch(snapshot.getEpoch());
+        info.setSimTime(snapshot.getSimTime());
+        info.setArrivalThreshold(physicsConfig.getArrivalThreshold());
+        info.setChargeAlignThreshold(physicsConfig.getChargeAlignThreshold());
+        info.setMaxEventsPerTimestamp(physicsConfig.getMaxEventsPerTimestamp());
+        return info;
+    }
+
+    /**
+     * 结束推送订阅，停止会话的单写线程（未执行的指令以异常结束）并删除事件日志文件
+     */
+    void close() {
+        streamHub.close();
+        try {
+            commandExecutor.run(journal::stop);
+        } catch (RuntimeException e) {
+            log.warn("会话 [{}] 停止指令日志失败", id, e);
+        }
+        try {
+            commandExecutor.destroy();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("等待会话 [{}] 单写线程停止时被中断", id);
+        }
+        eventLog.delete();
+    }
+}
@@ -0,0 +1,266 @@
+package engine.session;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import common.config.PhysicsConfig;
+import common.config.SimEngineConfig;
+import common.exception.BusinessException;
+import engine.SimCommandExecutor;
+import engine.SimEventHandler;
+import engine.SimulationEngine;
+import lombok.extern.slf4j.Slf4j;
+import model.bo.GlobalContext;
+import model.dto.request.CreateSessionReq;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import service.algorithm.ExternalAlgorithmApi;
+import service.algorithm.impl.CommandJournal;
+import service.algorithm.impl.EventStreamHub;
+import service.algorithm.impl.ExternalAlgorithmServiceImpl;
+import service.algorithm.impl.SimulationErrorLog;
+import service.algorithm.impl.SimulationEventLog;
+import service.algorithm.impl.StateEpochPublisher;
+import service.algorithm.impl.StreamDispatcher;
+import service.algorithm.impl.TaskDecisionServiceImpl;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 仿真会话管理
+ * 默认会话由 Spring 容器中的单例组成（兼容不带 sessionId 的旧调用）；
+ * 其他会话按需新建整套引擎组件，事件处理器无状态，在所有会话间共享。
+ */
+@Component
+@Slf4j
+public class SimSessionManager implements DisposableBean {
+
+    public static final String DEFAULT_SESSION_ID = "default";
+
+    private final SimEngineConfig engineConfig;
+    private final PhysicsConfig defaultPhysicsConfig;
+    private final List<SimEventHandler> handlerBeans;
+    private final ObjectMapper objectMapper;
+    private final StreamDispatcher streamDispatcher;
+    private final SimSession defaultSession;
+    private final Map<String, SimSession> sessions = new ConcurrentHashMap<>();
+    // 已预留、组件尚在构建中的会话ID（由 sessions 锁保护）
+    private final Set<String> reservedIds = new HashSet<>();
+    private final AtomicLong sessionSeq = new AtomicLong();
+
+    public SimSessionManager(SimEngineConfig engineConfig, PhysicsConfig physicsConfig,
+                             List<SimEventHandler> handlerBeans, GlobalContext context,
+                             SimulationEngine engine, SimulationEventLog eventLog, SimulationErrorLog errorLog,
+                             StateEpochPublisher epochPublisher, SimCommandExecutor commandExecutor,
+                             ExternalAlgorithmApi algorithmApi, CommandJournal journal, EventStreamHub streamHub,
+                             ObjectMapper objectMapper, StreamDispatcher streamDispatcher) {
+        this.engineConfig = engineConfig;
+        this.defaultPhysicsConfig = physicsConfig;
+        this.handlerBeans = handlerBeans;
+        this.objectMapper = objectMapper;
+        this.streamDispatcher = streamDispatcher;
+        this.defaultSession = new SimSession(DEFAULT_SESSION_ID, true, null, context, physicsConfig,
+                engine, eventLog, errorLog, epochPublisher, commandExecutor, algorithmApi, journal, streamHub);
+        sessions.put(DEFAULT_SESSION_ID, defaultSession);
+    }
+
+    /**
+     * 按ID获取会话，ID为空时返回默认会话
+     */
+    public SimSession get(String sessionId) {
+        if (sessionId == null || sessionId.trim().isEmpty()) {
+            return defaultSession;
+        }
+        SimSession session = sessions.get(sessionId.trim());
+        if (session == null) {
+            throw new BusinessException("仿真会话不存在: " + sessionId);
+        }
+        return session;
+    }
+
+    /**
+     * 按ID获取会话，不存在时返回默认会话（用于错误记录等不应再抛异常的场景）
+     */
+    public SimSession getOrDefault(String sessionId) {
+        if (sessionId == null) {
+            return defaultSession;
+        }
+        SimSession session = sessions.get(sessionId.trim());
+        return session != null ? session : defaultSession;
+    }
+
+    public SimSession getDefaultSession() {
+        return defaultSession;
+    }
+
+    /**
+     * 所有会话（含默认会话）
+     */
+    public List<SimSession> list() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    /**
+     * 创建新会话：新的上下文、物理参数副本、引擎、日志与单写线程
+     */
+    public SimSession create(CreateSessionReq req) {
+        String id = resolveNewId(req != null ? req.getSessionId() : null);
+        PhysicsConfig physics = copyPhysicsConfig(defaultPhysicsConfig, req);
+        reserve(id);
+        SimSession session;
+        try {
+            GlobalContext context = new GlobalContext();
+            context.setPhysicsConfig(physics);
+            session = build(id, null, context, physics);
+        } catch (RuntimeException e) {
+            release(id);
+            throw e;
+        }
+        register(session);
+        log.info("仿真会话 [{}] 已创建", id);
+        return session;
+    }
+
+    /**
+     * 分叉会话：在源会话的单写线程上复制上下文与待处理事件，得到可独立推进、可随时删除的临时会话
+     * 源会话只在复制期间暂停处理指令；物理参数沿用源会话，可由请求覆盖
+     */
+    public SimSession fork(String sourceSessionId, CreateSessionReq req) {
+        SimSession source = get(sourceSessionId);
+        String id = resolveNewId(req != null ? req.getSessionId() : null);
+        PhysicsConfig physics = copyPhysicsConfig(source.getPhysicsConfig(), req);
+        reserve(id);
+        SimSession session;
+        try {
+            session = source.getCommandExecutor().call(() -> {
+                GlobalContext context = source.getContext().fork();
+                context.setPhysicsConfig(physics);
+                SimSession forked = build(id, source.getId(), context, physics);
+                forked.getEngine().forkFrom(source.getEngine());
+                return forked;
+            });
+        } catch (RuntimeException e) {
+            release(id);
+            throw e;
+        }
+        register(session);
+        log.info("仿真会话 [{}] 已从 [{}] 分叉", id, source.getId());
+        return session;
+    }
+
+    /**
+     * 预留会话ID：构建组件（会清空该ID的事件日志目录）之前先占位，重名或超出上限时直接拒绝
+     */
+    private void reserve(String id) {
+        synchronized (sessions) {
+            if (sessions.containsKey(id) || reservedIds.contains(id)) {
+                throw new BusinessException("仿真会话已存在: " + id);
+            }
+            if (sessions.size() + reservedIds.size() >= engineConfig.getMaxSessions()) {
+                throw new BusinessException("仿真会话数已达上限: " + engineConfig.getMaxSessions());
+            }
+            reservedIds.add(id);
+        }
+    }
+
+    private void release(String id) {
+        synchronized (sessions) {
+            reservedIds.remove(id);
+        }
+    }
+
+    private SimSession build(String id, String parentSessionId, GlobalContext context, PhysicsConfig physics) {
+        SimulationEventLog eventLog = new SimulationEventLog(Paths.get(engineConfig.getEventLogDir(), id),
+                engineConfig.getEventLogSegmentBytes(), engineConfig.getEventLogMaxSegments(), false);
+        SimulationErrorLog errorLog = new SimulationErrorLog();
+        SimulationEngine engine = new SimulationEngine(physics, engineConfig, eventLog, errorLog, context, handlerBeans);
+        engine.afterPropertiesSet();
+        StateEpochPublisher epochPublisher = new StateEpochPublisher(context);
+        SimCommandExecutor commandExecutor = new SimCommandExecutor(engineConfig, engine, epochPublisher, "sim-writer-" + id);
+        CommandJournal journal = new CommandJournal(objectMapper);
+        ExternalAlgorithmApi algorithmApi = new ExternalAlgorithmServiceImpl(engine, new TaskDecisionServiceImpl(context),
+                commandExecutor, journal);
+        EventStreamHub streamHub = new EventStreamHub(eventLog, epochPublisher, streamDispatcher, engineConfig);
+        return new SimSession(id, false, parentSessionId, context, physics,
+                engine, eventLog, errorLog, epochPublisher, commandExecutor, algorithmApi, journal, streamHub);
+    }
+
+    // 以会话替换预留的ID，随后启动其单写线程并发布初始纪元
+    private void register(SimSession session) {
+        synchronized (sessions) {
+            reservedIds.remove(session.getId());
+            sessions.put(session.getId(), session);
+        }
+        session.getCommandExecutor().afterPropertiesSet();
+        session.getCommandExecutor().run(() -> { });
+    }
+
+    /**
+     * 删除会话并停止其单写线程，默认会话不可删除
+     */
+    public void remove(String sessionId) {
+        SimSession session = get(sessionId);
+        if (session.isDefaultSession()) {
+            throw new BusinessException("默认仿真会话不可删除");
+        }
+        sessions.remove(session.getId());
+        session.close();
+        log.info("仿真会话 [{}] 已删除", session.getId());
+    }
+
+    @Override
+    public void destroy() {
+        // 默认会话的单写线程由 Spring 容器负责停止
+        for (SimSession session : sessions.values()) {
+            if (!session.isDefaultSession()) {
+                session.close();
+            }
+        }
+        sessions.clear();
+    }
+
+    private String resolveNewId(String requestedId) {
+        if (requestedId == null || requestedId.trim().isEmpty()) {
+            return "s" + sessionSeq.incrementAndGet();
+        }
+        String id = requestedId.trim();
+        if (!id.matches("[A-Za-z0-9_-]{1,64}")) {
+            throw new BusinessException("会话ID只能包含字母、数字、下划线和连字符，且不超过64个字符: " + id);
+        }
+        return id;
+    }
+
+    private PhysicsConfig copyPhysicsConfig(PhysicsConfig base, CreateSessionReq req) {
+        PhysicsConfig physics = new PhysicsConfig();
+        physics.setArrivalThreshold(base.getArrivalThreshold());
+        physics.setChargeAlignThreshold(base.getChargeAlignThreshold());
+        physics.setMaxEventsPerTimestamp(base.getMaxEventsPerTimestamp());
+        if (req == null) {
+            return physics;
+        }
+        if (req.getArrivalThreshold() != null) {
+            if (req.getArrivalThreshold() <= 0) {
+                throw new BusinessException("创建会话错误: arrivalThreshold 必须大于 0");
+            }
+            physics.setArrivalThreshold(req.getArrivalThreshold());
+        }
+        if (req.getChargeAlignThreshold() != null) {
+            if (req.getChargeAlignThreshold() < 0) {
+                throw new BusinessException("创建会话错误: chargeAlignThreshold 不能为负");
+            }
+            physics.setChargeAlignThreshold(req.getChargeAlignThreshold());
+        }
+        if (req.getMaxEventsPerTimestamp() != null) {
+            if (req.getMaxEventsPerTimestamp() <= 0) {
+                throw new BusinessException("创建会话错误: maxEventsPerTimestamp 必须大于 0");
+            }
+            physics.setMaxEventsPerTimestamp(req.getMaxEventsPerTimestamp());
+        }
+        return physics;
+    }
+}
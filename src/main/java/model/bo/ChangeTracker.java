@@ -0,0 +1,76 @@
+package model.bo;
+
+import common.consts.StateEntityEnum;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 自上次发布以来内容可能变化的实体ID（按实体类别登记）
+ * 实体表的增删改由表自动登记；实体字段在表外被修改时，修改处须经 GlobalContext#markDirty 登记。
+ * 批量变化（putAll、clear 等无法逐个列出的修改）登记为整类变化，下次发布按全量扫描处理。
+ * 新建时全部类别视为已变化。状态纪元发布器发布时取走登记，只为登记过的实体检查与重建快照。
+ */
+public class ChangeTracker {
+
+    private final Map<StateEntityEnum, Set<String>> ids = new EnumMap<>(StateEntityEnum.class);
+    private final Set<StateEntityEnum> all = ConcurrentHashMap.newKeySet();
+
+    public ChangeTracker() {
+        for (StateEntityEnum kind : StateEntityEnum.values()) {
+            ids.put(kind, ConcurrentHashMap.newKeySet());
+            all.add(kind);
+        }
+    }
+
+    /**
+     * 登记单个实体变化，ID 为 null 时按整类变化处理
+     */
+    public void mark(StateEntityEnum kind, String id) {
+        if (id == null) {
+            all.add(kind);
+        } else {
+            ids.get(kind).add(id);
+        }
+    }
+
+    /**
+     * 登记整类变化
+     */
+    public void markAll(StateEntityEnum kind) {
+        all.add(kind);
+    }
+
+    /**
+     * 登记全部类别变化（场景重置等）
+     */
+    public void markAll() {
+        for (StateEntityEnum kind : StateEntityEnum.values()) {
+            all.add(kind);
+        }
+    }
+
+    /**
+     * 取走一类实体的登记
+     *
+     * @return 变化的实体ID；整类变化时返回 null，调用方应全量扫描
+     */
+    public List<String> drain(StateEntityEnum kind) {
+        Set<String> pending = ids.get(kind);
+        if (all.remove(kind)) {
+            pending.clear();
+            return null;
+        }
+        List<String> drained = new ArrayList<>();
+        for (Iterator<String> it = pending.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+}
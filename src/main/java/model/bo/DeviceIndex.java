@@ -0,0 +1,355 @@
+package model.bo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import model.entity.BaseDevice;
+import model.entity.Point;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 设备位置的均匀网格索引，支撑最近邻与范围查询
+ * 静止设备登记在所在坐标的格子；行驶中的设备（与 {@link BaseDevice#getInterpolatedPos} 的判定一致）
+ * 登记在从出发点到目标点的线段穿过的全部格子，因此任意时刻的插值位置一定落在已登记的格子内，
+ * 行驶途中不需要更新索引，只在出发 (onMoveStart) 与到达 (onArrival) 时重新登记。
+ * 格子内登记的是 {@link DeviceRegistry} 的设备句柄，查询去重按句柄标记，不对设备ID做哈希。
+ * 设备映射增删时整体失效，下次查询时按当前设备重建。状态与类型在查询时读取。
+ * 只在会话单写线程上修改与查询。
+ */
+public class DeviceIndex {
+
+    /**
+     * 格子边长 (米)
+     */
+    public static final double CELL_SIZE = 50.0;
+
+    // 插值坐标的浮点误差余量
+    private static final double EPS = 1e-6;
+
+    private static final Comparator<Hit> BY_DISTANCE =
+            Comparator.comparingDouble(Hit::getDistance).thenComparing(h -> h.getDevice().getId());
+
+    private static final long[] NO_KEYS = new long[0];
+
+    private final DeviceRegistry registry;
+    private final Map<Long, Cell> cells = new HashMap<>();
+    // 按句柄记录登记过的格子
+    private long[][] registered = new long[16][];
+    // 查询去重：句柄的标记等于本次查询的序号即已检查过
+    private int[] visited = new int[16];
+    private int query;
+    private boolean valid;
+    // 已登记格子的范围（只扩大，重建时重算）
+    private long minCx;
+    private long maxCx;
+    private long minCy;
+    private long maxCy;
+
+    public DeviceIndex(DeviceRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 使索引失效（设备映射变化，或设备坐标/行驶状态在事件处理之外被修改时调用）
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * 按设备当前的坐标或行驶线段重新登记，索引已失效时忽略（下次查询时重建）
+     */
+    public void update(BaseDevice device) {
+        if (valid) {
+            int h = registry.handleOf(device.getId());
+            if (h != IdDictionary.NONE) {
+                unregister(h);
+                register(h, device);
+            }
+        }
+    }
+
+    /**
+     * 给定时刻与 (x, y) 距离不超过 radius 的设备，按距离升序
+     *
+     * @param arrivalThreshold 所属会话的到达判定阈值，用于插值
+     */
+    public List<Hit> within(double x, double y, double radius, long simTime, double arrivalThreshold,
+                            Predicate<BaseDevice> filter) {
+        ensureBuilt();
+        List<Hit> hits = new ArrayList<>();
+        if (minCx > maxCx || radius < 0) {
+            return hits;
+        }
+        long fromX = Math.max(minCx, cell(x - radius - EPS));
+        long toX = Math.min(maxCx, cell(x + radius + EPS));
+        long fromY = Math.max(minCy, cell(y - radius - EPS));
+        long toY = Math.min(maxCy, cell(y + radius + EPS));
+        int q = nextQuery();
+        for (long cx = fromX; cx <= toX; cx++) {
+            for (long cy = fromY; cy <= toY; cy++) {
+                Cell cell = cells.get(key(cx, cy));
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size; i++) {
+                    int h = cell.handles[i];
+                    if (visited[h] == q) {
+                        continue;
+                    }
+                    visited[h] = q;
+                    BaseDevice device = registry.get(h);
+                    if (filter.test(device)) {
+                        Hit hit = hit(device, x, y, simTime, arrivalThreshold);
+                        if (hit != null && hit.distance <= radius) {
+                            hits.add(hit);
+                        }
+                    }
+                }
+            }
+        }
+        hits.sort(BY_DISTANCE);
+        return hits;
+    }
+
+    /**
+     * 给定时刻距 (x, y) 最近的 k 台设备，按距离升序
+     * 由近及远逐圈扫描格子，已找到 k 台且第 k 台比未扫描区域更近时停止
+     */
+    public List<Hit> nearest(double x, double y, int k, long simTime, double arrivalThreshold,
+                             Predicate<BaseDevice> filter) {
+        ensureBuilt();
+        PriorityQueue<Hit> best = new PriorityQueue<>(BY_DISTANCE.reversed());
+        if (minCx > maxCx || k <= 0) {
+            return new ArrayList<>();
+        }
+        long cx0 = cell(x);
+        long cy0 = cell(y);
+        int q = nextQuery();
+        // 与已登记范围不相交的内圈直接跳过
+        long firstRing = Math.max(Math.max(minCx - cx0, cx0 - maxCx), Math.max(minCy - cy0, cy0 - maxCy));
+        for (long ring = Math.max(0, firstRing); ; ring++) {
+            long fromX = Math.max(minCx, cx0 - ring);
+            long toX = Math.min(maxCx, cx0 + ring);
+            for (long cx = fromX; cx <= toX; cx++) {
+                if (cx == cx0 - ring || cx == cx0 + ring) {
+                    for (long cy = Math.max(minCy, cy0 - ring); cy <= Math.min(maxCy, cy0 + ring); cy++) {
+                        collect(cells.get(key(cx, cy)), q, filter, x, y, simTime, arrivalThreshold, best, k);
+                    }
+                } else {
+                    if (cy0 - ring >= minCy) {
+                        collect(cells.get(key(cx, cy0 - ring)), q, filter, x, y, simTime, arrivalThreshold, best, k);
+                    }
+                    if (ring > 0 && cy0 + ring <= maxCy) {
+                        collect(cells.get(key(cx, cy0 + ring)), q, filter, x, y, simTime, arrivalThreshold, best, k);
+                    }
+                }
+            }
+            boolean coversAll = cx0 - ring <= minCx && cx0 + ring >= maxCx && cy0 - ring <= minCy && cy0 + ring >= maxCy;
+            // 未扫描区域到查询点的最小距离
+            double bound = Math.min(Math.min(x - (cx0 - ring) * CELL_SIZE, (cx0 + ring + 1) * CELL_SIZE - x),
+                    Math.min(y - (cy0 - ring) * CELL_SIZE, (cy0 + ring + 1) * CELL_SIZE - y)) - EPS;
+            if (coversAll || (best.size() == k && best.peek().distance <= bound)) {
+                break;
+            }
+        }
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(BY_DISTANCE);
+        return hits;
+    }
+
+    private void collect(Cell cell, int q, Predicate<BaseDevice> filter, double x, double y,
+                         long simTime, double arrivalThreshold, PriorityQueue<Hit> best, int k) {
+        if (cell == null) {
+            return;
+        }
+        for (int i = 0; i < cell.size; i++) {
+            int h = cell.handles[i];
+            if (visited[h] == q) {
+                continue;
+            }
+            visited[h] = q;
+            BaseDevice device = registry.get(h);
+            if (filter.test(device)) {
+                Hit hit = hit(device, x, y, simTime, arrivalThreshold);
+                if (hit != null) {
+                    best.add(hit);
+                    if (best.size() > k) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+    }
+
+    private Hit hit(BaseDevice device, double x, double y, long simTime, double arrivalThreshold) {
+        Point pos = device.getInterpolatedPos(simTime, arrivalThreshold);
+        if (pos == null || pos.getX() == null || pos.getY() == null) {
+            return null;
+        }
+        return new Hit(device, pos, Math.hypot(pos.getX() - x, pos.getY() - y));
+    }
+
+    private void ensureBuilt() {
+        if (valid) {
+            return;
+        }
+        cells.clear();
+        int capacity = registry.capacity();
+        registered = new long[Math.max(16, capacity)][];
+        if (visited.length < capacity) {
+            visited = new int[capacity];
+        }
+        minCx = Long.MAX_VALUE;
+        maxCx = Long.MIN_VALUE;
+        minCy = Long.MAX_VALUE;
+        maxCy = Long.MIN_VALUE;
+        for (int h = 0; h < capacity; h++) {
+            BaseDevice device = registry.get(h);
+            if (device != null) {
+                register(h, device);
+            }
+        }
+        valid = true;
+    }
+
+    private int nextQuery() {
+        if (++query == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            query = 1;
+        }
+        return query;
+    }
+
+    private void register(int handle, BaseDevice device) {
+        Set<Long> keys = new LinkedHashSet<>();
+        if (device.isMoveInProgress()) {
+            Point to = device.getCurrentTargetPos();
+            traverse(device.getLastStartX(), device.getLastStartY(), to.getX(), to.getY(), keys);
+        } else {
+            addCell(cell(device.getPosX()), cell(device.getPosY()), keys);
+        }
+        long[] registeredKeys = keys.isEmpty() ? NO_KEYS : new long[keys.size()];
+        int i = 0;
+        for (long key : keys) {
+            registeredKeys[i++] = key;
+            cells.computeIfAbsent(key, c -> new Cell()).add(handle);
+        }
+        if (handle >= registered.length) {
+            registered = Arrays.copyOf(registered, Math.max(registered.length << 1, handle + 1));
+        }
+        if (handle >= visited.length) {
+            visited = Arrays.copyOf(visited, Math.max(visited.length << 1, handle + 1));
+        }
+        registered[handle] = registeredKeys;
+    }
+
+    private void unregister(int handle) {
+        long[] keys = handle < registered.length ? registered[handle] : null;
+        if (keys == null) {
+            return;
+        }
+        registered[handle] = null;
+        for (long key : keys) {
+            Cell cell = cells.get(key);
+            if (cell != null && cell.remove(handle) && cell.size == 0) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    // 线段穿过的格子（逐格步进），首尾格子总会登记
+    private void traverse(double x0, double y0, double x1, double y1, Set<Long> keys) {
+        long cx = cell(x0);
+        long cy = cell(y0);
+        long ex = cell(x1);
+        long ey = cell(y1);
+        addCell(cx, cy, keys);
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        int stepX = dx > 0 ? 1 : -1;
+        int stepY = dy > 0 ? 1 : -1;
+        double tMaxX = dx != 0 ? ((stepX > 0 ? (cx + 1) * CELL_SIZE : cx * CELL_SIZE) - x0) / dx : Double.POSITIVE_INFINITY;
+        double tMaxY = dy != 0 ? ((stepY > 0 ? (cy + 1) * CELL_SIZE : cy * CELL_SIZE) - y0) / dy : Double.POSITIVE_INFINITY;
+        double tDeltaX = dx != 0 ? CELL_SIZE / Math.abs(dx) : Double.POSITIVE_INFINITY;
+        double tDeltaY = dy != 0 ? CELL_SIZE / Math.abs(dy) : Double.POSITIVE_INFINITY;
+        long steps = Math.abs(ex - cx) + Math.abs(ey - cy);
+        for (long i = 0; i < steps; i++) {
+            if (tMaxX < tMaxY) {
+                tMaxX += tDeltaX;
+                cx += stepX;
+            } else {
+                tMaxY += tDeltaY;
+                cy += stepY;
+            }
+            addCell(cx, cy, keys);
+            // 格子边界上的浮点误差：同时登记相邻格子，避免插值点落在未登记的一侧
+            addCell(cx - stepX, cy, keys);
+            addCell(cx, cy - stepY, keys);
+        }
+        addCell(ex, ey, keys);
+    }
+
+    private void addCell(long cx, long cy, Set<Long> keys) {
+        if (keys.add(key(cx, cy))) {
+            minCx = Math.min(minCx, cx);
+            maxCx = Math.max(maxCx, cx);
+            minCy = Math.min(minCy, cy);
+            maxCy = Math.max(maxCy, cy);
+        }
+    }
+
+    private static long cell(double v) {
+        return (long) Math.floor(v / CELL_SIZE);
+    }
+
+    private static long key(long cx, long cy) {
+        return (cx << 32) ^ (cy & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 格子内登记的设备句柄（保持登记顺序）
+     */
+    private static final class Cell {
+        int[] handles = new int[4];
+        int size;
+
+        void add(int handle) {
+            if (size == handles.length) {
+                handles = Arrays.copyOf(handles, size << 1);
+            }
+            handles[size++] = handle;
+        }
+
+        boolean remove(int handle) {
+            for (int i = 0; i < size; i++) {
+                if (handles[i] == handle) {
+                    System.arraycopy(handles, i + 1, handles, i, size - i - 1);
+                    size--;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 查询命中：设备、查询时刻的（插值）坐标与到查询点的距离
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Hit {
+        private final BaseDevice device;
+        private final Point pos;
+        private final double distance;
+    }
+}
@@ -0,0 +1,28 @@
+package model.bo;
+
+import common.consts.StateEntityEnum;
+import model.entity.BaseDevice;
+
+/**
+ * 设备表：增删改时使所属上下文的统一设备登记表与设备位置索引失效，并登记变化的设备
+ */
+public class DeviceMap<T extends BaseDevice> extends EntityMap<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient DeviceRegistry registry;
+    private final transient DeviceIndex index;
+
+    public DeviceMap(ChangeTracker tracker, DeviceRegistry registry, DeviceIndex index) {
+        super(tracker, StateEntityEnum.DEVICE);
+        this.registry = registry;
+        this.index = index;
+    }
+
+    @Override
+    protected void modified(String key) {
+        super.modified(key);
+        registry.invalidate();
+        index.invalidate();
+    }
+}
@@ -0,0 +1,89 @@
+package model.bo;
+
+import model.entity.BaseDevice;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 统一设备登记表：集卡、岸桥、龙门吊按 {@link IdDictionary} 的整数句柄存放在同一个数组中
+ * 按ID查设备只做一次字典查找加一次数组下标，不再依次探查三张设备表；内部索引可直接以句柄为下标。
+ * 设备表增删时整体失效，下次查询时按当前设备重建（句柄保持不变）。
+ * 同一ID出现在多张表时，按集卡、岸桥、龙门吊的顺序取第一个，与逐表查找的结果一致。
+ * 只在会话单写线程上修改与查询。
+ */
+public class DeviceRegistry {
+
+    private final IdDictionary ids = new IdDictionary();
+    private final Supplier<List<Map<String, ? extends BaseDevice>>> maps;
+    private BaseDevice[] byHandle = new BaseDevice[16];
+    private boolean valid;
+
+    /**
+     * @param maps 按优先顺序列出各设备表
+     */
+    public DeviceRegistry(Supplier<List<Map<String, ? extends BaseDevice>>> maps) {
+        this.maps = maps;
+    }
+
+    /**
+     * 使登记表失效（设备表变化时调用）
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * 按ID取设备，不存在时返回 null
+     */
+    public BaseDevice get(String id) {
+        ensureBuilt();
+        int h = ids.handleOf(id);
+        return h != IdDictionary.NONE && h < byHandle.length ? byHandle[h] : null;
+    }
+
+    /**
+     * 按句柄取设备，句柄已不对应现存设备时返回 null
+     */
+    public BaseDevice get(int handle) {
+        ensureBuilt();
+        return handle >= 0 && handle < byHandle.length ? byHandle[handle] : null;
+    }
+
+    /**
+     * 设备ID的句柄，未登记过的ID返回 {@link IdDictionary#NONE}
+     */
+    public int handleOf(String id) {
+        ensureBuilt();
+        return ids.handleOf(id);
+    }
+
+    /**
+     * 句柄上界（不含），可用于按句柄分配数组
+     */
+    public int capacity() {
+        ensureBuilt();
+        return ids.size();
+    }
+
+    private void ensureBuilt() {
+        if (valid) {
+            return;
+        }
+        Arrays.fill(byHandle, null);
+        for (Map<String, ? extends BaseDevice> map : maps.get()) {
+            for (Map.Entry<String, ? extends BaseDevice> e : map.entrySet()) {
+                int h = ids.intern(e.getKey());
+                if (h >= byHandle.length) {
+                    byHandle = Arrays.copyOf(byHandle, Math.max(byHandle.length << 1, h + 1));
+                }
+                if (byHandle[h] == null) {
+                    byHandle[h] = e.getValue();
+                }
+            }
+        }
+        valid = true;
+    }
+}
@@ -0,0 +1,24 @@
+package model.bo;
+
+import common.consts.StateEntityEnum;
+
+/**
+ * 参与状态发布的实体表：增删改时把涉及的实体ID登记到所属上下文的 {@link ChangeTracker}
+ */
+public class EntityMap<V> extends TrackedMap<V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient ChangeTracker tracker;
+    private final StateEntityEnum kind;
+
+    public EntityMap(ChangeTracker tracker, StateEntityEnum kind) {
+        this.tracker = tracker;
+        this.kind = kind;
+    }
+
+    @Override
+    protected void modified(String key) {
+        tracker.mark(kind, key);
+    }
+}
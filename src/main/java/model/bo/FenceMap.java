@@ -0,0 +1,154 @@
+package model.bo;
+
+import common.consts.StateEntityEnum;
+import model.entity.Fence;
+import model.entity.Point;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 栅栏表：在 ID → 栅栏的映射之上维护均匀网格空间索引，按坐标查找所在栅栏不再遍历全部栅栏
+ * 网格只按几何（中心与半径）划分，状态与限速在查询时读取，栅栏开关 (FENCE_CONTROL) 不需要重建；
+ * 经本表的增删改会使网格失效，下次查询时按当前内容重建。栅栏放入后若修改坐标或半径，须调用 {@link #invalidate()}。
+ * 每个格子内的栅栏保持本表的遍历顺序，查询结果与顺序遍历全部栅栏的结果一致。
+ * 只在会话单写线程上修改与查询。
+ */
+public class FenceMap extends EntityMap<Fence> {
+
+    private static final long serialVersionUID = 1L;
+
+    // 单个栅栏最多覆盖的格子边长，超大栅栏按此放大格子
+    private static final int MAX_CELLS_PER_SIDE = 32;
+
+    private transient Grid grid;
+
+    public FenceMap(ChangeTracker tracker) {
+        super(tracker, StateEntityEnum.FENCE);
+    }
+
+    /**
+     * 目标点所在的第一个阻断状态的栅栏，没有时返回 null
+     */
+    public Fence findBlocking(Point target, String blockedStatus) {
+        for (Fence fence : candidates(target)) {
+            if (fence.contains(target) && blockedStatus.equals(fence.getStatus())) {
+                return fence;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 目标点所在的第一个设置了限速的栅栏的限速，没有时返回 null
+     */
+    public Double speedLimitAt(Point target) {
+        for (Fence fence : candidates(target)) {
+            if (fence.contains(target) && fence.getSpeedLimit() != null) {
+                return fence.getSpeedLimit();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 包含目标点的全部栅栏ID
+     */
+    public List<String> fenceIdsAt(Point target) {
+        List<String> ids = Collections.emptyList();
+        for (Fence fence : candidates(target)) {
+            if (fence.contains(target)) {
+                if (ids.isEmpty()) {
+                    ids = new ArrayList<>();
+                }
+                ids.add(fence.getNodeId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 使网格失效（栅栏几何在表外被修改时调用）
+     */
+    public void invalidate() {
+        grid = null;
+    }
+
+    @Override
+    protected void modified(String key) {
+        super.modified(key);
+        grid = null;
+    }
+
+    private List<Fence> candidates(Point target) {
+        if (target == null || target.getX() == null || target.getY() == null) {
+            return Collections.emptyList();
+        }
+        Grid g = grid;
+        if (g == null) {
+            g = new Grid(values());
+            grid = g;
+        }
+        return g.at(target.getX(), target.getY());
+    }
+
+    /**
+     * 均匀网格：格子边长取栅栏平均直径（超大栅栏覆盖的格子数有上限），每个栅栏登记到其外接正方形覆盖的所有格子
+     */
+    private static final class Grid {
+        private final double cellSize;
+        private final Map<Long, List<Fence>> cells = new HashMap<>();
+
+        Grid(Iterable<Fence> fences) {
+            double sumDiameter = 0;
+            double maxDiameter = 0;
+            int n = 0;
+            for (Fence fence : fences) {
+                if (valid(fence)) {
+                    double d = 2 * Math.max(0.0, fence.getRadius());
+                    sumDiameter += d;
+                    maxDiameter = Math.max(maxDiameter, d);
+                    n++;
+                }
+            }
+            double size = n > 0 ? sumDiameter / n : 1.0;
+            this.cellSize = Math.max(1.0, Math.max(size, maxDiameter / MAX_CELLS_PER_SIDE));
+            for (Fence fence : fences) {
+                if (!valid(fence)) {
+                    continue;
+                }
+                double r = Math.max(0.0, fence.getRadius());
+                long minX = cell(fence.getPosX() - r);
+                long maxX = cell(fence.getPosX() + r);
+                long minY = cell(fence.getPosY() - r);
+                long maxY = cell(fence.getPosY() + r);
+                for (long cx = minX; cx <= maxX; cx++) {
+                    for (long cy = minY; cy <= maxY; cy++) {
+                        cells.computeIfAbsent(key(cx, cy), k -> new ArrayList<>(2)).add(fence);
+                    }
+                }
+            }
+        }
+
+        List<Fence> at(double x, double y) {
+            List<Fence> list = cells.get(key(cell(x), cell(y)));
+            return list != null ? list : Collections.emptyList();
+        }
+
+        private long cell(double v) {
+            return (long) Math.floor(v / cellSize);
+        }
+
+        private static long key(long cx, long cy) {
+            return (cx << 32) ^ (cy & 0xFFFFFFFFL);
+        }
+
+        // 缺少坐标或半径的栅栏不包含任何点
+        private static boolean valid(Fence fence) {
+            return fence.getPosX() != null && fence.getPosY() != null && fence.getRadius() != null;
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package model.bo;
 
 import common.config.PhysicsConfig;
+import common.consts.StateEntityEnum;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import model.entity.*;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * 仿真世界的全局上下文
+ * 仿真世界的上下文
+ * 每个仿真会话持有一份，getInstance() 为默认会话的上下文
  */
 @Getter
 public class GlobalContext {
@@ -24,39 +29,52 @@ public class GlobalContext {
     @Setter
     private long simTime = 0L;
 
+    // 自上次状态发布以来变化的实体（不序列化）
+    @Getter(AccessLevel.NONE)
+    private final ChangeTracker changeTracker = new ChangeTracker();
+
     //  物理实体
+    // 三张设备表的统一登记表（按整数句柄）与设备位置的空间索引（不序列化）
+    @Getter(AccessLevel.NONE)
+    private final DeviceRegistry deviceRegistry = new DeviceRegistry(this::deviceMaps);
+    @Getter(AccessLevel.NONE)
+    private final DeviceIndex deviceIndex = new DeviceIndex(deviceRegistry);
     // 存储当前港口内所有的集卡
-    private final Map<String, Truck> truckMap = new ConcurrentHashMap<>();
+    private final DeviceMap<Truck> truckMap = new DeviceMap<>(changeTracker, deviceRegistry, deviceIndex);
     // 存储所有岸桥
-    private final Map<String, QcDevice> qcMap = new ConcurrentHashMap<>();
+    private final DeviceMap<QcDevice> qcMap = new DeviceMap<>(changeTracker, deviceRegistry, deviceIndex);
     // 存储所有龙门吊
-    private final Map<String, AscDevice> ascMap = new ConcurrentHashMap<>();
+    private final DeviceMap<AscDevice> ascMap = new DeviceMap<>(changeTracker, deviceRegistry, deviceIndex);
     // 存储靠泊在码头的船只
     private final Map<String, Vessel> vesselMap = new ConcurrentHashMap<>();
 
     //  环境约束与基础设施
-    // 存储交通栅栏
-    private final Map<String, Fence> fenceMap = new ConcurrentHashMap<>();
+    // 存储交通栅栏（带空间网格索引）
+    private final FenceMap fenceMap = new FenceMap(changeTracker);
     // 存储堆场箱区配置
     private final Map<String, YardBlock> yardBlockMap = new ConcurrentHashMap<>();
     // 存储充电桩资源
-    private final Map<String, ChargingStation> chargingStationMap = new ConcurrentHashMap<>();
+    private final Map<String, ChargingStation> chargingStationMap =
+            new EntityMap<>(changeTracker, StateEntityEnum.CHARGING_STATION);
 
     //  业务流转数据
     // 存储所有的作业指令
-    private final Map<String, WorkInstruction> workInstructionMap = new ConcurrentHashMap<>();
+    private final Map<String, WorkInstruction> workInstructionMap =
+            new EntityMap<>(changeTracker, StateEntityEnum.WORK_INSTRUCTION);
     // 存储港口内所有的集装箱
-    private final Map<String, Container> containerMap = new ConcurrentHashMap<>();
+    private final Map<String, Container> containerMap = new EntityMap<>(changeTracker, StateEntityEnum.CONTAINER);
 
     //  物理与数值配置
     @Setter
     private PhysicsConfig physicsConfig;
 
-    // 防止外部直接 new 对象
-    private GlobalContext() {}
+    /**
+     * 创建独立的仿真上下文（每个仿真会话一份）
+     */
+    public GlobalContext() {}
 
     /**
-     * 获取全局上下文单例
+     * 获取默认会话的上下文
      */
     public static GlobalContext getInstance() {
         if (instance == null) {
@@ -71,15 +89,98 @@ public class GlobalContext {
 
     /**
      * 根据设备ID获取具体的设备基类
-     * 单次查找，避免 containsKey + get 的二次查找
+     * 经统一设备登记表单次查找，不再依次探查集卡、岸桥、龙门吊三张表
      */
     public BaseDevice getDevice(String deviceId) {
         if (deviceId == null) return null;
-        BaseDevice d = truckMap.get(deviceId);
-        if (d != null) return d;
-        d = qcMap.get(deviceId);
-        if (d != null) return d;
-        return ascMap.get(deviceId);
+        return deviceRegistry.get(deviceId);
+    }
+
+    /**
+     * 统一设备登记表（仅单写线程）
+     */
+    public DeviceRegistry deviceRegistry() {
+        return deviceRegistry;
+    }
+
+    /**
+     * 自上次状态发布以来变化的实体登记
+     */
+    public ChangeTracker changeTracker() {
+        return changeTracker;
+    }
+
+    /**
+     * 登记实体字段在实体表之外被修改（经实体表的增删改会自动登记）
+     */
+    public void markDirty(BaseDevice device) {
+        changeTracker.mark(StateEntityEnum.DEVICE, device.getId());
+    }
+
+    public void markDirty(Fence fence) {
+        changeTracker.mark(StateEntityEnum.FENCE, fence.getNodeId());
+    }
+
+    public void markDirty(ChargingStation station) {
+        changeTracker.mark(StateEntityEnum.CHARGING_STATION, station.getStationCode());
+    }
+
+    public void markDirty(WorkInstruction wi) {
+        changeTracker.mark(StateEntityEnum.WORK_INSTRUCTION, wi.getWiRefNo());
+    }
+
+    public void markDirty(Container container) {
+        changeTracker.mark(StateEntityEnum.CONTAINER, container.getContainerId());
+    }
+
+    /**
+     * 设备位置的空间索引（仅单写线程）
+     */
+    public DeviceIndex deviceIndex() {
+        return deviceIndex;
+    }
+
+    // 设备表的查找优先顺序
+    private List<Map<String, ? extends BaseDevice>> deviceMaps() {
+        return Arrays.asList(truckMap, qcMap, ascMap);
+    }
+
+    /**
+     * 会话分叉：复制出独立的上下文，调用方需保证期间源上下文不被修改（在源会话单写线程上调用）
+     * 仿真中会变化的实体（设备、栅栏、充电桩、作业指令、集装箱）逐个复制；
+     * 船只与堆场箱区只在装载场景时写入、推进中不修改，两边共享同一对象
+     */
+    public GlobalContext fork() {
+        GlobalContext copy = new GlobalContext();
+        copy.simTime = simTime;
+        copy.physicsConfig = physicsConfig;
+        truckMap.forEach((id, truck) -> copy.truckMap.put(id, (Truck) truck.copy()));
+        qcMap.forEach((id, qc) -> copy.qcMap.put(id, (QcDevice) qc.copy()));
+        ascMap.forEach((id, asc) -> copy.ascMap.put(id, (AscDevice) asc.copy()));
+        fenceMap.forEach((id, fence) -> copy.fenceMap.put(id, fence.copy()));
+        chargingStationMap.forEach((id, station) -> copy.chargingStationMap.put(id, station.copy()));
+        workInstructionMap.forEach((id, wi) -> copy.workInstructionMap.put(id, wi.copy()));
+        containerMap.forEach((id, container) -> copy.containerMap.put(id, container.copy()));
+        copy.vesselMap.putAll(vesselMap);
+        copy.yardBlockMap.putAll(yardBlockMap);
+        return copy;
+    }
+
+    /**
+     * 以另一个上下文（如从检查点读出的镜像）的全部实体与时钟替换当前内容，物理配置保持不变
+     */
+    public void restoreFrom(GlobalContext image) {
+        clearAll();
+        truckMap.putAll(image.truckMap);
+        qcMap.putAll(image.qcMap);
+        ascMap.putAll(image.ascMap);
+        vesselMap.putAll(image.vesselMap);
+        fenceMap.putAll(image.fenceMap);
+        yardBlockMap.putAll(image.yardBlockMap);
+        chargingStationMap.putAll(image.chargingStationMap);
+        workInstructionMap.putAll(image.workInstructionMap);
+        containerMap.putAll(image.containerMap);
+        simTime = image.simTime;
     }
 
     /**
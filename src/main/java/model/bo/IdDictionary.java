@@ -0,0 +1,63 @@
+package model.bo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 字符串ID → 稠密整数句柄的驻留字典
+ * 句柄从 0 起连续分配，可直接作为数组下标；只增不删，同一ID在字典生命周期内句柄不变
+ * （实体删除后再加入沿用原句柄，场景重置也不会让旧句柄指向别的ID）。
+ * 句柄只在进程内的设备登记表与位置索引中使用；事件主体与实体间的引用仍为字符串ID，
+ * 它们随检查点、指令日志、事件日志与接口对外输出，且字符串的哈希值已缓存。
+ * 只在会话单写线程上使用。
+ */
+public class IdDictionary {
+
+    /**
+     * 未驻留的ID
+     */
+    public static final int NONE = -1;
+
+    private final Map<String, Integer> handles = new HashMap<>();
+    private String[] ids = new String[16];
+    private int size;
+
+    /**
+     * 取ID的句柄，首次出现时分配新句柄
+     */
+    public int intern(String id) {
+        Integer h = handles.get(id);
+        if (h != null) {
+            return h;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size << 1);
+        }
+        ids[size] = id;
+        handles.put(id, size);
+        return size++;
+    }
+
+    /**
+     * 已驻留ID的句柄，未驻留时返回 {@link #NONE}（不分配）
+     */
+    public int handleOf(String id) {
+        Integer h = id != null ? handles.get(id) : null;
+        return h != null ? h : NONE;
+    }
+
+    /**
+     * 句柄对应的ID
+     */
+    public String idOf(int handle) {
+        return ids[handle];
+    }
+
+    /**
+     * 已分配的句柄数（句柄上界）
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,101 @@
+package model.bo;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 带修改通知的 ID → 实体映射，用于在映射之上维护派生索引
+ * 经本映射的增删改都会先回调 {@link #modified(String)}，子类据此使索引失效或登记变化；
+ * 通过 keySet()/values()/entrySet() 视图删除不会通知，调用方不应使用。
+ */
+public abstract class TrackedMap<V> extends ConcurrentHashMap<String, V> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 映射内容即将变化
+     *
+     * @param key 变化的键；批量变化（putAll、clear、replaceAll）时为 null
+     */
+    protected abstract void modified(String key);
+
+    @Override
+    public V put(String key, V value) {
+        modified(key);
+        return super.put(key, value);
+    }
+
+    @Override
+    public V putIfAbsent(String key, V value) {
+        modified(key);
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends V> m) {
+        modified(null);
+        super.putAll(m);
+    }
+
+    @Override
+    public V remove(Object key) {
+        modified(key instanceof String ? (String) key : null);
+        return super.remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        modified(key instanceof String ? (String) key : null);
+        return super.remove(key, value);
+    }
+
+    @Override
+    public V replace(String key, V value) {
+        modified(key);
+        return super.replace(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, V oldValue, V newValue) {
+        modified(key);
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super V, ? extends V> function) {
+        modified(null);
+        super.replaceAll(function);
+    }
+
+    @Override
+    public V computeIfAbsent(String key, Function<? super String, ? extends V> mappingFunction) {
+        modified(key);
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public V computeIfPresent(String key, BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+        modified(key);
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public V compute(String key, BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+        modified(key);
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public V merge(String key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        modified(key);
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public void clear() {
+        modified(null);
+        super.clear();
+    }
+}
@@ -0,0 +1,36 @@
+package model.dto.request;
+
+import common.consts.CommandTypeEnum;
+import lombok.Data;
+
+/**
+ * 批量指令中的一条指令：type 指定指令类型，只填写与类型对应的请求体
+ * 支持 MOVE、CRANE_MOVE、ASSIGN、FENCE、CRANE_OP、CHARGE、CANCEL，不支持推进类指令
+ */
+@Data
+public class BatchCommandReq {
+
+    /** 指令类型 */
+    private CommandTypeEnum type;
+
+    /** 集卡移动 (MOVE) */
+    private MoveCommandReq truckMove;
+
+    /** 吊机移动 (CRANE_MOVE) */
+    private CraneMoveReq craneMove;
+
+    /** 任务指派 (ASSIGN) */
+    private AssignTaskReq assign;
+
+    /** 栅栏控制 (FENCE) */
+    private FenceControlReq fenceControl;
+
+    /** 吊机抓/放箱作业 (CRANE_OP) */
+    private CraneOperationReq craneOp;
+
+    /** 集卡充电 (CHARGE) */
+    private ChargeCommandReq charge;
+
+    /** 要取消的事件ID (CANCEL) */
+    private String eventId;
+}
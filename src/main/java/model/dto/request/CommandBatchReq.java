@@ -0,0 +1,15 @@
+package model.dto.request;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量下发指令：在仿真单写线程上一次按顺序执行，单条失败不影响其余指令
+ */
+@Data
+public class CommandBatchReq {
+
+    /** 指令列表（按顺序执行） */
+    private List<BatchCommandReq> commands;
+}
@@ -0,0 +1,23 @@
+package model.dto.request;
+
+import lombok.Data;
+
+/**
+ * 创建仿真会话请求
+ * 物理参数未指定的项沿用默认会话的配置
+ */
+@Data
+public class CreateSessionReq {
+
+    /** 会话ID，为空时自动生成 */
+    private String sessionId;
+
+    /** 到达判定阈值 (米) */
+    private Double arrivalThreshold;
+
+    /** 充电对准距离阈值 (米) */
+    private Double chargeAlignThreshold;
+
+    /** 单一时间戳下允许处理的最大事件数量 */
+    private Integer maxEventsPerTimestamp;
+}
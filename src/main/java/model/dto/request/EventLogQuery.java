@@ -0,0 +1,29 @@
+package model.dto.request;
+
+import common.consts.EventTypeEnum;
+import lombok.Data;
+
+/**
+ * 事件日志查询条件，各条件同时满足
+ */
+@Data
+public class EventLogQuery {
+
+    /** 起始游标，为空时按 since 定位 */
+    private Long cursor;
+
+    /** 仿真时间下限（含） */
+    private long since;
+
+    /** 事件类型 */
+    private EventTypeEnum type;
+
+    /** 主体ID（任一角色） */
+    private String subject;
+
+    /** 父事件ID：只返回其直接子事件 */
+    private Long parent;
+
+    /** 最多返回的条数 */
+    private int limit;
+}
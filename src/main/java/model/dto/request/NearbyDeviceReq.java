@@ -0,0 +1,22 @@
+package model.dto.request;
+
+import common.consts.DeviceStateEnum;
+import common.consts.DeviceTypeEnum;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 设备空间查询请求
+ * 查询点为 (x, y)，或给定 deviceId 时取该设备当前的（插值）坐标，结果不含该设备本身
+ */
+@Data
+public class NearbyDeviceReq {
+    private Double x;
+    private Double y;
+    private String deviceId;
+    private Integer k;                  // 最近邻查询的数量
+    private Double radius;              // 范围查询的半径 (米)
+    private List<DeviceTypeEnum> types; // 为空时不限类型
+    private List<DeviceStateEnum> states; // 为空时不限状态
+}
@@ -0,0 +1,17 @@
+package model.dto.request;
+
+import common.consts.FilterOpEnum;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 状态查询的单个过滤条件
+ */
+@Data
+public class StateFilter {
+    private String field;        // 快照字段名，如 state、powerLevel
+    private FilterOpEnum op;     // 运算符，为空时按 EQ
+    private Object value;        // 比较值；EQ/NE 为 null 时判断字段是否为空
+    private List<Object> values; // IN 的候选值
+}
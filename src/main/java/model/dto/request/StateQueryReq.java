@@ -0,0 +1,19 @@
+package model.dto.request;
+
+import common.consts.StateEntityEnum;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 状态查询请求
+ * 多个过滤条件为“与”关系；结果按实体ID升序，cursor 为上一页最后一条的ID
+ */
+@Data
+public class StateQueryReq {
+    private StateEntityEnum entity;
+    private List<StateFilter> filters;
+    private List<String> fields;   // 返回的字段，为空时返回完整快照
+    private String cursor;
+    private Integer limit;
+}
@@ -0,0 +1,20 @@
+package model.dto.request;
+
+import lombok.Data;
+
+/**
+ * 批量推进请求：一次调用内串行处理多个事件
+ * maxEvents 与 untilSimTime 至少指定一个，先满足者先停
+ */
+@Data
+public class StepBatchReq {
+
+    /** 最多处理的事件数 */
+    private Integer maxEvents;
+
+    /** 目标仿真时间（毫秒），只处理触发时间不晚于该时间的事件 */
+    private Long untilSimTime;
+
+    /** 墙钟时间预算（毫秒），超出后在当前事件处理完毕时停止 */
+    private Long wallClockBudgetMs;
+}
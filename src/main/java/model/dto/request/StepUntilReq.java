@@ -0,0 +1,25 @@
+package model.dto.request;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 条件推进请求：逐个处理事件直到任一停止条件命中
+ * maxEvents / untilSimTime / wallClockBudgetMs 作为兜底上限，语义同批量推进
+ */
+@Data
+public class StepUntilReq {
+
+    /** 停止条件（任一命中即停止） */
+    private List<StopConditionReq> conditions;
+
+    /** 最多处理的事件数 */
+    private Integer maxEvents;
+
+    /** 目标仿真时间（毫秒） */
+    private Long untilSimTime;
+
+    /** 墙钟时间预算（毫秒） */
+    private Long wallClockBudgetMs;
+}
@@ -0,0 +1,33 @@
+package model.dto.request;
+
+import common.consts.DeviceStateEnum;
+import common.consts.EventTypeEnum;
+import common.consts.StopConditionTypeEnum;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 停止条件：事件处理完成后判定，命中即停止推进
+ */
+@Data
+public class StopConditionReq {
+
+    /** 条件类型 */
+    private StopConditionTypeEnum type;
+
+    /** EVENT_TYPE: 关注的事件类型 */
+    private List<EventTypeEnum> eventTypes;
+
+    /** SUBJECT 必填；其余类型可选，用于限定设备/主体 ID */
+    private String subjectId;
+
+    /** WI_COMPLETE: 指定作业指令号，为空表示任意指令 */
+    private String wiRefNo;
+
+    /** STATE_ENTER: 目标状态 */
+    private DeviceStateEnum state;
+
+    /** POWER_BELOW: 电量阈值 (百分比) */
+    private Double powerThreshold;
+}
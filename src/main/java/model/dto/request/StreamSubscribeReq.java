@@ -0,0 +1,28 @@
+package model.dto.request;
+
+import common.consts.EventTypeEnum;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 推送订阅条件，各条件同时满足；为空表示不限
+ */
+@Data
+public class StreamSubscribeReq {
+
+    /** 关注的事件类型 */
+    private List<EventTypeEnum> types;
+
+    /** 关注的设备ID：事件按主体匹配，状态增量只含这些设备 */
+    private List<String> deviceIds;
+
+    /** 视口范围：状态增量只含位于范围内的设备、栅栏与充电桩 */
+    private Double minX;
+    private Double minY;
+    private Double maxX;
+    private Double maxY;
+
+    /** 事件起始游标，为空时只推送订阅之后处理的事件 */
+    private Long cursor;
+}
@@ -0,0 +1,16 @@
+package model.dto.response;
+
+import lombok.Data;
+
+/**
+ * 检查点写入/恢复结果 DTO
+ */
+@Data
+public class CheckpointResp {
+    private String name;                         // 检查点文件名
+    private long sizeBytes;                      // 文件大小 (字节)
+    private long simTime;                        // 检查点对应的仿真时间
+    private int entityCount;                     // 实体总数 (设备、设施、作业指令、集装箱等)
+    private int pendingEventCount;               // 待处理事件数 (含已取消未出队的)
+    private long elapsedMs;                      // 耗时 (毫秒)
+}
@@ -0,0 +1,18 @@
+package model.dto.response;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量指令响应 DTO
+ */
+@Data
+public class CommandBatchResp {
+    private long simTime;                                   // 执行时的仿真时间
+    private int appliedCount;                               // 已执行的指令数
+    private int failedCount;                                // 执行失败的指令数
+    private int rejectedCount;                              // 未通过校验的指令数
+    private List<CommandResultDto> results = new ArrayList<>(); // 与请求列表一一对应
+}
@@ -0,0 +1,17 @@
+package model.dto.response;
+
+import common.consts.CommandStatusEnum;
+import common.consts.CommandTypeEnum;
+import lombok.Data;
+
+/**
+ * 批量指令中单条指令的执行结果
+ */
+@Data
+public class CommandResultDto {
+    private int index;                  // 在请求列表中的下标
+    private CommandTypeEnum type;       // 指令类型
+    private CommandStatusEnum status;   // 执行结果
+    private String message;             // 失败或未通过校验的原因
+    private Object data;                // 指令返回的数据 (如任务指派结果)
+}
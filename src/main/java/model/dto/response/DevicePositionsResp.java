@@ -0,0 +1,19 @@
+package model.dto.response;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 行驶中设备在某时刻的插值位置（列式：ids/posX/posY 按下标对应）
+ */
+@Data
+public class DevicePositionsResp {
+    private long epoch;                          // 所用纪元
+    private long simTime;                        // 纪元对应的仿真时间
+    private long time;                           // 插值时刻
+    private List<String> ids = new ArrayList<>();
+    private double[] posX = new double[0];
+    private double[] posY = new double[0];
+}
@@ -0,0 +1,18 @@
+package model.dto.response;
+
+import lombok.Data;
+import model.dto.snapshot.EventLogEntryDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 事件因果链 DTO
+ */
+@Data
+public class EventChainResp {
+    private EventLogEntryDto event;                                   // 查询的事件
+    private List<EventLogEntryDto> ancestors = new ArrayList<>();     // 祖先事件，从根事件到直接父事件
+    private List<EventLogEntryDto> descendants = new ArrayList<>();   // 全部后代事件，按处理顺序
+    private boolean truncated;                                        // 后代数超过上限被截断
+}
@@ -0,0 +1,19 @@
+package model.dto.response;
+
+import lombok.Data;
+import model.dto.snapshot.EventLogEntryDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 事件日志分页读取结果 DTO
+ * 游标为事件在日志中的序号；以 nextCursor 继续读取不会遗漏或重复事件
+ */
+@Data
+public class EventLogPageResp {
+    private List<EventLogEntryDto> entries = new ArrayList<>();
+    private long nextCursor;                     // 下一次读取的起始游标
+    private long firstCursor;                    // 仍保留的最旧记录游标，大于请求游标说明旧段已被清理
+    private long endCursor;                      // 已写入的记录总数（读取时刻）
+}
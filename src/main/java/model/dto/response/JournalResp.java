@@ -0,0 +1,13 @@
+package model.dto.response;
+
+import lombok.Data;
+
+/**
+ * 指令日志开始记录结果 DTO
+ */
+@Data
+public class JournalResp {
+    private String name;                         // 指令日志名称
+    private String sessionId;                    // 记录的会话
+    private CheckpointResp baseCheckpoint;       // 重放基准检查点
+}
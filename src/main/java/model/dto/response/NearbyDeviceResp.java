@@ -0,0 +1,18 @@
+package model.dto.response;
+
+import lombok.Data;
+import model.dto.snapshot.NearbyDeviceDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 设备空间查询响应
+ */
+@Data
+public class NearbyDeviceResp {
+    private long simTime;                                  // 查询时刻，行驶中设备的坐标按此插值
+    private Double x;                                      // 实际使用的查询点
+    private Double y;
+    private List<NearbyDeviceDto> devices = new ArrayList<>(); // 按距离升序
+}
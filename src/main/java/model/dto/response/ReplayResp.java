@@ -0,0 +1,21 @@
+package model.dto.response;
+
+import common.consts.CommandTypeEnum;
+import lombok.Data;
+
+/**
+ * 指令日志重放结果 DTO
+ */
+@Data
+public class ReplayResp {
+    private String name;                         // 指令日志名称
+    private int commandCount;                    // 已重放的指令数
+    private long finalSimTime;                   // 重放结束时的仿真时间
+    private boolean deterministic;               // 全部指令执行后的事件摘要与记录一致
+    private Long divergedAtSeq;                  // 首个不一致的指令序号，一致时为 null
+    private CommandTypeEnum divergedCommand;     // 首个不一致的指令类型
+    private long expectedDigest;                 // 记录的事件摘要（不一致时为该条指令的）
+    private long actualDigest;                   // 重放得到的事件摘要
+    private String message;                      // 不一致原因
+    private long elapsedMs;                      // 耗时 (毫秒)
+}
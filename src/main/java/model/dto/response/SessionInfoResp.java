@@ -0,0 +1,19 @@
+package model.dto.response;
+
+import lombok.Data;
+
+/**
+ * 仿真会话信息 DTO
+ */
+@Data
+public class SessionInfoResp {
+    private String sessionId;                    // 会话ID
+    private boolean defaultSession;              // 是否为默认会话 (不可删除)
+    private String parentSessionId;              // 分叉来源会话，新建的会话为 null
+    private long createdAt;                      // 创建时的墙钟时间 (毫秒)
+    private long epoch;                          // 最近发布的状态纪元
+    private long simTime;                        // 最近发布纪元对应的仿真时间
+    private double arrivalThreshold;             // 会话的到达判定阈值 (米)
+    private double chargeAlignThreshold;         // 会话的充电对准距离阈值 (米)
+    private int maxEventsPerTimestamp;           // 会话的单一时间戳最大事件数
+}
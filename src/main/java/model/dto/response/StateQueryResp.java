@@ -0,0 +1,19 @@
+package model.dto.response;
+
+import common.consts.StateEntityEnum;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 状态查询结果
+ */
+@Data
+public class StateQueryResp {
+    private long epoch;                          // 查询所用的纪元，各页纪元不同时结果可能跨越状态变化
+    private long simTime;
+    private StateEntityEnum entity;
+    private List<Object> items = new ArrayList<>(); // 完整快照或按 fields 投影的字段表
+    private String nextCursor;                   // 还有更多结果时为下一页的 cursor，否则为 null
+}
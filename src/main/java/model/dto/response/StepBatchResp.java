@@ -0,0 +1,21 @@
+package model.dto.response;
+
+import common.consts.EventTypeEnum;
+import common.consts.StepStopReasonEnum;
+import lombok.Data;
+import model.dto.snapshot.EventLogEntryDto;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 批量推进响应 DTO
+ */
+@Data
+public class StepBatchResp {
+    private int processedCount;                  // 本次处理的事件数 (不含被取消/暂停而跳过的事件)
+    private Map<EventTypeEnum, Integer> typeCounts = new EnumMap<>(EventTypeEnum.class); // 按事件类型统计
+    private long finalSimTime;                   // 结束时的仿真时间
+    private StepStopReasonEnum stopReason;       // 停止原因
+    private EventLogEntryDto lastEvent;          // 最后处理的事件，未处理任何事件时为 null
+}
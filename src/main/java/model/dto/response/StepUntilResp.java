@@ -0,0 +1,28 @@
+package model.dto.response;
+
+import common.consts.StepStopReasonEnum;
+import lombok.Data;
+import model.dto.snapshot.DeviceSnapshotDto;
+import model.dto.snapshot.EventLogEntryDto;
+import model.dto.snapshot.FenceSnapshotDto;
+import model.dto.snapshot.WorkInstructionSnapshotDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 条件推进响应 DTO
+ */
+@Data
+public class StepUntilResp {
+    private int processedCount;                  // 本次处理的事件数
+    private long finalSimTime;                   // 结束时的仿真时间
+    private StepStopReasonEnum stopReason;       // 停止原因
+    private Integer matchedCondition;            // 命中的条件在请求列表中的下标，未命中为 null
+    private EventLogEntryDto triggerEvent;       // 命中条件的事件（未命中时为最后处理的事件）
+
+    // 触发事件涉及的实体（处理后的状态）
+    private List<DeviceSnapshotDto> devices = new ArrayList<>();
+    private List<WorkInstructionSnapshotDto> workInstructions = new ArrayList<>();
+    private List<FenceSnapshotDto> fences = new ArrayList<>();
+}
@@ -0,0 +1,20 @@
+package model.dto.response;
+
+import lombok.Data;
+import model.dto.snapshot.DeviceTrajectoryDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 设备轨迹采样响应
+ */
+@Data
+public class TrajectoryResp {
+    private long epoch;                          // 所用纪元，轨迹按该纪元的行驶线段计算
+    private long simTime;
+    private long from;                           // 第一个采样时刻
+    private long intervalMs;                     // 采样间隔
+    private int sampleCount;                     // 每台设备的采样数
+    private List<DeviceTrajectoryDto> devices = new ArrayList<>();
+}
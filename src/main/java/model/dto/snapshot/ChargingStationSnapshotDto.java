@@ -1,6 +1,9 @@
 package model.dto.snapshot;
 
 import lombok.Data;
+import model.entity.ChargingStation;
+
+import java.util.Objects;
 
 /**
  * 充电桩状态快照
@@ -37,4 +40,30 @@ public class ChargingStationSnapshotDto {
      * 充电速率
      */
     private Double chargeRate;
+
+    /**
+     * 由充电桩实体构建快照
+     */
+    public static ChargingStationSnapshotDto from(ChargingStation station) {
+        ChargingStationSnapshotDto dto = new ChargingStationSnapshotDto();
+        dto.setStationCode(station.getStationCode());
+        dto.setStatus(station.getStatus());
+        dto.setPosX(station.getPosX());
+        dto.setPosY(station.getPosY());
+        dto.setTruckId(station.getTruckId());
+        dto.setChargeRate(station.getChargeRate());
+        return dto;
+    }
+
+    /**
+     * 快照是否仍与充电桩实体一致（不构建新快照）
+     */
+    public boolean matches(ChargingStation station) {
+        return Objects.equals(stationCode, station.getStationCode())
+                && Objects.equals(status, station.getStatus())
+                && Objects.equals(posX, station.getPosX())
+                && Objects.equals(posY, station.getPosY())
+                && Objects.equals(truckId, station.getTruckId())
+                && Objects.equals(chargeRate, station.getChargeRate());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package model.dto.snapshot;
+
+import lombok.Data;
+import model.entity.Container;
+
+import java.util.Objects;
+
+/**
+ * 集装箱状态快照
+ */
+@Data
+public class ContainerSnapshotDto {
+    private String containerId;  // 箱号
+    private String sizeType;     // 尺寸类型
+    private String currentPos;   // 当前位置
+    private String status;       // 集装箱状态
+
+    /**
+     * 由集装箱实体构建快照
+     */
+    public static ContainerSnapshotDto from(Container container) {
+        ContainerSnapshotDto dto = new ContainerSnapshotDto();
+        dto.setContainerId(container.getContainerId());
+        dto.setSizeType(container.getSizeType());
+        dto.setCurrentPos(container.getCurrentPos());
+        dto.setStatus(container.getStatus());
+        return dto;
+    }
+
+    /**
+     * 快照是否仍与实体一致（不构建新快照）
+     */
+    public boolean matches(Container container) {
+        return Objects.equals(containerId, container.getContainerId())
+                && Objects.equals(sizeType, container.getSizeType())
+                && Objects.equals(currentPos, container.getCurrentPos())
+                && Objects.equals(status, container.getStatus());
+    }
+}
@@ -3,6 +3,10 @@ package model.dto.snapshot;
 import common.consts.DeviceStateEnum;
 import common.consts.DeviceTypeEnum;
 import lombok.Data;
+import model.entity.BaseDevice;
+import model.entity.Truck;
+
+import java.util.Objects;
 
 /**
  * 设备状态快照
@@ -23,4 +27,39 @@ public class DeviceSnapshotDto {
 
     // 当前绑定的作业指令
     private String currWiRefNo;
+
+    /**
+     * 由设备实体构建快照（电量字段仅集卡填充）
+     */
+    public static DeviceSnapshotDto from(BaseDevice device) {
+        DeviceSnapshotDto dto = new DeviceSnapshotDto();
+        dto.setId(device.getId());
+        dto.setType(device.getType());
+        dto.setState(device.getState());
+        dto.setPosX(device.getPosX());
+        dto.setPosY(device.getPosY());
+        dto.setCurrWiRefNo(device.getCurrWiRefNo());
+        if (device instanceof Truck) {
+            Truck truck = (Truck) device;
+            dto.setPowerLevel(truck.getPowerLevel());
+            dto.setNeedCharge(truck.isNeedCharge());
+        }
+        return dto;
+    }
+
+    /**
+     * 快照是否仍与设备实体一致（不构建新快照）
+     */
+    public boolean matches(BaseDevice device) {
+        if (!Objects.equals(id, device.getId()) || type != device.getType() || state != device.getState()
+                || posX == null || posX != device.getPosX() || posY == null || posY != device.getPosY()
+                || !Objects.equals(currWiRefNo, device.getCurrWiRefNo())) {
+            return false;
+        }
+        if (device instanceof Truck) {
+            Truck truck = (Truck) device;
+            return Objects.equals(powerLevel, truck.getPowerLevel()) && Boolean.valueOf(truck.isNeedCharge()).equals(needCharge);
+        }
+        return powerLevel == null && needCharge == null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package model.dto.snapshot;
+
+import lombok.Data;
+
+/**
+ * 单台设备的轨迹采样，posX/posY 的第 i 个元素对应时刻 from + i * intervalMs
+ */
+@Data
+public class DeviceTrajectoryDto {
+    private String id;
+    private boolean moving;      // 所用纪元中是否在行驶，否则各采样点均为当前坐标
+    private double[] posX;
+    private double[] posY;
+}
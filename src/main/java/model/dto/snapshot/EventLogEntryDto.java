@@ -1,8 +1,13 @@
 package model.dto.snapshot;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import common.consts.EventTypeEnum;
+import common.consts.SubjectRoleEnum;
 import lombok.Data;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -21,17 +26,42 @@ public class EventLogEntryDto {
     private EventTypeEnum type;
 
     /**
-     * 事件ID
+     * 事件ID（内部为 long，仅在 REST 出口格式化为字符串）
      */
-    private String eventId;
+    @JsonSerialize(using = ToStringSerializer.class)
+    private long eventId;
 
     /**
-     * 父事件ID
+     * 父事件ID，根事件为 null
      */
-    private String parentEventId;
+    @JsonSerialize(using = ToStringSerializer.class)
+    private Long parentEventId;
 
     /**
-     * 事件主体（TRUCK/CRANE/FENCE/WI 等）
+     * 事件主体，按 SubjectRoleEnum 序号存放（与事件共享，不复制）
      */
-    private Map<String, String> subjects;
-}
\ No newline at end of file
+    @JsonIgnore
+    private String[] subjectSlots;
+
+    /**
+     * 事件主体（TRUCK/CRANE/FENCE/WI 等），仅在序列化出口组装为 Map
+     */
+    public Map<String, String> getSubjects() {
+        Map<String, String> subjects = new LinkedHashMap<>();
+        if (subjectSlots != null) {
+            for (int i = 0; i < subjectSlots.length; i++) {
+                if (subjectSlots[i] != null) {
+                    subjects.put(SubjectRoleEnum.of(i).name(), subjectSlots[i]);
+                }
+            }
+        }
+        return subjects;
+    }
+
+    /**
+     * 指定角色的主体ID
+     */
+    public String getSubject(SubjectRoleEnum role) {
+        return subjectSlots != null ? subjectSlots[role.ordinal()] : null;
+    }
+}
@@ -1,8 +1,11 @@
 package model.dto.snapshot;
 
 import lombok.Data;
+import model.entity.Fence;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * 栅栏状态快照
@@ -21,4 +24,35 @@ public class FenceSnapshotDto {
      * 当前被该栅栏阻挡的车辆ID列表
      */
     private List<String> waitingTrucks;
+
+    /**
+     * 由栅栏实体构建快照
+     */
+    public static FenceSnapshotDto from(Fence fence) {
+        FenceSnapshotDto dto = new FenceSnapshotDto();
+        dto.setNodeId(fence.getNodeId());
+        dto.setBlockCode(fence.getBlockCode());
+        dto.setPosX(fence.getPosX());
+        dto.setPosY(fence.getPosY());
+        dto.setRadius(fence.getRadius());
+        dto.setSpeedLimit(fence.getSpeedLimit());
+        dto.setStatus(fence.getStatus());
+        // 复制等待队列，快照不随实体变化
+        dto.setWaitingTrucks(fence.getWaitingTrucks() != null ? new ArrayList<>(fence.getWaitingTrucks()) : null);
+        return dto;
+    }
+
+    /**
+     * 快照是否仍与栅栏实体一致（不构建新快照）
+     */
+    public boolean matches(Fence fence) {
+        return Objects.equals(nodeId, fence.getNodeId())
+                && Objects.equals(blockCode, fence.getBlockCode())
+                && Objects.equals(posX, fence.getPosX())
+                && Objects.equals(posY, fence.getPosY())
+                && Objects.equals(radius, fence.getRadius())
+                && Objects.equals(speedLimit, fence.getSpeedLimit())
+                && Objects.equals(status, fence.getStatus())
+                && Objects.equals(waitingTrucks, fence.getWaitingTrucks());
+    }
 }
\ No newline at end of file
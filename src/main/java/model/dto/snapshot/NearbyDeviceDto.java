@@ -0,0 +1,18 @@
+package model.dto.snapshot;
+
+import common.consts.DeviceStateEnum;
+import common.consts.DeviceTypeEnum;
+import lombok.Data;
+
+/**
+ * 空间查询命中的设备：查询时刻的（插值）坐标与到查询点的距离
+ */
+@Data
+public class NearbyDeviceDto {
+    private String id;
+    private DeviceTypeEnum type;
+    private DeviceStateEnum state;
+    private Double posX;
+    private Double posY;
+    private double distance;
+}
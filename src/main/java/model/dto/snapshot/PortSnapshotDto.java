@@ -10,6 +10,11 @@ import java.util.List;
 @Data
 public class PortSnapshotDto {
 
+    /**
+     * 快照纪元：引擎状态每发布一次递增，同一纪元内各字段来自同一时刻
+     */
+    private long epoch;
+
     /**
      * 仿真时间戳 (毫秒)
      */
@@ -19,5 +24,6 @@ public class PortSnapshotDto {
     private List<FenceSnapshotDto> fences;
     private List<ChargingStationSnapshotDto> chargingStations;
     private List<WorkInstructionSnapshotDto> workInstructions;
+    private List<ContainerSnapshotDto> containers;
 }
 
@@ -0,0 +1,38 @@
+package model.dto.snapshot;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 状态增量：相对指定纪元（或推送订阅者上次收到的状态）有变化的实体
+ * 客户端先删除 removed* 中的实体，再以列表中的实体覆盖本地状态；full 为 true 时应先清空本地状态。
+ * 推送订阅者跟不上时多个纪元合并为一条，只反映最新纪元
+ */
+@Data
+public class StateDeltaDto {
+    private long epoch;
+    private long simTime;
+    private Long sinceEpoch;                                       // 查询的起始纪元（推送增量为空）
+    private boolean full;                                          // 起始纪元已过期或无效，返回的是全量状态
+    private List<DeviceSnapshotDto> devices = new ArrayList<>();
+    private List<String> removedDeviceIds = new ArrayList<>();     // 已删除或移出视口的设备
+    private List<FenceSnapshotDto> fences = new ArrayList<>();
+    private List<String> removedFenceIds = new ArrayList<>();
+    private List<ChargingStationSnapshotDto> chargingStations = new ArrayList<>();
+    private List<String> removedStationCodes = new ArrayList<>();
+    private List<WorkInstructionSnapshotDto> workInstructions = new ArrayList<>();
+    private List<String> removedWiRefNos = new ArrayList<>();
+    private List<ContainerSnapshotDto> containers = new ArrayList<>();
+    private List<String> removedContainerIds = new ArrayList<>();
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return devices.isEmpty() && removedDeviceIds.isEmpty() && fences.isEmpty() && removedFenceIds.isEmpty()
+                && chargingStations.isEmpty() && removedStationCodes.isEmpty()
+                && workInstructions.isEmpty() && removedWiRefNos.isEmpty()
+                && containers.isEmpty() && removedContainerIds.isEmpty();
+    }
+}
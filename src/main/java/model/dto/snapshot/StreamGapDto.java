@@ -0,0 +1,12 @@
+package model.dto.snapshot;
+
+import lombok.Data;
+
+/**
+ * 推送缺口：订阅者积压过多时被丢弃的事件游标区间 [fromCursor, toCursor)，可从 /sim/events 按游标补读
+ */
+@Data
+public class StreamGapDto {
+    private long fromCursor;
+    private long toCursor;
+}
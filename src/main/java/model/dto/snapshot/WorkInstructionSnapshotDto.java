@@ -2,6 +2,9 @@ package model.dto.snapshot;
 
 import common.consts.BizTypeEnum;
 import lombok.Data;
+import model.entity.WorkInstruction;
+
+import java.util.Objects;
 
 /**
  * 作业指令快照
@@ -9,10 +12,41 @@ import lombok.Data;
 @Data
 public class WorkInstructionSnapshotDto {
     private String wiRefNo;  // 作业号
+    private String queueName;  // 所属队列
     private String containerId;  // 货物id
     private BizTypeEnum moveKind;  // 作业类型
     private String fromPos;  // 起始位置
     private String toPos;  // 终点位置
     private String wiStatus;  // 当前状态
     private String dispatchCheId;  // 执行设备id
+
+    /**
+     * 由作业指令实体构建快照
+     */
+    public static WorkInstructionSnapshotDto from(WorkInstruction wi) {
+        WorkInstructionSnapshotDto dto = new WorkInstructionSnapshotDto();
+        dto.setWiRefNo(wi.getWiRefNo());
+        dto.setQueueName(wi.getQueueName());
+        dto.setContainerId(wi.getContainerId());
+        dto.setMoveKind(wi.getMoveKind());
+        dto.setFromPos(wi.getFromPos());
+        dto.setToPos(wi.getToPos());
+        dto.setWiStatus(wi.getWiStatus());
+        dto.setDispatchCheId(wi.getDispatchCheId());
+        return dto;
+    }
+
+    /**
+     * 快照是否仍与作业指令实体一致（不构建新快照）
+     */
+    public boolean matches(WorkInstruction wi) {
+        return Objects.equals(wiRefNo, wi.getWiRefNo())
+                && Objects.equals(queueName, wi.getQueueName())
+                && Objects.equals(containerId, wi.getContainerId())
+                && moveKind == wi.getMoveKind()
+                && Objects.equals(fromPos, wi.getFromPos())
+                && Objects.equals(toPos, wi.getToPos())
+                && Objects.equals(wiStatus, wi.getWiStatus())
+                && Objects.equals(dispatchCheId, wi.getDispatchCheId());
+    }
 }
\ No newline at end of file
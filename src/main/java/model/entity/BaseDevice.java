@@ -4,6 +4,7 @@ import common.consts.DeviceStateEnum;
 import common.consts.DeviceTypeEnum;
 import common.consts.EventTypeEnum;
 import common.consts.FenceStateEnum;
+import common.consts.SubjectRoleEnum;
 import common.exception.BusinessException;
 import common.util.GisUtil;
 import engine.SimEvent;
@@ -14,15 +15,17 @@ import lombok.NoArgsConstructor;
 import model.bo.GlobalContext;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * 设备基类
+ * 坐标、速度与出发点用原始类型存放，不为每台设备再分配包装对象；围栏与待办任务列表为空时共享同一个空列表
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public abstract class BaseDevice {
+public abstract class BaseDevice implements Cloneable {
 
     //  基础信息
     private String id;               // 设备ID
@@ -30,19 +33,20 @@ public abstract class BaseDevice {
     private DeviceStateEnum state = DeviceStateEnum.IDLE; // 当前状态
 
     //  物理属性
-    private Double posX = 0.0;       // X坐标
-    private Double posY = 0.0;       // Y坐标
-    private Double speed;            // 速度
+    private double posX;             // X坐标
+    private double posY;             // Y坐标
+    private double speed;            // 速度 (米/秒)，0 表示未设置
 
     //  业务数据
-    private List<String> inFenceIds = new ArrayList<>();  // 目前的围栏ID
-    private String currWiRefNo;                           // 当前绑定的任务号
-    private List<String> notDoneWiList = new ArrayList<>(); // 待执行任务列表
+    private List<String> inFenceIds = Collections.emptyList();    // 目前的围栏ID（整体替换，不在原处修改）
+    private String currWiRefNo;                                   // 当前绑定的任务号
+    private List<String> notDoneWiList = Collections.emptyList(); // 待执行任务列表（整体替换，不在原处修改）
 
     // 单步目标点
     private Point currentTargetPos;
-    private Point lastStartPos;       // 上次出发点
-    private long lastMoveStartTime;   // 上次出发时间
+    private double lastStartX = Double.NaN; // 上次出发点 X（未在移动时为 NaN）
+    private double lastStartY = Double.NaN; // 上次出发点 Y（未在移动时为 NaN）
+    private long lastMoveStartTime;         // 上次出发时间
 
     @SuppressWarnings("unused")
     public BaseDevice(String id, DeviceTypeEnum type) {
@@ -53,24 +57,24 @@ public abstract class BaseDevice {
     /**
      * 核心逻辑：开始向目标点移动
      */
-    public void onMoveStart(long now, SimulationEngine engine, String parentEventId) {
+    public void onMoveStart(long now, SimulationEngine engine, long parentEventId) {
         //  参数校验
         if (currentTargetPos == null) {
             //  如果没有目标点 直接置为空闲
             this.state = DeviceStateEnum.IDLE;
+            engine.getContext().markDirty(this);
             return;
         }
 
         // 必须由外部指定速度
-        if (this.speed == null || this.speed <= 0) {
+        if (this.speed <= 0) {
             throw new BusinessException(String.format("设备 [%s] 启动失败: 未设置移动速度，外部算法必须在指令中明确指定 speed。", this.id));
         }
 
         //   校验是否已在目标位置
         Point currentPos = new Point(this.posX, this.posY);
-        double arrivalThreshold = GlobalContext.getInstance()
-                .getPhysicsConfig()
-                .getArrivalThreshold();
+        GlobalContext context = engine.getContext();
+        double arrivalThreshold = context.getPhysicsConfig().getArrivalThreshold();
         if (GisUtil.getDistance(currentPos, currentTargetPos) <= arrivalThreshold) {
             // 已经在位置上了 直接触发到达
             onArrival(currentTargetPos, now, engine, parentEventId);
@@ -78,19 +82,22 @@ public abstract class BaseDevice {
         }
 
         //  围栏检查
-        Fence blockingFence = getBlockingFence(currentTargetPos);
+        Fence blockingFence = getBlockingFence(context, currentTargetPos);
         if (blockingFence != null) {
             this.state = DeviceStateEnum.WAITING;
             blockingFence.getWaitingTrucks().add(this.id); // 加入围栏等待队列
+            context.markDirty(this);
+            context.markDirty(blockingFence);
             return;
         }
 
         //  移动
-        double actualSpeed = applyFenceSpeedLimit(this.speed, currentTargetPos);
+        double actualSpeed = applyFenceSpeedLimit(context, this.speed, currentTargetPos);
 
         // 更新状态
         this.state = DeviceStateEnum.MOVING;
-        this.lastStartPos = currentPos;
+        this.lastStartX = this.posX;
+        this.lastStartY = this.posY;
         this.lastMoveStartTime = now;
 
         // 计算物理耗时
@@ -101,21 +108,24 @@ public abstract class BaseDevice {
 
         // 标记事件主体
         if (this.type == DeviceTypeEnum.ASC || this.type == DeviceTypeEnum.QC) {
-            arrivalEvent.addSubject("CRANE", this.id);
+            arrivalEvent.addSubject(SubjectRoleEnum.CRANE, this.id);
         } else {
-            arrivalEvent.addSubject("TRUCK", this.id);
+            arrivalEvent.addSubject(SubjectRoleEnum.TRUCK, this.id);
         }
+
+        // 按行驶线段登记到位置索引
+        context.deviceIndex().update(this);
+        context.markDirty(this);
     }
 
     /**
      * 到达目的地后
      */
-    public void onArrival(Point reachedPoint, long now, SimulationEngine engine, String parentEventId) {
+    public void onArrival(Point reachedPoint, long now, SimulationEngine engine, long parentEventId) {
         if (reachedPoint == null) {
             this.state = DeviceStateEnum.IDLE;
-            this.lastStartPos = null;
-            this.currentTargetPos = null;
-            this.speed = null;
+            clearMove();
+            engine.getContext().markDirty(this);
             return;
         }
         Point currentPos = new Point(this.posX, this.posY);
@@ -135,27 +145,30 @@ public abstract class BaseDevice {
             }
         }
 
+        //  更新所在围栏（只查询到达点所在格子）
+        this.inFenceIds = engine.getContext().getFenceMap().fenceIdsAt(new Point(this.posX, this.posY));
+
         //  状态清理
-        this.lastStartPos = null;
-        this.currentTargetPos = null;
-        this.speed = null;
+        clearMove();
 
         //  停止并等待
         this.state = DeviceStateEnum.IDLE;
+        engine.getContext().deviceIndex().update(this);
+        engine.getContext().markDirty(this);
     }
 
     /**
      * 查询/展示用：在给定仿真时刻的估算坐标（离散仿真中真实位置仅在 ARRIVAL 事件时更新，此处为线性插值估算）
+     * @param arrivalThreshold 所属会话的到达判定阈值
      */
-    public Point getInterpolatedPos(long currentSimTime) {
-        if (state != DeviceStateEnum.MOVING || currentTargetPos == null || lastStartPos == null || speed == null) {
+    public Point getInterpolatedPos(long currentSimTime, double arrivalThreshold) {
+        if (!isMoveInProgress()) {
             return new Point(posX, posY);
         }
 
-        double totalDist = GisUtil.getDistance(lastStartPos, currentTargetPos);
-        double arrivalThreshold = GlobalContext.getInstance()
-                .getPhysicsConfig()
-                .getArrivalThreshold();
+        double dx = currentTargetPos.getX() - lastStartX;
+        double dy = currentTargetPos.getY() - lastStartY;
+        double totalDist = Math.sqrt(dx * dx + dy * dy);
         if (totalDist <= arrivalThreshold) return currentTargetPos;
 
         long elapsedTime = currentSimTime - lastMoveStartTime;
@@ -164,28 +177,65 @@ public abstract class BaseDevice {
         if (movedDist >= totalDist) return currentTargetPos;
 
         double ratio = movedDist / totalDist;
-        double newX = lastStartPos.getX() + (currentTargetPos.getX() - lastStartPos.getX()) * ratio;
-        double newY = lastStartPos.getY() + (currentTargetPos.getY() - lastStartPos.getY()) * ratio;
-        return new Point(newX, newY);
+        return new Point(lastStartX + dx * ratio, lastStartY + dy * ratio);
     }
 
-    // 检查目标点是否在 阻断 状态的围栏内
-    private Fence getBlockingFence(Point target) {
-        for (Fence fence : GlobalContext.getInstance().getFenceMap().values()) {
-            if (fence.contains(target) && FenceStateEnum.BLOCKED.getCode().equals(fence.getStatus())) {
-                return fence;
-            }
+    /**
+     * 是否处于一段已开始的直线移动中（状态为移动、出发点、目标点与速度齐备）
+     */
+    public boolean isMoveInProgress() {
+        return state == DeviceStateEnum.MOVING && currentTargetPos != null
+                && currentTargetPos.getX() != null && currentTargetPos.getY() != null
+                && !Double.isNaN(lastStartX) && !Double.isNaN(lastStartY) && speed > 0;
+    }
+
+    /**
+     * 上次出发点，未在移动时为 null（按需构造，不随设备常驻）
+     */
+    public Point getLastStartPos() {
+        return Double.isNaN(lastStartX) || Double.isNaN(lastStartY) ? null : new Point(lastStartX, lastStartY);
+    }
+
+    public void setLastStartPos(Point start) {
+        boolean valid = start != null && start.getX() != null && start.getY() != null;
+        this.lastStartX = valid ? start.getX() : Double.NaN;
+        this.lastStartY = valid ? start.getY() : Double.NaN;
+    }
+
+    // 到达或取消移动后清理本段移动的数据
+    private void clearMove() {
+        this.lastStartX = Double.NaN;
+        this.lastStartY = Double.NaN;
+        this.currentTargetPos = null;
+        this.speed = 0;
+    }
+
+    /**
+     * 复制设备（会话分叉），列表字段独立；Point 按值使用，不在原处修改，直接共享
+     */
+    public BaseDevice copy() {
+        try {
+            BaseDevice copy = (BaseDevice) super.clone();
+            copy.inFenceIds = copyOf(inFenceIds);
+            copy.notDoneWiList = copyOf(notDoneWiList);
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
         }
-        return null;
+    }
+
+    private static List<String> copyOf(List<String> list) {
+        return list == null || list.isEmpty() ? Collections.emptyList() : new ArrayList<>(list);
+    }
+
+    // 检查目标点是否在 阻断 状态的围栏内（网格索引只检查目标点所在格子的栅栏）
+    private Fence getBlockingFence(GlobalContext context, Point target) {
+        return context.getFenceMap().findBlocking(target, FenceStateEnum.BLOCKED.getCode());
     }
 
     // 获取目标点所在围栏的限速 取小
-    private double applyFenceSpeedLimit(double defaultSpeed, Point target) {
-        for (Fence fence : GlobalContext.getInstance().getFenceMap().values()) {
-            if (fence.contains(target) && fence.getSpeedLimit() != null) {
-                return Math.min(defaultSpeed, fence.getSpeedLimit());
-            }
-        }
-        return defaultSpeed;
+    private double applyFenceSpeedLimit(GlobalContext context, double defaultSpeed, Point target) {
+        Double speedLimit = context.getFenceMap().speedLimitAt(target);
+        return speedLimit != null ? Math.min(defaultSpeed, speedLimit) : defaultSpeed;
     }
 }
\ No newline at end of file
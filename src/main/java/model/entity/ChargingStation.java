@@ -11,7 +11,7 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class ChargingStation {
+public class ChargingStation implements Cloneable {
     private String stationCode; // 充电桩编号
     private String status;      // 充电桩状态
     private String powName;     // 所属工作点
@@ -33,4 +33,15 @@ public class ChargingStation {
     public boolean isAvailable() {
         return DeviceStateEnum.IDLE.getCode().equals(status) && truckId == null;
     }
-}
\ No newline at end of file
+
+    /**
+     * 复制充电桩（会话分叉），字段均为不可变值
+     */
+    public ChargingStation copy() {
+        try {
+            return (ChargingStation) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
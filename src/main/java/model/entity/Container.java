@@ -10,7 +10,7 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class Container {
+public class Container implements Cloneable {
     private String containerId;   // 箱号
 
     private String equipType;     // 箱型
@@ -24,4 +24,15 @@ public class Container {
 
     private String currentPos;    // 当前位置信息
     private String status;        // 集装箱状态 (01即将作业/02不可作业)
-}
\ No newline at end of file
+
+    /**
+     * 复制集装箱（会话分叉），字段均为不可变值
+     */
+    public Container copy() {
+        try {
+            return (Container) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
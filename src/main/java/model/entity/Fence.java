@@ -10,7 +10,7 @@ import java.util.List;
  * 栅栏实体
  */
 @Data
-public class Fence {
+public class Fence implements Cloneable {
     private String nodeId;
     private String blockCode;
     private Double posX;
@@ -33,4 +33,17 @@ public class Fence {
         double distance = Math.hypot(posX - target.getX(), posY - target.getY());
         return distance <= radius;
     }
+
+    /**
+     * 复制栅栏（会话分叉），等待队列独立
+     */
+    public Fence copy() {
+        try {
+            Fence copy = (Fence) super.clone();
+            copy.waitingTrucks = new ArrayList<>(waitingTrucks);
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
\ No newline at end of file
@@ -8,7 +8,7 @@ import java.time.LocalDateTime;
  * 作业指令
  */
 @Data
-public class WorkInstruction {
+public class WorkInstruction implements Cloneable {
     private String wiRefNo;       // 指令编号 (Key)
     private String queueName;     // 指令所属的队列
     private String containerId;   // 作业的箱号id
@@ -44,4 +44,15 @@ public class WorkInstruction {
 
     //  调度
     private String dispatchCheId; // 最终派发的设备ID
-}
\ No newline at end of file
+
+    /**
+     * 复制作业指令（会话分叉），字段均为不可变值
+     */
+    public WorkInstruction copy() {
+        try {
+            return (WorkInstruction) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
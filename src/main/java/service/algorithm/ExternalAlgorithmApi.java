@@ -4,6 +4,9 @@ import common.Result;
 import model.dto.request.*;
 import model.dto.request.MoveCommandReq;
 import model.dto.response.AssignTaskResp;
+import model.dto.response.CommandBatchResp;
+import model.dto.response.StepBatchResp;
+import model.dto.response.StepUntilResp;
 
 /**
  * 外部算法接入 API 接口
@@ -28,14 +31,37 @@ public interface ExternalAlgorithmApi {
     /** 电量控制 指令集卡前往指定充电桩充电 */
     Result chargeTruck(ChargeCommandReq req);
 
-    /** 事件控制 取消指定的事件 */
-    Result cancelEvent(String eventId);
+    /** 事件控制 取消指定的事件 (事件ID在 REST 入口由字符串解析) */
+    Result cancelEvent(long eventId);
 
     /**
-     * 单事件推进（离散仿真的唯一时钟推进方式）
+     * 批量指令：先整体校验请求结构，再在仿真单写线程上一次按顺序执行全部指令
+     * 单条指令失败不影响其余指令；每条成功的指令照常记入指令日志
+     *
+     * @return 与请求列表一一对应的执行结果
+     */
+    CommandBatchResp executeBatch(CommandBatchReq req);
+
+    /**
+     * 单事件推进（离散仿真的基本时钟推进方式）
      * 处理下一个到期事件，时钟推进到该事件时间；无时间窗、无按步长推进。
      *
      * @return 本次处理的事件信息，若无待处理事件则返回 null
      */
     model.dto.snapshot.EventLogEntryDto stepNextEvent();
-}
\ No newline at end of file
+
+    /**
+     * 批量推进：一次调用内逐个处理事件，直到达到最大事件数、目标仿真时间或墙钟预算
+     * 仍是严格按事件时间串行处理，不引入时间窗
+     *
+     * @return 处理统计、最终仿真时间与停止原因
+     */
+    StepBatchResp stepBatch(StepBatchReq req);
+
+    /**
+     * 条件推进：逐个处理事件直到任一停止条件命中（事件类型、主体、设备状态迁移、电量阈值等）
+     *
+     * @return 触发事件、命中的条件与触发事件涉及的实体
+     */
+    StepUntilResp stepUntil(StepUntilReq req);
+}
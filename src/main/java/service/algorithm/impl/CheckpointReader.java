@@ -0,0 +1,408 @@
+package service.algorithm.impl;
+
+import common.consts.BizTypeEnum;
+import common.consts.DeviceStateEnum;
+import common.consts.DeviceTypeEnum;
+import common.consts.EventTypeEnum;
+import common.consts.FenceStateEnum;
+import common.consts.SubjectRoleEnum;
+import common.exception.BusinessException;
+import engine.SimEvent;
+import engine.payload.ChargePayload;
+import engine.payload.CraneMovePayload;
+import engine.payload.CraneOpPayload;
+import engine.payload.MovePayload;
+import engine.payload.TaskPayload;
+import model.bo.GlobalContext;
+import model.entity.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 检查点二进制解码，直接从内存映射的 ByteBuffer 读取
+ * 字段顺序与 {@link CheckpointWriter} 一一对应
+ */
+class CheckpointReader {
+
+    private final ByteBuffer in;
+    // 字符串解码复用的缓冲区
+    private byte[] scratch = new byte[256];
+
+    // 文件头
+    private long simTime;
+    private long lastEventId;
+    private long eventDigest;
+
+    CheckpointReader(ByteBuffer in) {
+        this.in = in;
+    }
+
+    /**
+     * 校验并读取文件头
+     */
+    void readHeader() {
+        if (in.remaining() < 32 || in.getInt() != CheckpointWriter.MAGIC) {
+            throw new BusinessException("不是有效的检查点文件");
+        }
+        int version = in.getInt();
+        if (version != CheckpointWriter.VERSION) {
+            throw new BusinessException("检查点版本不兼容: " + version + "，当前版本 " + CheckpointWriter.VERSION);
+        }
+        simTime = in.getLong();
+        lastEventId = in.getLong();
+        eventDigest = in.getLong();
+    }
+
+    long getSimTime() {
+        return simTime;
+    }
+
+    long getLastEventId() {
+        return lastEventId;
+    }
+
+    long getEventDigest() {
+        return eventDigest;
+    }
+
+    //  设备
+
+    void readTrucks(GlobalContext ctx) {
+        for (int n = in.getInt(); n > 0; n--) {
+            Truck t = new Truck();
+            readDevice(t);
+            t.setPowerLevel(readDouble());
+            t.setConsumeRate(readDouble());
+            t.setLaneNo(readInteger());
+            t.setDualCarryMode(readInteger());
+            t.setNeedCharge(readBoolean());
+            t.setTargetStationId(readString());
+            ctx.getTruckMap().put(t.getId(), t);
+        }
+    }
+
+    void readQcDevices(GlobalContext ctx) {
+        for (int n = in.getInt(); n > 0; n--) {
+            QcDevice q = new QcDevice();
+            readDevice(q);
+            q.setCurrentBlockBay(readString());
+            q.setTargetBlockBay(readString());
+            q.setHoistSpeed(readDouble());
+            ctx.getQcMap().put(q.getId(), q);
+        }
+    }
+
+    void readAscDevices(GlobalContext ctx) {
+        for (int n = in.getInt(); n > 0; n--) {
+            AscDevice a = new AscDevice();
+            readDevice(a);
+            a.setCurrentBlockBay(readString());
+            a.setTargetBlockBay(readString());
+            a.setEnabledRangeList(readStringList());
+            a.setHoistSpeed(readDouble());
+            ctx.getAscMap().put(a.getId(), a);
+        }
+    }
+
+    private void readDevice(BaseDevice d) {
+        d.setId(readString());
+        d.setType(readEnum(DeviceTypeEnum.class));
+        d.setState(readEnum(DeviceStateEnum.class));
+        d.setPosX(readDouble(0));
+        d.setPosY(readDouble(0));
+        d.setSpeed(readDouble(0));
+        d.setInFenceIds(readStringList());
+        d.setCurrWiRefNo(readString());
+        d.setNotDoneWiList(readStringList());
+        d.setCurrentTargetPos(readPoint());
+        d.setLastStartPos(readPoint());
+        d.setLastMoveStartTime(in.getLong());
+    }
+
+    //  基础设施
+
+    void readVessels(GlobalContext ctx) {
+        for (int n = in.getInt(); n > 0; n--) {
+            Vessel v = new Vessel();
+            v.setVesselId(readString());
+            v.setVesselBerth(readString());
+            v.setBerthLocation(readDouble());
+            v.setSideTo(readString());
+            v.setLength(readDouble());
+            int bayCount = in.getInt();
+            if (bayCount < 0) {
+                v.setBays(null);
+            }
+            for (int b = 0; b < bayCount; b++) {
+                VesselBay bay = new VesselBay();
+                bay.setBayNo(readString());
+                bay.setBayPos(readString());
+                bay.setBayName(readString());
+                bay.setBayType(readString());
+                bay.setTierFirstDef(readInteger());
+                int colCount = in.getInt();
+                if (colCount < 0) {
+                    bay.setColInfos(null);
+                }
+                for (int c = 0; c < colCount; c++) {
+                    VesselBay.Column col = new VesselBay.Column();
+                    col.setColNo(readString());
+                    col.setTierNoBottom(readInteger());
+                    col.setTierNoTop(readInteger());
+                    bay.getColInfos().add(col);
+                }
+                v.getBays().add(bay);
+            }
+            ctx.getVesselMap().put(v.getVesselId(), v);
+        }
+    }
+
+    void readFences(GlobalContext ctx) {
+        for (int n = in.getInt(); n > 0; n--) {
+            Fence f = new Fence();
+            f.setNodeId(readString());
+            f.setBlockCode(readString());
+            f.setPosX(readDouble());
+            f.setPosY(readDouble());
+            f.setRadius(readDouble());
+            f.setSpeedLimit(readDouble());
+            f.setStatus(readString());
+            f.setWaitingTrucks(readStringList());
+            ctx.getFenceMap().put(f.getNodeId(), f);
+        }
+    }
+
+    void readYardBlocks(GlobalContext ctx) {
+        for (int n = in.getInt(); n > 0; n--) {
+            YardBlock b = new YardBlock();
+            b.setBlockCode(readString());
+            b.setBlockType(readString());
+            b.setMaxTier(readInteger());
+            b.setInvertX(readDouble());
+            b.setInvertY(readDouble());
+            b.setFirstRow(readInteger());
+            b.setLastRow(readInteger());
+            int stackCount = in.getInt();
+            if (stackCount < 0) {
+                b.setStacks(null);
+            }
+            for (int s = 0; s < stackCount; s++) {
+                YardBlock.Stack stack = new YardBlock.Stack();
+                stack.setRow(readInteger());
+                stack.setColumn(readInteger());
+                stack.setMaxTier(readInteger());
+                stack.setProtectStatus(readString());
+                stack.setStackStatus(readString());
+                int slotCount = in.getInt();
+                if (slotCount < 0) {
+                    stack.setSlots(null);
+                }
+                for (int i = 0; i < slotCount; i++) {
+                    YardBlock.Slot slot = new YardBlock.Slot();
+                    slot.setTier(readInteger());
+                    slot.setHasContainer(readBoolean());
+                    slot.setCurrentContainerId(readString());
+                    slot.setFutureContainerId(readString());
+                    slot.setBmUsingFlag(in.getInt());
+                    stack.getSlots().add(slot);
+                }
+                b.getStacks().add(stack);
+            }
+            ctx.getYardBlockMap().put(b.getBlockCode(), b);
+        }
+    }
+
+    void readChargingStations(GlobalContext ctx) {
+        for (int n = in.getInt(); n > 0; n--) {
+            ChargingStation s = new ChargingStation();
+            s.setStationCode(readString());
+            s.setStatus(readString());
+            s.setPowName(readString());
+            s.setBlockCode(readString());
+            s.setRowPosition(readInteger());
+            s.setPosX(readDouble());
+            s.setPosY(readDouble());
+            s.setTruckId(readString());
+            s.setPortCode(readInteger());
+            s.setChargeRate(readDouble());
+            ctx.getChargingStationMap().put(s.getStationCode(), s);
+        }
+    }
+
+    //  业务数据
+
+    void readWorkInstructions(GlobalContext ctx) {
+        for (int n = in.getInt(); n > 0; n--) {
+            WorkInstruction w = new WorkInstruction();
+            w.setWiRefNo(readString());
+            w.setQueueName(readString());
+            w.setContainerId(readString());
+            w.setMoveKind(readEnum(BizTypeEnum.class));
+            w.setFetchCheId(readString());
+            w.setFetchTime(readTime());
+            w.setCarryCheId(readString());
+            w.setCarryTime(readTime());
+            w.setPutCheId(readString());
+            w.setPutTime(readTime());
+            w.setFromPos(readString());
+            w.setToPos(readString());
+            w.setWiStatus(readString());
+            w.setJobStep(readString());
+            w.setDispatchTime(readTime());
+            w.setDoneTime(readTime());
+            w.setBlockCode(readString());
+            w.setBay(readString());
+            w.setRow(readString());
+            w.setTier(readString());
+            w.setDispatchCheId(readString());
+            ctx.getWorkInstructionMap().put(w.getWiRefNo(), w);
+        }
+    }
+
+    void readContainers(GlobalContext ctx) {
+        for (int n = in.getInt(); n > 0; n--) {
+            Container c = new Container();
+            c.setContainerId(readString());
+            c.setEquipType(readString());
+            c.setSizeType(readString());
+            c.setTotalWeight(readDouble());
+            c.setOwner(readString());
+            c.setNTEUs(readInteger());
+            c.setDepartRef(readString());
+            c.setArriveRef(readString());
+            c.setCurrentPos(readString());
+            c.setStatus(readString());
+            ctx.getContainerMap().put(c.getContainerId(), c);
+        }
+    }
+
+    //  引擎状态
+
+    List<SimEvent> readEvents() {
+        int count = in.getInt();
+        List<SimEvent> events = new ArrayList<>(count);
+        String[] subjects = new String[SubjectRoleEnum.COUNT];
+        for (int n = 0; n < count; n++) {
+            long eventId = in.getLong();
+            long parentEventId = in.getLong();
+            long triggerTime = in.getLong();
+            EventTypeEnum type = readEnum(EventTypeEnum.class);
+            BizTypeEnum bizType = readEnum(BizTypeEnum.class);
+            long chainId = in.getLong();
+            boolean cancelled = readBoolean();
+            for (int i = 0; i < subjects.length; i++) {
+                subjects[i] = readString();
+            }
+            Object data = readPayload();
+            events.add(SimEvent.restore(eventId, parentEventId, triggerTime, type, bizType, chainId,
+                    subjects, data, cancelled));
+        }
+        return events;
+    }
+
+    void readSuspension(Set<BizTypeEnum> bizTypes, Set<Long> chainIds) {
+        for (int n = in.getInt(); n > 0; n--) {
+            bizTypes.add(readEnum(BizTypeEnum.class));
+        }
+        for (int n = in.getInt(); n > 0; n--) {
+            chainIds.add(in.getLong());
+        }
+    }
+
+    private Object readPayload() {
+        byte tag = in.get();
+        switch (tag) {
+            case CheckpointWriter.PAYLOAD_NONE:
+                return null;
+            case CheckpointWriter.PAYLOAD_MOVE:
+                return new MovePayload(readPoint(), in.getDouble());
+            case CheckpointWriter.PAYLOAD_CRANE_MOVE:
+                return new CraneMovePayload(readEnum(DeviceStateEnum.class), in.getDouble(), in.getDouble());
+            case CheckpointWriter.PAYLOAD_CRANE_OP:
+                return new CraneOpPayload(readEnum(EventTypeEnum.class), in.getLong());
+            case CheckpointWriter.PAYLOAD_TASK:
+                return new TaskPayload(readString());
+            case CheckpointWriter.PAYLOAD_CHARGE:
+                return new ChargePayload(readString());
+            case CheckpointWriter.PAYLOAD_POINT:
+                return readPoint();
+            case CheckpointWriter.PAYLOAD_FENCE_STATE:
+                return readEnum(FenceStateEnum.class);
+            default:
+                throw new BusinessException("检查点中存在未知的事件负载类型: " + tag);
+        }
+    }
+
+    //  基本类型
+
+    private boolean readBoolean() {
+        return in.get() != 0;
+    }
+
+    private String readString() {
+        int len = in.getInt();
+        if (len < 0) {
+            return null;
+        }
+        if (len > scratch.length) {
+            scratch = new byte[Math.max(len, scratch.length << 1)];
+        }
+        in.get(scratch, 0, len);
+        return new String(scratch, 0, len, StandardCharsets.UTF_8);
+    }
+
+    private List<String> readStringList() {
+        int size = in.getInt();
+        if (size < 0) {
+            return null;
+        }
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readString());
+        }
+        return list;
+    }
+
+    private <E extends Enum<E>> E readEnum(Class<E> type) {
+        String name = readString();
+        return name != null ? Enum.valueOf(type, name) : null;
+    }
+
+    private Double readDouble() {
+        return readBoolean() ? in.getDouble() : null;
+    }
+
+    // 设备的原始类型字段：缺省值按未设置处理
+    private double readDouble(double absent) {
+        Double d = readDouble();
+        return d != null ? d : absent;
+    }
+
+    private Integer readInteger() {
+        return readBoolean() ? in.getInt() : null;
+    }
+
+    private LocalDateTime readTime() {
+        if (!readBoolean()) {
+            return null;
+        }
+        long epochSecond = in.getLong();
+        int nano = in.getInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    private Point readPoint() {
+        if (!readBoolean()) {
+            return null;
+        }
+        Double x = readDouble();
+        Double y = readDouble();
+        return new Point(x, y);
+    }
+}
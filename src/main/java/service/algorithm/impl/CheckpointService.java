@@ -0,0 +1,219 @@
+package service.algorithm.impl;
+
+import common.config.SimEngineConfig;
+import common.consts.BizTypeEnum;
+import common.exception.BusinessException;
+import engine.SimEvent;
+import engine.SimulationEngine;
+import engine.session.SimSession;
+import lombok.extern.slf4j.Slf4j;
+import model.bo.GlobalContext;
+import model.dto.response.CheckpointResp;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 仿真状态检查点
+ * 把会话的全部实体、待处理事件（含取消标记与事件ID）和暂停状态写成单个二进制文件，末尾附 CRC32；
+ * 恢复时内存映射文件、校验后直接从映射区解码，解码完成后才在单写线程上一次性替换会话状态。
+ * 事件/错误日志属于历史记录，不进入检查点。
+ */
+@Service
+@Slf4j
+public class CheckpointService {
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9_.-]{1,128}");
+    private static final String SUFFIX = ".ckpt";
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path checkpointDir;
+
+    public CheckpointService(SimEngineConfig engineConfig) {
+        this.checkpointDir = Paths.get(engineConfig.getCheckpointDir());
+    }
+
+    /**
+     * 在会话单写线程上写检查点，文件先写临时文件再原子替换
+     *
+     * @param name 检查点名称，为空时使用会话ID
+     */
+    public CheckpointResp checkpoint(SimSession session, String name) {
+        Path file = resolve(name, session.getId());
+        return session.getCommandExecutor().call(() -> {
+            long start = System.currentTimeMillis();
+            GlobalContext ctx = session.getContext();
+            SimulationEngine engine = session.getEngine();
+            List<SimEvent> pending = new ArrayList<>();
+            engine.forEachPendingEvent(pending::add);
+            // 按出队顺序写入，恢复时按序入队
+            Collections.sort(pending);
+
+            try {
+                Files.createDirectories(checkpointDir);
+                Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+                try (OutputStream raw = new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE)) {
+                    CRC32 crc = new CRC32();
+                    CheckpointWriter writer = new CheckpointWriter(new CheckedOutputStream(raw, crc));
+                    writer.writeHeader(ctx.getSimTime(), engine.getLastEventId(), engine.getEventDigest());
+                    writer.writeTrucks(ctx.getTruckMap().values());
+                    writer.writeQcDevices(ctx.getQcMap().values());
+                    writer.writeAscDevices(ctx.getAscMap().values());
+                    writer.writeVessels(ctx.getVesselMap().values());
+                    writer.writeFences(ctx.getFenceMap().values());
+                    writer.writeYardBlocks(ctx.getYardBlockMap().values());
+                    writer.writeChargingStations(ctx.getChargingStationMap().values());
+                    writer.writeWorkInstructions(ctx.getWorkInstructionMap().values());
+                    writer.writeContainers(ctx.getContainerMap().values());
+                    writer.writeEventCount(pending.size());
+                    for (SimEvent event : pending) {
+                        writer.writeEvent(event);
+                    }
+                    writer.writeSuspension(engine.getSuspendedBizTypes(), engine.getSuspendedChainIds());
+                    writer.flush();
+                    // 校验和本身不计入校验范围
+                    new DataOutputStream(raw).writeLong(crc.getValue());
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                CheckpointResp resp = new CheckpointResp();
+                resp.setName(file.getFileName().toString());
+                resp.setSizeBytes(Files.size(file));
+                resp.setSimTime(ctx.getSimTime());
+                resp.setEntityCount(entityCount(ctx));
+                resp.setPendingEventCount(pending.size());
+                resp.setElapsedMs(System.currentTimeMillis() - start);
+                log.info("会话 [{}] 检查点已写入: {} ({} 字节, {} ms)", session.getId(), file,
+                        resp.getSizeBytes(), resp.getElapsedMs());
+                return resp;
+            } catch (IOException e) {
+                throw new BusinessException("检查点写入失败: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 从检查点恢复会话状态：映射与解码在调用线程完成，替换在会话单写线程上进行
+     *
+     * @param name 检查点名称，为空时使用会话ID
+     */
+    public CheckpointResp restore(SimSession session, String name) {
+        Path file = resolve(name, session.getId());
+        if (!Files.isRegularFile(file)) {
+            throw new BusinessException("检查点不存在: " + file.getFileName());
+        }
+        long start = System.currentTimeMillis();
+        GlobalContext image = new GlobalContext();
+        List<SimEvent> pending;
+        Set<BizTypeEnum> bizTypes = EnumSet.noneOf(BizTypeEnum.class);
+        Set<Long> chainIds = new HashSet<>();
+        long size;
+        CheckpointReader reader;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new BusinessException("检查点文件超过 2GB，无法整体映射: " + size);
+            }
+            if (size < 8) {
+                throw new BusinessException("检查点文件不完整");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            verifyChecksum(mapped, (int) size);
+
+            ByteBuffer body = mapped.duplicate();
+            body.limit((int) size - 8);
+            reader = new CheckpointReader(body);
+            reader.readHeader();
+            image.setSimTime(reader.getSimTime());
+            reader.readTrucks(image);
+            reader.readQcDevices(image);
+            reader.readAscDevices(image);
+            reader.readVessels(image);
+            reader.readFences(image);
+            reader.readYardBlocks(image);
+            reader.readChargingStations(image);
+            reader.readWorkInstructions(image);
+            reader.readContainers(image);
+            pending = reader.readEvents();
+            reader.readSuspension(bizTypes, chainIds);
+        } catch (IOException e) {
+            throw new BusinessException("检查点读取失败: " + e.getMessage());
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new BusinessException("检查点内容损坏或与当前版本不兼容: " + e.getMessage());
+        }
+
+        long lastEventId = reader.getLastEventId();
+        long eventDigest = reader.getEventDigest();
+        session.getCommandExecutor().run(() -> {
+            // 恢复的状态不在当前指令日志的起点之后，继续记录将无法重放
+            session.getJournal().stop();
+            session.getContext().restoreFrom(image);
+            session.getEngine().restoreState(pending, bizTypes, chainIds, lastEventId, eventDigest);
+        });
+
+        CheckpointResp resp = new CheckpointResp();
+        resp.setName(file.getFileName().toString());
+        resp.setSizeBytes(size);
+        resp.setSimTime(image.getSimTime());
+        resp.setEntityCount(entityCount(image));
+        resp.setPendingEventCount(pending.size());
+        resp.setElapsedMs(System.currentTimeMillis() - start);
+        log.info("会话 [{}] 已从检查点恢复: {} ({} ms)", session.getId(), file, resp.getElapsedMs());
+        return resp;
+    }
+
+    private void verifyChecksum(MappedByteBuffer mapped, int size) {
+        ByteBuffer body = mapped.duplicate();
+        body.limit(size - 8);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if (crc.getValue() != mapped.getLong(size - 8)) {
+            throw new BusinessException("检查点校验失败，文件可能已损坏");
+        }
+    }
+
+    /**
+     * 检查点文件是否已存在
+     *
+     * @param name 检查点名称，为空时使用会话ID
+     */
+    public boolean exists(SimSession session, String name) {
+        return Files.isRegularFile(resolve(name, session.getId()));
+    }
+
+    private Path resolve(String name, String sessionId) {
+        String base = name == null || name.trim().isEmpty() ? sessionId : name.trim();
+        if (!NAME_PATTERN.matcher(base).matches()) {
+            throw new BusinessException("检查点名称只能包含字母、数字、下划线、点和连字符: " + base);
+        }
+        return checkpointDir.resolve(base.endsWith(SUFFIX) ? base : base + SUFFIX);
+    }
+
+    private static int entityCount(GlobalContext ctx) {
+        return ctx.getTruckMap().size() + ctx.getQcMap().size() + ctx.getAscMap().size()
+                + ctx.getVesselMap().size() + ctx.getFenceMap().size() + ctx.getYardBlockMap().size()
+                + ctx.getChargingStationMap().size() + ctx.getWorkInstructionMap().size()
+                + ctx.getContainerMap().size();
+    }
+}
@@ -0,0 +1,383 @@
+package service.algorithm.impl;
+
+import common.consts.FenceStateEnum;
+import common.consts.SubjectRoleEnum;
+import engine.SimEvent;
+import engine.payload.ChargePayload;
+import engine.payload.CraneMovePayload;
+import engine.payload.CraneOpPayload;
+import engine.payload.MovePayload;
+import engine.payload.TaskPayload;
+import model.entity.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 检查点二进制编码
+ * 格式：定长头 + 按固定顺序排列的实体段与事件段；字符串为长度前缀的 UTF-8，-1 表示 null；
+ * 可空数值前置一个存在标记字节；枚举写名称，避免枚举增删后序号错位。
+ * 字段顺序必须与 {@link CheckpointReader} 完全一致，格式变化时递增 {@link #VERSION}。
+ */
+class CheckpointWriter {
+
+    static final int MAGIC = 0x53494D43; // "SIMC"
+    // 2: 文件头增加会话内事件ID序号与事件摘要
+    static final int VERSION = 2;
+
+    // 事件负载类型标记
+    static final byte PAYLOAD_NONE = 0;
+    static final byte PAYLOAD_MOVE = 1;
+    static final byte PAYLOAD_CRANE_MOVE = 2;
+    static final byte PAYLOAD_CRANE_OP = 3;
+    static final byte PAYLOAD_TASK = 4;
+    static final byte PAYLOAD_CHARGE = 5;
+    static final byte PAYLOAD_POINT = 6;
+    static final byte PAYLOAD_FENCE_STATE = 7;
+
+    private final DataOutputStream out;
+
+    CheckpointWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    void writeHeader(long simTime, long lastEventId, long eventDigest) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(simTime);
+        out.writeLong(lastEventId);
+        out.writeLong(eventDigest);
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    //  设备
+
+    void writeTrucks(Collection<Truck> trucks) throws IOException {
+        out.writeInt(trucks.size());
+        for (Truck t : trucks) {
+            writeDevice(t);
+            writeDouble(t.getPowerLevel());
+            writeDouble(t.getConsumeRate());
+            writeInteger(t.getLaneNo());
+            writeInteger(t.getDualCarryMode());
+            out.writeBoolean(t.isNeedCharge());
+            writeString(t.getTargetStationId());
+        }
+    }
+
+    void writeQcDevices(Collection<QcDevice> qcs) throws IOException {
+        out.writeInt(qcs.size());
+        for (QcDevice q : qcs) {
+            writeDevice(q);
+            writeString(q.getCurrentBlockBay());
+            writeString(q.getTargetBlockBay());
+            writeDouble(q.getHoistSpeed());
+        }
+    }
+
+    void writeAscDevices(Collection<AscDevice> ascs) throws IOException {
+        out.writeInt(ascs.size());
+        for (AscDevice a : ascs) {
+            writeDevice(a);
+            writeString(a.getCurrentBlockBay());
+            writeString(a.getTargetBlockBay());
+            writeStringList(a.getEnabledRangeList());
+            writeDouble(a.getHoistSpeed());
+        }
+    }
+
+    private void writeDevice(BaseDevice d) throws IOException {
+        writeString(d.getId());
+        writeEnum(d.getType());
+        writeEnum(d.getState());
+        writeDouble(d.getPosX());
+        writeDouble(d.getPosY());
+        writeDouble(d.getSpeed());
+        writeStringList(d.getInFenceIds());
+        writeString(d.getCurrWiRefNo());
+        writeStringList(d.getNotDoneWiList());
+        writePoint(d.getCurrentTargetPos());
+        writePoint(d.getLastStartPos());
+        out.writeLong(d.getLastMoveStartTime());
+    }
+
+    //  基础设施
+
+    void writeVessels(Collection<Vessel> vessels) throws IOException {
+        out.writeInt(vessels.size());
+        for (Vessel v : vessels) {
+            writeString(v.getVesselId());
+            writeString(v.getVesselBerth());
+            writeDouble(v.getBerthLocation());
+            writeString(v.getSideTo());
+            writeDouble(v.getLength());
+            List<VesselBay> bays = v.getBays();
+            out.writeInt(bays != null ? bays.size() : -1);
+            if (bays == null) {
+                continue;
+            }
+            for (VesselBay bay : bays) {
+                writeString(bay.getBayNo());
+                writeString(bay.getBayPos());
+                writeString(bay.getBayName());
+                writeString(bay.getBayType());
+                writeInteger(bay.getTierFirstDef());
+                List<VesselBay.Column> cols = bay.getColInfos();
+                out.writeInt(cols != null ? cols.size() : -1);
+                if (cols == null) {
+                    continue;
+                }
+                for (VesselBay.Column col : cols) {
+                    writeString(col.getColNo());
+                    writeInteger(col.getTierNoBottom());
+                    writeInteger(col.getTierNoTop());
+                }
+            }
+        }
+    }
+
+    void writeFences(Collection<Fence> fences) throws IOException {
+        out.writeInt(fences.size());
+        for (Fence f : fences) {
+            writeString(f.getNodeId());
+            writeString(f.getBlockCode());
+            writeDouble(f.getPosX());
+            writeDouble(f.getPosY());
+            writeDouble(f.getRadius());
+            writeDouble(f.getSpeedLimit());
+            writeString(f.getStatus());
+            writeStringList(f.getWaitingTrucks());
+        }
+    }
+
+    void writeYardBlocks(Collection<YardBlock> blocks) throws IOException {
+        out.writeInt(blocks.size());
+        for (YardBlock b : blocks) {
+            writeString(b.getBlockCode());
+            writeString(b.getBlockType());
+            writeInteger(b.getMaxTier());
+            writeDouble(b.getInvertX());
+            writeDouble(b.getInvertY());
+            writeInteger(b.getFirstRow());
+            writeInteger(b.getLastRow());
+            List<YardBlock.Stack> stacks = b.getStacks();
+            out.writeInt(stacks != null ? stacks.size() : -1);
+            if (stacks == null) {
+                continue;
+            }
+            for (YardBlock.Stack s : stacks) {
+                writeInteger(s.getRow());
+                writeInteger(s.getColumn());
+                writeInteger(s.getMaxTier());
+                writeString(s.getProtectStatus());
+                writeString(s.getStackStatus());
+                List<YardBlock.Slot> slots = s.getSlots();
+                out.writeInt(slots != null ? slots.size() : -1);
+                if (slots == null) {
+                    continue;
+                }
+                for (YardBlock.Slot slot : slots) {
+                    writeInteger(slot.getTier());
+                    out.writeBoolean(slot.isHasContainer());
+                    writeString(slot.getCurrentContainerId());
+                    writeString(slot.getFutureContainerId());
+                    out.writeInt(slot.getBmUsingFlag());
+                }
+            }
+        }
+    }
+
+    void writeChargingStations(Collection<ChargingStation> stations) throws IOException {
+        out.writeInt(stations.size());
+        for (ChargingStation s : stations) {
+            writeString(s.getStationCode());
+            writeString(s.getStatus());
+            writeString(s.getPowName());
+            writeString(s.getBlockCode());
+            writeInteger(s.getRowPosition());
+            writeDouble(s.getPosX());
+            writeDouble(s.getPosY());
+            writeString(s.getTruckId());
+            writeInteger(s.getPortCode());
+            writeDouble(s.getChargeRate());
+        }
+    }
+
+    //  业务数据
+
+    void writeWorkInstructions(Collection<WorkInstruction> wis) throws IOException {
+        out.writeInt(wis.size());
+        for (WorkInstruction w : wis) {
+            writeString(w.getWiRefNo());
+            writeString(w.getQueueName());
+            writeString(w.getContainerId());
+            writeEnum(w.getMoveKind());
+            writeString(w.getFetchCheId());
+            writeTime(w.getFetchTime());
+            writeString(w.getCarryCheId());
+            writeTime(w.getCarryTime());
+            writeString(w.getPutCheId());
+            writeTime(w.getPutTime());
+            writeString(w.getFromPos());
+            writeString(w.getToPos());
+            writeString(w.getWiStatus());
+            writeString(w.getJobStep());
+            writeTime(w.getDispatchTime());
+            writeTime(w.getDoneTime());
+            writeString(w.getBlockCode());
+            writeString(w.getBay());
+            writeString(w.getRow());
+            writeString(w.getTier());
+            writeString(w.getDispatchCheId());
+        }
+    }
+
+    void writeContainers(Collection<Container> containers) throws IOException {
+        out.writeInt(containers.size());
+        for (Container c : containers) {
+            writeString(c.getContainerId());
+            writeString(c.getEquipType());
+            writeString(c.getSizeType());
+            writeDouble(c.getTotalWeight());
+            writeString(c.getOwner());
+            writeInteger(c.getNTEUs());
+            writeString(c.getDepartRef());
+            writeString(c.getArriveRef());
+            writeString(c.getCurrentPos());
+            writeString(c.getStatus());
+        }
+    }
+
+    //  引擎状态
+
+    void writeEventCount(int count) throws IOException {
+        out.writeInt(count);
+    }
+
+    void writeEvent(SimEvent e) throws IOException {
+        out.writeLong(e.getEventId());
+        out.writeLong(e.getParentEventId());
+        out.writeLong(e.getTriggerTime());
+        writeEnum(e.getType());
+        writeEnum(e.getBizType());
+        out.writeLong(e.getChainId());
+        out.writeBoolean(e.isCancelled());
+        for (int i = 0; i < SubjectRoleEnum.COUNT; i++) {
+            writeString(e.getPrimarySubject(SubjectRoleEnum.of(i)));
+        }
+        writePayload(e.getData());
+    }
+
+    void writeSuspension(Collection<? extends Enum<?>> bizTypes, Collection<Long> chainIds) throws IOException {
+        out.writeInt(bizTypes.size());
+        for (Enum<?> bizType : bizTypes) {
+            writeEnum(bizType);
+        }
+        out.writeInt(chainIds.size());
+        for (long chainId : chainIds) {
+            out.writeLong(chainId);
+        }
+    }
+
+    private void writePayload(Object data) throws IOException {
+        if (data == null) {
+            out.writeByte(PAYLOAD_NONE);
+        } else if (data instanceof MovePayload) {
+            MovePayload p = (MovePayload) data;
+            out.writeByte(PAYLOAD_MOVE);
+            writePoint(p.getTarget());
+            out.writeDouble(p.getSpeed());
+        } else if (data instanceof CraneMovePayload) {
+            CraneMovePayload p = (CraneMovePayload) data;
+            out.writeByte(PAYLOAD_CRANE_MOVE);
+            writeEnum(p.getMoveType());
+            out.writeDouble(p.getDistance());
+            out.writeDouble(p.getSpeed());
+        } else if (data instanceof CraneOpPayload) {
+            CraneOpPayload p = (CraneOpPayload) data;
+            out.writeByte(PAYLOAD_CRANE_OP);
+            writeEnum(p.getAction());
+            out.writeLong(p.getDurationMS());
+        } else if (data instanceof TaskPayload) {
+            out.writeByte(PAYLOAD_TASK);
+            writeString(((TaskPayload) data).getWiRefNo());
+        } else if (data instanceof ChargePayload) {
+            out.writeByte(PAYLOAD_CHARGE);
+            writeString(((ChargePayload) data).getStationId());
+        } else if (data instanceof Point) {
+            out.writeByte(PAYLOAD_POINT);
+            writePoint((Point) data);
+        } else if (data instanceof FenceStateEnum) {
+            out.writeByte(PAYLOAD_FENCE_STATE);
+            writeEnum((FenceStateEnum) data);
+        } else {
+            throw new IllegalStateException("检查点不支持的事件负载类型: " + data.getClass().getName());
+        }
+    }
+
+    //  基本类型
+
+    private void writeString(String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeStringList(List<String> list) throws IOException {
+        if (list == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(list.size());
+        for (String s : list) {
+            writeString(s);
+        }
+    }
+
+    private void writeEnum(Enum<?> e) throws IOException {
+        writeString(e != null ? e.name() : null);
+    }
+
+    private void writeDouble(Double d) throws IOException {
+        out.writeBoolean(d != null);
+        if (d != null) {
+            out.writeDouble(d);
+        }
+    }
+
+    private void writeInteger(Integer i) throws IOException {
+        out.writeBoolean(i != null);
+        if (i != null) {
+            out.writeInt(i);
+        }
+    }
+
+    private void writeTime(LocalDateTime t) throws IOException {
+        out.writeBoolean(t != null);
+        if (t != null) {
+            out.writeLong(t.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(t.getNano());
+        }
+    }
+
+    private void writePoint(Point p) throws IOException {
+        out.writeBoolean(p != null);
+        if (p != null) {
+            writeDouble(p.getX());
+            writeDouble(p.getY());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package service.algorithm.impl;
+
+import common.Result;
+import model.dto.response.EventLogPageResp;
+import model.dto.snapshot.EventLogEntryDto;
+import model.dto.snapshot.PortSnapshotDto;
+import model.dto.snapshot.StateDeltaDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 快照与事件的紧凑二进制格式 (Accept: application/x-sim-columnar)
+ * 响应 = "SIMW" + 版本字节 + int32 code + 消息（int32 字节数 + UTF-8，-1 为 null）+ 负载；
+ * 负载为列式编码（见 {@link ColumnarWriter}），字符串字典化、浮点定长打包、实体按列连续存放。
+ * 支持状态快照、状态增量、事件分页与事件列表，其他响应数据不支持此格式。
+ */
+public final class ColumnarCodec {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-sim-columnar";
+    // 2: 作业指令增加 queueName 列
+    public static final int VERSION = 2;
+
+    private static final byte[] MAGIC = {'S', 'I', 'M', 'W'};
+
+    // 负载类型
+    static final byte KIND_NONE = 0;
+    static final byte KIND_SNAPSHOT = 1;
+    static final byte KIND_DELTA = 2;
+    static final byte KIND_EVENT_PAGE = 3;
+    static final byte KIND_EVENT_LIST = 4;
+
+    private ColumnarCodec() {
+    }
+
+    /**
+     * Accept 请求头是否明确要求列式格式
+     */
+    public static boolean accepts(String accept) {
+        return accept != null && accept.contains(MEDIA_TYPE_VALUE);
+    }
+
+    /**
+     * 响应数据能否编码为列式负载
+     */
+    public static boolean supports(Object data) {
+        if (data instanceof List) {
+            for (Object item : (List<?>) data) {
+                if (!(item instanceof EventLogEntryDto)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return data == null || data instanceof ColumnarPayload || data instanceof PortSnapshotDto
+                || data instanceof StateDeltaDto || data instanceof EventLogPageResp;
+    }
+
+    /**
+     * 编码响应数据为负载
+     *
+     * @throws IllegalArgumentException 数据类型不支持列式格式
+     */
+    @SuppressWarnings("unchecked")
+    public static byte[] encode(Object data) {
+        if (data == null) {
+            return new byte[]{KIND_NONE};
+        }
+        if (data instanceof ColumnarPayload) {
+            return ((ColumnarPayload) data).getBytes();
+        }
+        if (data instanceof PortSnapshotDto) {
+            return ColumnarWriter.snapshot((PortSnapshotDto) data);
+        }
+        if (data instanceof StateDeltaDto) {
+            return ColumnarWriter.delta((StateDeltaDto) data);
+        }
+        if (data instanceof EventLogPageResp) {
+            return ColumnarWriter.eventPage((EventLogPageResp) data);
+        }
+        if (supports(data)) {
+            return ColumnarWriter.eventList((List<EventLogEntryDto>) data);
+        }
+        throw new IllegalArgumentException("响应数据不支持列式格式: " + data.getClass().getSimpleName());
+    }
+
+    /**
+     * 写出完整响应（响应头 + 负载）
+     */
+    public static void write(OutputStream out, Result result) throws IOException {
+        byte[] payload = encode(result.getData());
+        byte[] msg = result.getMsg() != null ? result.getMsg().getBytes(StandardCharsets.UTF_8) : null;
+        ByteBuffer head = ByteBuffer.allocate(MAGIC.length + 1 + 4 + 4 + (msg != null ? msg.length : 0))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        head.put(MAGIC);
+        head.put((byte) VERSION);
+        head.putInt(result.getCode() != null ? result.getCode() : 0);
+        head.putInt(msg != null ? msg.length : -1);
+        if (msg != null) {
+            head.put(msg);
+        }
+        out.write(head.array());
+        out.write(payload);
+    }
+
+    /**
+     * 解码完整响应，data 为对应的 DTO（快照/增量/事件分页/事件列表）
+     */
+    public static Result read(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        for (byte b : MAGIC) {
+            if (in.get() != b) {
+                throw new IllegalArgumentException("不是列式格式的响应");
+            }
+        }
+        int version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("不支持的列式格式版本: " + version);
+        }
+        int code = in.getInt();
+        int msgLength = in.getInt();
+        String msg = null;
+        if (msgLength >= 0) {
+            byte[] m = new byte[msgLength];
+            in.get(m);
+            msg = new String(m, StandardCharsets.UTF_8);
+        }
+        return new Result(code, msg, ColumnarReader.read(in.slice()));
+    }
+}
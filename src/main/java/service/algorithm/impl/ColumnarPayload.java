@@ -0,0 +1,17 @@
+package service.algorithm.impl;
+
+/**
+ * 已编码好的列式负载，响应时原样写出；字节数组只读，可被并发请求共享
+ */
+public final class ColumnarPayload {
+
+    private final byte[] bytes;
+
+    ColumnarPayload(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,248 @@
+package service.algorithm.impl;
+
+import common.consts.BizTypeEnum;
+import common.consts.DeviceStateEnum;
+import common.consts.DeviceTypeEnum;
+import common.consts.EventTypeEnum;
+import common.consts.SubjectRoleEnum;
+import model.dto.response.EventLogPageResp;
+import model.dto.snapshot.ChargingStationSnapshotDto;
+import model.dto.snapshot.ContainerSnapshotDto;
+import model.dto.snapshot.DeviceSnapshotDto;
+import model.dto.snapshot.EventLogEntryDto;
+import model.dto.snapshot.FenceSnapshotDto;
+import model.dto.snapshot.PortSnapshotDto;
+import model.dto.snapshot.StateDeltaDto;
+import model.dto.snapshot.WorkInstructionSnapshotDto;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 列式二进制解码，与 {@link ColumnarWriter} 的列顺序一一对应
+ */
+class ColumnarReader {
+
+    private final ByteBuffer in;
+    private final String[] dict;
+
+    private ColumnarReader(ByteBuffer in) {
+        this.in = in;
+        this.dict = new String[in.getInt()];
+        for (int i = 0; i < dict.length; i++) {
+            byte[] s = new byte[in.getInt()];
+            in.get(s);
+            dict[i] = new String(s, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 解码负载（类型字节 + 字典 + 正文）
+     */
+    static Object read(ByteBuffer payload) {
+        ByteBuffer in = payload.order(ByteOrder.LITTLE_ENDIAN);
+        byte kind = in.get();
+        if (kind == ColumnarCodec.KIND_NONE) {
+            return null;
+        }
+        ColumnarReader r = new ColumnarReader(in);
+        switch (kind) {
+            case ColumnarCodec.KIND_SNAPSHOT:
+                return r.snapshot();
+            case ColumnarCodec.KIND_DELTA:
+                return r.delta();
+            case ColumnarCodec.KIND_EVENT_PAGE:
+                return r.eventPage();
+            case ColumnarCodec.KIND_EVENT_LIST:
+                return r.events();
+            default:
+                throw new IllegalArgumentException("未知的负载类型: " + kind);
+        }
+    }
+
+    private PortSnapshotDto snapshot() {
+        PortSnapshotDto snapshot = new PortSnapshotDto();
+        snapshot.setEpoch(in.getLong());
+        snapshot.setSimTime(in.getLong());
+        snapshot.setDevices(devices());
+        snapshot.setFences(fences());
+        snapshot.setChargingStations(stations());
+        snapshot.setWorkInstructions(workInstructions());
+        snapshot.setContainers(containers());
+        return snapshot;
+    }
+
+    private StateDeltaDto delta() {
+        StateDeltaDto delta = new StateDeltaDto();
+        delta.setEpoch(in.getLong());
+        delta.setSimTime(in.getLong());
+        long since = in.getLong();
+        delta.setSinceEpoch(since >= 0 ? since : null);
+        delta.setFull(in.get() == 1);
+        delta.setDevices(devices());
+        delta.setFences(fences());
+        delta.setChargingStations(stations());
+        delta.setWorkInstructions(workInstructions());
+        delta.setContainers(containers());
+        delta.setRemovedDeviceIds(stringList());
+        delta.setRemovedFenceIds(stringList());
+        delta.setRemovedStationCodes(stringList());
+        delta.setRemovedWiRefNos(stringList());
+        delta.setRemovedContainerIds(stringList());
+        return delta;
+    }
+
+    private EventLogPageResp eventPage() {
+        EventLogPageResp page = new EventLogPageResp();
+        page.setNextCursor(in.getLong());
+        page.setFirstCursor(in.getLong());
+        page.setEndCursor(in.getLong());
+        page.setEntries(events());
+        return page;
+    }
+
+    private List<DeviceSnapshotDto> devices() {
+        int n = in.getInt();
+        List<DeviceSnapshotDto> rows = rows(n, DeviceSnapshotDto::new);
+        for (DeviceSnapshotDto d : rows) d.setId(string());
+        for (DeviceSnapshotDto d : rows) d.setType(enumOf(DeviceTypeEnum.class, string()));
+        for (DeviceSnapshotDto d : rows) d.setState(enumOf(DeviceStateEnum.class, string()));
+        for (DeviceSnapshotDto d : rows) d.setPosX(dbl());
+        for (DeviceSnapshotDto d : rows) d.setPosY(dbl());
+        for (DeviceSnapshotDto d : rows) d.setPowerLevel(dbl());
+        for (DeviceSnapshotDto d : rows) d.setNeedCharge(bool());
+        for (DeviceSnapshotDto d : rows) d.setCurrWiRefNo(string());
+        return rows;
+    }
+
+    private List<FenceSnapshotDto> fences() {
+        int n = in.getInt();
+        List<FenceSnapshotDto> rows = rows(n, FenceSnapshotDto::new);
+        for (FenceSnapshotDto f : rows) f.setNodeId(string());
+        for (FenceSnapshotDto f : rows) f.setBlockCode(string());
+        for (FenceSnapshotDto f : rows) f.setPosX(dbl());
+        for (FenceSnapshotDto f : rows) f.setPosY(dbl());
+        for (FenceSnapshotDto f : rows) f.setRadius(dbl());
+        for (FenceSnapshotDto f : rows) f.setSpeedLimit(dbl());
+        for (FenceSnapshotDto f : rows) f.setStatus(string());
+        int[] counts = new int[n];
+        for (int i = 0; i < n; i++) counts[i] = in.getInt();
+        for (int i = 0; i < n; i++) {
+            if (counts[i] >= 0) {
+                List<String> list = new ArrayList<>(counts[i]);
+                for (int j = 0; j < counts[i]; j++) list.add(string());
+                rows.get(i).setWaitingTrucks(list);
+            }
+        }
+        return rows;
+    }
+
+    private List<ChargingStationSnapshotDto> stations() {
+        int n = in.getInt();
+        List<ChargingStationSnapshotDto> rows = rows(n, ChargingStationSnapshotDto::new);
+        for (ChargingStationSnapshotDto s : rows) s.setStationCode(string());
+        for (ChargingStationSnapshotDto s : rows) s.setStatus(string());
+        for (ChargingStationSnapshotDto s : rows) s.setPosX(dbl());
+        for (ChargingStationSnapshotDto s : rows) s.setPosY(dbl());
+        for (ChargingStationSnapshotDto s : rows) s.setTruckId(string());
+        for (ChargingStationSnapshotDto s : rows) s.setChargeRate(dbl());
+        return rows;
+    }
+
+    private List<WorkInstructionSnapshotDto> workInstructions() {
+        int n = in.getInt();
+        List<WorkInstructionSnapshotDto> rows = rows(n, WorkInstructionSnapshotDto::new);
+        for (WorkInstructionSnapshotDto wi : rows) wi.setWiRefNo(string());
+        for (WorkInstructionSnapshotDto wi : rows) wi.setQueueName(string());
+        for (WorkInstructionSnapshotDto wi : rows) wi.setContainerId(string());
+        for (WorkInstructionSnapshotDto wi : rows) wi.setMoveKind(enumOf(BizTypeEnum.class, string()));
+        for (WorkInstructionSnapshotDto wi : rows) wi.setFromPos(string());
+        for (WorkInstructionSnapshotDto wi : rows) wi.setToPos(string());
+        for (WorkInstructionSnapshotDto wi : rows) wi.setWiStatus(string());
+        for (WorkInstructionSnapshotDto wi : rows) wi.setDispatchCheId(string());
+        return rows;
+    }
+
+    private List<ContainerSnapshotDto> containers() {
+        int n = in.getInt();
+        List<ContainerSnapshotDto> rows = rows(n, ContainerSnapshotDto::new);
+        for (ContainerSnapshotDto c : rows) c.setContainerId(string());
+        for (ContainerSnapshotDto c : rows) c.setSizeType(string());
+        for (ContainerSnapshotDto c : rows) c.setCurrentPos(string());
+        for (ContainerSnapshotDto c : rows) c.setStatus(string());
+        return rows;
+    }
+
+    private List<EventLogEntryDto> events() {
+        int n = in.getInt();
+        int roleCount = in.getInt();
+        SubjectRoleEnum[] roles = new SubjectRoleEnum[roleCount];
+        for (int r = 0; r < roleCount; r++) {
+            roles[r] = enumOf(SubjectRoleEnum.class, string());
+        }
+        List<EventLogEntryDto> rows = rows(n, EventLogEntryDto::new);
+        for (EventLogEntryDto e : rows) e.setSimTime(in.getLong());
+        for (EventLogEntryDto e : rows) e.setEventId(in.getLong());
+        for (EventLogEntryDto e : rows) {
+            long parent = in.getLong();
+            e.setParentEventId(parent != 0 ? parent : null);
+        }
+        for (EventLogEntryDto e : rows) e.setType(enumOf(EventTypeEnum.class, string()));
+        for (EventLogEntryDto e : rows) e.setSubjectSlots(new String[SubjectRoleEnum.COUNT]);
+        for (SubjectRoleEnum role : roles) {
+            for (EventLogEntryDto e : rows) {
+                String subject = string();
+                if (role != null) {
+                    e.getSubjectSlots()[role.ordinal()] = subject;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private List<String> stringList() {
+        int n = in.getInt();
+        List<String> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) list.add(string());
+        return list;
+    }
+
+    private String string() {
+        int index = in.getInt();
+        return index >= 0 ? dict[index] : null;
+    }
+
+    private Double dbl() {
+        double v = in.getDouble();
+        return Double.isNaN(v) ? null : v;
+    }
+
+    private Boolean bool() {
+        byte b = in.get();
+        return b < 0 ? null : b == 1;
+    }
+
+    private static <T> List<T> rows(int n, Supplier<T> factory) {
+        List<T> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            rows.add(factory.get());
+        }
+        return rows;
+    }
+
+    // 未知的枚举名（服务端新增）解码为 null
+    private static <E extends Enum<E>> E enumOf(Class<E> type, String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package service.algorithm.impl;
+
+import common.consts.SubjectRoleEnum;
+import model.dto.response.EventLogPageResp;
+import model.dto.snapshot.ChargingStationSnapshotDto;
+import model.dto.snapshot.ContainerSnapshotDto;
+import model.dto.snapshot.DeviceSnapshotDto;
+import model.dto.snapshot.EventLogEntryDto;
+import model.dto.snapshot.FenceSnapshotDto;
+import model.dto.snapshot.PortSnapshotDto;
+import model.dto.snapshot.StateDeltaDto;
+import model.dto.snapshot.WorkInstructionSnapshotDto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列式二进制编码（小端）
+ * 负载 = 类型字节 + 字符串字典 + 正文。字典：int32 个数，每项 int32 字节数 + UTF-8；
+ * 正文中的字符串与枚举名均为 int32 字典下标（-1 表示 null），实体列表按列连续存放：
+ * int32 行数后依次是各列，字符串列 int32[行数]，浮点列 float64[行数]（null 为 NaN），
+ * 布尔列 int8[行数]（-1 表示 null），字符串列表列为 int32[行数] 个数 + int32[总个数] 下标。
+ * 定长列可在客户端直接按数组视图读取（如 numpy.frombuffer），不逐字段解析。
+ * 列的顺序必须与 {@link ColumnarReader} 完全一致，格式变化时递增 {@link ColumnarCodec#VERSION}。
+ */
+class ColumnarWriter {
+
+    private final Map<String, Integer> dictIndex = new HashMap<>();
+    private final List<String> dict = new ArrayList<>();
+    private byte[] buf = new byte[4096];
+    private int pos;
+
+    static byte[] snapshot(PortSnapshotDto snapshot) {
+        ColumnarWriter w = new ColumnarWriter();
+        w.putLong(snapshot.getEpoch());
+        w.putLong(snapshot.getSimTime());
+        w.tables(snapshot.getDevices(), snapshot.getFences(), snapshot.getChargingStations(),
+                snapshot.getWorkInstructions(), snapshot.getContainers());
+        return w.finish(ColumnarCodec.KIND_SNAPSHOT);
+    }
+
+    static byte[] delta(StateDeltaDto delta) {
+        ColumnarWriter w = new ColumnarWriter();
+        w.putLong(delta.getEpoch());
+        w.putLong(delta.getSimTime());
+        w.putLong(delta.getSinceEpoch() != null ? delta.getSinceEpoch() : -1L);
+        w.putByte(delta.isFull() ? 1 : 0);
+        w.tables(delta.getDevices(), delta.getFences(), delta.getChargingStations(),
+                delta.getWorkInstructions(), delta.getContainers());
+        w.stringList(delta.getRemovedDeviceIds());
+        w.stringList(delta.getRemovedFenceIds());
+        w.stringList(delta.getRemovedStationCodes());
+        w.stringList(delta.getRemovedWiRefNos());
+        w.stringList(delta.getRemovedContainerIds());
+        return w.finish(ColumnarCodec.KIND_DELTA);
+    }
+
+    static byte[] eventPage(EventLogPageResp page) {
+        ColumnarWriter w = new ColumnarWriter();
+        w.putLong(page.getNextCursor());
+        w.putLong(page.getFirstCursor());
+        w.putLong(page.getEndCursor());
+        w.events(page.getEntries());
+        return w.finish(ColumnarCodec.KIND_EVENT_PAGE);
+    }
+
+    static byte[] eventList(List<EventLogEntryDto> entries) {
+        ColumnarWriter w = new ColumnarWriter();
+        w.events(entries);
+        return w.finish(ColumnarCodec.KIND_EVENT_LIST);
+    }
+
+    private void tables(List<DeviceSnapshotDto> devices, List<FenceSnapshotDto> fences,
+                        List<ChargingStationSnapshotDto> stations, List<WorkInstructionSnapshotDto> wis,
+                        List<ContainerSnapshotDto> containers) {
+        int n = devices.size();
+        putInt(n);
+        for (DeviceSnapshotDto d : devices) putString(d.getId());
+        for (DeviceSnapshotDto d : devices) putString(d.getType() != null ? d.getType().name() : null);
+        for (DeviceSnapshotDto d : devices) putString(d.getState() != null ? d.getState().name() : null);
+        for (DeviceSnapshotDto d : devices) putDouble(d.getPosX());
+        for (DeviceSnapshotDto d : devices) putDouble(d.getPosY());
+        for (DeviceSnapshotDto d : devices) putDouble(d.getPowerLevel());
+        for (DeviceSnapshotDto d : devices) putBoolean(d.getNeedCharge());
+        for (DeviceSnapshotDto d : devices) putString(d.getCurrWiRefNo());
+
+        putInt(fences.size());
+        for (FenceSnapshotDto f : fences) putString(f.getNodeId());
+        for (FenceSnapshotDto f : fences) putString(f.getBlockCode());
+        for (FenceSnapshotDto f : fences) putDouble(f.getPosX());
+        for (FenceSnapshotDto f : fences) putDouble(f.getPosY());
+        for (FenceSnapshotDto f : fences) putDouble(f.getRadius());
+        for (FenceSnapshotDto f : fences) putDouble(f.getSpeedLimit());
+        for (FenceSnapshotDto f : fences) putString(f.getStatus());
+        List<List<String>> waiting = new ArrayList<>(fences.size());
+        for (FenceSnapshotDto f : fences) waiting.add(f.getWaitingTrucks());
+        listColumn(waiting);
+
+        putInt(stations.size());
+        for (ChargingStationSnapshotDto s : stations) putString(s.getStationCode());
+        for (ChargingStationSnapshotDto s : stations) putString(s.getStatus());
+        for (ChargingStationSnapshotDto s : stations) putDouble(s.getPosX());
+        for (ChargingStationSnapshotDto s : stations) putDouble(s.getPosY());
+        for (ChargingStationSnapshotDto s : stations) putString(s.getTruckId());
+        for (ChargingStationSnapshotDto s : stations) putDouble(s.getChargeRate());
+
+        putInt(wis.size());
+        for (WorkInstructionSnapshotDto wi : wis) putString(wi.getWiRefNo());
+        for (WorkInstructionSnapshotDto wi : wis) putString(wi.getQueueName());
+        for (WorkInstructionSnapshotDto wi : wis) putString(wi.getContainerId());
+        for (WorkInstructionSnapshotDto wi : wis) putString(wi.getMoveKind() != null ? wi.getMoveKind().name() : null);
+        for (WorkInstructionSnapshotDto wi : wis) putString(wi.getFromPos());
+        for (WorkInstructionSnapshotDto wi : wis) putString(wi.getToPos());
+        for (WorkInstructionSnapshotDto wi : wis) putString(wi.getWiStatus());
+        for (WorkInstructionSnapshotDto wi : wis) putString(wi.getDispatchCheId());
+
+        putInt(containers.size());
+        for (ContainerSnapshotDto c : containers) putString(c.getContainerId());
+        for (ContainerSnapshotDto c : containers) putString(c.getSizeType());
+        for (ContainerSnapshotDto c : containers) putString(c.getCurrentPos());
+        for (ContainerSnapshotDto c : containers) putString(c.getStatus());
+    }
+
+    // 事件表：时间、ID、父ID（0 表示无）、类型，之后按角色序号每个角色一列主体ID
+    private void events(List<EventLogEntryDto> entries) {
+        putInt(entries.size());
+        putInt(SubjectRoleEnum.COUNT);
+        for (int r = 0; r < SubjectRoleEnum.COUNT; r++) {
+            putString(SubjectRoleEnum.of(r).name());
+        }
+        for (EventLogEntryDto e : entries) putLong(e.getSimTime());
+        for (EventLogEntryDto e : entries) putLong(e.getEventId());
+        for (EventLogEntryDto e : entries) putLong(e.getParentEventId() != null ? e.getParentEventId() : 0L);
+        for (EventLogEntryDto e : entries) putString(e.getType() != null ? e.getType().name() : null);
+        for (int r = 0; r < SubjectRoleEnum.COUNT; r++) {
+            SubjectRoleEnum role = SubjectRoleEnum.of(r);
+            for (EventLogEntryDto e : entries) putString(e.getSubject(role));
+        }
+    }
+
+    private void stringList(List<String> values) {
+        putInt(values.size());
+        for (String v : values) putString(v);
+    }
+
+    private void listColumn(List<List<String>> rows) {
+        for (List<String> row : rows) putInt(row != null ? row.size() : -1);
+        for (List<String> row : rows) {
+            if (row != null) {
+                for (String v : row) putString(v);
+            }
+        }
+    }
+
+    // 类型字节 + 字典 + 正文
+    private byte[] finish(byte kind) {
+        byte[][] encoded = new byte[dict.size()][];
+        int size = 1 + 4;
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = dict.get(i).getBytes(StandardCharsets.UTF_8);
+            size += 4 + encoded[i].length;
+        }
+        byte[] out = new byte[size + pos];
+        int p = 0;
+        out[p++] = kind;
+        p = writeInt(out, p, encoded.length);
+        for (byte[] s : encoded) {
+            p = writeInt(out, p, s.length);
+            System.arraycopy(s, 0, out, p, s.length);
+            p += s.length;
+        }
+        System.arraycopy(buf, 0, out, p, pos);
+        return out;
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            putInt(-1);
+            return;
+        }
+        Integer index = dictIndex.get(value);
+        if (index == null) {
+            index = dict.size();
+            dict.add(value);
+            dictIndex.put(value, index);
+        }
+        putInt(index);
+    }
+
+    private void putDouble(Double value) {
+        putLong(Double.doubleToRawLongBits(value != null ? value : Double.NaN));
+    }
+
+    private void putBoolean(Boolean value) {
+        putByte(value == null ? -1 : value ? 1 : 0);
+    }
+
+    private void putByte(int value) {
+        ensure(1);
+        buf[pos++] = (byte) value;
+    }
+
+    private void putInt(int value) {
+        ensure(4);
+        pos = writeInt(buf, pos, value);
+    }
+
+    private void putLong(long value) {
+        ensure(8);
+        for (int i = 0; i < 8; i++) {
+            buf[pos++] = (byte) (value >>> (i << 3));
+        }
+    }
+
+    private void ensure(int n) {
+        if (pos + n > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, pos + n));
+        }
+    }
+
+    private static int writeInt(byte[] b, int p, int value) {
+        b[p] = (byte) value;
+        b[p + 1] = (byte) (value >>> 8);
+        b[p + 2] = (byte) (value >>> 16);
+        b[p + 3] = (byte) (value >>> 24);
+        return p + 4;
+    }
+}
@@ -0,0 +1,149 @@
+package service.algorithm.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import common.consts.CommandTypeEnum;
+import common.consts.StepStopReasonEnum;
+import common.exception.BusinessException;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 外部指令日志（只追加）
+ * 每行一个 JSON：首行为 {@link Header}（基准检查点与物理参数），其后每条成功执行的指令一行 {@link Entry}，
+ * 记录指令执行前的仿真时间、请求体与执行后的事件摘要，逐条刷盘，进程崩溃时已执行的指令不丢失。
+ * 只在会话单写线程上读写，不加锁。
+ */
+@Component
+@Slf4j
+public class CommandJournal {
+
+    private final ObjectMapper objectMapper;
+    private BufferedWriter writer;
+    private Path file;
+    private long seq;
+
+    public CommandJournal(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 开始记录，已有同名文件时拒绝（不截断已有日志）
+     */
+    public void start(Path file, Header header) {
+        stop();
+        try {
+            Files.createDirectories(file.getParent());
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
+            this.file = file;
+            this.seq = 0;
+            writeLine(header);
+            log.info("指令日志开始记录: {}", file);
+        } catch (FileAlreadyExistsException e) {
+            close();
+            throw new BusinessException("指令日志已存在: " + file.getFileName());
+        } catch (IOException e) {
+            close();
+            throw new BusinessException("指令日志创建失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 停止记录，未在记录时忽略
+     */
+    public void stop() {
+        if (writer != null) {
+            log.info("指令日志停止记录: {} (共 {} 条指令)", file, seq);
+            close();
+        }
+    }
+
+    public boolean isActive() {
+        return writer != null;
+    }
+
+    /**
+     * 追加一条已执行的指令
+     * 写入失败不影响已执行的指令，只停止记录（日志已不完整，继续写入也无法重放）
+     *
+     * @param simTime    指令执行前的仿真时间
+     * @param dequeued   推进类指令实际出队的事件数（含跳过的），其他指令为 0
+     * @param stopReason 推进类指令的停止原因，其他指令为 null
+     * @param digest     指令执行后的事件摘要
+     */
+    public void append(CommandTypeEnum command, long simTime, Object request,
+                       int dequeued, StepStopReasonEnum stopReason, long digest) {
+        if (writer == null) {
+            return;
+        }
+        Entry entry = new Entry();
+        entry.setSeq(++seq);
+        entry.setCommand(command);
+        entry.setSimTime(simTime);
+        entry.setRequest(request != null ? objectMapper.valueToTree(request) : null);
+        entry.setDequeued(dequeued);
+        entry.setStopReason(stopReason);
+        entry.setDigest(digest);
+        try {
+            writeLine(entry);
+        } catch (IOException e) {
+            log.error("指令日志写入失败，停止记录: {}", file, e);
+            close();
+        }
+    }
+
+    private void writeLine(Object line) throws IOException {
+        writer.write(objectMapper.writeValueAsString(line));
+        writer.newLine();
+        writer.flush();
+    }
+
+    private void close() {
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+        } catch (IOException e) {
+            log.warn("指令日志关闭失败: {}", file, e);
+        }
+        writer = null;
+        file = null;
+    }
+
+    /**
+     * 日志头：重放从基准检查点出发，在同样物理参数的临时会话中执行
+     */
+    @Data
+    public static class Header {
+        private String sessionId;                    // 记录来源会话
+        private String baseCheckpoint;               // 基准检查点名称
+        private long startSimTime;                   // 开始记录时的仿真时间
+        private long startDigest;                    // 开始记录时的事件摘要
+        private double arrivalThreshold;
+        private double chargeAlignThreshold;
+        private int maxEventsPerTimestamp;
+    }
+
+    /**
+     * 指令记录
+     */
+    @Data
+    public static class Entry {
+        private long seq;                            // 序号，从 1 开始
+        private CommandTypeEnum command;             // 指令类型
+        private long simTime;                        // 执行前的仿真时间
+        private JsonNode request;                    // 请求体
+        private int dequeued;                        // 推进类指令出队的事件数
+        private StepStopReasonEnum stopReason;       // 推进类指令的停止原因
+        private long digest;                         // 执行后的事件摘要
+    }
+}
@@ -0,0 +1,111 @@
+package service.algorithm.impl;
+
+import common.consts.DeviceStateEnum;
+import common.consts.DeviceTypeEnum;
+import common.exception.BusinessException;
+import engine.session.SimSession;
+import model.bo.DeviceIndex;
+import model.bo.GlobalContext;
+import model.dto.request.NearbyDeviceReq;
+import model.dto.response.NearbyDeviceResp;
+import model.dto.snapshot.NearbyDeviceDto;
+import model.entity.BaseDevice;
+import model.entity.Point;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 设备空间查询：最近邻与范围查询
+ * 在会话单写线程上查询设备位置索引（排在已提交的指令之后），行驶中的设备按当前仿真时间插值；
+ * 只检查查询点附近格子内的设备，耗时随结果规模而不是设备总数增长
+ */
+@Service
+public class DeviceSpatialService {
+
+    static final int MAX_K = 1000;
+
+    /**
+     * 距查询点最近的 k 台符合条件的设备
+     */
+    public NearbyDeviceResp nearest(SimSession session, NearbyDeviceReq req) {
+        int k = req.getK() != null ? req.getK() : 1;
+        if (k <= 0 || k > MAX_K) {
+            throw new BusinessException("最近邻数量必须在 1 到 " + MAX_K + " 之间: " + k);
+        }
+        return session.getCommandExecutor().call(() -> {
+            GlobalContext context = session.getContext();
+            NearbyDeviceResp resp = anchor(context, req);
+            List<DeviceIndex.Hit> hits = context.deviceIndex().nearest(resp.getX(), resp.getY(), k, context.getSimTime(),
+                    context.getPhysicsConfig().getArrivalThreshold(), filter(req));
+            fill(resp, hits);
+            return resp;
+        });
+    }
+
+    /**
+     * 距查询点不超过 radius 的全部符合条件的设备
+     */
+    public NearbyDeviceResp within(SimSession session, NearbyDeviceReq req) {
+        if (req.getRadius() == null || req.getRadius() < 0) {
+            throw new BusinessException("查询半径必须为非负数");
+        }
+        return session.getCommandExecutor().call(() -> {
+            GlobalContext context = session.getContext();
+            NearbyDeviceResp resp = anchor(context, req);
+            List<DeviceIndex.Hit> hits = context.deviceIndex().within(resp.getX(), resp.getY(), req.getRadius(),
+                    context.getSimTime(), context.getPhysicsConfig().getArrivalThreshold(), filter(req));
+            fill(resp, hits);
+            return resp;
+        });
+    }
+
+    // 确定查询点：指定设备时取其插值坐标
+    private NearbyDeviceResp anchor(GlobalContext context, NearbyDeviceReq req) {
+        NearbyDeviceResp resp = new NearbyDeviceResp();
+        resp.setSimTime(context.getSimTime());
+        if (req.getDeviceId() != null) {
+            BaseDevice device = context.getDevice(req.getDeviceId());
+            if (device == null) {
+                throw new BusinessException("设备不存在: " + req.getDeviceId());
+            }
+            Point pos = device.getInterpolatedPos(context.getSimTime(), context.getPhysicsConfig().getArrivalThreshold());
+            if (pos.getX() == null || pos.getY() == null) {
+                throw new BusinessException("设备没有坐标: " + req.getDeviceId());
+            }
+            resp.setX(pos.getX());
+            resp.setY(pos.getY());
+        } else if (req.getX() != null && req.getY() != null) {
+            resp.setX(req.getX());
+            resp.setY(req.getY());
+        } else {
+            throw new BusinessException("查询点 (x, y) 与 deviceId 必须给定其一");
+        }
+        return resp;
+    }
+
+    private Predicate<BaseDevice> filter(NearbyDeviceReq req) {
+        Set<DeviceTypeEnum> types = req.getTypes() != null && !req.getTypes().isEmpty() ? EnumSet.copyOf(req.getTypes()) : null;
+        Set<DeviceStateEnum> states = req.getStates() != null && !req.getStates().isEmpty() ? EnumSet.copyOf(req.getStates()) : null;
+        String self = req.getDeviceId();
+        return d -> (types == null || types.contains(d.getType()))
+                && (states == null || states.contains(d.getState()))
+                && (self == null || !self.equals(d.getId()));
+    }
+
+    private void fill(NearbyDeviceResp resp, List<DeviceIndex.Hit> hits) {
+        for (DeviceIndex.Hit hit : hits) {
+            NearbyDeviceDto dto = new NearbyDeviceDto();
+            dto.setId(hit.getDevice().getId());
+            dto.setType(hit.getDevice().getType());
+            dto.setState(hit.getDevice().getState());
+            dto.setPosX(hit.getPos().getX());
+            dto.setPosY(hit.getPos().getY());
+            dto.setDistance(hit.getDistance());
+            resp.getDevices().add(dto);
+        }
+    }
+}
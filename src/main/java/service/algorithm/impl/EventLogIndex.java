@@ -0,0 +1,234 @@
+package service.algorithm.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 事件日志的内存倒排索引，值均为日志游标
+ * 类型 → 游标列表、主体ID → 游标列表、事件ID → 游标，以及按游标存放的父子链（首子/末子/下一兄弟）。
+ * 游标列表按写入顺序递增，可二分定位；只由写线程追加，读线程以日志已发布的记录数为界读取，不加锁。
+ */
+class EventLogIndex {
+
+    private static final long NONE = -1L;
+
+    private final CursorList[] byType;
+    private final Map<String, CursorList> bySubject = new ConcurrentHashMap<>();
+    private final CursorMap byEventId = new CursorMap();
+    // 以游标为下标，存 游标+1（0 表示无）
+    private final LongColumn firstChild = new LongColumn();
+    private final LongColumn lastChild = new LongColumn();
+    private final LongColumn nextSibling = new LongColumn();
+
+    EventLogIndex(int typeCount) {
+        byType = new CursorList[typeCount];
+        for (int i = 0; i < typeCount; i++) {
+            byType[i] = new CursorList();
+        }
+    }
+
+    /**
+     * 登记一条记录，父事件已在日志中时挂到其子链末尾
+     */
+    void add(long cursor, long eventId, long parentEventId, int type) {
+        byType[type].add(cursor);
+        byEventId.put(eventId, cursor);
+        long parent = parentEventId != 0 ? byEventId.get(parentEventId) : NONE;
+        if (parent != NONE && parent < cursor) {
+            long last = lastChild.get(parent) - 1;
+            if (last == NONE) {
+                firstChild.set(parent, cursor + 1);
+            } else {
+                nextSibling.set(last, cursor + 1);
+            }
+            lastChild.set(parent, cursor + 1);
+        }
+    }
+
+    /**
+     * 登记记录的一个主体，同一记录的同一主体ID只应登记一次
+     */
+    void addSubject(long cursor, String subjectId) {
+        bySubject.computeIfAbsent(subjectId, k -> new CursorList()).add(cursor);
+    }
+
+    CursorList ofType(int type) {
+        return byType[type];
+    }
+
+    CursorList ofSubject(String subjectId) {
+        return bySubject.get(subjectId);
+    }
+
+    /**
+     * 事件ID对应的游标（同一ID出现多次时为最后一次），不存在返回 -1
+     * 读线程可能读到尚未发布的写入，调用方须校验游标小于已发布记录数并核对记录中的事件ID
+     */
+    long cursorOf(long eventId) {
+        return byEventId.get(eventId);
+    }
+
+    long firstChild(long cursor) {
+        return firstChild.get(cursor) - 1;
+    }
+
+    long nextSibling(long cursor) {
+        return nextSibling.get(cursor) - 1;
+    }
+
+    /**
+     * 只追加的游标列表
+     */
+    static final class CursorList {
+        private volatile long[] data = new long[8];
+        private volatile int size;
+
+        void add(long cursor) {
+            long[] d = data;
+            if (size == d.length) {
+                long[] grown = new long[d.length << 1];
+                System.arraycopy(d, 0, grown, 0, d.length);
+                data = grown;
+                d = grown;
+            }
+            d[size] = cursor;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long get(int i) {
+            return data[i];
+        }
+
+        /**
+         * 第一个不小于 cursor 的位置
+         */
+        int lowerBound(long cursor, int n) {
+            long[] d = data;
+            int lo = 0;
+            int hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (d[mid] < cursor) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * 按下标分块存放的 long 列，扩容只复制块指针，已写入的块不移动
+     */
+    private static final class LongColumn {
+        private static final int SHIFT = 12;
+        private static final int CHUNK = 1 << SHIFT;
+        private volatile long[][] chunks = new long[16][];
+
+        long get(long i) {
+            long[][] c = chunks;
+            int chunk = (int) (i >>> SHIFT);
+            if (chunk >= c.length || c[chunk] == null) {
+                return 0;
+            }
+            return c[chunk][(int) (i & (CHUNK - 1))];
+        }
+
+        void set(long i, long value) {
+            int chunk = (int) (i >>> SHIFT);
+            long[][] c = chunks;
+            if (chunk >= c.length) {
+                long[][] grown = new long[Math.max(c.length << 1, chunk + 1)][];
+                System.arraycopy(c, 0, grown, 0, c.length);
+                c = grown;
+                chunks = grown;
+            }
+            if (c[chunk] == null) {
+                c[chunk] = new long[CHUNK];
+            }
+            c[chunk][(int) (i & (CHUNK - 1))] = value;
+        }
+    }
+
+    /**
+     * 事件ID → 游标的开放寻址表，事件ID从 1 开始，0 为空槽
+     * 写入先写值后写键；扩容时新表填好后整体发布
+     */
+    private static final class CursorMap {
+        private volatile Table table = new Table(1024);
+        private int size;
+
+        long get(long key) {
+            Table t = table;
+            int i = t.slot(key);
+            while (true) {
+                long k = t.keys[i];
+                if (k == key) {
+                    return t.values[i];
+                }
+                if (k == 0) {
+                    return NONE;
+                }
+                i = (i + 1) & t.mask;
+            }
+        }
+
+        void put(long key, long value) {
+            if (key == 0) {
+                return;
+            }
+            if (table.insert(key, value)) {
+                if (++size > table.keys.length * 0.6) {
+                    Table grown = new Table(table.keys.length << 1);
+                    Table old = table;
+                    for (int i = 0; i < old.keys.length; i++) {
+                        if (old.keys[i] != 0) {
+                            grown.insert(old.keys[i], old.values[i]);
+                        }
+                    }
+                    table = grown;
+                }
+            }
+        }
+
+        private static final class Table {
+            private final long[] keys;
+            private final long[] values;
+            private final int mask;
+
+            Table(int capacity) {
+                keys = new long[capacity];
+                values = new long[capacity];
+                mask = capacity - 1;
+            }
+
+            int slot(long key) {
+                long h = key * 0x9E3779B97F4A7C15L;
+                return (int) (h ^ (h >>> 32)) & mask;
+            }
+
+            // 返回是否新增
+            boolean insert(long key, long value) {
+                int i = slot(key);
+                while (true) {
+                    long k = keys[i];
+                    if (k == key) {
+                        values[i] = value;
+                        return false;
+                    }
+                    if (k == 0) {
+                        values[i] = value;
+                        keys[i] = key;
+                        return true;
+                    }
+                    i = (i + 1) & mask;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package service.algorithm.impl;
+
+import common.config.SimEngineConfig;
+import common.consts.EventTypeEnum;
+import lombok.extern.slf4j.Slf4j;
+import model.dto.request.StreamSubscribeReq;
+import model.dto.response.EventLogPageResp;
+import model.dto.snapshot.ChargingStationSnapshotDto;
+import model.dto.snapshot.DeviceSnapshotDto;
+import model.dto.snapshot.EventLogEntryDto;
+import model.dto.snapshot.FenceSnapshotDto;
+import model.dto.snapshot.PortSnapshotDto;
+import model.dto.snapshot.StateDeltaDto;
+import model.dto.snapshot.StreamGapDto;
+import model.dto.snapshot.WorkInstructionSnapshotDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 会话的推送订阅中心
+ * 写线程每发布一个纪元只给各订阅者置脏标记并投递到推送线程，不做序列化与 I/O；
+ * 推送线程按订阅者自己的游标从事件日志读取新事件，并把最新纪元与该订阅者上次收到的状态比较得出增量。
+ * 每个订阅者的缓冲有界：事件积压超过上限时丢弃最旧部分并发 gap 通知（可按游标补读），
+ * 状态增量总是相对上次发送计算，多个纪元自然合并为一条。
+ */
+@Component
+@Slf4j
+public class EventStreamHub {
+
+    private final SimulationEventLog eventLog;
+    private final StateEpochPublisher epochPublisher;
+    private final StreamDispatcher dispatcher;
+    private final int maxBacklog;
+    private final int batchSize;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Runnable signal = this::signal;
+
+    @Autowired
+    public EventStreamHub(SimulationEventLog eventLog, StateEpochPublisher epochPublisher,
+                          StreamDispatcher dispatcher, SimEngineConfig engineConfig) {
+        this.eventLog = eventLog;
+        this.epochPublisher = epochPublisher;
+        this.dispatcher = dispatcher;
+        this.maxBacklog = Math.max(1, engineConfig.getStreamMaxBacklog());
+        this.batchSize = Math.max(1, engineConfig.getStreamBatchSize());
+        epochPublisher.addListener(signal);
+    }
+
+    /**
+     * 新增订阅，立即推送一次当前状态（全部匹配实体）与游标之后的事件
+     *
+     * @return 取消订阅的回调（连接断开时调用）
+     */
+    public Runnable subscribe(StreamSubscribeReq req, StreamSink sink) {
+        Subscriber subscriber = new Subscriber(req != null ? req : new StreamSubscribeReq(), sink);
+        subscribers.add(subscriber);
+        subscriber.schedule();
+        return subscriber::close;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * 结束全部订阅并停止接收纪元通知（会话删除时调用）
+     */
+    public void close() {
+        epochPublisher.removeListener(signal);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    // 写线程：只置标记与投递
+    private void signal() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.schedule();
+        }
+    }
+
+    private final class Subscriber {
+        private final StreamSink sink;
+        private final Set<EventTypeEnum> types;
+        private final Set<String> deviceIds;
+        private final StreamSubscribeReq viewport;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean dirty;
+        private volatile boolean closed;
+
+        // 以下只在推送线程访问（同一时刻至多一个推送任务）
+        private long cursor;
+        private long sentEpoch = -1L;
+        private final Map<String, DeviceSnapshotDto> sentDevices = new HashMap<>();
+        private final Map<String, FenceSnapshotDto> sentFences = new HashMap<>();
+        private final Map<String, ChargingStationSnapshotDto> sentStations = new HashMap<>();
+        private final Map<String, WorkInstructionSnapshotDto> sentWis = new HashMap<>();
+
+        private Subscriber(StreamSubscribeReq req, StreamSink sink) {
+            this.sink = sink;
+            this.types = req.getTypes() != null && !req.getTypes().isEmpty() ? EnumSet.copyOf(req.getTypes()) : null;
+            this.deviceIds = req.getDeviceIds() != null && !req.getDeviceIds().isEmpty() ? new HashSet<>(req.getDeviceIds()) : null;
+            this.viewport = req;
+            this.cursor = req.getCursor() != null ? req.getCursor() : eventLog.getEndCursor();
+        }
+
+        void schedule() {
+            dirty = true;
+            if (!closed && scheduled.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                do {
+                    dirty = false;
+                    pushEvents();
+                    pushDelta();
+                    scheduled.set(false);
+                    // 清除调度标记后复查，避免与写线程的通知错过
+                } while (dirty && !closed && scheduled.compareAndSet(false, true));
+            } catch (IOException | RuntimeException e) {
+                log.debug("推送订阅已断开: {}", e.getMessage());
+                close();
+            }
+        }
+
+        private void pushEvents() throws IOException {
+            long end = eventLog.getEndCursor();
+            if (end - cursor > maxBacklog) {
+                StreamGapDto gap = new StreamGapDto();
+                gap.setFromCursor(cursor);
+                gap.setToCursor(end - maxBacklog);
+                sink.send("gap", gap);
+                cursor = end - maxBacklog;
+            }
+            while (cursor < end && !closed) {
+                EventLogPageResp page = eventLog.read(cursor, Long.MIN_VALUE, batchSize);
+                if (page.getNextCursor() <= cursor) {
+                    break;
+                }
+                if (page.getFirstCursor() > cursor) {
+                    StreamGapDto gap = new StreamGapDto();
+                    gap.setFromCursor(cursor);
+                    gap.setToCursor(page.getFirstCursor());
+                    sink.send("gap", gap);
+                }
+                page.getEntries().removeIf(e -> !matches(e));
+                cursor = page.getNextCursor();
+                if (!page.getEntries().isEmpty()) {
+                    sink.send("events", page);
+                }
+            }
+        }
+
+        private boolean matches(EventLogEntryDto entry) {
+            if (types != null && !types.contains(entry.getType())) {
+                return false;
+            }
+            if (deviceIds != null) {
+                for (String subject : entry.getSubjects().values()) {
+                    if (deviceIds.contains(subject)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+
+        private void pushDelta() throws IOException {
+            PortSnapshotDto snapshot = epochPublisher.current();
+            if (snapshot.getEpoch() == sentEpoch) {
+                return;
+            }
+            StateDeltaDto delta = new StateDeltaDto();
+            delta.setEpoch(snapshot.getEpoch());
+            delta.setSimTime(snapshot.getSimTime());
+            diff(snapshot.getDevices(), sentDevices, DeviceSnapshotDto::getId,
+                    d -> (deviceIds == null || deviceIds.contains(d.getId())) && inViewport(d.getPosX(), d.getPosY()),
+                    delta.getDevices(), delta.getRemovedDeviceIds());
+            diff(snapshot.getFences(), sentFences, FenceSnapshotDto::getNodeId,
+                    f -> inViewport(f.getPosX(), f.getPosY()), delta.getFences(), delta.getRemovedFenceIds());
+            diff(snapshot.getChargingStations(), sentStations, ChargingStationSnapshotDto::getStationCode,
+                    s -> inViewport(s.getPosX(), s.getPosY()), delta.getChargingStations(), delta.getRemovedStationCodes());
+            diff(snapshot.getWorkInstructions(), sentWis, WorkInstructionSnapshotDto::getWiRefNo,
+                    w -> deviceIds == null || deviceIds.contains(w.getDispatchCheId()), delta.getWorkInstructions(), delta.getRemovedWiRefNos());
+            sentEpoch = snapshot.getEpoch();
+            if (!delta.isEmpty()) {
+                sink.send("delta", delta);
+            }
+        }
+
+        // 与上次发送的实体比较，收集新增/变化的实体与消失或不再匹配的ID
+        private <T> void diff(List<T> current, Map<String, T> sent, Function<T, String> idOf,
+                              Predicate<T> filter, List<T> changed, List<String> removed) {
+            Set<String> seen = new HashSet<>();
+            for (T item : current) {
+                String id = idOf.apply(item);
+                if (!filter.test(item)) {
+                    continue;
+                }
+                seen.add(id);
+                if (!item.equals(sent.get(id))) {
+                    sent.put(id, item);
+                    changed.add(item);
+                }
+            }
+            Iterator<Map.Entry<String, T>> it = sent.entrySet().iterator();
+            while (it.hasNext()) {
+                String id = it.next().getKey();
+                if (!seen.contains(id)) {
+                    it.remove();
+                    if (removed != null) {
+                        removed.add(id);
+                    }
+                }
+            }
+        }
+
+        private boolean inViewport(Double x, Double y) {
+            if (viewport.getMinX() == null && viewport.getMinY() == null
+                    && viewport.getMaxX() == null && viewport.getMaxY() == null) {
+                return true;
+            }
+            if (x == null || y == null) {
+                return false;
+            }
+            return (viewport.getMinX() == null || x >= viewport.getMinX())
+                    && (viewport.getMaxX() == null || x <= viewport.getMaxX())
+                    && (viewport.getMinY() == null || y >= viewport.getMinY())
+                    && (viewport.getMaxY() == null || y <= viewport.getMaxY());
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            subscribers.remove(this);
+            try {
+                sink.complete();
+            } catch (RuntimeException e) {
+                log.debug("结束推送订阅失败: {}", e.getMessage());
+            }
+        }
+    }
+}
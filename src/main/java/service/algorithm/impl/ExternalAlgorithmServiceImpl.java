@@ -2,41 +2,86 @@ package service.algorithm.impl;
 
 import common.Result;
 import common.consts.DeviceTypeEnum;
+import common.consts.CommandStatusEnum;
+import common.consts.CommandTypeEnum;
 import common.consts.ErrorCodes;
 import common.consts.EventTypeEnum;
 import common.consts.FenceStateEnum;
+import common.consts.StepStopReasonEnum;
+import common.consts.SubjectRoleEnum;
 import common.exception.BusinessException;
+import engine.SimCommandExecutor;
 import engine.SimEvent;
 import engine.SimulationEngine;
+import engine.condition.StopCondition;
+import engine.condition.StopConditions;
+import engine.payload.ChargePayload;
+import engine.payload.CraneMovePayload;
+import engine.payload.CraneOpPayload;
+import engine.payload.MovePayload;
+import engine.payload.TaskPayload;
 import model.bo.GlobalContext;
 import model.dto.request.*;
 import model.dto.response.AssignTaskResp;
+import model.dto.response.CommandBatchResp;
+import model.dto.response.CommandResultDto;
+import model.dto.response.StepBatchResp;
+import model.dto.response.StepUntilResp;
+import model.dto.snapshot.DeviceSnapshotDto;
+import model.dto.snapshot.FenceSnapshotDto;
+import model.dto.snapshot.WorkInstructionSnapshotDto;
 import model.entity.BaseDevice;
 import model.entity.ChargingStation;
+import model.entity.Fence;
 import model.entity.Truck;
+import model.entity.WorkInstruction;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import service.algorithm.ExternalAlgorithmApi;
 import service.algorithm.TaskDecisionService;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * 外部算法 API 实现
+ * 所有改变仿真状态的调用都交给 SimCommandExecutor 在仿真单写线程上按到达顺序执行，
+ * 执行成功的指令追加到会话的指令日志（未开始记录时忽略）
  */
 @Service
 public class ExternalAlgorithmServiceImpl implements ExternalAlgorithmApi {
 
-    private final GlobalContext context = GlobalContext.getInstance();
+    static final int MAX_BATCH_COMMANDS = 10_000;
+
+    private final GlobalContext context;
     private final SimulationEngine engine;
     private final TaskDecisionService taskDecisionService;
+    private final SimCommandExecutor commandExecutor;
+    private final CommandJournal journal;
 
     @Autowired
     public ExternalAlgorithmServiceImpl(SimulationEngine engine,
-                                        TaskDecisionService taskDecisionService) {
+                                        TaskDecisionService taskDecisionService,
+                                        SimCommandExecutor commandExecutor,
+                                        CommandJournal journal) {
+        this.context = engine.getContext();
         this.engine = engine;
         this.taskDecisionService = taskDecisionService;
+        this.commandExecutor = commandExecutor;
+        this.journal = journal;
+    }
+
+    /**
+     * 在仿真单写线程上执行指令，成功后记入指令日志
+     */
+    private <T> T execute(CommandTypeEnum command, Object request, Callable<T> body) {
+        return commandExecutor.call(() -> {
+            long simTime = context.getSimTime();
+            T result = body.call();
+            journal.append(command, simTime, request, 0, null, engine.getEventDigest());
+            return result;
+        });
     }
 
     /**
@@ -44,7 +89,7 @@ public class ExternalAlgorithmServiceImpl implements ExternalAlgorithmApi {
      */
     @Override
     public Result moveDevice(MoveCommandReq req) {
-        synchronized (context) {
+        return execute(CommandTypeEnum.MOVE, req, () -> {
             //  校验设备存在
             BaseDevice device = context.getDevice(req.getTruckId());
             if (device == null) throw new BusinessException(ErrorCodes.DEVICE_NOT_FOUND);
@@ -60,14 +105,12 @@ public class ExternalAlgorithmServiceImpl implements ExternalAlgorithmApi {
             }
 
             //  构造事件负载
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("target", req.getTargetPoint());
-            payload.put("speed", req.getSpeed());
+            MovePayload payload = new MovePayload(req.getTargetPoint(), req.getSpeed());
 
-            SimEvent event = engine.scheduleEvent(null, context.getSimTime(), EventTypeEnum.CMD_MOVE, payload);
-            event.addSubject("TRUCK", device.getId());
+            SimEvent event = engine.scheduleEvent(SimEvent.NO_PARENT, context.getSimTime(), EventTypeEnum.CMD_MOVE, payload);
+            event.addSubject(SubjectRoleEnum.TRUCK, device.getId());
             return Result.success();
-        }
+        });
     }
 
     /**
@@ -75,7 +118,7 @@ public class ExternalAlgorithmServiceImpl implements ExternalAlgorithmApi {
      */
     @Override
     public Result moveCrane(CraneMoveReq req) {
-        synchronized (context) {
+        return execute(CommandTypeEnum.CRANE_MOVE, req, () -> {
             BaseDevice device = context.getDevice(req.getCraneId());
             if (device == null) throw new BusinessException(ErrorCodes.DEVICE_NOT_FOUND);
 
@@ -88,15 +131,13 @@ public class ExternalAlgorithmServiceImpl implements ExternalAlgorithmApi {
                 throw new BusinessException("起重机移动指令错误: 必须明确指定距离 (distance)");
             }
 
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("req", req);
-            // 直接使用外部传入的速度
-            payload.put("speed", req.getSpeed());
+            // 直接使用外部传入的速度 入队时即固化，后续修改请求对象不影响事件
+            CraneMovePayload payload = CraneMovePayload.of(req);
 
-            SimEvent event = engine.scheduleEvent(null, context.getSimTime(), EventTypeEnum.CMD_CRANE_MOVE, payload);
-            event.addSubject("CRANE", req.getCraneId());
+            SimEvent event = engine.scheduleEvent(SimEvent.NO_PARENT, context.getSimTime(), EventTypeEnum.CMD_CRANE_MOVE, payload);
+            event.addSubject(SubjectRoleEnum.CRANE, req.getCraneId());
             return Result.success();
-        }
+        });
     }
 
     /**
@@ -104,17 +145,16 @@ public class ExternalAlgorithmServiceImpl implements ExternalAlgorithmApi {
      */
     @Override
     public AssignTaskResp assignTask(AssignTaskReq req) {
-        synchronized (context) {
+        return execute(CommandTypeEnum.ASSIGN, req, () -> {
             AssignTaskResp resp = taskDecisionService.evaluateAndDecide(req);
 
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("wiRefNo", req.getWiRefNo());
+            TaskPayload payload = new TaskPayload(req.getWiRefNo());
 
-            SimEvent event = engine.scheduleEvent(null, context.getSimTime(), EventTypeEnum.CMD_ASSIGN_TASK, payload);
-            event.addSubject("DEVICE", req.getDeviceId());
+            SimEvent event = engine.scheduleEvent(SimEvent.NO_PARENT, context.getSimTime(), EventTypeEnum.CMD_ASSIGN_TASK, payload);
+            event.addSubject(SubjectRoleEnum.DEVICE, req.getDeviceId());
 
             return resp;
-        }
+        });
     }
 
     /**
@@ -122,14 +162,14 @@ public class ExternalAlgorithmServiceImpl implements ExternalAlgorithmApi {
      */
     @Override
     public Result toggleFence(FenceControlReq req) {
-        synchronized (context) {
+        return execute(CommandTypeEnum.FENCE, req, () -> {
             if (req.getStatus() == null) {
                 throw new BusinessException("栅栏控制错误: 状态 (status) 不能为空");
             }
-            SimEvent event = engine.scheduleEvent(null, context.getSimTime(), EventTypeEnum.CMD_FENCE_TOGGLE, FenceStateEnum.getByCode(req.getStatus()));
-            event.addSubject("FENCE", req.getFenceId());
+            SimEvent event = engine.scheduleEvent(SimEvent.NO_PARENT, context.getSimTime(), EventTypeEnum.CMD_FENCE_TOGGLE, FenceStateEnum.getByCode(req.getStatus()));
+            event.addSubject(SubjectRoleEnum.FENCE, req.getFenceId());
             return Result.success();
-        }
+        });
     }
 
     /**
@@ -137,7 +177,7 @@ public class ExternalAlgorithmServiceImpl implements ExternalAlgorithmApi {
      */
     @Override
     public Result operateCrane(CraneOperationReq req) {
-        synchronized (context) {
+        return execute(CommandTypeEnum.CRANE_OP, req, () -> {
             BaseDevice crane = context.getDevice(req.getCraneId());
             if (crane == null) throw new BusinessException(ErrorCodes.DEVICE_NOT_FOUND);
 
@@ -145,10 +185,10 @@ public class ExternalAlgorithmServiceImpl implements ExternalAlgorithmApi {
                 throw new BusinessException("起重机操作错误: 必须明确指定操作耗时 (durationMS)");
             }
 
-            SimEvent event = engine.scheduleEvent(null, context.getSimTime(), EventTypeEnum.CMD_CRANE_OP, req);
-            event.addSubject("CRANE", crane.getId());
+            SimEvent event = engine.scheduleEvent(SimEvent.NO_PARENT, context.getSimTime(), EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(req));
+            event.addSubject(SubjectRoleEnum.CRANE, crane.getId());
             return Result.success();
-        }
+        });
     }
 
     /**
@@ -156,7 +196,7 @@ public class ExternalAlgorithmServiceImpl implements ExternalAlgorithmApi {
      */
     @Override
     public Result chargeTruck(ChargeCommandReq req) {
-        synchronized (context) {
+        return execute(CommandTypeEnum.CHARGE, req, () -> {
             Truck truck = context.getTruckMap().get(req.getTruckId());
             if (truck == null) throw new BusinessException(ErrorCodes.DEVICE_NOT_FOUND);
 
@@ -173,22 +213,21 @@ public class ExternalAlgorithmServiceImpl implements ExternalAlgorithmApi {
                 throw new BusinessException("充电桩不可用或正忙");
             }
 
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("stationId", station.getStationCode());
+            ChargePayload payload = new ChargePayload(station.getStationCode());
 
-            SimEvent event = engine.scheduleEvent(null, context.getSimTime(), EventTypeEnum.CMD_CHARGE, payload);
-            event.addSubject("TRUCK", truck.getId());
+            SimEvent event = engine.scheduleEvent(SimEvent.NO_PARENT, context.getSimTime(), EventTypeEnum.CMD_CHARGE, payload);
+            event.addSubject(SubjectRoleEnum.TRUCK, truck.getId());
             return Result.success();
-        }
+        });
     }
 
     /**
      * 取消指定事件
      */
     @Override
-    public Result cancelEvent(String eventId) {
-        synchronized (context) {
-            if (eventId == null || eventId.trim().isEmpty()) {
+    public Result cancelEvent(long eventId) {
+        return execute(CommandTypeEnum.CANCEL, eventId, () -> {
+            if (eventId <= SimEvent.NO_PARENT) {
                 throw new BusinessException("事件ID不能为空");
             }
             boolean cancelled = engine.cancelEvent(eventId);
@@ -197,6 +236,141 @@ public class ExternalAlgorithmServiceImpl implements ExternalAlgorithmApi {
             } else {
                 return Result.error("事件不存在或已被处理");
             }
+        });
+    }
+
+    /**
+     * 批量指令：结构校验在调用线程上一次完成，通过的指令在同一个写线程任务内依次执行
+     * （嵌套调用直接执行，整批只排队一次、只发布一次快照）
+     */
+    @Override
+    public CommandBatchResp executeBatch(CommandBatchReq req) {
+        List<BatchCommandReq> commands = req.getCommands();
+        if (commands == null || commands.isEmpty()) {
+            throw new BusinessException("批量指令错误: 指令列表 (commands) 不能为空");
+        }
+        if (commands.size() > MAX_BATCH_COMMANDS) {
+            throw new BusinessException("批量指令错误: 单批最多 " + MAX_BATCH_COMMANDS + " 条指令");
+        }
+
+        CommandBatchResp resp = new CommandBatchResp();
+        Object[] requests = new Object[commands.size()];
+        for (int i = 0; i < commands.size(); i++) {
+            CommandResultDto result = new CommandResultDto();
+            result.setIndex(i);
+            BatchCommandReq command = commands.get(i);
+            if (command != null) {
+                result.setType(command.getType());
+            }
+            try {
+                requests[i] = requestOf(command);
+            } catch (BusinessException e) {
+                result.setStatus(CommandStatusEnum.REJECTED);
+                result.setMessage(e.getMessage());
+                resp.setRejectedCount(resp.getRejectedCount() + 1);
+            }
+            resp.getResults().add(result);
+        }
+
+        return commandExecutor.call(() -> {
+            resp.setSimTime(context.getSimTime());
+            for (int i = 0; i < commands.size(); i++) {
+                CommandResultDto result = resp.getResults().get(i);
+                if (result.getStatus() == CommandStatusEnum.REJECTED) {
+                    continue;
+                }
+                try {
+                    Object data = dispatch(result.getType(), requests[i]);
+                    if (data instanceof Result && !Integer.valueOf(200).equals(((Result) data).getCode())) {
+                        result.setStatus(CommandStatusEnum.FAILED);
+                        result.setMessage(((Result) data).getMsg());
+                    } else {
+                        result.setStatus(CommandStatusEnum.APPLIED);
+                        result.setData(data instanceof Result ? ((Result) data).getData() : data);
+                    }
+                } catch (RuntimeException e) {
+                    result.setStatus(CommandStatusEnum.FAILED);
+                    result.setMessage(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                }
+                if (result.getStatus() == CommandStatusEnum.APPLIED) {
+                    resp.setAppliedCount(resp.getAppliedCount() + 1);
+                } else {
+                    resp.setFailedCount(resp.getFailedCount() + 1);
+                }
+            }
+            return resp;
+        });
+    }
+
+    /**
+     * 取出与指令类型对应的请求体，类型缺失、不支持或请求体未填写时抛出
+     */
+    private Object requestOf(BatchCommandReq command) {
+        if (command == null || command.getType() == null) {
+            throw new BusinessException("指令类型 (type) 不能为空");
+        }
+        Object request;
+        switch (command.getType()) {
+            case MOVE:
+                request = command.getTruckMove();
+                break;
+            case CRANE_MOVE:
+                request = command.getCraneMove();
+                break;
+            case ASSIGN:
+                request = command.getAssign();
+                break;
+            case FENCE:
+                request = command.getFenceControl();
+                break;
+            case CRANE_OP:
+                request = command.getCraneOp();
+                break;
+            case CHARGE:
+                request = command.getCharge();
+                break;
+            case CANCEL:
+                request = parseEventId(command.getEventId());
+                break;
+            default:
+                throw new BusinessException("批量指令不支持的指令类型: " + command.getType().getDesc());
+        }
+        if (request == null) {
+            throw new BusinessException("缺少与指令类型对应的请求体: " + command.getType().getDesc());
+        }
+        return request;
+    }
+
+    private Object dispatch(CommandTypeEnum type, Object request) {
+        switch (type) {
+            case MOVE:
+                return moveDevice((MoveCommandReq) request);
+            case CRANE_MOVE:
+                return moveCrane((CraneMoveReq) request);
+            case ASSIGN:
+                return assignTask((AssignTaskReq) request);
+            case FENCE:
+                return toggleFence((FenceControlReq) request);
+            case CRANE_OP:
+                return operateCrane((CraneOperationReq) request);
+            case CHARGE:
+                return chargeTruck((ChargeCommandReq) request);
+            case CANCEL:
+                return cancelEvent((Long) request);
+            default:
+                throw new BusinessException("批量指令不支持的指令类型: " + type.getDesc());
+        }
+    }
+
+    // 事件ID对外为字符串
+    private static Long parseEventId(String eventId) {
+        if (eventId == null || eventId.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(eventId.trim());
+        } catch (NumberFormatException e) {
+            throw new BusinessException("事件ID格式错误: " + eventId);
         }
     }
 
@@ -209,21 +383,154 @@ public class ExternalAlgorithmServiceImpl implements ExternalAlgorithmApi {
      */
     @Override
     public model.dto.snapshot.EventLogEntryDto stepNextEvent() {
-        synchronized (context) {
+        return execute(CommandTypeEnum.STEP_NEXT, null, () -> {
             SimEvent processedEvent = engine.stepNextEvent();
             if (processedEvent == null) {
                 return null;
             }
 
             // 构造返回的事件信息
-            model.dto.snapshot.EventLogEntryDto eventDto = new model.dto.snapshot.EventLogEntryDto();
-            eventDto.setSimTime(processedEvent.getTriggerTime());
-            eventDto.setType(processedEvent.getType());
-            eventDto.setEventId(processedEvent.getEventId());
-            eventDto.setParentEventId(processedEvent.getParentEventId());
-            eventDto.setSubjects(processedEvent.getSubjects());
+            return SimulationEventLog.toEntry(processedEvent);
+        });
+    }
+
+    /**
+     * 批量推进：在引擎内循环处理事件，省去每个事件一次 HTTP 往返
+     */
+    @Override
+    public StepBatchResp stepBatch(StepBatchReq req) {
+        validateStepLimits(req.getMaxEvents(), req.getUntilSimTime(), false);
+        return commandExecutor.call(() -> {
+            validateUntilSimTime(req.getUntilSimTime());
+            long simTime = context.getSimTime();
+            StepBatchResp resp = new StepBatchResp();
+            SimEvent[] last = new SimEvent[1];
+            int[] dequeued = new int[1];
+            StepStopReasonEnum reason = engine.runBatch(
+                    req.getMaxEvents() != null ? req.getMaxEvents() : Integer.MAX_VALUE,
+                    req.getUntilSimTime() != null ? req.getUntilSimTime() : Long.MAX_VALUE,
+                    req.getWallClockBudgetMs() != null ? req.getWallClockBudgetMs() : 0L,
+                    new StopCondition() {
+                        @Override
+                        public void beforeEvent(SimEvent event, GlobalContext ctx) {
+                            dequeued[0]++;
+                        }
+
+                        @Override
+                        public boolean afterEvent(SimEvent event, GlobalContext ctx) {
+                            resp.getTypeCounts().merge(event.getType(), 1, Integer::sum);
+                            resp.setProcessedCount(resp.getProcessedCount() + 1);
+                            last[0] = event;
+                            return false;
+                        }
+                    });
+
+            resp.setFinalSimTime(context.getSimTime());
+            resp.setStopReason(reason);
+            resp.setLastEvent(last[0] != null ? SimulationEventLog.toEntry(last[0]) : null);
+            journal.append(CommandTypeEnum.STEP_BATCH, simTime, req, dequeued[0], reason, engine.getEventDigest());
+            return resp;
+        });
+    }
+
+    /**
+     * 条件推进：逐个处理事件，任一停止条件命中即返回触发事件及其涉及的实体
+     */
+    @Override
+    public StepUntilResp stepUntil(StepUntilReq req) {
+        if (req.getConditions() == null || req.getConditions().isEmpty()) {
+            throw new BusinessException("条件推进错误: 至少指定一个停止条件 (conditions)");
+        }
+        validateStepLimits(req.getMaxEvents(), req.getUntilSimTime(), true);
+        List<StopCondition> conditions = new ArrayList<>(req.getConditions().size());
+        for (StopConditionReq conditionReq : req.getConditions()) {
+            conditions.add(StopConditions.of(conditionReq));
+        }
+
+        return commandExecutor.call(() -> {
+            validateUntilSimTime(req.getUntilSimTime());
+            long simTime = context.getSimTime();
+            StepUntilResp resp = new StepUntilResp();
+            SimEvent[] last = new SimEvent[1];
+            int[] dequeued = new int[1];
+            StepStopReasonEnum reason = engine.runBatch(
+                    req.getMaxEvents() != null ? req.getMaxEvents() : Integer.MAX_VALUE,
+                    req.getUntilSimTime() != null ? req.getUntilSimTime() : Long.MAX_VALUE,
+                    req.getWallClockBudgetMs() != null ? req.getWallClockBudgetMs() : 0L,
+                    new StopCondition() {
+                        @Override
+                        public void beforeEvent(SimEvent event, GlobalContext ctx) {
+                            dequeued[0]++;
+                            for (StopCondition condition : conditions) {
+                                condition.beforeEvent(event, ctx);
+                            }
+                        }
+
+                        @Override
+                        public boolean afterEvent(SimEvent event, GlobalContext ctx) {
+                            resp.setProcessedCount(resp.getProcessedCount() + 1);
+                            last[0] = event;
+                            for (int i = 0; i < conditions.size(); i++) {
+                                if (conditions.get(i).afterEvent(event, ctx)) {
+                                    resp.setMatchedCondition(i);
+                                    return true;
+                                }
+                            }
+                            return false;
+                        }
+                    });
+
+            resp.setFinalSimTime(context.getSimTime());
+            resp.setStopReason(reason);
+            if (last[0] != null) {
+                resp.setTriggerEvent(SimulationEventLog.toEntry(last[0]));
+                collectAffectedEntities(last[0], resp);
+            }
+            journal.append(CommandTypeEnum.STEP_UNTIL, simTime, req, dequeued[0], reason, engine.getEventDigest());
+            return resp;
+        });
+    }
+
+    /**
+     * 收集触发事件涉及的设备、作业指令与栅栏（取处理后的状态）
+     */
+    private void collectAffectedEntities(SimEvent event, StepUntilResp resp) {
+        String wiRefNo = event.getPrimarySubject(SubjectRoleEnum.WI);
+        for (SubjectRoleEnum role : new SubjectRoleEnum[]{SubjectRoleEnum.TRUCK, SubjectRoleEnum.CRANE, SubjectRoleEnum.DEVICE}) {
+            BaseDevice device = context.getDevice(event.getPrimarySubject(role));
+            if (device != null) {
+                resp.getDevices().add(DeviceSnapshotDto.from(device));
+                if (wiRefNo == null) {
+                    wiRefNo = device.getCurrWiRefNo();
+                }
+            }
+        }
+        WorkInstruction wi = wiRefNo != null ? context.getWorkInstructionMap().get(wiRefNo) : null;
+        if (wi != null) {
+            resp.getWorkInstructions().add(WorkInstructionSnapshotDto.from(wi));
+        }
+        String fenceId = event.getPrimarySubject(SubjectRoleEnum.FENCE);
+        Fence fence = fenceId != null ? context.getFenceMap().get(fenceId) : null;
+        if (fence != null) {
+            resp.getFences().add(FenceSnapshotDto.from(fence));
+        }
+    }
+
+    /**
+     * 校验推进上限；条件推进允许不设上限（直到条件命中或队列为空）
+     */
+    private void validateStepLimits(Integer maxEvents, Long untilSimTime, boolean unbounded) {
+        if (!unbounded && maxEvents == null && untilSimTime == null) {
+            throw new BusinessException("批量推进错误: maxEvents 与 untilSimTime 至少指定一个");
+        }
+        if (maxEvents != null && maxEvents <= 0) {
+            throw new BusinessException("批量推进错误: maxEvents 必须大于0");
+        }
+    }
 
-            return eventDto;
+    private void validateUntilSimTime(Long untilSimTime) {
+        if (untilSimTime != null && untilSimTime < context.getSimTime()) {
+            throw new BusinessException("批量推进错误: untilSimTime 不能早于当前仿真时间 " + context.getSimTime());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,252 @@
+package service.algorithm.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import common.config.PhysicsConfig;
+import common.config.SimEngineConfig;
+import common.consts.CommandTypeEnum;
+import common.consts.StepStopReasonEnum;
+import common.exception.BusinessException;
+import engine.session.SimSession;
+import engine.session.SimSessionManager;
+import lombok.extern.slf4j.Slf4j;
+import model.dto.request.*;
+import model.dto.response.CheckpointResp;
+import model.dto.response.JournalResp;
+import model.dto.response.ReplayResp;
+import org.springframework.stereotype.Service;
+import service.algorithm.ExternalAlgorithmApi;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 指令日志记录与无头重放
+ * 开始记录时先在单写线程上写基准检查点，随后该会话每条成功执行的外部指令都追加到日志；
+ * 重放时新建临时会话恢复基准检查点，在其单写线程上的一个任务内直接调用指令实现（不经 HTTP），
+ * 逐条比对执行后的事件摘要，定位首个不一致的指令。
+ * 事件ID按会话自增、摘要只依赖事件内容，重放不依赖随机数与墙钟时间；
+ * 原记录因墙钟预算停止的推进，重放时改为按记录的出队事件数停止。
+ */
+@Service
+@Slf4j
+public class JournalReplayService {
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9_.-]{1,128}");
+    private static final String SUFFIX = ".journal";
+    private static final String BASE_SUFFIX = "-base";
+
+    private final Path journalDir;
+    private final CheckpointService checkpointService;
+    private final SimSessionManager sessionManager;
+    private final ObjectMapper objectMapper;
+
+    public JournalReplayService(SimEngineConfig engineConfig, CheckpointService checkpointService,
+                                SimSessionManager sessionManager, ObjectMapper objectMapper) {
+        this.journalDir = Paths.get(engineConfig.getJournalDir());
+        this.checkpointService = checkpointService;
+        this.sessionManager = sessionManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 开始记录会话的指令日志：写基准检查点 "名称-base" 并打开日志文件，两步在同一单写线程任务内完成
+     * 同名日志或基准检查点已存在时拒绝，避免覆盖已有记录使其无法重放
+     *
+     * @param name 日志名称，为空时使用会话ID
+     */
+    public JournalResp start(SimSession session, String name) {
+        String journalName = name != null && !name.trim().isEmpty() ? name.trim() : session.getId();
+        Path file = resolve(journalName);
+        return session.getCommandExecutor().call(() -> {
+            if (Files.exists(file)) {
+                throw new BusinessException("指令日志已存在: " + journalName);
+            }
+            if (checkpointService.exists(session, journalName + BASE_SUFFIX)) {
+                throw new BusinessException("指令日志的基准检查点已存在: " + journalName + BASE_SUFFIX);
+            }
+            session.getJournal().stop();
+            CheckpointResp base = checkpointService.checkpoint(session, journalName + BASE_SUFFIX);
+
+            PhysicsConfig physics = session.getPhysicsConfig();
+            CommandJournal.Header header = new CommandJournal.Header();
+            header.setSessionId(session.getId());
+            header.setBaseCheckpoint(journalName + BASE_SUFFIX);
+            header.setStartSimTime(session.getContext().getSimTime());
+            header.setStartDigest(session.getEngine().getEventDigest());
+            header.setArrivalThreshold(physics.getArrivalThreshold());
+            header.setChargeAlignThreshold(physics.getChargeAlignThreshold());
+            header.setMaxEventsPerTimestamp(physics.getMaxEventsPerTimestamp());
+            session.getJournal().start(file, header);
+
+            JournalResp resp = new JournalResp();
+            resp.setName(journalName);
+            resp.setSessionId(session.getId());
+            resp.setBaseCheckpoint(base);
+            return resp;
+        });
+    }
+
+    /**
+     * 停止记录会话的指令日志
+     */
+    public void stop(SimSession session) {
+        session.getCommandExecutor().run(() -> session.getJournal().stop());
+    }
+
+    /**
+     * 在临时会话中重放指令日志，结束后删除临时会话
+     */
+    public ReplayResp replay(String name) {
+        String journalName = name != null ? name.trim() : "";
+        Path file = resolve(journalName);
+        if (!Files.isRegularFile(file)) {
+            throw new BusinessException("指令日志不存在: " + file.getFileName());
+        }
+        long start = System.currentTimeMillis();
+        CommandJournal.Header header;
+        List<CommandJournal.Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line == null) {
+                throw new BusinessException("指令日志为空: " + file.getFileName());
+            }
+            header = objectMapper.readValue(line, CommandJournal.Header.class);
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    entries.add(objectMapper.readValue(line, CommandJournal.Entry.class));
+                }
+            }
+        } catch (IOException e) {
+            throw new BusinessException("指令日志读取失败: " + e.getMessage());
+        }
+
+        CreateSessionReq sessionReq = new CreateSessionReq();
+        sessionReq.setArrivalThreshold(header.getArrivalThreshold());
+        sessionReq.setChargeAlignThreshold(header.getChargeAlignThreshold());
+        sessionReq.setMaxEventsPerTimestamp(header.getMaxEventsPerTimestamp());
+        SimSession scratch = sessionManager.create(sessionReq);
+        try {
+            checkpointService.restore(scratch, header.getBaseCheckpoint());
+            ReplayResp resp = scratch.getCommandExecutor().call(() -> replayAll(scratch, header, entries));
+            resp.setName(journalName);
+            resp.setElapsedMs(System.currentTimeMillis() - start);
+            log.info("指令日志 [{}] 重放 {} 条指令，{} ({} ms)", resp.getName(), resp.getCommandCount(),
+                    resp.isDeterministic() ? "结果一致" : "在第 " + resp.getDivergedAtSeq() + " 条出现不一致",
+                    resp.getElapsedMs());
+            return resp;
+        } finally {
+            sessionManager.remove(scratch.getId());
+        }
+    }
+
+    // 在临时会话单写线程上逐条执行，嵌套的指令调用直接在本线程执行
+    private ReplayResp replayAll(SimSession scratch, CommandJournal.Header header, List<CommandJournal.Entry> entries) {
+        ReplayResp resp = new ReplayResp();
+        resp.setDeterministic(true);
+        if (scratch.getEngine().getEventDigest() != header.getStartDigest()) {
+            diverge(resp, null, header.getStartDigest(), scratch.getEngine().getEventDigest(), "基准检查点的事件摘要与日志头不一致");
+            return resp;
+        }
+        for (CommandJournal.Entry entry : entries) {
+            long simTime = scratch.getContext().getSimTime();
+            if (simTime != entry.getSimTime()) {
+                diverge(resp, entry, entry.getDigest(), scratch.getEngine().getEventDigest(),
+                        "执行前仿真时间不一致: 记录 " + entry.getSimTime() + "，重放 " + simTime);
+                break;
+            }
+            try {
+                dispatch(scratch.getAlgorithmApi(), entry);
+            } catch (RuntimeException | JsonProcessingException e) {
+                diverge(resp, entry, entry.getDigest(), scratch.getEngine().getEventDigest(),
+                        "指令执行失败: " + e.getMessage());
+                break;
+            }
+            resp.setCommandCount(resp.getCommandCount() + 1);
+            long digest = scratch.getEngine().getEventDigest();
+            if (digest != entry.getDigest()) {
+                diverge(resp, entry, entry.getDigest(), digest, "执行后事件摘要不一致");
+                break;
+            }
+            resp.setExpectedDigest(entry.getDigest());
+            resp.setActualDigest(digest);
+        }
+        resp.setFinalSimTime(scratch.getContext().getSimTime());
+        return resp;
+    }
+
+    private void dispatch(ExternalAlgorithmApi api, CommandJournal.Entry entry) throws JsonProcessingException {
+        CommandTypeEnum command = entry.getCommand();
+        Object req = command.getRequestType() != null
+                ? objectMapper.treeToValue(entry.getRequest(), command.getRequestType()) : null;
+        switch (command) {
+            case MOVE:
+                api.moveDevice((MoveCommandReq) req);
+                break;
+            case CRANE_MOVE:
+                api.moveCrane((CraneMoveReq) req);
+                break;
+            case ASSIGN:
+                api.assignTask((AssignTaskReq) req);
+                break;
+            case FENCE:
+                api.toggleFence((FenceControlReq) req);
+                break;
+            case CRANE_OP:
+                api.operateCrane((CraneOperationReq) req);
+                break;
+            case CHARGE:
+                api.chargeTruck((ChargeCommandReq) req);
+                break;
+            case CANCEL:
+                api.cancelEvent((Long) req);
+                break;
+            case STEP_NEXT:
+                api.stepNextEvent();
+                break;
+            case STEP_BATCH: {
+                StepBatchReq batch = (StepBatchReq) req;
+                if (entry.getStopReason() == StepStopReasonEnum.WALL_CLOCK_BUDGET) {
+                    batch.setMaxEvents(entry.getDequeued());
+                    batch.setWallClockBudgetMs(null);
+                }
+                api.stepBatch(batch);
+                break;
+            }
+            case STEP_UNTIL: {
+                StepUntilReq until = (StepUntilReq) req;
+                if (entry.getStopReason() == StepStopReasonEnum.WALL_CLOCK_BUDGET) {
+                    until.setMaxEvents(entry.getDequeued());
+                    until.setWallClockBudgetMs(null);
+                }
+                api.stepUntil(until);
+                break;
+            }
+            default:
+                throw new BusinessException("不支持重放的指令类型: " + command);
+        }
+    }
+
+    private void diverge(ReplayResp resp, CommandJournal.Entry entry, long expected, long actual, String message) {
+        resp.setDeterministic(false);
+        resp.setDivergedAtSeq(entry != null ? entry.getSeq() : 0L);
+        resp.setDivergedCommand(entry != null ? entry.getCommand() : null);
+        resp.setExpectedDigest(expected);
+        resp.setActualDigest(actual);
+        resp.setMessage(message);
+    }
+
+    private Path resolve(String name) {
+        if (!NAME_PATTERN.matcher(name).matches()) {
+            throw new BusinessException("指令日志名称只能包含字母、数字、下划线、点和连字符: " + name);
+        }
+        return journalDir.resolve(name + SUFFIX);
+    }
+}
@@ -10,7 +10,11 @@ import service.algorithm.MapDataService;
 @Service
 public class MapDataServiceImpl implements MapDataService {
 
-    private final GlobalContext context = GlobalContext.getInstance();
+    private final GlobalContext context;
+
+    public MapDataServiceImpl(GlobalContext context) {
+        this.context = context;
+    }
 
     @Override
     // 防止空针
@@ -0,0 +1,152 @@
+package service.algorithm.impl;
+
+import model.entity.BaseDevice;
+import model.entity.Point;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 一个纪元中行驶中设备的线段（列式，只读）
+ * 发布时从设备实体抄出出发点、目标点、出发时间与速度，之后任意线程按时刻批量插值，
+ * 结果写入调用方给的 double 数组，不为每台设备创建 Point。
+ * 插值规则与 {@link BaseDevice#getInterpolatedPos} 一致；早于出发时间的时刻取出发点。
+ */
+final class MotionTable {
+
+    static final MotionTable EMPTY = new MotionTable(new String[0], new double[0], new double[0], new double[0],
+            new double[0], new double[0], new double[0], new long[0], 0);
+
+    final String[] ids;
+    private final double[] startX;
+    private final double[] startY;
+    private final double[] endX;
+    private final double[] endY;
+    private final double[] totalDist;
+    private final double[] speed;        // 米/秒
+    private final long[] startTime;
+    final int count;
+    private volatile Map<String, Integer> rows;
+
+    private MotionTable(String[] ids, double[] startX, double[] startY, double[] endX, double[] endY,
+                        double[] totalDist, double[] speed, long[] startTime, int count) {
+        this.ids = ids;
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+        this.totalDist = totalDist;
+        this.speed = speed;
+        this.startTime = startTime;
+        this.count = count;
+    }
+
+    /**
+     * 在给定时刻插值第 from 行起的 n 台设备，结果写入 outX/outY 的 offset 起
+     */
+    void positionsAt(long time, int from, int n, double[] outX, double[] outY, int offset) {
+        for (int i = from, o = offset; i < from + n; i++, o++) {
+            double total = totalDist[i];
+            double moved = (time - startTime[i]) / 1000.0 * speed[i];
+            if (total <= 0 || moved >= total) {
+                outX[o] = endX[i];
+                outY[o] = endY[i];
+            } else if (moved <= 0) {
+                outX[o] = startX[i];
+                outY[o] = startY[i];
+            } else {
+                double ratio = moved / total;
+                outX[o] = startX[i] + (endX[i] - startX[i]) * ratio;
+                outY[o] = startY[i] + (endY[i] - startY[i]) * ratio;
+            }
+        }
+    }
+
+    /**
+     * 单台设备在 from 起每隔 intervalMs 的 samples 个时刻的位置，写入 outX/outY
+     */
+    void sample(int row, long from, long intervalMs, int samples, double[] outX, double[] outY) {
+        for (int s = 0; s < samples; s++) {
+            positionsAt(from + s * intervalMs, row, 1, outX, outY, s);
+        }
+    }
+
+    /**
+     * 设备所在行，不在行驶中时返回 -1
+     */
+    int rowOf(String id) {
+        Map<String, Integer> r = rows;
+        if (r == null) {
+            r = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                r.put(ids[i], i);
+            }
+            rows = r;
+        }
+        Integer row = r.get(id);
+        return row != null ? row : -1;
+    }
+
+    /**
+     * 逐台收集行驶中的设备（仅写线程）
+     */
+    static final class Builder {
+        private final double arrivalThreshold;
+        private String[] ids = new String[16];
+        private double[] startX = new double[16];
+        private double[] startY = new double[16];
+        private double[] endX = new double[16];
+        private double[] endY = new double[16];
+        private double[] totalDist = new double[16];
+        private double[] speed = new double[16];
+        private long[] startTime = new long[16];
+        private int count;
+
+        Builder(double arrivalThreshold) {
+            this.arrivalThreshold = arrivalThreshold;
+        }
+
+        void add(BaseDevice device) {
+            if (!device.isMoveInProgress()) {
+                return;
+            }
+            if (count == ids.length) {
+                grow();
+            }
+            Point to = device.getCurrentTargetPos();
+            double dist = Math.hypot(to.getX() - device.getLastStartX(), to.getY() - device.getLastStartY());
+            ids[count] = device.getId();
+            startX[count] = device.getLastStartX();
+            startY[count] = device.getLastStartY();
+            endX[count] = to.getX();
+            endY[count] = to.getY();
+            // 不超过到达阈值的线段直接取目标点
+            totalDist[count] = dist <= arrivalThreshold ? 0 : dist;
+            speed[count] = device.getSpeed();
+            startTime[count] = device.getLastMoveStartTime();
+            count++;
+        }
+
+        MotionTable build() {
+            if (count == 0) {
+                return EMPTY;
+            }
+            return new MotionTable(Arrays.copyOf(ids, count), Arrays.copyOf(startX, count), Arrays.copyOf(startY, count),
+                    Arrays.copyOf(endX, count), Arrays.copyOf(endY, count), Arrays.copyOf(totalDist, count),
+                    Arrays.copyOf(speed, count), Arrays.copyOf(startTime, count), count);
+        }
+
+        private void grow() {
+            int n = ids.length << 1;
+            ids = Arrays.copyOf(ids, n);
+            startX = Arrays.copyOf(startX, n);
+            startY = Arrays.copyOf(startY, n);
+            endX = Arrays.copyOf(endX, n);
+            endY = Arrays.copyOf(endY, n);
+            totalDist = Arrays.copyOf(totalDist, n);
+            speed = Arrays.copyOf(speed, n);
+            startTime = Arrays.copyOf(startTime, n);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package service.algorithm.impl;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 已序列化好的 JSON 片段（UTF-8 字节）
+ * 作为原始值交给 JsonGenerator 写出时直接复制字节，不再编码；字节数组只读，可被并发请求共享
+ */
+public final class RawJson implements SerializableString {
+
+    private final byte[] utf8;
+    private volatile String value;
+
+    public RawJson(byte[] utf8) {
+        this.utf8 = utf8;
+    }
+
+    @Override
+    public String getValue() {
+        String v = value;
+        if (v == null) {
+            v = new String(utf8, StandardCharsets.UTF_8);
+            value = v;
+        }
+        return v;
+    }
+
+    @Override
+    public int charLength() {
+        return getValue().length();
+    }
+
+    @Override
+    public char[] asQuotedChars() {
+        return JsonStringEncoder.getInstance().quoteAsString(getValue());
+    }
+
+    @Override
+    public byte[] asUnquotedUTF8() {
+        return utf8;
+    }
+
+    @Override
+    public byte[] asQuotedUTF8() {
+        return JsonStringEncoder.getInstance().quoteAsUTF8(getValue());
+    }
+
+    @Override
+    public int appendQuotedUTF8(byte[] buffer, int offset) {
+        return append(asQuotedUTF8(), buffer, offset);
+    }
+
+    @Override
+    public int appendQuoted(char[] buffer, int offset) {
+        char[] quoted = asQuotedChars();
+        if (quoted.length > buffer.length - offset) {
+            return -1;
+        }
+        System.arraycopy(quoted, 0, buffer, offset, quoted.length);
+        return quoted.length;
+    }
+
+    @Override
+    public int appendUnquotedUTF8(byte[] buffer, int offset) {
+        return append(utf8, buffer, offset);
+    }
+
+    @Override
+    public int appendUnquoted(char[] buffer, int offset) {
+        String v = getValue();
+        if (v.length() > buffer.length - offset) {
+            return -1;
+        }
+        v.getChars(0, v.length(), buffer, offset);
+        return v.length();
+    }
+
+    @Override
+    public int writeQuotedUTF8(OutputStream out) throws IOException {
+        byte[] quoted = asQuotedUTF8();
+        out.write(quoted);
+        return quoted.length;
+    }
+
+    @Override
+    public int writeUnquotedUTF8(OutputStream out) throws IOException {
+        out.write(utf8);
+        return utf8.length;
+    }
+
+    @Override
+    public int putQuotedUTF8(ByteBuffer buffer) {
+        return put(asQuotedUTF8(), buffer);
+    }
+
+    @Override
+    public int putUnquotedUTF8(ByteBuffer buffer) {
+        return put(utf8, buffer);
+    }
+
+    // 放不下时返回 -1，由调用方改走 asUnquotedUTF8
+    private static int append(byte[] src, byte[] buffer, int offset) {
+        if (src.length > buffer.length - offset) {
+            return -1;
+        }
+        System.arraycopy(src, 0, buffer, offset, src.length);
+        return src.length;
+    }
+
+    private static int put(byte[] src, ByteBuffer buffer) {
+        if (src.length > buffer.remaining()) {
+            return -1;
+        }
+        buffer.put(src);
+        return src.length;
+    }
+}
@@ -1,5 +1,7 @@
 package service.algorithm.impl;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import common.consts.EventTypeEnum;
 import lombok.Data;
 import org.springframework.stereotype.Component;
@@ -23,7 +25,7 @@ public class SimulationErrorLog {
     /**
      * 记录事件处理异常
      */
-    public synchronized void recordEventProcessingError(String eventId, EventTypeEnum eventType,
+    public synchronized void recordEventProcessingError(Long eventId, EventTypeEnum eventType,
                                                         long simTime, String message, Throwable cause) {
         recordEventProcessingError(eventId, eventType, simTime, message, cause, true);
     }
@@ -31,7 +33,7 @@ public class SimulationErrorLog {
     /**
      * 记录事件处理异常（带事件链暂停标记）
      */
-    public synchronized void recordEventProcessingError(String eventId, EventTypeEnum eventType,
+    public synchronized void recordEventProcessingError(Long eventId, EventTypeEnum eventType,
                                                         long simTime, String message, Throwable cause,
                                                         boolean eventChainSuspended) {
         ErrorLogEntry entry = new ErrorLogEntry();
@@ -104,7 +106,8 @@ public class SimulationErrorLog {
     public static class ErrorLogEntry {
         private ErrorType errorType;
         private long simTime;
-        private String eventId;
+        @JsonSerialize(using = ToStringSerializer.class)
+        private Long eventId;
         private EventTypeEnum eventType;
         private String message;
         private String cause;
@@ -1,40 +1,725 @@
 package service.algorithm.impl;
 
+import common.config.SimEngineConfig;
+import common.consts.EventTypeEnum;
+import common.consts.SubjectRoleEnum;
+import common.exception.BusinessException;
+import engine.SimEvent;
+import lombok.extern.slf4j.Slf4j;
+import model.dto.request.EventLogQuery;
+import model.dto.response.EventChainResp;
+import model.dto.response.EventLogPageResp;
 import model.dto.snapshot.EventLogEntryDto;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 /**
- * 简单的内存事件日志
+ * 持久化事件日志
+ * 事件按处理顺序编号（游标，从 0 开始），写入滚动的内存映射段文件，不再丢弃旧事件。
+ * 每段文件预分配固定大小，记录格式：[int 记录长度][long 仿真时间][long 事件ID][long 父事件ID][byte 类型序号]
+ * [byte 主体位图][每个主体: short 字节数 + UTF-8]。记录长度最后写入，作为提交标记，进程中断时半条记录不可见。
+ * 每 {@link #INDEX_INTERVAL} 条记录登记一个稀疏索引点（段内偏移 + 截至该块的最大仿真时间），
+ * 按游标或按仿真时间定位都是二分查找加不超过一个索引间隔的顺序跳读。
+ * 另在内存中维护按类型、主体ID、父子关系的倒排索引（{@link EventLogIndex}），条件查询与因果链查询只访问命中的记录。
+ * 写入只在引擎处理事件时发生（单写），直接写映射区、不分配对象；读取可在任意线程并发进行，
+ * 只读取已通过 volatile 计数发布的记录。
  */
 @Component
-public class SimulationEventLog {
+@Slf4j
+public class SimulationEventLog implements DisposableBean {
 
-    private static final int DEFAULT_CAPACITY = 1000;
+    private static final int MAGIC = 0x53494D4C; // "SIML"
+    // EventTypeEnum / SubjectRoleEnum 按序号存储，枚举增删时须递增版本，旧段文件恢复时整体丢弃
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER = 16;
+    private static final int RECORD_HEADER = 4 + 8 + 8 + 8 + 1 + 1;
+    private static final int MAX_SUBJECT_BYTES = 0xFFFF;
+    private static final int MIN_SEGMENT_BYTES = 4096;
+    static final int INDEX_INTERVAL = 64;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final EventTypeEnum[] TYPES = EventTypeEnum.values();
 
-    private final Deque<EventLogEntryDto> buffer = new ArrayDeque<>(DEFAULT_CAPACITY);
+    private final Path dir;
+    private final int segmentBytes;
+    private final int maxSegments;
 
-    public synchronized void append(EventLogEntryDto entry) {
-        if (buffer.size() >= DEFAULT_CAPACITY) {
-            buffer.removeFirst();
+    // 已发布的段与记录总数，读线程先读 endCursor 再读 segments
+    private volatile Segment[] segments = new Segment[0];
+    private volatile long endCursor;
+    private final EventLogIndex index = new EventLogIndex(TYPES.length);
+
+    // 写线程状态
+    private Segment active;
+    private long highWater = Long.MIN_VALUE;
+
+    @Autowired
+    public SimulationEventLog(SimEngineConfig engineConfig) {
+        this(Paths.get(engineConfig.getEventLogDir(), "default"), engineConfig.getEventLogSegmentBytes(),
+                engineConfig.getEventLogMaxSegments(), true);
+    }
+
+    /**
+     * @param dir          段文件目录，每个会话一个
+     * @param segmentBytes 单段文件大小
+     * @param maxSegments  最多保留的段数，超出时删除最旧的段，0 表示不限
+     * @param recover      是否接续目录中已有的段文件；否则清空目录
+     */
+    public SimulationEventLog(Path dir, int segmentBytes, int maxSegments, boolean recover) {
+        if (segmentBytes < MIN_SEGMENT_BYTES) {
+            throw new BusinessException("事件日志段大小不能小于 " + MIN_SEGMENT_BYTES + " 字节");
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        try {
+            Files.createDirectories(dir);
+            if (!recover || !recover()) {
+                deleteSegmentFiles();
+            }
+        } catch (IOException e) {
+            throw new BusinessException("事件日志目录不可用: " + dir + ", " + e.getMessage());
+        }
+    }
+
+    /**
+     * 追加已处理的事件，仅由引擎在处理事件时调用
+     */
+    public void append(SimEvent event) {
+        int size = RECORD_HEADER;
+        int mask = 0;
+        for (int i = 0; i < SubjectRoleEnum.COUNT; i++) {
+            String subject = event.getPrimarySubject(SubjectRoleEnum.of(i));
+            if (subject != null) {
+                mask |= 1 << i;
+                size += 2 + Math.min(utf8Length(subject), MAX_SUBJECT_BYTES);
+            }
+        }
+        if (active == null || active.limit - active.writePos < size) {
+            roll();
+        }
+
+        Segment seg = active;
+        MappedByteBuffer buf = seg.buffer;
+        int start = seg.writePos;
+        int pos = start + 4;
+        buf.putLong(pos, event.getTriggerTime());
+        buf.putLong(pos + 8, event.getEventId());
+        buf.putLong(pos + 16, event.getParentEventId());
+        buf.put(pos + 24, (byte) event.getType().ordinal());
+        buf.put(pos + 25, (byte) mask);
+        pos += 26;
+        for (int i = 0; i < SubjectRoleEnum.COUNT; i++) {
+            if ((mask & (1 << i)) != 0) {
+                pos = writeUtf8(buf, pos, event.getPrimarySubject(SubjectRoleEnum.of(i)));
+            }
+        }
+        // 记录体写完后写长度，作为提交标记
+        buf.putInt(start, pos - start);
+        seg.writePos = pos;
+
+        highWater = Math.max(highWater, event.getTriggerTime());
+        seg.index(start, highWater);
+        long cursor = endCursor;
+        index.add(cursor, event.getEventId(), event.getParentEventId(), event.getType().ordinal());
+        for (int i = 0; i < SubjectRoleEnum.COUNT; i++) {
+            String subject = event.getPrimarySubject(SubjectRoleEnum.of(i));
+            if (subject != null && !seenBefore(event, i, subject)) {
+                index.addSubject(cursor, subject);
+            }
+        }
+        seg.count++;
+        endCursor = cursor + 1;
+    }
+
+    // 同一事件多个角色是同一主体时只登记一次
+    private static boolean seenBefore(SimEvent event, int role, String subject) {
+        for (int i = 0; i < role; i++) {
+            if (subject.equals(event.getPrimarySubject(SubjectRoleEnum.of(i)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 从游标处读取，最多返回 limit 条仿真时间不早于 sinceSimTime 的事件
+     * 游标早于最旧的保留段时从最旧的保留记录开始，响应中的 firstCursor 可用于发现缺口
+     *
+     * @param cursor 起始游标，为 null 时按 sinceSimTime 定位第一条可能满足的记录
+     */
+    public EventLogPageResp read(Long cursor, long sinceSimTime, int limit) {
+        long end = endCursor;
+        Segment[] segs = segments;
+        EventLogPageResp page = new EventLogPageResp();
+        page.setFirstCursor(segs.length > 0 ? segs[0].firstCursor : end);
+        page.setEndCursor(end);
+        long from = cursor != null ? Math.max(cursor, page.getFirstCursor()) : seekTime(segs, end, sinceSimTime);
+        page.setNextCursor(from);
+        if (from >= end || limit <= 0) {
+            return page;
+        }
+
+        List<EventLogEntryDto> entries = page.getEntries();
+        int s = segmentOf(segs, from);
+        long c = from;
+        while (s < segs.length && c < end && entries.size() < limit) {
+            Segment seg = segs[s];
+            ByteBuffer buf = seg.buffer.duplicate();
+            int pos = seg.positionOf(buf, c);
+            long segEnd = Math.min(end, seg.firstCursor + seg.count);
+            while (c < segEnd && entries.size() < limit) {
+                int length = buf.getInt(pos);
+                if (buf.getLong(pos + 4) >= sinceSimTime) {
+                    entries.add(decode(buf, pos));
+                }
+                pos += length;
+                c++;
+            }
+            s++;
+        }
+        page.setNextCursor(c);
+        return page;
+    }
+
+    /**
+     * 条件查询：按类型/主体/父事件从倒排索引取候选记录（类型与主体同时指定时取较短的列表），
+     * 只解码候选记录并校验其余条件；均未指定时等同于 {@link #read}
+     */
+    public EventLogPageResp query(EventLogQuery query) {
+        if (query.getType() == null && query.getSubject() == null && query.getParent() == null) {
+            return read(query.getCursor(), query.getSince(), query.getLimit());
+        }
+        long end = endCursor;
+        Segment[] segs = segments;
+        EventLogPageResp page = new EventLogPageResp();
+        page.setFirstCursor(segs.length > 0 ? segs[0].firstCursor : end);
+        page.setEndCursor(end);
+        long from = query.getCursor() != null ? query.getCursor() : seekTime(segs, end, query.getSince());
+        from = Math.max(from, page.getFirstCursor());
+
+        // 因条数上限停止时从最后一条候选之后续读，候选耗尽时续读位置为日志末尾
+        long c = from;
+        if (query.getParent() != null) {
+            long parent = locate(segs, end, query.getParent());
+            long child = parent >= 0 ? index.firstChild(parent) : -1;
+            while (child >= 0 && child < end && page.getEntries().size() < query.getLimit()) {
+                if (child >= from) {
+                    collect(segs, child, query, page.getEntries());
+                }
+                c = child + 1;
+                child = index.nextSibling(child);
+            }
+            page.setNextCursor(child >= 0 && child < end ? c : end);
+            return page;
+        }
+
+        EventLogIndex.CursorList list = pickPostings(query);
+        int n = list != null ? list.size() : 0;
+        int i = list != null ? list.lowerBound(from, n) : 0;
+        for (; i < n && page.getEntries().size() < query.getLimit(); i++) {
+            long cursor = list.get(i);
+            if (cursor >= end) {
+                break;
+            }
+            collect(segs, cursor, query, page.getEntries());
+            c = cursor + 1;
+        }
+        page.setNextCursor(i < n && list.get(i) < end ? c : end);
+        return page;
+    }
+
+    /**
+     * 事件的因果链：祖先（沿父事件向上）与全部后代（沿子事件广度遍历，最多 maxDescendants 条）
+     */
+    public EventChainResp chain(long eventId, int maxDescendants) {
+        long end = endCursor;
+        Segment[] segs = segments;
+        long cursor = locate(segs, end, eventId);
+        if (cursor < 0) {
+            throw new BusinessException("事件不在日志中: " + eventId);
+        }
+        EventChainResp resp = new EventChainResp();
+        resp.setEvent(entryAt(segs, cursor));
+
+        Long parentId = resp.getEvent().getParentEventId();
+        long below = cursor;
+        while (parentId != null) {
+            long parent = locate(segs, end, parentId);
+            // 父事件一定先于子事件处理；位置不符说明事件ID已被检查点恢复复用
+            if (parent < 0 || parent >= below) {
+                break;
+            }
+            EventLogEntryDto entry = entryAt(segs, parent);
+            resp.getAncestors().add(0, entry);
+            parentId = entry.getParentEventId();
+            below = parent;
+        }
+
+        List<Long> found = new ArrayList<>();
+        Deque<Long> queue = new ArrayDeque<>();
+        queue.add(cursor);
+        while (!queue.isEmpty() && !resp.isTruncated()) {
+            for (long child = index.firstChild(queue.poll()); child >= 0 && child < end; child = index.nextSibling(child)) {
+                if (found.size() >= maxDescendants) {
+                    resp.setTruncated(true);
+                    break;
+                }
+                found.add(child);
+                queue.add(child);
+            }
+        }
+        Collections.sort(found);
+        for (long child : found) {
+            if (child >= segs[0].firstCursor) {
+                resp.getDescendants().add(entryAt(segs, child));
+            }
+        }
+        return resp;
+    }
+
+    /**
+     * 仿真时间不早于 sinceSimTime 的全部事件
+     */
+    public List<EventLogEntryDto> listSince(long sinceSimTime) {
+        return read(null, sinceSimTime, Integer.MAX_VALUE).getEntries();
+    }
+
+    /**
+     * 已写入的记录总数，即下一条记录的游标
+     */
+    public long getEndCursor() {
+        return endCursor;
+    }
+
+    /**
+     * 释放映射与文件句柄并删除段文件（会话删除时调用）
+     */
+    public synchronized void delete() {
+        destroy();
+        try {
+            deleteSegmentFiles();
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            log.warn("事件日志目录删除失败: {}", dir, e);
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        for (Segment seg : segments) {
+            seg.close();
+        }
+        segments = new Segment[0];
+        active = null;
+    }
+
+    private EventLogIndex.CursorList pickPostings(EventLogQuery query) {
+        EventLogIndex.CursorList byType = query.getType() != null ? index.ofType(query.getType().ordinal()) : null;
+        if (query.getSubject() == null) {
+            return byType;
+        }
+        EventLogIndex.CursorList bySubject = index.ofSubject(query.getSubject());
+        if (bySubject == null || byType == null) {
+            return bySubject;
+        }
+        return byType.size() < bySubject.size() ? byType : bySubject;
+    }
+
+    // 候选记录校验全部条件后加入结果
+    private static void collect(Segment[] segs, long cursor, EventLogQuery query, List<EventLogEntryDto> out) {
+        Segment seg = segs[segmentOf(segs, cursor)];
+        ByteBuffer buf = seg.buffer.duplicate();
+        int pos = seg.positionOf(buf, cursor);
+        if (buf.getLong(pos + 4) < query.getSince()) {
+            return;
+        }
+        EventLogEntryDto entry = decode(buf, pos);
+        if (query.getType() != null && entry.getType() != query.getType()) {
+            return;
         }
-        buffer.addLast(entry);
+        if (query.getParent() != null && !query.getParent().equals(entry.getParentEventId())) {
+            return;
+        }
+        if (query.getSubject() != null && !entry.getSubjects().containsValue(query.getSubject())) {
+            return;
+        }
+        out.add(entry);
+    }
+
+    // 事件ID对应的已发布游标，不存在或已被清理时返回 -1
+    private long locate(Segment[] segs, long end, long eventId) {
+        long cursor = index.cursorOf(eventId);
+        if (cursor < 0 || cursor >= end || segs.length == 0 || cursor < segs[0].firstCursor) {
+            return -1;
+        }
+        Segment seg = segs[segmentOf(segs, cursor)];
+        ByteBuffer buf = seg.buffer.duplicate();
+        return buf.getLong(seg.positionOf(buf, cursor) + 12) == eventId ? cursor : -1;
+    }
+
+    private static EventLogEntryDto entryAt(Segment[] segs, long cursor) {
+        Segment seg = segs[segmentOf(segs, cursor)];
+        ByteBuffer buf = seg.buffer.duplicate();
+        return decode(buf, seg.positionOf(buf, cursor));
+    }
+
+    // 恢复时按记录重建倒排索引
+    private void indexRecord(long cursor, ByteBuffer buf, int pos) {
+        EventLogEntryDto entry = decode(buf, pos);
+        index.add(cursor, entry.getEventId(), entry.getParentEventId() != null ? entry.getParentEventId() : SimEvent.NO_PARENT,
+                entry.getType().ordinal());
+        for (String subject : new LinkedHashSet<>(entry.getSubjects().values())) {
+            index.addSubject(cursor, subject);
+        }
+    }
+
+    // 按仿真时间定位：先二分段，再二分段内索引块（块最大时间为截至该块的累计最大值，单调不减）
+    private static long seekTime(Segment[] segs, long end, long sinceSimTime) {
+        int lo = 0;
+        int hi = segs.length - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (segs[mid].maxTime() >= sinceSimTime) {
+                found = mid;
+                hi = mid - 1;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        if (found < 0) {
+            return end;
+        }
+        Segment seg = segs[found];
+        int blocks = seg.blockCount();
+        lo = 0;
+        hi = blocks - 1;
+        int block = blocks - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (seg.blockMax[mid] >= sinceSimTime) {
+                block = mid;
+                hi = mid - 1;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return seg.firstCursor + (long) block * INDEX_INTERVAL;
+    }
+
+    private static int segmentOf(Segment[] segs, long cursor) {
+        int lo = 0;
+        int hi = segs.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (segs[mid].firstCursor <= cursor) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
     }
 
     /**
-     * 按仿真时间过滤最近的事件
+     * 把事件转换为对外的事件日志条目，根事件的父ID输出为 null；主体按角色复制，之后修改事件不影响条目
      */
-    public synchronized List<EventLogEntryDto> listSince(long sinceSimTime) {
-        List<EventLogEntryDto> result = new ArrayList<>();
-        for (EventLogEntryDto dto : buffer) {
-            if (dto.getSimTime() >= sinceSimTime) {
-                result.add(dto);
+    public static EventLogEntryDto toEntry(SimEvent event) {
+        EventLogEntryDto dto = new EventLogEntryDto();
+        dto.setSimTime(event.getTriggerTime());
+        dto.setType(event.getType());
+        dto.setEventId(event.getEventId());
+        dto.setParentEventId(event.getParentEventId() != SimEvent.NO_PARENT ? event.getParentEventId() : null);
+        String[] subjects = new String[SubjectRoleEnum.COUNT];
+        for (int i = 0; i < SubjectRoleEnum.COUNT; i++) {
+            subjects[i] = event.getPrimarySubject(SubjectRoleEnum.of(i));
+        }
+        dto.setSubjectSlots(subjects);
+        return dto;
+    }
+
+    private static EventLogEntryDto decode(ByteBuffer buf, int pos) {
+        EventLogEntryDto dto = new EventLogEntryDto();
+        dto.setSimTime(buf.getLong(pos + 4));
+        dto.setEventId(buf.getLong(pos + 12));
+        long parent = buf.getLong(pos + 20);
+        dto.setParentEventId(parent != SimEvent.NO_PARENT ? parent : null);
+        dto.setType(TYPES[buf.get(pos + 28)]);
+        int mask = buf.get(pos + 29) & 0xFF;
+        String[] subjects = new String[SubjectRoleEnum.COUNT];
+        int p = pos + 30;
+        for (int i = 0; i < SubjectRoleEnum.COUNT; i++) {
+            if ((mask & (1 << i)) != 0) {
+                int len = buf.getShort(p) & 0xFFFF;
+                byte[] bytes = new byte[len];
+                for (int k = 0; k < len; k++) {
+                    bytes[k] = buf.get(p + 2 + k);
+                }
+                subjects[i] = new String(bytes, StandardCharsets.UTF_8);
+                p += 2 + len;
+            }
+        }
+        dto.setSubjectSlots(subjects);
+        return dto;
+    }
+
+    //  写线程
+
+    private void roll() {
+        long firstCursor = endCursor;
+        Path file = dir.resolve(String.format("%020d%s", firstCursor, SEGMENT_SUFFIX));
+        Segment seg;
+        try {
+            seg = Segment.create(file, segmentBytes, firstCursor);
+        } catch (IOException e) {
+            throw new BusinessException("事件日志段创建失败: " + file + ", " + e.getMessage());
+        }
+        Segment[] old = segments;
+        int drop = maxSegments > 0 && old.length >= maxSegments ? old.length - maxSegments + 1 : 0;
+        Segment[] next = new Segment[old.length - drop + 1];
+        System.arraycopy(old, drop, next, 0, old.length - drop);
+        next[next.length - 1] = seg;
+        segments = next;
+        active = seg;
+        for (int i = 0; i < drop; i++) {
+            // 已在读的线程仍持有映射，删除文件不影响其读取
+            old[i].close();
+            try {
+                Files.deleteIfExists(old[i].file);
+            } catch (IOException e) {
+                log.warn("事件日志段删除失败: {}", old[i].file, e);
+            }
+        }
+    }
+
+    // 按文件名顺序接续已有段，段头不匹配时放弃恢复
+    private boolean recover() throws IOException {
+        List<Path> files = listSegmentFiles();
+        if (files.isEmpty()) {
+            return false;
+        }
+        List<Segment> recovered = new ArrayList<>(files.size());
+        long expected = -1;
+        for (Path file : files) {
+            Segment seg = Segment.open(file);
+            if (seg == null || (expected >= 0 && seg.firstCursor != expected)) {
+                log.warn("事件日志段不可恢复，丢弃已有日志: {}", file);
+                if (seg != null) {
+                    seg.close();
+                }
+                for (Segment s : recovered) {
+                    s.close();
+                }
+                return false;
+            }
+            highWater = seg.scan(highWater);
+            ByteBuffer buf = seg.buffer.duplicate();
+            for (int i = 0; i < seg.count; i++) {
+                int pos = seg.positionOf(buf, seg.firstCursor + i);
+                indexRecord(seg.firstCursor + i, buf, pos);
+            }
+            expected = seg.firstCursor + seg.count;
+            recovered.add(seg);
+        }
+        segments = recovered.toArray(new Segment[0]);
+        active = segments[segments.length - 1];
+        endCursor = expected;
+        log.info("事件日志已恢复: {} 段, {} 条记录", segments.length, endCursor);
+        return true;
+    }
+
+    private List<Path> listSegmentFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null);
+        return files;
+    }
+
+    private void deleteSegmentFiles() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        for (Path file : listSegmentFiles()) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static int utf8Length(String s) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch < 0x80) {
+                n++;
+            } else if (ch < 0x800) {
+                n += 2;
+            } else if (Character.isHighSurrogate(ch) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                n += 4;
+                i++;
+            } else {
+                n += 3;
+            }
+        }
+        return n;
+    }
+
+    // 逐字符编码，超长主体按完整字符截断
+    private static int writeUtf8(ByteBuffer buf, int pos, String s) {
+        int lenPos = pos;
+        int p = pos + 2;
+        int limit = p + MAX_SUBJECT_BYTES;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch < 0x80) {
+                if (p + 1 > limit) break;
+                buf.put(p++, (byte) ch);
+            } else if (ch < 0x800) {
+                if (p + 2 > limit) break;
+                buf.put(p++, (byte) (0xC0 | (ch >> 6)));
+                buf.put(p++, (byte) (0x80 | (ch & 0x3F)));
+            } else if (Character.isHighSurrogate(ch) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                if (p + 4 > limit) break;
+                int cp = Character.toCodePoint(ch, s.charAt(++i));
+                buf.put(p++, (byte) (0xF0 | (cp >> 18)));
+                buf.put(p++, (byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buf.put(p++, (byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buf.put(p++, (byte) (0x80 | (cp & 0x3F)));
+            } else {
+                if (p + 3 > limit) break;
+                buf.put(p++, (byte) (0xE0 | (ch >> 12)));
+                buf.put(p++, (byte) (0x80 | ((ch >> 6) & 0x3F)));
+                buf.put(p++, (byte) (0x80 | (ch & 0x3F)));
+            }
+        }
+        buf.putShort(lenPos, (short) (p - lenPos - 2));
+        return p;
+    }
+
+    /**
+     * 单个段文件：映射区 + 稀疏索引（按最小记录长度预分配，写入时不扩容）
+     */
+    private static final class Segment {
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final long firstCursor;
+        private final int limit;
+        private final int[] blockPos;
+        private final long[] blockMax;
+        private volatile int count;
+        private int writePos = SEGMENT_HEADER;
+
+        private Segment(Path file, FileChannel channel, MappedByteBuffer buffer, long firstCursor) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.firstCursor = firstCursor;
+            this.limit = buffer.capacity();
+            int blocks = (limit - SEGMENT_HEADER) / RECORD_HEADER / INDEX_INTERVAL + 1;
+            this.blockPos = new int[blocks];
+            this.blockMax = new long[blocks];
+        }
+
+        static Segment create(Path file, int size, long firstCursor) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.setLength(0);
+                raf.setLength(size);
+            }
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(8, firstCursor);
+            return new Segment(file, channel, buffer, firstCursor);
+        }
+
+        // 打开已有段，段头不匹配时返回 null
+        static Segment open(Path file) throws IOException {
+            long size = Files.size(file);
+            if (size < MIN_SEGMENT_BYTES || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                channel.close();
+                return null;
+            }
+            return new Segment(file, channel, buffer, buffer.getLong(8));
+        }
+
+        // 顺序扫描已提交的记录重建索引，返回累计最大时间
+        long scan(long highWater) {
+            int pos = SEGMENT_HEADER;
+            while (pos + RECORD_HEADER <= limit) {
+                int length = buffer.getInt(pos);
+                if (length < RECORD_HEADER || pos + length > limit) {
+                    break;
+                }
+                highWater = Math.max(highWater, buffer.getLong(pos + 4));
+                index(pos, highWater);
+                count++;
+                pos += length;
+            }
+            writePos = pos;
+            return highWater;
+        }
+
+        void index(int pos, long highWater) {
+            int block = count / INDEX_INTERVAL;
+            if (count % INDEX_INTERVAL == 0) {
+                blockPos[block] = pos;
+            }
+            blockMax[block] = highWater;
+        }
+
+        int blockCount() {
+            return (count + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+        }
+
+        long maxTime() {
+            int blocks = blockCount();
+            return blocks > 0 ? blockMax[blocks - 1] : Long.MIN_VALUE;
+        }
+
+        // 游标对应的段内偏移：索引点 + 不超过一个间隔的跳读
+        int positionOf(ByteBuffer buf, long cursor) {
+            int offset = (int) (cursor - firstCursor);
+            int pos = blockPos[offset / INDEX_INTERVAL];
+            for (int i = offset % INDEX_INTERVAL; i > 0; i--) {
+                pos += buf.getInt(pos);
+            }
+            return pos;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("事件日志段关闭失败: {}", file, e);
             }
         }
-        return result;
     }
-}
\ No newline at end of file
+}
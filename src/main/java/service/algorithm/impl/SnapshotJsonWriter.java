@@ -0,0 +1,130 @@
+package service.algorithm.impl;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import model.dto.snapshot.ChargingStationSnapshotDto;
+import model.dto.snapshot.ContainerSnapshotDto;
+import model.dto.snapshot.DeviceSnapshotDto;
+import model.dto.snapshot.FenceSnapshotDto;
+import model.dto.snapshot.PortSnapshotDto;
+import model.dto.snapshot.WorkInstructionSnapshotDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * 状态快照的流式 JSON 序列化
+ * 直接用 JsonGenerator 逐字段写出，不经反射与中间树；输出与 ObjectMapper 序列化快照的结果一致（null 字段省略）
+ */
+final class SnapshotJsonWriter {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private SnapshotJsonWriter() {
+    }
+
+    static byte[] write(PortSnapshotDto snapshot) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256 + 160 * (snapshot.getDevices().size()
+                + snapshot.getWorkInstructions().size() + snapshot.getContainers().size()));
+        try (JsonGenerator gen = FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            gen.writeNumberField("epoch", snapshot.getEpoch());
+            gen.writeNumberField("simTime", snapshot.getSimTime());
+            gen.writeArrayFieldStart("devices");
+            for (DeviceSnapshotDto d : snapshot.getDevices()) {
+                gen.writeStartObject();
+                string(gen, "id", d.getId());
+                string(gen, "type", d.getType() != null ? d.getType().name() : null);
+                string(gen, "state", d.getState() != null ? d.getState().name() : null);
+                number(gen, "posX", d.getPosX());
+                number(gen, "posY", d.getPosY());
+                number(gen, "powerLevel", d.getPowerLevel());
+                if (d.getNeedCharge() != null) {
+                    gen.writeBooleanField("needCharge", d.getNeedCharge());
+                }
+                string(gen, "currWiRefNo", d.getCurrWiRefNo());
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeArrayFieldStart("fences");
+            for (FenceSnapshotDto f : snapshot.getFences()) {
+                gen.writeStartObject();
+                string(gen, "nodeId", f.getNodeId());
+                string(gen, "blockCode", f.getBlockCode());
+                number(gen, "posX", f.getPosX());
+                number(gen, "posY", f.getPosY());
+                number(gen, "radius", f.getRadius());
+                number(gen, "speedLimit", f.getSpeedLimit());
+                string(gen, "status", f.getStatus());
+                strings(gen, "waitingTrucks", f.getWaitingTrucks());
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeArrayFieldStart("chargingStations");
+            for (ChargingStationSnapshotDto s : snapshot.getChargingStations()) {
+                gen.writeStartObject();
+                string(gen, "stationCode", s.getStationCode());
+                string(gen, "status", s.getStatus());
+                number(gen, "posX", s.getPosX());
+                number(gen, "posY", s.getPosY());
+                string(gen, "truckId", s.getTruckId());
+                number(gen, "chargeRate", s.getChargeRate());
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeArrayFieldStart("workInstructions");
+            for (WorkInstructionSnapshotDto w : snapshot.getWorkInstructions()) {
+                gen.writeStartObject();
+                string(gen, "wiRefNo", w.getWiRefNo());
+                string(gen, "queueName", w.getQueueName());
+                string(gen, "containerId", w.getContainerId());
+                string(gen, "moveKind", w.getMoveKind() != null ? w.getMoveKind().name() : null);
+                string(gen, "fromPos", w.getFromPos());
+                string(gen, "toPos", w.getToPos());
+                string(gen, "wiStatus", w.getWiStatus());
+                string(gen, "dispatchCheId", w.getDispatchCheId());
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeArrayFieldStart("containers");
+            for (ContainerSnapshotDto c : snapshot.getContainers()) {
+                gen.writeStartObject();
+                string(gen, "containerId", c.getContainerId());
+                string(gen, "sizeType", c.getSizeType());
+                string(gen, "currentPos", c.getCurrentPos());
+                string(gen, "status", c.getStatus());
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void string(JsonGenerator gen, String name, String value) throws IOException {
+        if (value != null) {
+            gen.writeStringField(name, value);
+        }
+    }
+
+    private static void number(JsonGenerator gen, String name, Double value) throws IOException {
+        if (value != null) {
+            gen.writeNumberField(name, value);
+        }
+    }
+
+    private static void strings(JsonGenerator gen, String name, List<String> values) throws IOException {
+        if (values != null) {
+            gen.writeArrayFieldStart(name);
+            for (String v : values) {
+                gen.writeString(v);
+            }
+            gen.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,685 @@
+package service.algorithm.impl;
+
+import com.fasterxml.jackson.core.SerializableString;
+import common.consts.DeviceStateEnum;
+import common.consts.StateEntityEnum;
+import common.exception.BusinessException;
+import model.bo.ChangeTracker;
+import model.bo.GlobalContext;
+import model.dto.request.StateQueryReq;
+import model.dto.response.DevicePositionsResp;
+import model.dto.response.StateQueryResp;
+import model.dto.response.TrajectoryResp;
+import model.dto.snapshot.ChargingStationSnapshotDto;
+import model.dto.snapshot.ContainerSnapshotDto;
+import model.dto.snapshot.DeviceSnapshotDto;
+import model.dto.snapshot.DeviceTrajectoryDto;
+import model.dto.snapshot.FenceSnapshotDto;
+import model.dto.snapshot.PortSnapshotDto;
+import model.dto.snapshot.StateDeltaDto;
+import model.dto.snapshot.WorkInstructionSnapshotDto;
+import model.entity.BaseDevice;
+import model.entity.ChargingStation;
+import model.entity.Container;
+import model.entity.Fence;
+import model.entity.WorkInstruction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * 状态纪元发布器
+ * 仿真单写线程在每个指令/推进任务结束、结果返回调用方之前调用 {@link #publish}；
+ * 读接口通过 volatile 引用拿到最近一次发布的不可变快照，从不阻塞推进，也不会读到半个事件的状态。
+ * 每个实体记录其快照内容最后一次变化的纪元（脏标记版本）：发布时只为内容变化的实体重建快照，
+ * 未变化的沿用上一纪元的快照对象；{@link #since} 据此只返回指定纪元之后变化和删除的实体。
+ * 发布时只检查上下文 {@link ChangeTracker} 中登记过的实体，不遍历全部实体；
+ * 一类实体被整体改写（批量装载、场景重置等）时才全量扫描该类。
+ */
+@Component
+@Slf4j
+public class StateEpochPublisher {
+
+    // 每类实体保留的删除记录上限，更早的删除无法增量返回
+    private static final int MAX_REMOVALS = 4096;
+
+    // 轨迹采样上限：单台设备的采样数与单次请求的总点数
+    static final int MAX_TRAJECTORY_SAMPLES = 100_000;
+    static final int MAX_TRAJECTORY_POINTS = 2_000_000;
+
+    private final GlobalContext context;
+
+    private volatile Published current = Published.EMPTY;
+
+    // 上次发布时的引擎状态版本，仅写线程访问
+    private long publishedVersion = -1L;
+
+    // 以下只在写线程访问
+    private final Table<BaseDevice, DeviceSnapshotDto> devices =
+            new Table<>(DeviceSnapshotDto::from, DeviceSnapshotDto::matches);
+    // 行驶中的设备（按设备ID），行驶表只由它们生成
+    private final Map<String, BaseDevice> movingDevices = new LinkedHashMap<>();
+    private MotionTable motion = MotionTable.EMPTY;
+    private boolean motionChanged;
+    private final Table<Fence, FenceSnapshotDto> fences =
+            new Table<>(FenceSnapshotDto::from, FenceSnapshotDto::matches);
+    private final Table<ChargingStation, ChargingStationSnapshotDto> stations =
+            new Table<>(ChargingStationSnapshotDto::from, ChargingStationSnapshotDto::matches);
+    private final Table<WorkInstruction, WorkInstructionSnapshotDto> workInstructions =
+            new Table<>(WorkInstructionSnapshotDto::from, WorkInstructionSnapshotDto::matches);
+    private final Table<Container, ContainerSnapshotDto> containers =
+            new Table<>(ContainerSnapshotDto::from, ContainerSnapshotDto::matches);
+
+    // 新纪元发布后在写线程上回调，只能做通知，不能阻塞
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    public StateEpochPublisher(GlobalContext context) {
+        this.context = context;
+    }
+
+    /**
+     * 引擎状态版本变化时构建并发布新纪元（仅写线程调用）
+     *
+     * @param stateVersion 引擎当前状态版本
+     */
+    public void publish(long stateVersion) {
+        if (stateVersion == publishedVersion) {
+            return;
+        }
+        long epoch = current.snapshot.getEpoch() + 1;
+
+        ChangeTracker changes = context.changeTracker();
+        List<String> dirtyDevices = changes.drain(StateEntityEnum.DEVICE);
+        if (dirtyDevices == null) {
+            //  集卡 (Truck)、岸桥 (QC)、龙门吊 (ASC)，同一ID只取第一张表中的设备
+            List<Map<String, ? extends BaseDevice>> maps = Arrays.asList(
+                    context.getTruckMap(), context.getQcMap(), context.getAscMap());
+            devices.rescan(maps, epoch);
+            movingDevices.clear();
+            for (Map<String, ? extends BaseDevice> map : maps) {
+                map.forEach((id, device) -> {
+                    if (device.getState() == DeviceStateEnum.MOVING) {
+                        movingDevices.putIfAbsent(id, device);
+                    }
+                });
+            }
+            motionChanged = true;
+        } else {
+            for (String id : dirtyDevices) {
+                BaseDevice device = context.getDevice(id);
+                devices.refresh(id, device, epoch);
+                if (device != null && device.getState() == DeviceStateEnum.MOVING) {
+                    movingDevices.put(id, device);
+                } else {
+                    movingDevices.remove(id);
+                }
+                motionChanged = true;
+            }
+        }
+        refresh(fences, changes, StateEntityEnum.FENCE, context.getFenceMap(), epoch);
+        refresh(stations, changes, StateEntityEnum.CHARGING_STATION, context.getChargingStationMap(), epoch);
+        refresh(workInstructions, changes, StateEntityEnum.WORK_INSTRUCTION, context.getWorkInstructionMap(), epoch);
+        refresh(containers, changes, StateEntityEnum.CONTAINER, context.getContainerMap(), epoch);
+
+        if (motionChanged) {
+            MotionTable.Builder builder = new MotionTable.Builder(
+                    context.getPhysicsConfig() != null ? context.getPhysicsConfig().getArrivalThreshold() : 0.0);
+            movingDevices.values().forEach(builder::add);
+            motion = builder.build();
+            motionChanged = false;
+        }
+
+        PortSnapshotDto snapshot = new PortSnapshotDto();
+        snapshot.setEpoch(epoch);
+        snapshot.setSimTime(context.getSimTime());
+        Published published = new Published(snapshot,
+                devices.end(epoch), fences.end(epoch), stations.end(epoch),
+                workInstructions.end(epoch), containers.end(epoch), motion);
+        snapshot.setDevices(published.devices.dtos);
+        snapshot.setFences(published.fences.dtos);
+        snapshot.setChargingStations(published.stations.dtos);
+        snapshot.setWorkInstructions(published.workInstructions.dtos);
+        snapshot.setContainers(published.containers.dtos);
+        publishedVersion = stateVersion;
+        current = published;
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.error("纪元发布回调失败", e);
+            }
+        }
+    }
+
+    /**
+     * 注册新纪元发布回调（在写线程上执行，须立即返回）
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 最近一次发布的快照（任意线程，无锁）
+     * 返回对象只读，调用方不得修改
+     */
+    public PortSnapshotDto current() {
+        return current.snapshot;
+    }
+
+    /**
+     * 最近一次发布的快照的 JSON（任意线程）
+     * 每个纪元只在首次读取时序列化一次，并发读取同一纪元的请求共享同一份 UTF-8 字节，可直接作为原始 JSON 写出
+     */
+    public SerializableString currentJson() {
+        return current.json();
+    }
+
+    /**
+     * 最近一次发布的快照的列式编码（任意线程），与 {@link #currentJson} 一样每个纪元只编码一次
+     */
+    public ColumnarPayload currentColumnar() {
+        return current.columnar();
+    }
+
+    /**
+     * 最近一次发布的纪元相对 sinceEpoch 的增量（任意线程，无锁）
+     * 只含 sinceEpoch 之后内容变化的实体与删除的实体ID；
+     * sinceEpoch 早于保留的删除记录或晚于当前纪元时返回全量状态 (full = true)
+     */
+    public StateDeltaDto since(long sinceEpoch) {
+        Published p = current;
+        StateDeltaDto delta = new StateDeltaDto();
+        delta.setEpoch(p.snapshot.getEpoch());
+        delta.setSimTime(p.snapshot.getSimTime());
+        delta.setSinceEpoch(sinceEpoch);
+        boolean full = sinceEpoch < p.floor() || sinceEpoch > p.snapshot.getEpoch();
+        delta.setFull(full);
+        long from = full ? Long.MIN_VALUE : sinceEpoch;
+        p.devices.collect(from, delta.getDevices(), full ? null : delta.getRemovedDeviceIds());
+        p.fences.collect(from, delta.getFences(), full ? null : delta.getRemovedFenceIds());
+        p.stations.collect(from, delta.getChargingStations(), full ? null : delta.getRemovedStationCodes());
+        p.workInstructions.collect(from, delta.getWorkInstructions(), full ? null : delta.getRemovedWiRefNos());
+        p.containers.collect(from, delta.getContainers(), full ? null : delta.getRemovedContainerIds());
+        return delta;
+    }
+
+    /**
+     * 在最近一次发布的纪元上执行状态查询（任意线程，无锁）
+     * 排序与等值索引按纪元在首次查询时构建，同一纪元的翻页与重复查询直接复用
+     */
+    public StateQueryResp query(StateQueryReq req) {
+        if (req == null || req.getEntity() == null) {
+            throw new BusinessException("查询实体类型不能为空");
+        }
+        Published p = current;
+        StateQueryResp resp = new StateQueryResp();
+        resp.setEpoch(p.snapshot.getEpoch());
+        resp.setSimTime(p.snapshot.getSimTime());
+        resp.setEntity(req.getEntity());
+        switch (req.getEntity()) {
+            case DEVICE:
+                StateQueryExecutor.execute(p.devices, StateQueryExecutor.DEVICE, req, resp);
+                break;
+            case FENCE:
+                StateQueryExecutor.execute(p.fences, StateQueryExecutor.FENCE, req, resp);
+                break;
+            case CHARGING_STATION:
+                StateQueryExecutor.execute(p.stations, StateQueryExecutor.CHARGING_STATION, req, resp);
+                break;
+            case WORK_INSTRUCTION:
+                StateQueryExecutor.execute(p.workInstructions, StateQueryExecutor.WORK_INSTRUCTION, req, resp);
+                break;
+            default:
+                StateQueryExecutor.execute(p.containers, StateQueryExecutor.CONTAINER, req, resp);
+                break;
+        }
+        return resp;
+    }
+
+    /**
+     * 最近一次发布的纪元中全部行驶中设备在 time 时刻的插值位置（任意线程，无锁）
+     * 按该纪元的行驶线段计算，time 晚于下一个事件时为外推；为 null 时取纪元的仿真时间
+     */
+    public DevicePositionsResp movingPositions(Long time) {
+        Published p = current;
+        MotionTable motion = p.motion;
+        DevicePositionsResp resp = new DevicePositionsResp();
+        resp.setEpoch(p.snapshot.getEpoch());
+        resp.setSimTime(p.snapshot.getSimTime());
+        resp.setTime(time != null ? time : p.snapshot.getSimTime());
+        resp.setIds(Arrays.asList(motion.ids));
+        double[] x = new double[motion.count];
+        double[] y = new double[motion.count];
+        motion.positionsAt(resp.getTime(), 0, motion.count, x, y, 0);
+        resp.setPosX(x);
+        resp.setPosY(y);
+        return resp;
+    }
+
+    /**
+     * 指定设备在 [from, to] 内每隔 intervalMs 的位置采样（任意线程，无锁）
+     * 行驶中的设备按最近一次发布的纪元的行驶线段插值，其他设备取快照坐标
+     */
+    public TrajectoryResp trajectories(List<String> deviceIds, long from, long to, long intervalMs) {
+        if (deviceIds == null || deviceIds.isEmpty()) {
+            throw new BusinessException("设备ID不能为空");
+        }
+        if (intervalMs <= 0 || to < from) {
+            throw new BusinessException("采样间隔必须为正数且结束时间不早于开始时间");
+        }
+        long samples = (to - from) / intervalMs + 1;
+        if (samples > MAX_TRAJECTORY_SAMPLES || samples * deviceIds.size() > MAX_TRAJECTORY_POINTS) {
+            throw new BusinessException("采样点过多: " + deviceIds.size() + " 台设备 × " + samples
+                    + " 个时刻，单台上限 " + MAX_TRAJECTORY_SAMPLES + "，合计上限 " + MAX_TRAJECTORY_POINTS);
+        }
+        Published p = current;
+        IdOrder order = p.devices.idOrder(DeviceSnapshotDto::getId);
+        TrajectoryResp resp = new TrajectoryResp();
+        resp.setEpoch(p.snapshot.getEpoch());
+        resp.setSimTime(p.snapshot.getSimTime());
+        resp.setFrom(from);
+        resp.setIntervalMs(intervalMs);
+        resp.setSampleCount((int) samples);
+        for (String id : deviceIds) {
+            DeviceTrajectoryDto dto = new DeviceTrajectoryDto();
+            dto.setId(id);
+            double[] x = new double[(int) samples];
+            double[] y = new double[(int) samples];
+            int row = p.motion.rowOf(id);
+            if (row >= 0) {
+                dto.setMoving(true);
+                p.motion.sample(row, from, intervalMs, (int) samples, x, y);
+            } else {
+                int rank = Arrays.binarySearch(order.ids, id, StateEpochPublisher::compareIds);
+                if (rank < 0) {
+                    throw new BusinessException("设备不存在: " + id);
+                }
+                DeviceSnapshotDto device = p.devices.dtos.get(order.rows[rank]);
+                Arrays.fill(x, device.getPosX() != null ? device.getPosX() : Double.NaN);
+                Arrays.fill(y, device.getPosY() != null ? device.getPosY() : Double.NaN);
+            }
+            dto.setPosX(x);
+            dto.setPosY(y);
+            resp.getDevices().add(dto);
+        }
+        return resp;
+    }
+
+    // 只刷新登记过变化的实体；整类变化时全量扫描
+    private static <E, D> void refresh(Table<E, D> table, ChangeTracker changes, StateEntityEnum kind,
+                                       Map<String, ? extends E> map, long epoch) {
+        List<String> dirty = changes.drain(kind);
+        if (dirty == null) {
+            table.rescan(Collections.singletonList(map), epoch);
+            return;
+        }
+        for (String id : dirty) {
+            table.refresh(id, map.get(id), epoch);
+        }
+    }
+
+    /**
+     * 一个纪元的只读发布内容：快照与各实体的变化版本
+     */
+    private static final class Published {
+        static final Published EMPTY = new Published(emptySnapshot(),
+                Frozen.empty(), Frozen.empty(), Frozen.empty(), Frozen.empty(), Frozen.empty(), MotionTable.EMPTY);
+
+        final PortSnapshotDto snapshot;
+        final Frozen<DeviceSnapshotDto> devices;
+        final Frozen<FenceSnapshotDto> fences;
+        final Frozen<ChargingStationSnapshotDto> stations;
+        final Frozen<WorkInstructionSnapshotDto> workInstructions;
+        final Frozen<ContainerSnapshotDto> containers;
+        final MotionTable motion;
+        private volatile RawJson json;
+        private volatile ColumnarPayload columnar;
+
+        Published(PortSnapshotDto snapshot, Frozen<DeviceSnapshotDto> devices, Frozen<FenceSnapshotDto> fences,
+                  Frozen<ChargingStationSnapshotDto> stations, Frozen<WorkInstructionSnapshotDto> workInstructions,
+                  Frozen<ContainerSnapshotDto> containers, MotionTable motion) {
+            this.snapshot = snapshot;
+            this.devices = devices;
+            this.fences = fences;
+            this.stations = stations;
+            this.workInstructions = workInstructions;
+            this.containers = containers;
+            this.motion = motion;
+        }
+
+        RawJson json() {
+            RawJson j = json;
+            if (j == null) {
+                synchronized (this) {
+                    j = json;
+                    if (j == null) {
+                        j = new RawJson(SnapshotJsonWriter.write(snapshot));
+                        json = j;
+                    }
+                }
+            }
+            return j;
+        }
+
+        ColumnarPayload columnar() {
+            ColumnarPayload c = columnar;
+            if (c == null) {
+                synchronized (this) {
+                    c = columnar;
+                    if (c == null) {
+                        c = new ColumnarPayload(ColumnarWriter.snapshot(snapshot));
+                        columnar = c;
+                    }
+                }
+            }
+            return c;
+        }
+
+        // 能增量返回的最早纪元
+        long floor() {
+            return Math.max(Math.max(Math.max(devices.floor, fences.floor), Math.max(stations.floor, workInstructions.floor)),
+                    containers.floor);
+        }
+    }
+
+    /**
+     * 一类实体在某纪元的快照列表、各快照的变化版本（与列表同序）与删除记录（按版本递增）
+     * 查询用的ID排序与字段等值索引在首次查询时构建，同一纪元的后续查询直接复用
+     */
+    static final class Frozen<D> {
+        final List<D> dtos;
+        final long[] versions;
+        final String[] removedIds;
+        final long[] removedVersions;
+        final long floor;
+        private volatile IdOrder idOrder;
+        private final Map<String, Map<String, int[]>> indexes = new ConcurrentHashMap<>();
+
+        Frozen(List<D> dtos, long[] versions, String[] removedIds, long[] removedVersions, long floor) {
+            this.dtos = dtos;
+            this.versions = versions;
+            this.removedIds = removedIds;
+            this.removedVersions = removedVersions;
+            this.floor = floor;
+        }
+
+        static <D> Frozen<D> empty() {
+            return new Frozen<>(Collections.emptyList(), new long[0], new String[0], new long[0], 0L);
+        }
+
+        /**
+         * 按ID升序排列的行号与ID
+         */
+        IdOrder idOrder(Function<D, String> idOf) {
+            IdOrder order = idOrder;
+            if (order == null) {
+                Integer[] rows = new Integer[dtos.size()];
+                String[] ids = new String[rows.length];
+                for (int i = 0; i < rows.length; i++) {
+                    rows[i] = i;
+                    ids[i] = idOf.apply(dtos.get(i));
+                }
+                Arrays.sort(rows, (a, b) -> compareIds(ids[a], ids[b]));
+                order = new IdOrder(new int[rows.length], new String[rows.length]);
+                for (int rank = 0; rank < rows.length; rank++) {
+                    order.rows[rank] = rows[rank];
+                    order.ids[rank] = ids[rows[rank]];
+                }
+                idOrder = order;
+            }
+            return order;
+        }
+
+        /**
+         * 字段等值索引：字段值（字符串形式，null 为 null 键） → 按ID升序的排名
+         */
+        Map<String, int[]> index(String field, Function<D, String> idOf, Function<D, Object> getter) {
+            Map<String, int[]> index = indexes.get(field);
+            if (index == null) {
+                IdOrder order = idOrder(idOf);
+                Map<String, List<Integer>> groups = new HashMap<>();
+                for (int rank = 0; rank < order.rows.length; rank++) {
+                    Object value = getter.apply(dtos.get(order.rows[rank]));
+                    groups.computeIfAbsent(value != null ? String.valueOf(value) : null, k -> new ArrayList<>()).add(rank);
+                }
+                Map<String, int[]> built = new HashMap<>();
+                groups.forEach((k, ranks) -> built.put(k, ranks.stream().mapToInt(Integer::intValue).toArray()));
+                index = Collections.unmodifiableMap(built);
+                indexes.put(field, index);
+            }
+            return index;
+        }
+
+        void collect(long sinceEpoch, List<D> changed, List<String> removed) {
+            for (int i = 0; i < versions.length; i++) {
+                if (versions[i] > sinceEpoch) {
+                    changed.add(dtos.get(i));
+                }
+            }
+            if (removed != null) {
+                for (int i = removedVersions.length - 1; i >= 0 && removedVersions[i] > sinceEpoch; i--) {
+                    removed.add(removedIds[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按ID升序的行号 (rows) 与对应ID (ids)
+     */
+    static final class IdOrder {
+        final int[] rows;
+        final String[] ids;
+
+        IdOrder(int[] rows, String[] ids) {
+            this.rows = rows;
+            this.ids = ids;
+        }
+    }
+
+    // null ID 排在最前
+    static int compareIds(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return a.compareTo(b);
+    }
+
+    /**
+     * 一类实体的快照缓存（仅写线程）：实体ID → 上次发布的快照、其变化版本与所在行
+     * 行数组与上次发布的 Frozen 同序，实体增删改只修改对应的行（删除时用最后一行填补）；
+     * 本纪元没有任何变化时直接沿用上一份 Frozen（连同已建好的查询索引）。
+     */
+    private static final class Table<E, D> {
+        private final Function<E, D> builder;
+        private final BiPredicate<D, E> matcher;
+        private final Map<String, Slot<D>> slots = new HashMap<>();
+        // 删除记录在变化时整体复制，已发布的数组不再修改
+        private String[] removedIds = new String[0];
+        private long[] removedVersions = new long[0];
+        private long floor;
+
+        private String[] ids = new String[16];
+        private Object[] dtos = new Object[16];
+        private long[] versions = new long[16];
+        private int count;
+        private List<String> gone;
+        private boolean changed;
+        private Frozen<D> frozen = Frozen.empty();
+
+        Table(Function<E, D> builder, BiPredicate<D, E> matcher) {
+            this.builder = builder;
+            this.matcher = matcher;
+        }
+
+        /**
+         * 全量扫描：按表的遍历顺序重排全部行，同一ID只取第一次出现的实体，未出现的实体记为删除
+         */
+        void rescan(List<? extends Map<String, ? extends E>> maps, long epoch) {
+            count = 0;
+            for (Map<String, ? extends E> map : maps) {
+                for (Map.Entry<String, ? extends E> entry : map.entrySet()) {
+                    Slot<D> slot = slots.get(entry.getKey());
+                    if (slot == null) {
+                        slot = new Slot<>();
+                        slots.put(entry.getKey(), slot);
+                    } else if (slot.seen == epoch) {
+                        continue;
+                    }
+                    update(slot, entry.getValue(), epoch);
+                    slot.seen = epoch;
+                    slot.row = append(entry.getKey(), slot);
+                }
+            }
+            Iterator<Map.Entry<String, Slot<D>>> it = slots.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Slot<D>> entry = it.next();
+                if (entry.getValue().seen != epoch) {
+                    it.remove();
+                    removed(entry.getKey());
+                }
+            }
+            changed = true;
+        }
+
+        /**
+         * 刷新单个实体，实体为 null 表示已删除
+         */
+        void refresh(String id, E entity, long epoch) {
+            Slot<D> slot = slots.get(id);
+            if (entity == null) {
+                if (slot != null) {
+                    slots.remove(id);
+                    removeRow(slot.row);
+                    removed(id);
+                    changed = true;
+                }
+                return;
+            }
+            if (slot == null) {
+                slot = new Slot<>();
+                slots.put(id, slot);
+                update(slot, entity, epoch);
+                slot.row = append(id, slot);
+                changed = true;
+            } else if (update(slot, entity, epoch)) {
+                dtos[slot.row] = slot.dto;
+                versions[slot.row] = slot.version;
+                changed = true;
+            }
+        }
+
+        // 清理本纪元的删除记录，返回本纪元的只读内容
+        @SuppressWarnings("unchecked")
+        Frozen<D> end(long epoch) {
+            if (gone != null) {
+                recordRemovals(gone, epoch);
+                gone = null;
+            }
+            if (changed) {
+                List<D> list = (List<D>) Arrays.asList(Arrays.copyOf(dtos, count));
+                frozen = new Frozen<>(Collections.unmodifiableList(list), Arrays.copyOf(versions, count),
+                        removedIds, removedVersions, floor);
+                changed = false;
+            }
+            return frozen;
+        }
+
+        // 快照与实体不一致时重建，返回是否重建
+        private boolean update(Slot<D> slot, E entity, long epoch) {
+            if (slot.dto != null && matcher.test(slot.dto, entity)) {
+                return false;
+            }
+            slot.dto = builder.apply(entity);
+            slot.version = epoch;
+            return true;
+        }
+
+        private int append(String id, Slot<D> slot) {
+            if (count == ids.length) {
+                int n = count << 1;
+                ids = Arrays.copyOf(ids, n);
+                dtos = Arrays.copyOf(dtos, n);
+                versions = Arrays.copyOf(versions, n);
+            }
+            ids[count] = id;
+            dtos[count] = slot.dto;
+            versions[count] = slot.version;
+            return count++;
+        }
+
+        private void removeRow(int row) {
+            int last = --count;
+            if (row != last) {
+                ids[row] = ids[last];
+                dtos[row] = dtos[last];
+                versions[row] = versions[last];
+                slots.get(ids[row]).row = row;
+            }
+            ids[last] = null;
+            dtos[last] = null;
+        }
+
+        private void removed(String id) {
+            if (gone == null) {
+                gone = new ArrayList<>();
+            }
+            gone.add(id);
+        }
+
+        private void recordRemovals(List<String> gone, long epoch) {
+            int total = removedIds.length + gone.size();
+            int drop = Math.max(0, total - MAX_REMOVALS);
+            if (drop > 0) {
+                // 丢弃最早的删除记录，早于被丢弃记录的纪元不能再增量查询
+                floor = drop <= removedVersions.length ? removedVersions[drop - 1] : epoch;
+            }
+            String[] ids = new String[total - drop];
+            long[] vers = new long[total - drop];
+            int n = 0;
+            for (int i = drop; i < removedIds.length; i++, n++) {
+                ids[n] = removedIds[i];
+                vers[n] = removedVersions[i];
+            }
+            for (int i = Math.max(0, drop - removedIds.length); i < gone.size(); i++, n++) {
+                ids[n] = gone.get(i);
+                vers[n] = epoch;
+            }
+            removedIds = ids;
+            removedVersions = vers;
+        }
+    }
+
+    private static final class Slot<D> {
+        D dto;
+        long version;
+        long seen;
+        int row;
+    }
+
+    private static PortSnapshotDto emptySnapshot() {
+        PortSnapshotDto snapshot = new PortSnapshotDto();
+        snapshot.setDevices(Collections.emptyList());
+        snapshot.setFences(Collections.emptyList());
+        snapshot.setChargingStations(Collections.emptyList());
+        snapshot.setWorkInstructions(Collections.emptyList());
+        snapshot.setContainers(Collections.emptyList());
+        return snapshot;
+    }
+}
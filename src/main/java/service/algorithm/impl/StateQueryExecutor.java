@@ -0,0 +1,334 @@
+package service.algorithm.impl;
+
+import common.consts.FilterOpEnum;
+import common.exception.BusinessException;
+import model.dto.request.StateFilter;
+import model.dto.request.StateQueryReq;
+import model.dto.response.StateQueryResp;
+import model.dto.snapshot.ChargingStationSnapshotDto;
+import model.dto.snapshot.ContainerSnapshotDto;
+import model.dto.snapshot.DeviceSnapshotDto;
+import model.dto.snapshot.FenceSnapshotDto;
+import model.dto.snapshot.WorkInstructionSnapshotDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 在一个已发布纪元上执行状态查询（过滤、投影、按ID分页）
+ * 结果按实体ID升序；非数值字段的 EQ/IN 条件走纪元内的等值索引，取候选最少的一个驱动，
+ * 其余条件逐行校验，没有可用索引时按ID顺序扫描。数值字段按 double 比较，其他字段按字符串（枚举为名称）比较。
+ */
+final class StateQueryExecutor {
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 10000;
+
+    static final Schema<DeviceSnapshotDto> DEVICE = new Schema<DeviceSnapshotDto>(DeviceSnapshotDto::getId)
+            .field("id", DeviceSnapshotDto::getId)
+            .field("type", DeviceSnapshotDto::getType)
+            .field("state", DeviceSnapshotDto::getState)
+            .number("posX", DeviceSnapshotDto::getPosX)
+            .number("posY", DeviceSnapshotDto::getPosY)
+            .number("powerLevel", DeviceSnapshotDto::getPowerLevel)
+            .field("needCharge", DeviceSnapshotDto::getNeedCharge)
+            .field("currWiRefNo", DeviceSnapshotDto::getCurrWiRefNo);
+
+    static final Schema<FenceSnapshotDto> FENCE = new Schema<FenceSnapshotDto>(FenceSnapshotDto::getNodeId)
+            .field("nodeId", FenceSnapshotDto::getNodeId)
+            .field("blockCode", FenceSnapshotDto::getBlockCode)
+            .number("posX", FenceSnapshotDto::getPosX)
+            .number("posY", FenceSnapshotDto::getPosY)
+            .number("radius", FenceSnapshotDto::getRadius)
+            .number("speedLimit", FenceSnapshotDto::getSpeedLimit)
+            .field("status", FenceSnapshotDto::getStatus)
+            .list("waitingTrucks", FenceSnapshotDto::getWaitingTrucks);
+
+    static final Schema<ChargingStationSnapshotDto> CHARGING_STATION =
+            new Schema<ChargingStationSnapshotDto>(ChargingStationSnapshotDto::getStationCode)
+                    .field("stationCode", ChargingStationSnapshotDto::getStationCode)
+                    .field("status", ChargingStationSnapshotDto::getStatus)
+                    .number("posX", ChargingStationSnapshotDto::getPosX)
+                    .number("posY", ChargingStationSnapshotDto::getPosY)
+                    .field("truckId", ChargingStationSnapshotDto::getTruckId)
+                    .number("chargeRate", ChargingStationSnapshotDto::getChargeRate);
+
+    static final Schema<WorkInstructionSnapshotDto> WORK_INSTRUCTION =
+            new Schema<WorkInstructionSnapshotDto>(WorkInstructionSnapshotDto::getWiRefNo)
+                    .field("wiRefNo", WorkInstructionSnapshotDto::getWiRefNo)
+                    .field("queueName", WorkInstructionSnapshotDto::getQueueName)
+                    .field("containerId", WorkInstructionSnapshotDto::getContainerId)
+                    .field("moveKind", WorkInstructionSnapshotDto::getMoveKind)
+                    .field("fromPos", WorkInstructionSnapshotDto::getFromPos)
+                    .field("toPos", WorkInstructionSnapshotDto::getToPos)
+                    .field("wiStatus", WorkInstructionSnapshotDto::getWiStatus)
+                    .field("dispatchCheId", WorkInstructionSnapshotDto::getDispatchCheId);
+
+    static final Schema<ContainerSnapshotDto> CONTAINER =
+            new Schema<ContainerSnapshotDto>(ContainerSnapshotDto::getContainerId)
+                    .field("containerId", ContainerSnapshotDto::getContainerId)
+                    .field("sizeType", ContainerSnapshotDto::getSizeType)
+                    .field("currentPos", ContainerSnapshotDto::getCurrentPos)
+                    .field("status", ContainerSnapshotDto::getStatus);
+
+    private StateQueryExecutor() {
+    }
+
+    /**
+     * 执行查询，resp 中的纪元与仿真时间由调用方填写
+     */
+    static <D> void execute(StateEpochPublisher.Frozen<D> table, Schema<D> schema, StateQueryReq req, StateQueryResp resp) {
+        int limit = req.getLimit() != null ? req.getLimit() : DEFAULT_LIMIT;
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new BusinessException("查询条数必须在 1 到 " + MAX_LIMIT + " 之间: " + limit);
+        }
+        List<Condition<D>> conditions = new ArrayList<>();
+        if (req.getFilters() != null) {
+            for (StateFilter filter : req.getFilters()) {
+                conditions.add(new Condition<>(schema, filter));
+            }
+        }
+        List<String> fields = req.getFields() != null && !req.getFields().isEmpty() ? req.getFields() : null;
+        if (fields != null) {
+            for (String field : fields) {
+                schema.getter(field);
+            }
+        }
+
+        StateEpochPublisher.IdOrder order = table.idOrder(schema.idOf);
+        int[] candidates = null;
+        for (Condition<D> condition : conditions) {
+            int[] ranks = condition.candidates(table, schema);
+            if (ranks != null && (candidates == null || ranks.length < candidates.length)) {
+                candidates = ranks;
+            }
+        }
+        int startRank = req.getCursor() != null ? upperBound(order.ids, req.getCursor()) : 0;
+        int n = candidates != null ? candidates.length : order.rows.length;
+        int i = candidates != null ? lowerBound(candidates, startRank) : startRank;
+
+        String lastId = null;
+        for (; i < n; i++) {
+            int rank = candidates != null ? candidates[i] : i;
+            D dto = table.dtos.get(order.rows[rank]);
+            if (!matchesAll(conditions, dto)) {
+                continue;
+            }
+            if (resp.getItems().size() == limit) {
+                resp.setNextCursor(lastId);
+                break;
+            }
+            resp.getItems().add(fields != null ? project(schema, fields, dto) : dto);
+            lastId = order.ids[rank];
+        }
+    }
+
+    private static <D> boolean matchesAll(List<Condition<D>> conditions, D dto) {
+        for (Condition<D> condition : conditions) {
+            if (!condition.test(dto)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <D> Map<String, Object> project(Schema<D> schema, List<String> fields, D dto) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        for (String field : fields) {
+            item.put(field, schema.getter(field).apply(dto));
+        }
+        return item;
+    }
+
+    // 第一个大于 id 的排名
+    private static int upperBound(String[] ids, String id) {
+        int lo = 0;
+        int hi = ids.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (StateEpochPublisher.compareIds(ids[mid], id) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // 第一个不小于 rank 的位置
+    private static int lowerBound(int[] ranks, int rank) {
+        int lo = 0;
+        int hi = ranks.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ranks[mid] < rank) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * 一类快照可查询的字段：字段名 → 取值函数，以及哪些字段按数值比较
+     */
+    static final class Schema<D> {
+        final Function<D, String> idOf;
+        private final Map<String, Function<D, Object>> getters = new LinkedHashMap<>();
+        private final Set<String> numeric = new HashSet<>();
+        private final Set<String> lists = new HashSet<>();
+
+        Schema(Function<D, String> idOf) {
+            this.idOf = idOf;
+        }
+
+        Schema<D> field(String name, Function<D, ?> getter) {
+            getters.put(name, getter::apply);
+            return this;
+        }
+
+        Schema<D> number(String name, Function<D, ? extends Number> getter) {
+            numeric.add(name);
+            return field(name, getter);
+        }
+
+        // 列表字段只能投影，不能过滤
+        Schema<D> list(String name, Function<D, ? extends List<?>> getter) {
+            lists.add(name);
+            return field(name, getter);
+        }
+
+        Function<D, Object> getter(String field) {
+            Function<D, Object> getter = getters.get(field);
+            if (getter == null) {
+                throw new BusinessException("未知的查询字段: " + field + "，可用字段: " + getters.keySet());
+            }
+            return getter;
+        }
+    }
+
+    /**
+     * 预处理后的过滤条件
+     */
+    private static final class Condition<D> {
+        private final String field;
+        private final FilterOpEnum op;
+        private final Function<D, Object> getter;
+        private final boolean numeric;
+        private final Object value;          // 数值字段为 Double，其他为 String，可为 null
+        private final List<Object> values;   // IN 的候选值，元素同上
+
+        Condition(Schema<D> schema, StateFilter filter) {
+            this.field = filter.getField();
+            this.getter = schema.getter(field);
+            if (schema.lists.contains(field)) {
+                throw new BusinessException("列表字段不支持过滤: " + field);
+            }
+            this.op = filter.getOp() != null ? filter.getOp() : FilterOpEnum.EQ;
+            this.numeric = schema.numeric.contains(field);
+            if (op == FilterOpEnum.IN) {
+                if (filter.getValues() == null) {
+                    throw new BusinessException("IN 条件缺少 values: " + field);
+                }
+                List<Object> normalized = new ArrayList<>();
+                for (Object v : filter.getValues()) {
+                    normalized.add(normalize(v));
+                }
+                this.values = normalized;
+                this.value = null;
+            } else {
+                this.value = normalize(filter.getValue());
+                this.values = Collections.emptyList();
+                if (value == null && op != FilterOpEnum.EQ && op != FilterOpEnum.NE) {
+                    throw new BusinessException(op + " 条件缺少 value: " + field);
+                }
+            }
+        }
+
+        private Object normalize(Object v) {
+            if (v == null) {
+                return null;
+            }
+            if (!numeric) {
+                return String.valueOf(v);
+            }
+            if (v instanceof Number) {
+                return ((Number) v).doubleValue();
+            }
+            try {
+                return Double.parseDouble(String.valueOf(v));
+            } catch (NumberFormatException e) {
+                throw new BusinessException("数值字段 " + field + " 的比较值不是数字: " + v);
+            }
+        }
+
+        /**
+         * 走等值索引得到的候选排名（升序），不能走索引时返回 null
+         */
+        int[] candidates(StateEpochPublisher.Frozen<D> table, Schema<D> schema) {
+            if (numeric || (op != FilterOpEnum.EQ && op != FilterOpEnum.IN)) {
+                return null;
+            }
+            Map<String, int[]> index = table.index(field, schema.idOf, getter);
+            if (op == FilterOpEnum.EQ) {
+                int[] ranks = index.get((String) value);
+                return ranks != null ? ranks : new int[0];
+            }
+            int[][] parts = new int[values.size()][];
+            int total = 0;
+            Set<Object> distinct = new HashSet<>();
+            for (int i = 0; i < parts.length; i++) {
+                Object v = values.get(i);
+                int[] ranks = distinct.add(v) ? index.get((String) v) : null;
+                parts[i] = ranks != null ? ranks : new int[0];
+                total += parts[i].length;
+            }
+            int[] merged = new int[total];
+            int pos = 0;
+            for (int[] part : parts) {
+                System.arraycopy(part, 0, merged, pos, part.length);
+                pos += part.length;
+            }
+            Arrays.sort(merged);
+            return merged;
+        }
+
+        boolean test(D dto) {
+            Object raw = getter.apply(dto);
+            Object actual = raw == null ? null
+                    : numeric ? (Object) ((Number) raw).doubleValue() : String.valueOf(raw);
+            switch (op) {
+                case EQ:
+                    return value == null ? actual == null : value.equals(actual);
+                case NE:
+                    return value == null ? actual != null : !value.equals(actual);
+                case IN:
+                    return values.contains(actual);
+                default:
+                    if (actual == null) {
+                        return false;
+                    }
+                    int c = numeric ? Double.compare((Double) actual, (Double) value)
+                            : ((String) actual).compareTo((String) value);
+                    switch (op) {
+                        case LT:
+                            return c < 0;
+                        case LE:
+                            return c <= 0;
+                        case GT:
+                            return c > 0;
+                        default:
+                            return c >= 0;
+                    }
+            }
+        }
+    }
+}
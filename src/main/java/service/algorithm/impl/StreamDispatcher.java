@@ -0,0 +1,49 @@
+package service.algorithm.impl;
+
+import common.config.SimEngineConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 推送线程池，所有会话的订阅者共享
+ * 序列化与网络写入都在这里进行，慢连接只占用推送线程，不影响仿真单写线程
+ */
+@Component
+@Slf4j
+public class StreamDispatcher implements DisposableBean {
+
+    private final ExecutorService executor;
+
+    public StreamDispatcher(SimEngineConfig engineConfig) {
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, engineConfig.getStreamThreads()), r -> {
+            Thread t = new Thread(r, "sim-stream-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 提交推送任务，线程池已关闭时忽略
+     */
+    void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.debug("推送线程池已关闭，忽略推送任务");
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
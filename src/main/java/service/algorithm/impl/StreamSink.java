@@ -0,0 +1,22 @@
+package service.algorithm.impl;
+
+import java.io.IOException;
+
+/**
+ * 推送订阅的输出端（SSE 连接等），由推送线程调用，允许阻塞
+ */
+public interface StreamSink {
+
+    /**
+     * 发送一条消息
+     *
+     * @param name 消息名（events / delta / gap）
+     * @throws IOException 连接已断开
+     */
+    void send(String name, Object data) throws IOException;
+
+    /**
+     * 服务端结束订阅
+     */
+    void complete();
+}
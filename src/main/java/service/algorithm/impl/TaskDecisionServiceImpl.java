@@ -19,7 +19,11 @@ import service.algorithm.TaskDecisionService;
 @Service
 public class TaskDecisionServiceImpl implements TaskDecisionService {
 
-    private final GlobalContext context = GlobalContext.getInstance();
+    private final GlobalContext context;
+
+    public TaskDecisionServiceImpl(GlobalContext context) {
+        this.context = context;
+    }
 
     @Override
     public AssignTaskResp evaluateAndDecide(AssignTaskReq req) {
@@ -0,0 +1,297 @@
+package engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import common.Result;
+import common.consts.BizTypeEnum;
+import common.consts.DeviceStateEnum;
+import common.consts.DeviceTypeEnum;
+import common.consts.WiStatusEnum;
+import common.util.BizTypeUtil;
+import controller.SimStateController;
+import engine.session.SimSessionManager;
+import model.bo.GlobalContext;
+import model.entity.*;
+import model.dto.request.MoveCommandReq;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.context.WebApplicationContext;
+import service.algorithm.ExternalAlgorithmApi;
+import service.algorithm.impl.CheckpointService;
+import service.algorithm.impl.ColumnarCodec;
+import service.algorithm.impl.JournalReplayService;
+import service.algorithm.impl.SimulationErrorLog;
+import service.algorithm.impl.SimulationEventLog;
+import service.algorithm.impl.StateEpochPublisher;
+import service.algorithm.impl.StreamDispatcher;
+import service.algorithm.impl.StreamSink;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 仿真测试公共基类
+ * 各组件的测试类共用同一个 Spring 上下文、默认会话的组件注入与实体构造方法
+ */
+@SpringBootTest(classes = application.SecsApplication.class)
+@TestPropertySource(properties = {
+        "spring.main.allow-bean-definition-overriding=true",
+        "sim.engine.checkpoint-dir=target/test-checkpoints",
+        "sim.engine.journal-dir=target/test-journals",
+        "sim.engine.event-log-dir=target/test-eventlog",
+        "sim.engine.event-log-segment-bytes=8192"
+})
+@Timeout(60) // 单测最长 60 秒，避免挂起
+abstract class AbstractSimulationTest {
+
+    @Autowired
+    protected SimulationEngine engine;
+
+    @Autowired
+    protected SimulationEventLog eventLog;
+
+    @Autowired
+    protected SimulationErrorLog errorLog;
+
+    @Autowired
+    protected ExternalAlgorithmApi algorithmApi;
+
+    @Autowired
+    protected SimCommandExecutor commandExecutor;
+
+    @Autowired
+    protected StreamDispatcher streamDispatcher;
+
+    @Autowired
+    protected StateEpochPublisher epochPublisher;
+
+    @Autowired
+    protected SimSessionManager sessionManager;
+
+    @Autowired
+    protected CheckpointService checkpointService;
+
+    @Autowired
+    protected JournalReplayService journalReplayService;
+
+    @Autowired
+    protected SimStateController stateController;
+
+    @Autowired
+    protected ObjectMapper objectMapper;
+
+    @Autowired
+    protected WebApplicationContext webApplicationContext;
+
+    protected GlobalContext context;
+
+    @BeforeEach
+    void setUp() {
+        context = GlobalContext.getInstance();
+        context.clearAll();
+        engine.reset();
+    }
+
+    protected model.dto.request.BatchCommandReq batchMove(String truckId, double x, double speed) {
+        MoveCommandReq move = new MoveCommandReq();
+        move.setTruckId(truckId);
+        move.setTargetPoint(new Point(x, 0.0));
+        move.setSpeed(speed);
+        model.dto.request.BatchCommandReq command = new model.dto.request.BatchCommandReq();
+        command.setType(common.consts.CommandTypeEnum.MOVE);
+        command.setTruckMove(move);
+        return command;
+    }
+
+    protected model.dto.request.StateFilter filter(String field, common.consts.FilterOpEnum op, Object value, Object... values) {
+        model.dto.request.StateFilter filter = new model.dto.request.StateFilter();
+        filter.setField(field);
+        filter.setOp(op);
+        filter.setValue(value);
+        filter.setValues(values.length > 0 ? java.util.Arrays.asList(values) : null);
+        return filter;
+    }
+
+    protected byte[] writeColumnar(Result result) throws java.io.IOException {
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        ColumnarCodec.write(out, result);
+        return out.toByteArray();
+    }
+
+    /**
+     * 记录推送消息的订阅端
+     */
+    protected static class RecordingSink implements StreamSink {
+        private final List<Object[]> messages = new java.util.concurrent.CopyOnWriteArrayList<>();
+        volatile boolean completed;
+
+        @Override
+        public void send(String name, Object data) {
+            messages.add(new Object[]{name, data});
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        <T> List<T> all(String name, Class<T> type) {
+            List<T> result = new java.util.ArrayList<>();
+            for (Object[] m : messages) {
+                if (name.equals(m[0])) {
+                    result.add(type.cast(m[1]));
+                }
+            }
+            return result;
+        }
+
+        // 等待满足条件的消息，推送在其他线程上异步进行
+        <T> T await(String name, Class<T> type, java.util.function.Predicate<T> condition) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (System.currentTimeMillis() < deadline) {
+                for (T data : all(name, type)) {
+                    if (condition.test(data)) {
+                        return data;
+                    }
+                }
+                Thread.sleep(10);
+            }
+            throw new AssertionError("未收到期望的推送消息: " + name);
+        }
+    }
+
+    protected void setWiDevicesByBizType(WorkInstruction wi, BizTypeEnum bizType) {
+        switch (bizType) {
+            case DSCH:
+                wi.setFetchCheId("QC01");
+                wi.setCarryCheId("TRUCK01");
+                wi.setPutCheId("ASC01");
+                wi.setFromPos("VESSEL001");
+                wi.setToPos("YARD001");
+                break;
+            case LOAD:
+                wi.setFetchCheId("ASC01");
+                wi.setCarryCheId("TRUCK01");
+                wi.setPutCheId("QC01");
+                wi.setFromPos("YARD001");
+                wi.setToPos("VESSEL001");
+                break;
+            case YARD_SHIFT:
+                wi.setFetchCheId("ASC01");
+                wi.setCarryCheId("TRUCK01");
+                wi.setPutCheId("ASC02");
+                wi.setFromPos("YARD001");
+                wi.setToPos("YARD002");
+                break;
+            case DLVR:
+                wi.setFetchCheId("ASC01");
+                wi.setCarryCheId("EXT_TRUCK01");
+                wi.setPutCheId(null);
+                wi.setFromPos("YARD001");
+                wi.setToPos("GATE01");
+                break;
+            case RECV:
+                wi.setFetchCheId(null);
+                wi.setCarryCheId("EXT_TRUCK01");
+                wi.setPutCheId("ASC01");
+                wi.setFromPos("GATE01");
+                wi.setToPos("YARD001");
+                break;
+            case DIRECT_IN:
+                wi.setFetchCheId(null);
+                wi.setCarryCheId("EXT_TRUCK01");
+                wi.setPutCheId("QC01");
+                wi.setFromPos("GATE01");
+                wi.setToPos("VESSEL001");
+                break;
+            case DIRECT_OUT:
+                wi.setFetchCheId("QC01");
+                wi.setCarryCheId("EXT_TRUCK01");
+                wi.setPutCheId(null);
+                wi.setFromPos("VESSEL001");
+                wi.setToPos("GATE01");
+                break;
+            default:
+                break;
+        }
+    }
+
+    // ========== 辅助方法 ==========
+
+    protected WorkInstruction createWorkInstruction(String wiRefNo, String containerId, BizTypeEnum bizType) {
+        WorkInstruction wi = new WorkInstruction();
+        wi.setWiRefNo(wiRefNo);
+        wi.setContainerId(containerId);
+        wi.setMoveKind(bizType);
+        wi.setFromPos("FROM_" + bizType.getCode());
+        wi.setToPos("TO_" + bizType.getCode());
+        wi.setWiStatus(WiStatusEnum.EXECUTING.getCode());
+        return wi;
+    }
+
+    protected Container createContainer(String containerId, String initialPos) {
+        Container container = new Container();
+        container.setContainerId(containerId);
+        container.setCurrentPos(initialPos);
+        return container;
+    }
+
+    protected QcDevice createQcDevice(String deviceId) {
+        QcDevice qc = new QcDevice();
+        qc.setId(deviceId);
+        qc.setType(DeviceTypeEnum.QC);
+        qc.setState(DeviceStateEnum.IDLE);
+        qc.setPosX(0.0);
+        qc.setPosY(0.0);
+        return qc;
+    }
+
+    protected AscDevice createAscDevice(String deviceId) {
+        AscDevice asc = new AscDevice();
+        asc.setId(deviceId);
+        asc.setType(DeviceTypeEnum.ASC);
+        asc.setState(DeviceStateEnum.IDLE);
+        asc.setPosX(0.0);
+        asc.setPosY(0.0);
+        return asc;
+    }
+
+    protected Truck createTruck(String deviceId) {
+        Truck truck = new Truck();
+        truck.setId(deviceId);
+        truck.setType(DeviceTypeEnum.ELECTRIC_TRUCK);
+        truck.setState(DeviceStateEnum.IDLE);
+        truck.setPosX(0.0);
+        truck.setPosY(0.0);
+        truck.setPowerLevel(100.0);
+        truck.setNeedCharge(false);
+        return truck;
+    }
+
+    protected BaseDevice createDeviceForBizType(BizTypeEnum bizType) {
+        String deviceId = "DEVICE_" + bizType.getCode();
+        if (BizTypeUtil.getRecommendedFetchDeviceType(bizType) == DeviceTypeEnum.QC) {
+            return createQcDevice(deviceId);
+        } else if (BizTypeUtil.getRecommendedFetchDeviceType(bizType) == DeviceTypeEnum.ASC) {
+            return createAscDevice(deviceId);
+        } else {
+            return createTruck(deviceId);
+        }
+    }
+
+    protected void addDeviceToContext(BaseDevice device) {
+        if (device instanceof QcDevice) {
+            QcDevice qc = (QcDevice) device;
+            context.getQcMap().put(device.getId(), qc);
+        } else if (device instanceof AscDevice) {
+            AscDevice asc = (AscDevice) device;
+            context.getAscMap().put(device.getId(), asc);
+        } else if (device instanceof Truck) {
+            Truck truck = (Truck) device;
+            context.getTruckMap().put(device.getId(), truck);
+        }
+    }
+}
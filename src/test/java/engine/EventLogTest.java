@@ -0,0 +1,321 @@
+package engine;
+
+import common.consts.EventTypeEnum;
+import common.consts.SubjectRoleEnum;
+import engine.session.SimSession;
+import model.entity.*;
+import model.dto.request.MoveCommandReq;
+import model.dto.request.StepBatchReq;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.algorithm.ExternalAlgorithmApi;
+import service.algorithm.impl.EventStreamHub;
+import service.algorithm.impl.SimulationEventLog;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 事件日志测试
+ * 分段存储、倒排索引查询与推送订阅
+ */
+@DisplayName("事件日志测试")
+class EventLogTest extends AbstractSimulationTest {
+
+    /**
+     * 测试1: 事件日志滚动写入多个段文件，按游标分页续读不漏不重，按时间定位与线性过滤一致，重新打开可接续
+     */
+    @Test
+    @DisplayName("测试分段持久化事件日志")
+    void testSegmentedEventLog() throws Exception {
+        SimSession session = sessionManager.create(null);
+        try {
+            SimulationEngine sessionEngine = session.getEngine();
+            SimulationEventLog log = session.getEventLog();
+            session.getCommandExecutor().run(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    SimEvent e = sessionEngine.scheduleEvent(SimEvent.NO_PARENT, i * 10L, EventTypeEnum.REPORT_IDLE, null);
+                    e.addSubject(SubjectRoleEnum.TRUCK, "集卡" + (i % 7));
+                }
+                sessionEngine.runUntil(20000);
+                // 重置后时钟回到 0，日志中的仿真时间不再单调
+                sessionEngine.reset();
+                session.getContext().setSimTime(0);
+                for (int i = 0; i < 50; i++) {
+                    sessionEngine.scheduleEvent(SimEvent.NO_PARENT, i * 100L, EventTypeEnum.REPORT_IDLE, null);
+                }
+                sessionEngine.runUntil(20000);
+            });
+            assertEquals(1050, log.getEndCursor());
+            long segmentFiles;
+            try (java.util.stream.Stream<java.nio.file.Path> files =
+                         java.nio.file.Files.list(java.nio.file.Paths.get("target/test-eventlog", session.getId()))) {
+                segmentFiles = files.count();
+            }
+            assertTrue(segmentFiles > 1, "应滚动到多个段文件");
+
+            // 游标分页续读
+            List<model.dto.snapshot.EventLogEntryDto> all = new java.util.ArrayList<>();
+            long cursor = 0;
+            while (true) {
+                model.dto.response.EventLogPageResp page = log.read(cursor, Long.MIN_VALUE, 97);
+                all.addAll(page.getEntries());
+                if (page.getEntries().isEmpty()) {
+                    assertEquals(1050, page.getNextCursor());
+                    break;
+                }
+                cursor = page.getNextCursor();
+            }
+            assertEquals(1050, all.size());
+            assertEquals(9990L, all.get(999).getSimTime());
+            assertEquals("集卡5", all.get(999).getSubject(SubjectRoleEnum.TRUCK));
+            for (int i = 1; i < all.size(); i++) {
+                assertTrue(all.get(i).getEventId() > all.get(i - 1).getEventId(), "按处理顺序且不重复");
+            }
+
+            // 按时间定位与线性过滤一致（含重置后时间回退的记录）
+            for (long since : new long[]{0, 5, 3000, 4900, 4901, 9990, 9991}) {
+                long expected = all.stream().filter(e -> e.getSimTime() >= since).count();
+                assertEquals(expected, log.listSince(since).size(), "since=" + since);
+            }
+            model.dto.response.EventLogPageResp tail = log.read(null, 9000, 10);
+            assertEquals(9000L, tail.getEntries().get(0).getSimTime());
+
+            // 重新打开同一目录接续已有段
+            SimulationEventLog reopened = new SimulationEventLog(
+                    java.nio.file.Paths.get("target/test-eventlog", session.getId()), 8192, 0, true);
+            try {
+                assertEquals(1050, reopened.getEndCursor());
+                assertEquals(all.get(500), reopened.read(500L, Long.MIN_VALUE, 1).getEntries().get(0));
+                assertEquals(log.listSince(4000).size(), reopened.listSince(4000).size());
+            } finally {
+                reopened.destroy();
+            }
+        } finally {
+            sessionManager.remove(session.getId());
+        }
+        assertFalse(java.nio.file.Files.exists(java.nio.file.Paths.get("target/test-eventlog", session.getId())),
+                "删除会话时删除其事件日志");
+    }
+
+    /**
+     * 测试2: 按类型/主体/父事件的倒排索引查询与线性过滤结果一致，因果链返回完整的祖先与后代
+     */
+    @Test
+    @DisplayName("测试事件日志倒排索引与因果链")
+    void testEventLogIndexes() {
+        SimSession session = sessionManager.create(null);
+        try {
+            SimulationEventLog log = session.getEventLog();
+            ExternalAlgorithmApi api = session.getAlgorithmApi();
+            session.getCommandExecutor().run(() -> {
+                session.getContext().getTruckMap().put("TRUCK01", createTruck("TRUCK01"));
+                session.getContext().getTruckMap().put("TRUCK02", createTruck("TRUCK02"));
+                for (int i = 0; i < 300; i++) {
+                    SimEvent e = session.getEngine().scheduleEvent(SimEvent.NO_PARENT, i * 20L, EventTypeEnum.REPORT_IDLE, null);
+                    e.addSubject(SubjectRoleEnum.TRUCK, i % 3 == 0 ? "TRUCK01" : "TRUCK09");
+                }
+            });
+            for (String truckId : new String[]{"TRUCK01", "TRUCK02"}) {
+                MoveCommandReq moveReq = new MoveCommandReq();
+                moveReq.setTruckId(truckId);
+                moveReq.setTargetPoint(new Point(25.0, 0.0));
+                moveReq.setSpeed(5.0);
+                api.moveDevice(moveReq);
+            }
+            StepBatchReq drain = new StepBatchReq();
+            drain.setUntilSimTime(10_000L);
+            api.stepBatch(drain);
+
+            List<model.dto.snapshot.EventLogEntryDto> all = log.listSince(0);
+            for (EventTypeEnum type : new EventTypeEnum[]{EventTypeEnum.REPORT_IDLE, EventTypeEnum.CMD_MOVE, EventTypeEnum.FETCH_DONE}) {
+                model.dto.request.EventLogQuery q = new model.dto.request.EventLogQuery();
+                q.setType(type);
+                q.setLimit(10_000);
+                assertEquals(all.stream().filter(e -> e.getType() == type).count(), log.query(q).getEntries().size(), type.name());
+            }
+
+            // 主体 + 时间 + 类型组合，分页续读
+            model.dto.request.EventLogQuery q = new model.dto.request.EventLogQuery();
+            q.setSubject("TRUCK01");
+            q.setSince(1000L);
+            q.setLimit(7);
+            List<model.dto.snapshot.EventLogEntryDto> paged = new java.util.ArrayList<>();
+            while (true) {
+                model.dto.response.EventLogPageResp page = log.query(q);
+                paged.addAll(page.getEntries());
+                if (page.getNextCursor() >= page.getEndCursor()) {
+                    break;
+                }
+                q.setCursor(page.getNextCursor());
+            }
+            List<model.dto.snapshot.EventLogEntryDto> expected = new java.util.ArrayList<>();
+            for (model.dto.snapshot.EventLogEntryDto e : all) {
+                if (e.getSimTime() >= 1000L && e.getSubjects().containsValue("TRUCK01")) {
+                    expected.add(e);
+                }
+            }
+            assertEquals(expected, paged);
+            q.setCursor(null);
+            q.setType(EventTypeEnum.REPORT_IDLE);
+            q.setLimit(10_000);
+            assertEquals(expected.stream().filter(e -> e.getType() == EventTypeEnum.REPORT_IDLE).count(),
+                    log.query(q).getEntries().size());
+
+            // 因果链：移动指令的全部后代 = 沿父事件能追溯到它的全部事件
+            model.dto.snapshot.EventLogEntryDto root = all.stream()
+                    .filter(e -> e.getType() == EventTypeEnum.CMD_MOVE && "TRUCK02".equals(e.getSubject(SubjectRoleEnum.TRUCK)))
+                    .findFirst().orElseThrow(AssertionError::new);
+            Map<Long, model.dto.snapshot.EventLogEntryDto> byId = new HashMap<>();
+            all.forEach(e -> byId.put(e.getEventId(), e));
+            List<model.dto.snapshot.EventLogEntryDto> lineage = new java.util.ArrayList<>();
+            for (model.dto.snapshot.EventLogEntryDto e : all) {
+                for (Long p = e.getParentEventId(); p != null; p = byId.get(p).getParentEventId()) {
+                    if (p == root.getEventId()) {
+                        lineage.add(e);
+                        break;
+                    }
+                }
+            }
+            assertFalse(lineage.isEmpty());
+            model.dto.response.EventChainResp chain = log.chain(root.getEventId(), 10_000);
+            assertEquals(root, chain.getEvent());
+            assertTrue(chain.getAncestors().isEmpty());
+            assertEquals(lineage, chain.getDescendants());
+
+            model.dto.snapshot.EventLogEntryDto leaf = lineage.get(lineage.size() - 1);
+            model.dto.response.EventChainResp leafChain = log.chain(leaf.getEventId(), 10_000);
+            assertEquals(root, leafChain.getAncestors().get(0));
+            assertEquals(leaf.getParentEventId().longValue(),
+                    leafChain.getAncestors().get(leafChain.getAncestors().size() - 1).getEventId());
+
+            model.dto.request.EventLogQuery children = new model.dto.request.EventLogQuery();
+            children.setParent(root.getEventId());
+            children.setLimit(10_000);
+            assertEquals(all.stream().filter(e -> Long.valueOf(root.getEventId()).equals(e.getParentEventId())).count(),
+                    log.query(children).getEntries().size());
+            assertThrows(common.exception.BusinessException.class, () -> log.chain(987_654_321L, 10));
+
+            // 重新打开时由段文件重建索引
+            SimulationEventLog reopened = new SimulationEventLog(
+                    java.nio.file.Paths.get("target/test-eventlog", session.getId()), 8192, 0, true);
+            try {
+                assertEquals(lineage, reopened.chain(root.getEventId(), 10_000).getDescendants());
+                assertEquals(expected.size(), reopened.query(q).getEntries().size() + expected.stream()
+                        .filter(e -> e.getType() != EventTypeEnum.REPORT_IDLE).count());
+            } finally {
+                reopened.destroy();
+            }
+        } finally {
+            sessionManager.remove(session.getId());
+        }
+    }
+
+    /**
+     * 测试3: 推送订阅按类型/设备/视口过滤事件与状态增量，积压超限时丢弃最旧事件并发 gap 通知
+     */
+    @Test
+    @DisplayName("测试事件与状态增量推送")
+    void testEventStreamPush() throws Exception {
+        SimSession session = sessionManager.create(null);
+        RecordingSink sink = new RecordingSink();
+        try {
+            ExternalAlgorithmApi api = session.getAlgorithmApi();
+            session.getCommandExecutor().run(() -> {
+                Truck far = createTruck("TRUCK03");
+                far.setPosX(500.0);
+                session.getContext().getTruckMap().put("TRUCK01", createTruck("TRUCK01"));
+                session.getContext().getTruckMap().put("TRUCK02", createTruck("TRUCK02"));
+                session.getContext().getTruckMap().put("TRUCK03", far);
+                // 直接装入实体不改变状态版本，重置后发布包含它们的纪元
+                session.getEngine().reset();
+            });
+
+            model.dto.request.StreamSubscribeReq req = new model.dto.request.StreamSubscribeReq();
+            req.setTypes(java.util.Arrays.asList(EventTypeEnum.CMD_MOVE, EventTypeEnum.ARRIVAL));
+            req.setDeviceIds(java.util.Arrays.asList("TRUCK01", "TRUCK03"));
+            req.setMinX(0.0);
+            req.setMaxX(100.0);
+            req.setMinY(-10.0);
+            req.setMaxY(10.0);
+            session.getStreamHub().subscribe(req, sink);
+            assertEquals(1, session.getStreamHub().getSubscriberCount());
+
+            // 订阅后先收到当前状态：只含匹配设备且在视口内的 TRUCK01
+            model.dto.snapshot.StateDeltaDto initial = sink.await("delta", model.dto.snapshot.StateDeltaDto.class, d -> true);
+            assertEquals(1, initial.getDevices().size());
+            assertEquals("TRUCK01", initial.getDevices().get(0).getId());
+
+            for (String truckId : new String[]{"TRUCK01", "TRUCK02"}) {
+                MoveCommandReq moveReq = new MoveCommandReq();
+                moveReq.setTruckId(truckId);
+                moveReq.setTargetPoint(new Point(25.0, 0.0));
+                moveReq.setSpeed(5.0);
+                api.moveDevice(moveReq);
+            }
+            StepBatchReq drain = new StepBatchReq();
+            drain.setUntilSimTime(10_000L);
+            api.stepBatch(drain);
+
+            sink.await("delta", model.dto.snapshot.StateDeltaDto.class, d -> d.getDevices().stream()
+                    .anyMatch(dev -> "TRUCK01".equals(dev.getId()) && Math.abs(dev.getPosX() - 25.0) < 1e-6));
+            sink.await("events", model.dto.response.EventLogPageResp.class, p -> p.getEntries().stream()
+                    .anyMatch(e -> e.getType() == EventTypeEnum.ARRIVAL));
+            long pushedEvents = 0;
+            for (model.dto.response.EventLogPageResp page : sink.all("events", model.dto.response.EventLogPageResp.class)) {
+                for (model.dto.snapshot.EventLogEntryDto e : page.getEntries()) {
+                    assertTrue(e.getType() == EventTypeEnum.CMD_MOVE || e.getType() == EventTypeEnum.ARRIVAL, e.getType().name());
+                    assertEquals("TRUCK01", e.getSubject(SubjectRoleEnum.TRUCK), "未订阅设备的事件不推送");
+                    pushedEvents++;
+                }
+            }
+            assertEquals(session.getEventLog().listSince(0).stream()
+                    .filter(e -> e.getType() == EventTypeEnum.CMD_MOVE || e.getType() == EventTypeEnum.ARRIVAL)
+                    .filter(e -> "TRUCK01".equals(e.getSubject(SubjectRoleEnum.TRUCK))).count(), pushedEvents);
+            for (model.dto.snapshot.StateDeltaDto delta : sink.all("delta", model.dto.snapshot.StateDeltaDto.class)) {
+                assertTrue(delta.getDevices().stream().noneMatch(d -> !"TRUCK01".equals(d.getId())), "视口外与未订阅的设备不推送");
+            }
+
+            // 移出视口后通知删除
+            MoveCommandReq away = new MoveCommandReq();
+            away.setTruckId("TRUCK01");
+            away.setTargetPoint(new Point(200.0, 0.0));
+            away.setSpeed(50.0);
+            api.moveDevice(away);
+            drain.setUntilSimTime(20_000L);
+            api.stepBatch(drain);
+            sink.await("delta", model.dto.snapshot.StateDeltaDto.class, d -> d.getRemovedDeviceIds().contains("TRUCK01"));
+            assertTrue(sink.all("gap", model.dto.snapshot.StreamGapDto.class).isEmpty());
+
+            // 积压上限为 5 的订阅从游标 0 开始：丢弃最旧事件并通知缺口，只推送最新 5 条
+            common.config.SimEngineConfig small = new common.config.SimEngineConfig();
+            small.setStreamMaxBacklog(5);
+            EventStreamHub hub = new EventStreamHub(
+                    session.getEventLog(), session.getEpochPublisher(), streamDispatcher, small);
+            RecordingSink lagging = new RecordingSink();
+            model.dto.request.StreamSubscribeReq fromStart = new model.dto.request.StreamSubscribeReq();
+            fromStart.setCursor(0L);
+            try {
+                long end = session.getEventLog().getEndCursor();
+                hub.subscribe(fromStart, lagging);
+                model.dto.snapshot.StreamGapDto gap = lagging.await("gap", model.dto.snapshot.StreamGapDto.class, g -> true);
+                assertEquals(0L, gap.getFromCursor());
+                assertEquals(end - 5, gap.getToCursor());
+                lagging.await("delta", model.dto.snapshot.StateDeltaDto.class, d -> d.getDevices().size() == 3);
+                assertEquals(5, lagging.all("events", model.dto.response.EventLogPageResp.class).stream()
+                        .mapToInt(p -> p.getEntries().size()).sum());
+            } finally {
+                hub.close();
+            }
+            assertTrue(lagging.completed);
+            assertEquals(0, hub.getSubscriberCount());
+        } finally {
+            sessionManager.remove(session.getId());
+        }
+        assertTrue(sink.completed, "删除会话时结束订阅");
+        assertEquals(0, session.getStreamHub().getSubscriberCount());
+    }
+}
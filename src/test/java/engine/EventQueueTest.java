@@ -0,0 +1,83 @@
+package engine;
+
+import common.consts.EventQueueTypeEnum;
+import common.consts.EventTypeEnum;
+import model.entity.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 事件队列与事件ID映射表测试
+ */
+@DisplayName("事件队列测试")
+class EventQueueTest extends AbstractSimulationTest {
+
+    /**
+     * 测试1: 各事件队列实现的出队顺序一致
+     */
+    @Test
+    @DisplayName("测试事件队列实现排序一致性")
+    void testEventQueueOrderingConsistency() {
+        for (EventQueueTypeEnum queueType : EventQueueTypeEnum.values()) {
+            EventQueue queue = EventQueue.create(queueType);
+            java.util.PriorityQueue<SimEvent> reference = new java.util.PriorityQueue<>();
+            java.util.Random random = new java.util.Random(42);
+            long now = 0;
+
+            for (int round = 0; round < 20_000; round++) {
+                int op = random.nextInt(10);
+                if (op < 6 || reference.isEmpty()) {
+                    // 大量同时刻事件 + 少量远期事件 + 偶发早于当前时钟的事件
+                    long offset = op == 0 ? random.nextInt(100_000) : random.nextInt(5);
+                    long triggerTime = op == 1 && now > 10 ? now - random.nextInt(10) : now + offset;
+                    SimEvent event = new SimEvent(SimEvent.NO_PARENT, triggerTime, EventTypeEnum.REPORT_IDLE, null);
+                    queue.add(event);
+                    reference.add(event);
+                } else {
+                    SimEvent expected = reference.poll();
+                    assertSame(expected, queue.peek(), queueType + " peek 顺序不一致");
+                    assertSame(expected, queue.poll(), queueType + " poll 顺序不一致");
+                    now = expected.getTriggerTime();
+                }
+                assertEquals(reference.size(), queue.size(), queueType + " 队列长度不一致");
+            }
+            while (!reference.isEmpty()) {
+                assertSame(reference.poll(), queue.poll(), queueType + " 排空顺序不一致");
+            }
+            assertTrue(queue.isEmpty());
+            assertNull(queue.poll());
+        }
+    }
+
+    /**
+     * 测试2: 事件ID映射表与 HashMap 行为一致
+     */
+    @Test
+    @DisplayName("测试事件ID映射表")
+    void testLongEventMap() {
+        LongEventMap map = new LongEventMap();
+        Map<Long, SimEvent> reference = new HashMap<>();
+        java.util.Random random = new java.util.Random(7);
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = 1 + random.nextInt(4096);
+            if (random.nextBoolean()) {
+                SimEvent event = new SimEvent(SimEvent.NO_PARENT, i, EventTypeEnum.REPORT_IDLE, null);
+                map.put(key, event);
+                reference.put(key, event);
+            } else {
+                assertSame(reference.remove(key), map.remove(key), "删除结果不一致");
+            }
+            assertEquals(reference.size(), map.size(), "元素个数不一致");
+        }
+        for (long key = 1; key <= 4096; key++) {
+            assertSame(reference.get(key), map.get(key), "查找结果不一致");
+        }
+        assertFalse(engine.cancelEvent(Long.MAX_VALUE), "不存在的事件不能取消");
+    }
+}
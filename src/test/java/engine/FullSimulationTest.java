@@ -2,27 +2,29 @@ package engine;
 
 import common.consts.BizTypeEnum;
 import common.consts.DeviceStateEnum;
-import common.consts.DeviceTypeEnum;
 import common.consts.EventTypeEnum;
+import common.consts.StepStopReasonEnum;
+import common.consts.StopConditionTypeEnum;
+import common.consts.SubjectRoleEnum;
 import common.consts.WiStatusEnum;
 import common.util.BizTypeUtil;
-import model.bo.GlobalContext;
+import engine.payload.ChargePayload;
+import engine.payload.CraneMovePayload;
+import engine.payload.CraneOpPayload;
+import engine.payload.MovePayload;
+import engine.payload.TaskPayload;
 import model.entity.*;
 import model.dto.request.CraneMoveReq;
 import model.dto.request.CraneOperationReq;
-import org.junit.jupiter.api.BeforeEach;
+import model.dto.request.StepBatchReq;
+import model.dto.request.StepUntilReq;
+import model.dto.request.StopConditionReq;
+import model.dto.response.StepBatchResp;
+import model.dto.response.StepUntilResp;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.Timeout;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.test.context.TestPropertySource;
-import service.algorithm.impl.SimulationErrorLog;
-import service.algorithm.impl.SimulationEventLog;
-
-import java.util.HashMap;
+
 import java.util.List;
-import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,31 +32,8 @@ import static org.junit.jupiter.api.Assertions.*;
  * 完整离散仿真系统测试
  * 覆盖所有核心功能和业务流程
  */
-@SpringBootTest(classes = application.SecsApplication.class)
-@TestPropertySource(properties = {
-        "spring.main.allow-bean-definition-overriding=true"
-})
 @DisplayName("完整离散仿真系统测试")
-@Timeout(60) // 单测最长 60 秒，避免挂起
-class FullSimulationTest {
-
-    @Autowired
-    private SimulationEngine engine;
-
-    @Autowired
-    private SimulationEventLog eventLog;
-
-    @Autowired
-    private SimulationErrorLog errorLog;
-
-    private GlobalContext context;
-
-    @BeforeEach
-    void setUp() {
-        context = GlobalContext.getInstance();
-        context.clearAll();
-        engine.reset();
-    }
+class FullSimulationTest extends AbstractSimulationTest {
 
     /**
      * 测试1: 单事件推进机制
@@ -63,11 +42,11 @@ class FullSimulationTest {
     @DisplayName("测试单事件推进机制")
     void testSingleEventStepping() {
         // 创建测试事件
-        SimEvent event1 = engine.scheduleEvent(null, 100, EventTypeEnum.REPORT_IDLE, null);
-        event1.addSubject("TRUCK", "TRUCK01");
+        SimEvent event1 = engine.scheduleEvent(SimEvent.NO_PARENT, 100, EventTypeEnum.REPORT_IDLE, null);
+        event1.addSubject(SubjectRoleEnum.TRUCK, "TRUCK01");
 
-        SimEvent event2 = engine.scheduleEvent(null, 200, EventTypeEnum.REPORT_IDLE, null);
-        event2.addSubject("TRUCK", "TRUCK02");
+        SimEvent event2 = engine.scheduleEvent(SimEvent.NO_PARENT, 200, EventTypeEnum.REPORT_IDLE, null);
+        event2.addSubject(SubjectRoleEnum.TRUCK, "TRUCK02");
 
         // 验证初始时钟
         assertEquals(0L, context.getSimTime(), "初始时钟应该是0");
@@ -119,10 +98,9 @@ class FullSimulationTest {
         context.getAscMap().put("ASC01", asc);
 
         // 4. 指派任务给岸桥
-        Map<String, Object> assignPayload = new HashMap<>();
-        assignPayload.put("wiRefNo", "WI001");
-        SimEvent assignEvent = engine.scheduleEvent(null, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload);
-        assignEvent.addSubject("DEVICE", "QC01");
+        TaskPayload assignPayload = new TaskPayload("WI001");
+        SimEvent assignEvent = engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload);
+        assignEvent.addSubject(SubjectRoleEnum.DEVICE, "QC01");
 
         // 5. 推进时间处理任务指派
         engine.runUntil(100);
@@ -138,12 +116,8 @@ class FullSimulationTest {
         moveReq.setDistance(10.0);
         moveReq.setSpeed(2.0);
 
-        Map<String, Object> movePayload = new HashMap<>();
-        movePayload.put("req", moveReq);
-        movePayload.put("speed", 2.0);
-
-        SimEvent moveEvent = engine.scheduleEvent(null, 100, EventTypeEnum.CMD_CRANE_MOVE, movePayload);
-        moveEvent.addSubject("CRANE", "QC01");
+        SimEvent moveEvent = engine.scheduleEvent(SimEvent.NO_PARENT, 100, EventTypeEnum.CMD_CRANE_MOVE, CraneMovePayload.of(moveReq));
+        moveEvent.addSubject(SubjectRoleEnum.CRANE, "QC01");
 
         // 推进时间到移动完成（10米/2米每秒 = 5秒 = 5000毫秒）
         engine.runUntil(6000);
@@ -157,8 +131,8 @@ class FullSimulationTest {
         opReq.setAction(EventTypeEnum.FETCH_DONE);
         opReq.setDurationMS(2000);
 
-        SimEvent opEvent = engine.scheduleEvent(null, 6000, EventTypeEnum.CMD_CRANE_OP, opReq);
-        opEvent.addSubject("CRANE", "QC01");
+        SimEvent opEvent = engine.scheduleEvent(SimEvent.NO_PARENT, 6000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq));
+        opEvent.addSubject(SubjectRoleEnum.CRANE, "QC01");
 
         // 推进时间处理抓箱
         engine.runUntil(10000);
@@ -168,55 +142,52 @@ class FullSimulationTest {
 
         // 8. 移动岸桥到集卡位置（放箱）
         moveReq.setDistance(5.0);
-        SimEvent moveEvent2 = engine.scheduleEvent(null, 10000, EventTypeEnum.CMD_CRANE_MOVE, movePayload);
-        moveEvent2.addSubject("CRANE", "QC01");
+        SimEvent moveEvent2 = engine.scheduleEvent(SimEvent.NO_PARENT, 10000, EventTypeEnum.CMD_CRANE_MOVE, CraneMovePayload.of(moveReq));
+        moveEvent2.addSubject(SubjectRoleEnum.CRANE, "QC01");
         engine.runUntil(15000);
 
         // 9. 执行放箱操作（集装箱转移到集卡）
         opReq.setAction(EventTypeEnum.PUT_DONE);
-        SimEvent opEvent2 = engine.scheduleEvent(null, 15000, EventTypeEnum.CMD_CRANE_OP, opReq);
-        opEvent2.addSubject("CRANE", "QC01");
+        SimEvent opEvent2 = engine.scheduleEvent(SimEvent.NO_PARENT, 15000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq));
+        opEvent2.addSubject(SubjectRoleEnum.CRANE, "QC01");
         engine.runUntil(17000);
 
         // 验证：集装箱位置已更新到集卡
         assertEquals("TRUCK01", container.getCurrentPos(), "集装箱应该在集卡上");
 
         // 10. 集卡移动到堆场
-        Map<String, Object> truckMovePayload = new HashMap<>();
-        truckMovePayload.put("target", new Point(100.0, 200.0));
-        truckMovePayload.put("speed", 5.0);
-        SimEvent truckMoveEvent = engine.scheduleEvent(null, 17000, EventTypeEnum.CMD_MOVE, truckMovePayload);
-        truckMoveEvent.addSubject("TRUCK", "TRUCK01");
+        MovePayload truckMovePayload = new MovePayload(new Point(100.0, 200.0), 5.0);
+        SimEvent truckMoveEvent = engine.scheduleEvent(SimEvent.NO_PARENT, 17000, EventTypeEnum.CMD_MOVE, truckMovePayload);
+        truckMoveEvent.addSubject(SubjectRoleEnum.TRUCK, "TRUCK01");
         engine.runUntil(20000);
 
         // 11. 集卡到达堆场，龙门吊抓箱
-        assignPayload.put("wiRefNo", "WI001");
-        SimEvent assignEvent2 = engine.scheduleEvent(null, 20000, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload);
-        assignEvent2.addSubject("DEVICE", "ASC01");
+        SimEvent assignEvent2 = engine.scheduleEvent(SimEvent.NO_PARENT, 20000, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload);
+        assignEvent2.addSubject(SubjectRoleEnum.DEVICE, "ASC01");
         engine.runUntil(20100);
 
         // 12. 龙门吊移动到集卡位置
         moveReq.setCraneId("ASC01");
-        SimEvent moveEvent3 = engine.scheduleEvent(null, 20100, EventTypeEnum.CMD_CRANE_MOVE, movePayload);
-        moveEvent3.addSubject("CRANE", "ASC01");
+        SimEvent moveEvent3 = engine.scheduleEvent(SimEvent.NO_PARENT, 20100, EventTypeEnum.CMD_CRANE_MOVE, CraneMovePayload.of(moveReq));
+        moveEvent3.addSubject(SubjectRoleEnum.CRANE, "ASC01");
         engine.runUntil(21000);
 
         // 13. 龙门吊抓箱
         opReq.setCraneId("ASC01");
         opReq.setAction(EventTypeEnum.FETCH_DONE);
-        SimEvent opEvent3 = engine.scheduleEvent(null, 21000, EventTypeEnum.CMD_CRANE_OP, opReq);
-        opEvent3.addSubject("CRANE", "ASC01");
+        SimEvent opEvent3 = engine.scheduleEvent(SimEvent.NO_PARENT, 21000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq));
+        opEvent3.addSubject(SubjectRoleEnum.CRANE, "ASC01");
         engine.runUntil(23000);
 
         // 14. 龙门吊移动到堆场位置并放箱
         moveReq.setDistance(3.0);
-        SimEvent moveEvent4 = engine.scheduleEvent(null, 23000, EventTypeEnum.CMD_CRANE_MOVE, movePayload);
-        moveEvent4.addSubject("CRANE", "ASC01");
+        SimEvent moveEvent4 = engine.scheduleEvent(SimEvent.NO_PARENT, 23000, EventTypeEnum.CMD_CRANE_MOVE, CraneMovePayload.of(moveReq));
+        moveEvent4.addSubject(SubjectRoleEnum.CRANE, "ASC01");
         engine.runUntil(24000);
 
         opReq.setAction(EventTypeEnum.PUT_DONE);
-        SimEvent opEvent4 = engine.scheduleEvent(null, 24000, EventTypeEnum.CMD_CRANE_OP, opReq);
-        opEvent4.addSubject("CRANE", "ASC01");
+        SimEvent opEvent4 = engine.scheduleEvent(SimEvent.NO_PARENT, 24000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq));
+        opEvent4.addSubject(SubjectRoleEnum.CRANE, "ASC01");
         engine.runUntil(26000);
 
         // 验证：作业完成
@@ -250,10 +221,9 @@ class FullSimulationTest {
             addDeviceToContext(device);
 
             // 指派任务
-            Map<String, Object> assignPayload = new HashMap<>();
-            assignPayload.put("wiRefNo", wiRefNo);
-            SimEvent assignEvent = engine.scheduleEvent(null, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload);
-            assignEvent.addSubject("DEVICE", device.getId());
+            TaskPayload assignPayload = new TaskPayload(wiRefNo);
+            SimEvent assignEvent = engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload);
+            assignEvent.addSubject(SubjectRoleEnum.DEVICE, device.getId());
 
             // 推进时间处理任务指派
             engine.runUntil(100);
@@ -274,11 +244,11 @@ class FullSimulationTest {
     @DisplayName("测试事件取消机制")
     void testEventCancellation() {
         // 创建事件
-        SimEvent event1 = engine.scheduleEvent(null, 100, EventTypeEnum.REPORT_IDLE, null);
-        String eventId1 = event1.getEventId();
+        SimEvent event1 = engine.scheduleEvent(SimEvent.NO_PARENT, 100, EventTypeEnum.REPORT_IDLE, null);
+        long eventId1 = event1.getEventId();
 
-        SimEvent event2 = engine.scheduleEvent(null, 200, EventTypeEnum.REPORT_IDLE, null);
-        String eventId2 = event2.getEventId();
+        SimEvent event2 = engine.scheduleEvent(SimEvent.NO_PARENT, 200, EventTypeEnum.REPORT_IDLE, null);
+        long eventId2 = event2.getEventId();
 
         // 取消第一个事件
         boolean cancelled = engine.cancelEvent(eventId1);
@@ -290,9 +260,9 @@ class FullSimulationTest {
         // 验证：第一个事件未被处理，第二个事件被处理
         List<model.dto.snapshot.EventLogEntryDto> events = eventLog.listSince(0);
         boolean event1Processed = events.stream()
-                .anyMatch(e -> e.getEventId().equals(eventId1));
+                .anyMatch(e -> e.getEventId() == eventId1);
         boolean event2Processed = events.stream()
-                .anyMatch(e -> e.getEventId().equals(eventId2));
+                .anyMatch(e -> e.getEventId() == eventId2);
 
         assertFalse(event1Processed, "被取消的事件不应该被处理");
         assertTrue(event2Processed, "未取消的事件应该被处理");
@@ -318,15 +288,13 @@ class FullSimulationTest {
         context.getQcMap().put("QC02", qc2);
 
         // 指派任务
-        Map<String, Object> assignPayload1 = new HashMap<>();
-        assignPayload1.put("wiRefNo", "WI001");
-        SimEvent assignEvent1 = engine.scheduleEvent(null, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload1);
-        assignEvent1.addSubject("DEVICE", "QC01");
+        TaskPayload assignPayload1 = new TaskPayload("WI001");
+        SimEvent assignEvent1 = engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload1);
+        assignEvent1.addSubject(SubjectRoleEnum.DEVICE, "QC01");
 
-        Map<String, Object> assignPayload2 = new HashMap<>();
-        assignPayload2.put("wiRefNo", "WI002");
-        SimEvent assignEvent2 = engine.scheduleEvent(null, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload2);
-        assignEvent2.addSubject("DEVICE", "QC02");
+        TaskPayload assignPayload2 = new TaskPayload("WI002");
+        SimEvent assignEvent2 = engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload2);
+        assignEvent2.addSubject(SubjectRoleEnum.DEVICE, "QC02");
 
         // 推进时间
         engine.runUntil(100);
@@ -349,8 +317,8 @@ class FullSimulationTest {
     void testBatchStepping() {
         // 创建多个事件
         for (int i = 0; i < 10; i++) {
-            SimEvent event = engine.scheduleEvent(null, i * 100, EventTypeEnum.REPORT_IDLE, null);
-            event.addSubject("TRUCK", "TRUCK" + i);
+            SimEvent event = engine.scheduleEvent(SimEvent.NO_PARENT, i * 100, EventTypeEnum.REPORT_IDLE, null);
+            event.addSubject(SubjectRoleEnum.TRUCK, "TRUCK" + i);
         }
 
         // 批量推进到500
@@ -384,10 +352,9 @@ class FullSimulationTest {
         WorkInstruction wi = createWorkInstruction("WI001", "CONTAINER001", BizTypeEnum.DSCH);
         context.getWorkInstructionMap().put("WI001", wi);
 
-        Map<String, Object> assignPayload = new HashMap<>();
-        assignPayload.put("wiRefNo", "WI001");
-        SimEvent assignEvent = engine.scheduleEvent(null, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload);
-        assignEvent.addSubject("DEVICE", "QC01");
+        TaskPayload assignPayload = new TaskPayload("WI001");
+        SimEvent assignEvent = engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload);
+        assignEvent.addSubject(SubjectRoleEnum.DEVICE, "QC01");
 
         engine.runUntil(100);
 
@@ -416,10 +383,9 @@ class FullSimulationTest {
         context.getQcMap().put("QC01", qc);
 
         // 指派任务并抓箱
-        Map<String, Object> assignPayload = new HashMap<>();
-        assignPayload.put("wiRefNo", "WI001");
-        SimEvent assignEvent = engine.scheduleEvent(null, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload);
-        assignEvent.addSubject("DEVICE", "QC01");
+        TaskPayload assignPayload = new TaskPayload("WI001");
+        SimEvent assignEvent = engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload);
+        assignEvent.addSubject(SubjectRoleEnum.DEVICE, "QC01");
         engine.runUntil(100);
 
         // 执行抓箱
@@ -427,8 +393,8 @@ class FullSimulationTest {
         opReq.setCraneId("QC01");
         opReq.setAction(EventTypeEnum.FETCH_DONE);
         opReq.setDurationMS(1000);
-        SimEvent opEvent = engine.scheduleEvent(null, 100, EventTypeEnum.CMD_CRANE_OP, opReq);
-        opEvent.addSubject("CRANE", "QC01");
+        SimEvent opEvent = engine.scheduleEvent(SimEvent.NO_PARENT, 100, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq));
+        opEvent.addSubject(SubjectRoleEnum.CRANE, "QC01");
         engine.runUntil(2000);
 
         // 验证：集装箱位置已更新
@@ -456,10 +422,9 @@ class FullSimulationTest {
         station.setChargeRate(10.0); // 10%/秒
         context.getChargingStationMap().put("STATION01", station);
 
-        Map<String, Object> chargePayload = new HashMap<>();
-        chargePayload.put("stationId", "STATION01");
-        SimEvent chargeEvent = engine.scheduleEvent(null, 0, EventTypeEnum.CMD_CHARGE, chargePayload);
-        chargeEvent.addSubject("TRUCK", "TRUCK01");
+        ChargePayload chargePayload = new ChargePayload("STATION01");
+        SimEvent chargeEvent = engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_CHARGE, chargePayload);
+        chargeEvent.addSubject(SubjectRoleEnum.TRUCK, "TRUCK01");
 
         engine.runUntil(100);
 
@@ -497,73 +462,67 @@ class FullSimulationTest {
         Truck truck = createTruck("TRUCK01");
         context.getTruckMap().put("TRUCK01", truck);
 
-        Map<String, Object> assignPayload = new HashMap<>();
-        assignPayload.put("wiRefNo", "WI001");
+        TaskPayload assignPayload = new TaskPayload("WI001");
         CraneMoveReq moveReq = new CraneMoveReq();
         moveReq.setMoveType(DeviceStateEnum.MOVE_HORIZONTAL);
         moveReq.setDistance(10.0);
         moveReq.setSpeed(2.0);
-        Map<String, Object> movePayload = new HashMap<>();
-        movePayload.put("req", moveReq);
-        movePayload.put("speed", 2.0);
         CraneOperationReq opReq = new CraneOperationReq();
         opReq.setDurationMS(2000);
 
         // 1. 指派任务给龙门吊
-        SimEvent assignEvent = engine.scheduleEvent(null, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload);
-        assignEvent.addSubject("DEVICE", "ASC01");
+        SimEvent assignEvent = engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload);
+        assignEvent.addSubject(SubjectRoleEnum.DEVICE, "ASC01");
         engine.runUntil(100);
         assertEquals("WI001", asc.getCurrWiRefNo(), "龙门吊应绑定任务WI001");
 
         // 2. 龙门吊移动到堆场抓箱位置
         moveReq.setCraneId("ASC01");
-        SimEvent moveEvent1 = engine.scheduleEvent(null, 100, EventTypeEnum.CMD_CRANE_MOVE, movePayload);
-        moveEvent1.addSubject("CRANE", "ASC01");
+        SimEvent moveEvent1 = engine.scheduleEvent(SimEvent.NO_PARENT, 100, EventTypeEnum.CMD_CRANE_MOVE, CraneMovePayload.of(moveReq));
+        moveEvent1.addSubject(SubjectRoleEnum.CRANE, "ASC01");
         engine.runUntil(6000);
         assertEquals(DeviceStateEnum.IDLE, asc.getState(), "龙门吊移动后应IDLE");
 
         // 3. 龙门吊抓箱
         opReq.setCraneId("ASC01");
         opReq.setAction(EventTypeEnum.FETCH_DONE);
-        engine.scheduleEvent(null, 6000, EventTypeEnum.CMD_CRANE_OP, opReq).addSubject("CRANE", "ASC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 6000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq)).addSubject(SubjectRoleEnum.CRANE, "ASC01");
         engine.runUntil(10000);
         assertEquals("ASC01", container.getCurrentPos(), "集装箱应在龙门吊上");
 
         // 4. 龙门吊放箱到集卡
         opReq.setAction(EventTypeEnum.PUT_DONE);
-        engine.scheduleEvent(null, 10000, EventTypeEnum.CMD_CRANE_OP, opReq).addSubject("CRANE", "ASC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 10000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq)).addSubject(SubjectRoleEnum.CRANE, "ASC01");
         engine.runUntil(12000);
         assertEquals("TRUCK01", container.getCurrentPos(), "集装箱应在集卡上");
 
         // 5. 集卡移动到码头岸桥下
-        Map<String, Object> truckMovePayload = new HashMap<>();
-        truckMovePayload.put("target", new Point(50.0, 50.0));
-        truckMovePayload.put("speed", 5.0);
-        engine.scheduleEvent(null, 12000, EventTypeEnum.CMD_MOVE, truckMovePayload).addSubject("TRUCK", "TRUCK01");
+        MovePayload truckMovePayload = new MovePayload(new Point(50.0, 50.0), 5.0);
+        engine.scheduleEvent(SimEvent.NO_PARENT, 12000, EventTypeEnum.CMD_MOVE, truckMovePayload).addSubject(SubjectRoleEnum.TRUCK, "TRUCK01");
         engine.runUntil(15000);
 
         // 6. 指派同一任务给岸桥（装船放箱设备）
-        SimEvent assignQc = engine.scheduleEvent(null, 15000, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload);
-        assignQc.addSubject("DEVICE", "QC01");
+        SimEvent assignQc = engine.scheduleEvent(SimEvent.NO_PARENT, 15000, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload);
+        assignQc.addSubject(SubjectRoleEnum.DEVICE, "QC01");
         engine.runUntil(15100);
         assertEquals("WI001", qc.getCurrWiRefNo(), "岸桥应绑定任务WI001");
 
         // 7. 岸桥移动到集卡位置
         moveReq.setCraneId("QC01");
-        engine.scheduleEvent(null, 15100, EventTypeEnum.CMD_CRANE_MOVE, movePayload).addSubject("CRANE", "QC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 15100, EventTypeEnum.CMD_CRANE_MOVE, CraneMovePayload.of(moveReq)).addSubject(SubjectRoleEnum.CRANE, "QC01");
         engine.runUntil(20100);
         assertEquals(DeviceStateEnum.IDLE, qc.getState(), "岸桥移动后应IDLE");
 
         // 8. 岸桥从集卡抓箱
         opReq.setCraneId("QC01");
         opReq.setAction(EventTypeEnum.FETCH_DONE);
-        engine.scheduleEvent(null, 20100, EventTypeEnum.CMD_CRANE_OP, opReq).addSubject("CRANE", "QC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 20100, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq)).addSubject(SubjectRoleEnum.CRANE, "QC01");
         engine.runUntil(23000);
         assertEquals("QC01", container.getCurrentPos(), "集装箱应在岸桥上");
 
         // 9. 岸桥放箱到船
         opReq.setAction(EventTypeEnum.PUT_DONE);
-        engine.scheduleEvent(null, 23000, EventTypeEnum.CMD_CRANE_OP, opReq).addSubject("CRANE", "QC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 23000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq)).addSubject(SubjectRoleEnum.CRANE, "QC01");
         engine.runUntil(25000);
 
         assertEquals(WiStatusEnum.COMPLETED.getCode(), wi.getWiStatus(), "作业指令应已完成");
@@ -594,50 +553,44 @@ class FullSimulationTest {
         context.getAscMap().put("ASC02", asc2);
         context.getTruckMap().put("TRUCK01", createTruck("TRUCK01"));
 
-        Map<String, Object> assignPayload = new HashMap<>();
-        assignPayload.put("wiRefNo", "WI001");
+        TaskPayload assignPayload = new TaskPayload("WI001");
         CraneMoveReq moveReq = new CraneMoveReq();
         moveReq.setMoveType(DeviceStateEnum.MOVE_HORIZONTAL);
         moveReq.setDistance(8.0);
         moveReq.setSpeed(2.0);
-        Map<String, Object> movePayload = new HashMap<>();
-        movePayload.put("req", moveReq);
-        movePayload.put("speed", 2.0);
         CraneOperationReq opReq = new CraneOperationReq();
         opReq.setDurationMS(1500);
 
-        engine.scheduleEvent(null, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload).addSubject("DEVICE", "ASC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload).addSubject(SubjectRoleEnum.DEVICE, "ASC01");
         engine.runUntil(100);
         moveReq.setCraneId("ASC01");
-        engine.scheduleEvent(null, 100, EventTypeEnum.CMD_CRANE_MOVE, movePayload).addSubject("CRANE", "ASC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 100, EventTypeEnum.CMD_CRANE_MOVE, CraneMovePayload.of(moveReq)).addSubject(SubjectRoleEnum.CRANE, "ASC01");
         engine.runUntil(5000);
         opReq.setCraneId("ASC01");
         opReq.setAction(EventTypeEnum.FETCH_DONE);
-        engine.scheduleEvent(null, 5000, EventTypeEnum.CMD_CRANE_OP, opReq).addSubject("CRANE", "ASC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 5000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq)).addSubject(SubjectRoleEnum.CRANE, "ASC01");
         engine.runUntil(7000);
         assertEquals("ASC01", container.getCurrentPos(), "集装箱应在ASC01上");
         opReq.setAction(EventTypeEnum.PUT_DONE);
-        engine.scheduleEvent(null, 7000, EventTypeEnum.CMD_CRANE_OP, opReq).addSubject("CRANE", "ASC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 7000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq)).addSubject(SubjectRoleEnum.CRANE, "ASC01");
         engine.runUntil(9000);
         assertEquals("TRUCK01", container.getCurrentPos(), "集装箱应在集卡上");
 
-        Map<String, Object> truckMove = new HashMap<>();
-        truckMove.put("target", new Point(20.0, 20.0));
-        truckMove.put("speed", 5.0);
-        engine.scheduleEvent(null, 9000, EventTypeEnum.CMD_MOVE, truckMove).addSubject("TRUCK", "TRUCK01");
+        MovePayload truckMove = new MovePayload(new Point(20.0, 20.0), 5.0);
+        engine.scheduleEvent(SimEvent.NO_PARENT, 9000, EventTypeEnum.CMD_MOVE, truckMove).addSubject(SubjectRoleEnum.TRUCK, "TRUCK01");
         engine.runUntil(12000);
 
-        engine.scheduleEvent(null, 12000, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload).addSubject("DEVICE", "ASC02");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 12000, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload).addSubject(SubjectRoleEnum.DEVICE, "ASC02");
         engine.runUntil(12100);
         moveReq.setCraneId("ASC02");
-        engine.scheduleEvent(null, 12100, EventTypeEnum.CMD_CRANE_MOVE, movePayload).addSubject("CRANE", "ASC02");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 12100, EventTypeEnum.CMD_CRANE_MOVE, CraneMovePayload.of(moveReq)).addSubject(SubjectRoleEnum.CRANE, "ASC02");
         engine.runUntil(16100);
         opReq.setCraneId("ASC02");
         opReq.setAction(EventTypeEnum.FETCH_DONE);
-        engine.scheduleEvent(null, 16100, EventTypeEnum.CMD_CRANE_OP, opReq).addSubject("CRANE", "ASC02");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 16100, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq)).addSubject(SubjectRoleEnum.CRANE, "ASC02");
         engine.runUntil(18100);
         opReq.setAction(EventTypeEnum.PUT_DONE);
-        engine.scheduleEvent(null, 18100, EventTypeEnum.CMD_CRANE_OP, opReq).addSubject("CRANE", "ASC02");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 18100, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq)).addSubject(SubjectRoleEnum.CRANE, "ASC02");
         engine.runUntil(20000);
 
         assertEquals(WiStatusEnum.COMPLETED.getCode(), wi.getWiStatus(), "移箱指令应已完成");
@@ -663,29 +616,25 @@ class FullSimulationTest {
         context.getAscMap().put("ASC01", createAscDevice("ASC01"));
         context.getTruckMap().put("TRUCK01", createTruck("TRUCK01"));
 
-        Map<String, Object> assignPayload = new HashMap<>();
-        assignPayload.put("wiRefNo", "WI001");
+        TaskPayload assignPayload = new TaskPayload("WI001");
         CraneMoveReq moveReq = new CraneMoveReq();
         moveReq.setCraneId("ASC01");
         moveReq.setMoveType(DeviceStateEnum.MOVE_HORIZONTAL);
         moveReq.setDistance(5.0);
         moveReq.setSpeed(2.0);
-        Map<String, Object> movePayload = new HashMap<>();
-        movePayload.put("req", moveReq);
-        movePayload.put("speed", 2.0);
         CraneOperationReq opReq = new CraneOperationReq();
         opReq.setCraneId("ASC01");
         opReq.setDurationMS(1000);
 
-        engine.scheduleEvent(null, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload).addSubject("DEVICE", "ASC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload).addSubject(SubjectRoleEnum.DEVICE, "ASC01");
         engine.runUntil(100);
-        engine.scheduleEvent(null, 100, EventTypeEnum.CMD_CRANE_MOVE, movePayload).addSubject("CRANE", "ASC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 100, EventTypeEnum.CMD_CRANE_MOVE, CraneMovePayload.of(moveReq)).addSubject(SubjectRoleEnum.CRANE, "ASC01");
         engine.runUntil(3000);
         opReq.setAction(EventTypeEnum.FETCH_DONE);
-        engine.scheduleEvent(null, 3000, EventTypeEnum.CMD_CRANE_OP, opReq).addSubject("CRANE", "ASC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 3000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq)).addSubject(SubjectRoleEnum.CRANE, "ASC01");
         engine.runUntil(5000);
         opReq.setAction(EventTypeEnum.PUT_DONE);
-        engine.scheduleEvent(null, 5000, EventTypeEnum.CMD_CRANE_OP, opReq).addSubject("CRANE", "ASC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 5000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq)).addSubject(SubjectRoleEnum.CRANE, "ASC01");
         engine.runUntil(7000);
 
         assertEquals("TRUCK01", container.getCurrentPos(), "提箱后集装箱应在集卡上");
@@ -710,30 +659,26 @@ class FullSimulationTest {
         context.getAscMap().put("ASC01", createAscDevice("ASC01"));
         context.getTruckMap().put("TRUCK01", createTruck("TRUCK01"));
 
-        Map<String, Object> assignPayload = new HashMap<>();
-        assignPayload.put("wiRefNo", "WI001");
+        TaskPayload assignPayload = new TaskPayload("WI001");
         CraneMoveReq moveReq = new CraneMoveReq();
         moveReq.setCraneId("ASC01");
         moveReq.setMoveType(DeviceStateEnum.MOVE_HORIZONTAL);
         moveReq.setDistance(5.0);
         moveReq.setSpeed(2.0);
-        Map<String, Object> movePayload = new HashMap<>();
-        movePayload.put("req", moveReq);
-        movePayload.put("speed", 2.0);
         CraneOperationReq opReq = new CraneOperationReq();
         opReq.setCraneId("ASC01");
         opReq.setDurationMS(1000);
 
-        engine.scheduleEvent(null, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload).addSubject("DEVICE", "ASC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload).addSubject(SubjectRoleEnum.DEVICE, "ASC01");
         engine.runUntil(100);
-        engine.scheduleEvent(null, 100, EventTypeEnum.CMD_CRANE_MOVE, movePayload).addSubject("CRANE", "ASC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 100, EventTypeEnum.CMD_CRANE_MOVE, CraneMovePayload.of(moveReq)).addSubject(SubjectRoleEnum.CRANE, "ASC01");
         engine.runUntil(3000);
         opReq.setAction(EventTypeEnum.FETCH_DONE);
-        engine.scheduleEvent(null, 3000, EventTypeEnum.CMD_CRANE_OP, opReq).addSubject("CRANE", "ASC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 3000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq)).addSubject(SubjectRoleEnum.CRANE, "ASC01");
         engine.runUntil(5000);
         assertEquals("ASC01", container.getCurrentPos(), "收箱抓取后集装箱应在龙门吊上");
         opReq.setAction(EventTypeEnum.PUT_DONE);
-        engine.scheduleEvent(null, 5000, EventTypeEnum.CMD_CRANE_OP, opReq).addSubject("CRANE", "ASC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 5000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq)).addSubject(SubjectRoleEnum.CRANE, "ASC01");
         engine.runUntil(7000);
 
         assertEquals(WiStatusEnum.COMPLETED.getCode(), wi.getWiStatus(), "收箱指令应已完成");
@@ -759,29 +704,25 @@ class FullSimulationTest {
         context.getQcMap().put("QC01", createQcDevice("QC01"));
         context.getTruckMap().put("TRUCK01", createTruck("TRUCK01"));
 
-        Map<String, Object> assignPayload = new HashMap<>();
-        assignPayload.put("wiRefNo", "WI001");
+        TaskPayload assignPayload = new TaskPayload("WI001");
         CraneMoveReq moveReq = new CraneMoveReq();
         moveReq.setCraneId("QC01");
         moveReq.setMoveType(DeviceStateEnum.MOVE_HORIZONTAL);
         moveReq.setDistance(5.0);
         moveReq.setSpeed(2.0);
-        Map<String, Object> movePayload = new HashMap<>();
-        movePayload.put("req", moveReq);
-        movePayload.put("speed", 2.0);
         CraneOperationReq opReq = new CraneOperationReq();
         opReq.setCraneId("QC01");
         opReq.setDurationMS(1000);
 
-        engine.scheduleEvent(null, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload).addSubject("DEVICE", "QC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload).addSubject(SubjectRoleEnum.DEVICE, "QC01");
         engine.runUntil(100);
-        engine.scheduleEvent(null, 100, EventTypeEnum.CMD_CRANE_MOVE, movePayload).addSubject("CRANE", "QC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 100, EventTypeEnum.CMD_CRANE_MOVE, CraneMovePayload.of(moveReq)).addSubject(SubjectRoleEnum.CRANE, "QC01");
         engine.runUntil(3000);
         opReq.setAction(EventTypeEnum.FETCH_DONE);
-        engine.scheduleEvent(null, 3000, EventTypeEnum.CMD_CRANE_OP, opReq).addSubject("CRANE", "QC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 3000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq)).addSubject(SubjectRoleEnum.CRANE, "QC01");
         engine.runUntil(5000);
         opReq.setAction(EventTypeEnum.PUT_DONE);
-        engine.scheduleEvent(null, 5000, EventTypeEnum.CMD_CRANE_OP, opReq).addSubject("CRANE", "QC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 5000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq)).addSubject(SubjectRoleEnum.CRANE, "QC01");
         engine.runUntil(7000);
 
         assertEquals(WiStatusEnum.COMPLETED.getCode(), wi.getWiStatus(), "直进指令应已完成");
@@ -807,29 +748,25 @@ class FullSimulationTest {
         context.getQcMap().put("QC01", createQcDevice("QC01"));
         context.getTruckMap().put("TRUCK01", createTruck("TRUCK01"));
 
-        Map<String, Object> assignPayload = new HashMap<>();
-        assignPayload.put("wiRefNo", "WI001");
+        TaskPayload assignPayload = new TaskPayload("WI001");
         CraneMoveReq moveReq = new CraneMoveReq();
         moveReq.setCraneId("QC01");
         moveReq.setMoveType(DeviceStateEnum.MOVE_HORIZONTAL);
         moveReq.setDistance(5.0);
         moveReq.setSpeed(2.0);
-        Map<String, Object> movePayload = new HashMap<>();
-        movePayload.put("req", moveReq);
-        movePayload.put("speed", 2.0);
         CraneOperationReq opReq = new CraneOperationReq();
         opReq.setCraneId("QC01");
         opReq.setDurationMS(1000);
 
-        engine.scheduleEvent(null, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload).addSubject("DEVICE", "QC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload).addSubject(SubjectRoleEnum.DEVICE, "QC01");
         engine.runUntil(100);
-        engine.scheduleEvent(null, 100, EventTypeEnum.CMD_CRANE_MOVE, movePayload).addSubject("CRANE", "QC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 100, EventTypeEnum.CMD_CRANE_MOVE, CraneMovePayload.of(moveReq)).addSubject(SubjectRoleEnum.CRANE, "QC01");
         engine.runUntil(3000);
         opReq.setAction(EventTypeEnum.FETCH_DONE);
-        engine.scheduleEvent(null, 3000, EventTypeEnum.CMD_CRANE_OP, opReq).addSubject("CRANE", "QC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 3000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq)).addSubject(SubjectRoleEnum.CRANE, "QC01");
         engine.runUntil(5000);
         opReq.setAction(EventTypeEnum.PUT_DONE);
-        engine.scheduleEvent(null, 5000, EventTypeEnum.CMD_CRANE_OP, opReq).addSubject("CRANE", "QC01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 5000, EventTypeEnum.CMD_CRANE_OP, CraneOpPayload.of(opReq)).addSubject(SubjectRoleEnum.CRANE, "QC01");
         engine.runUntil(7000);
 
         assertEquals("TRUCK01", container.getCurrentPos(), "直提后集装箱应在集卡上");
@@ -851,10 +788,9 @@ class FullSimulationTest {
             device.setId("DEV_" + bizType.getCode());
             addDeviceToContext(device);
 
-            Map<String, Object> assignPayload = new HashMap<>();
-            assignPayload.put("wiRefNo", wiRefNo);
-            SimEvent assignEvent = engine.scheduleEvent(null, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload);
-            assignEvent.addSubject("DEVICE", device.getId());
+            TaskPayload assignPayload = new TaskPayload(wiRefNo);
+            SimEvent assignEvent = engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_ASSIGN_TASK, assignPayload);
+            assignEvent.addSubject(SubjectRoleEnum.DEVICE, device.getId());
             engine.runUntil(100);
 
             assertEquals(wiRefNo, device.getCurrWiRefNo(),
@@ -866,135 +802,187 @@ class FullSimulationTest {
         }
     }
 
-    private void setWiDevicesByBizType(WorkInstruction wi, BizTypeEnum bizType) {
-        switch (bizType) {
-            case DSCH:
-                wi.setFetchCheId("QC01");
-                wi.setCarryCheId("TRUCK01");
-                wi.setPutCheId("ASC01");
-                wi.setFromPos("VESSEL001");
-                wi.setToPos("YARD001");
-                break;
-            case LOAD:
-                wi.setFetchCheId("ASC01");
-                wi.setCarryCheId("TRUCK01");
-                wi.setPutCheId("QC01");
-                wi.setFromPos("YARD001");
-                wi.setToPos("VESSEL001");
-                break;
-            case YARD_SHIFT:
-                wi.setFetchCheId("ASC01");
-                wi.setCarryCheId("TRUCK01");
-                wi.setPutCheId("ASC02");
-                wi.setFromPos("YARD001");
-                wi.setToPos("YARD002");
-                break;
-            case DLVR:
-                wi.setFetchCheId("ASC01");
-                wi.setCarryCheId("EXT_TRUCK01");
-                wi.setPutCheId(null);
-                wi.setFromPos("YARD001");
-                wi.setToPos("GATE01");
-                break;
-            case RECV:
-                wi.setFetchCheId(null);
-                wi.setCarryCheId("EXT_TRUCK01");
-                wi.setPutCheId("ASC01");
-                wi.setFromPos("GATE01");
-                wi.setToPos("YARD001");
-                break;
-            case DIRECT_IN:
-                wi.setFetchCheId(null);
-                wi.setCarryCheId("EXT_TRUCK01");
-                wi.setPutCheId("QC01");
-                wi.setFromPos("GATE01");
-                wi.setToPos("VESSEL001");
-                break;
-            case DIRECT_OUT:
-                wi.setFetchCheId("QC01");
-                wi.setCarryCheId("EXT_TRUCK01");
-                wi.setPutCheId(null);
-                wi.setFromPos("VESSEL001");
-                wi.setToPos("GATE01");
-                break;
-            default:
-                break;
-        }
-    }
+    /**
+     * 测试17: 业务类型与链ID在调度时继承，独立事件链按链ID暂停
+     */
+    @Test
+    @DisplayName("测试事件链打标与按链暂停")
+    void testChainStamping() {
+        WorkInstruction wi = createWorkInstruction("WI001", "CONTAINER001", BizTypeEnum.DSCH);
+        context.getWorkInstructionMap().put("WI001", wi);
+        context.getQcMap().put("QC01", createQcDevice("QC01"));
+        context.getTruckMap().put("TRUCK01", createTruck("TRUCK01"));
 
-    // ========== 辅助方法 ==========
-
-    private WorkInstruction createWorkInstruction(String wiRefNo, String containerId, BizTypeEnum bizType) {
-        WorkInstruction wi = new WorkInstruction();
-        wi.setWiRefNo(wiRefNo);
-        wi.setContainerId(containerId);
-        wi.setMoveKind(bizType);
-        wi.setFromPos("FROM_" + bizType.getCode());
-        wi.setToPos("TO_" + bizType.getCode());
-        wi.setWiStatus(WiStatusEnum.EXECUTING.getCode());
-        return wi;
-    }
+        // 任务链：子事件继承根事件的业务类型与链ID
+        SimEvent assignEvent = engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_ASSIGN_TASK, new TaskPayload("WI001"));
+        assignEvent.addSubject(SubjectRoleEnum.DEVICE, "QC01");
+        assertEquals(assignEvent.getEventId(), assignEvent.getChainId(), "根事件的链ID为自身ID");
+        assertSame(assignEvent, engine.stepNextEvent());
+        assertEquals(BizTypeEnum.DSCH, assignEvent.getBizType(), "根事件处理时解析业务类型");
+        SimEvent ackEvent = engine.stepNextEvent();
+        assertEquals(EventTypeEnum.CMD_TASK_ACK, ackEvent.getType());
+        assertEquals(BizTypeEnum.DSCH, ackEvent.getBizType(), "子事件继承业务类型");
+        assertEquals(assignEvent.getEventId(), ackEvent.getChainId(), "子事件继承链ID");
+
+        // 父事件已处理完：无法得知其链信息，拒绝调度
+        assertThrows(common.exception.BusinessException.class,
+                () -> engine.scheduleEvent(assignEvent.getEventId(), 0, EventTypeEnum.WI_COMPLETE, null),
+                "已处理父事件不应再派生子事件");
+        assertThrows(common.exception.BusinessException.class,
+                () -> engine.scheduleEvent(Long.MAX_VALUE, 0, EventTypeEnum.WI_COMPLETE, null),
+                "不存在的父事件应被拒绝");
+        engine.reset();
 
-    private Container createContainer(String containerId, String initialPos) {
-        Container container = new Container();
-        container.setContainerId(containerId);
-        container.setCurrentPos(initialPos);
-        return container;
-    }
+        // 根事件尚未处理时调度的子事件（含孙事件）：根事件处理解析业务类型后写入子事件
+        context.getWorkInstructionMap().put("WI002", createWorkInstruction("WI002", "CONTAINER002", BizTypeEnum.LOAD));
+        SimEvent pendingRoot = engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_ASSIGN_TASK, new TaskPayload("WI002"));
+        pendingRoot.addSubject(SubjectRoleEnum.DEVICE, "QC01");
+        SimEvent earlyChild = engine.scheduleEvent(pendingRoot.getEventId(), 1, EventTypeEnum.WI_COMPLETE, null);
+        SimEvent earlyGrandchild = engine.scheduleEvent(earlyChild.getEventId(), 2, EventTypeEnum.WI_COMPLETE, null);
+        assertNull(earlyChild.getBizType(), "根事件处理前业务类型未解析");
+        assertEquals(pendingRoot.getEventId(), earlyGrandchild.getChainId(), "孙事件继承根事件的链ID");
+        assertSame(pendingRoot, engine.stepNextEvent());
+        assertEquals(BizTypeEnum.LOAD, earlyChild.getBizType(), "根事件解析后应写入子事件");
+        assertEquals(BizTypeEnum.LOAD, earlyGrandchild.getBizType(), "根事件解析后应写入孙事件");
+        assertEquals(pendingRoot.getEventId(), earlyChild.getChainId());
+        engine.reset();
 
-    private QcDevice createQcDevice(String deviceId) {
-        QcDevice qc = new QcDevice();
-        qc.setId(deviceId);
-        qc.setType(DeviceTypeEnum.QC);
-        qc.setState(DeviceStateEnum.IDLE);
-        qc.setPosX(0.0);
-        qc.setPosY(0.0);
-        return qc;
-    }
+        // 无业务类型的独立事件链：异常后只登记一个链ID
+        SimEvent badMove = engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_MOVE, new MovePayload(new Point(10.0, 0.0), 5.0));
+        badMove.addSubject(SubjectRoleEnum.TRUCK, "TRUCK99");
+        engine.stepNextEvent();
+        assertEquals(java.util.Collections.singleton(badMove.getEventId()), engine.getSuspendedChainIds(), "应按链ID暂停");
+        assertTrue(engine.getSuspendedBizTypes().isEmpty(), "独立事件链不应暂停业务类型");
 
-    private AscDevice createAscDevice(String deviceId) {
-        AscDevice asc = new AscDevice();
-        asc.setId(deviceId);
-        asc.setType(DeviceTypeEnum.ASC);
-        asc.setState(DeviceStateEnum.IDLE);
-        asc.setPosX(0.0);
-        asc.setPosY(0.0);
-        return asc;
+        // 其他独立链不受影响
+        SimEvent move = engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_MOVE, new MovePayload(new Point(10.0, 0.0), 5.0));
+        move.addSubject(SubjectRoleEnum.TRUCK, "TRUCK01");
+        engine.runUntil(10000);
+        assertEquals(10.0, context.getTruckMap().get("TRUCK01").getPosX(), 1e-6, "未暂停的链应正常执行");
+        assertEquals(1, engine.getSuspendedChainIds().size(), "暂停集合不应随事件数增长");
     }
 
-    private Truck createTruck(String deviceId) {
-        Truck truck = new Truck();
-        truck.setId(deviceId);
-        truck.setType(DeviceTypeEnum.ELECTRIC_TRUCK);
-        truck.setState(DeviceStateEnum.IDLE);
-        truck.setPosX(0.0);
-        truck.setPosY(0.0);
-        truck.setPowerLevel(100.0);
-        truck.setNeedCharge(false);
-        return truck;
+    /**
+     * 测试18: 批量推进接口按事件数、目标时间停止
+     */
+    @Test
+    @DisplayName("测试批量推进接口")
+    void testStepBatchApi() {
+        for (int i = 0; i < 10; i++) {
+            SimEvent event = engine.scheduleEvent(SimEvent.NO_PARENT, i * 100, EventTypeEnum.REPORT_IDLE, null);
+            event.addSubject(SubjectRoleEnum.TRUCK, "TRUCK" + i);
+        }
+
+        // 按事件数停止：时钟停在最后处理的事件
+        StepBatchReq req = new StepBatchReq();
+        req.setMaxEvents(3);
+        StepBatchResp resp = algorithmApi.stepBatch(req);
+        assertEquals(3, resp.getProcessedCount());
+        assertEquals(StepStopReasonEnum.MAX_EVENTS, resp.getStopReason());
+        assertEquals(200L, resp.getFinalSimTime());
+        assertEquals(3, resp.getTypeCounts().get(EventTypeEnum.REPORT_IDLE).intValue());
+
+        // 按目标时间停止：时钟推进到目标时间
+        req = new StepBatchReq();
+        req.setUntilSimTime(650L);
+        resp = algorithmApi.stepBatch(req);
+        assertEquals(4, resp.getProcessedCount(), "应处理 300~600 的事件");
+        assertEquals(StepStopReasonEnum.SIM_TIME_REACHED, resp.getStopReason());
+        assertEquals(650L, resp.getFinalSimTime());
+        assertEquals(600L, resp.getLastEvent().getSimTime());
+
+        // 队列耗尽
+        req.setUntilSimTime(5000L);
+        resp = algorithmApi.stepBatch(req);
+        assertEquals(3, resp.getProcessedCount());
+        assertEquals(StepStopReasonEnum.QUEUE_EMPTY, resp.getStopReason());
+        assertEquals(5000L, resp.getFinalSimTime());
+
+        assertThrows(common.exception.BusinessException.class, () -> algorithmApi.stepBatch(new StepBatchReq()),
+                "未指定停止条件应拒绝");
     }
 
-    private BaseDevice createDeviceForBizType(BizTypeEnum bizType) {
-        String deviceId = "DEVICE_" + bizType.getCode();
-        if (BizTypeUtil.getRecommendedFetchDeviceType(bizType) == DeviceTypeEnum.QC) {
-            return createQcDevice(deviceId);
-        } else if (BizTypeUtil.getRecommendedFetchDeviceType(bizType) == DeviceTypeEnum.ASC) {
-            return createAscDevice(deviceId);
-        } else {
-            return createTruck(deviceId);
-        }
+    /**
+     * 测试19: 条件推进在设备状态迁移和电量阈值处停止
+     */
+    @Test
+    @DisplayName("测试条件推进接口")
+    void testStepUntilApi() {
+        Truck truck = createTruck("TRUCK01");
+        truck.setConsumeRate(1.0);
+        context.getTruckMap().put("TRUCK01", truck);
+        engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_MOVE, new MovePayload(new Point(30.0, 0.0), 5.0))
+                .addSubject(SubjectRoleEnum.TRUCK, "TRUCK01");
+        engine.scheduleEvent(SimEvent.NO_PARENT, 10000, EventTypeEnum.CMD_MOVE, new MovePayload(new Point(30.0, 40.0), 5.0))
+                .addSubject(SubjectRoleEnum.TRUCK, "TRUCK01");
+
+        // 集卡开始移动即停止
+        StopConditionReq moving = new StopConditionReq();
+        moving.setType(StopConditionTypeEnum.STATE_ENTER);
+        moving.setState(DeviceStateEnum.MOVING);
+        StepUntilReq req = new StepUntilReq();
+        req.setConditions(java.util.Collections.singletonList(moving));
+        StepUntilResp resp = algorithmApi.stepUntil(req);
+        assertEquals(StepStopReasonEnum.CONDITION_MATCHED, resp.getStopReason());
+        assertEquals(EventTypeEnum.MOVE_START, resp.getTriggerEvent().getType());
+        assertEquals(0L, resp.getFinalSimTime());
+
+        // 电量低于 50 时停止：第一段耗电 30，第二段耗电 40
+        StopConditionReq neverMatch = new StopConditionReq();
+        neverMatch.setType(StopConditionTypeEnum.EVENT_TYPE);
+        neverMatch.setEventTypes(java.util.Collections.singletonList(EventTypeEnum.FENCE_CONTROL));
+        StopConditionReq lowPower = new StopConditionReq();
+        lowPower.setType(StopConditionTypeEnum.POWER_BELOW);
+        lowPower.setSubjectId("TRUCK01");
+        lowPower.setPowerThreshold(50.0);
+        req.setConditions(java.util.Arrays.asList(neverMatch, lowPower));
+        resp = algorithmApi.stepUntil(req);
+        assertEquals(StepStopReasonEnum.CONDITION_MATCHED, resp.getStopReason());
+        assertEquals(Integer.valueOf(1), resp.getMatchedCondition());
+        assertEquals(EventTypeEnum.ARRIVAL, resp.getTriggerEvent().getType());
+        assertEquals(18000L, resp.getFinalSimTime());
+        assertEquals(1, resp.getDevices().size());
+        assertEquals(30.0, resp.getDevices().get(0).getPowerLevel(), 1e-6);
+
+        // 之后不再有满足条件的迁移，直到队列为空
+        resp = algorithmApi.stepUntil(req);
+        assertEquals(StepStopReasonEnum.QUEUE_EMPTY, resp.getStopReason());
+        assertNull(resp.getMatchedCondition());
     }
 
-    private void addDeviceToContext(BaseDevice device) {
-        if (device instanceof QcDevice) {
-            QcDevice qc = (QcDevice) device;
-            context.getQcMap().put(device.getId(), qc);
-        } else if (device instanceof AscDevice) {
-            AscDevice asc = (AscDevice) device;
-            context.getAscMap().put(device.getId(), asc);
-        } else if (device instanceof Truck) {
-            Truck truck = (Truck) device;
-            context.getTruckMap().put(device.getId(), truck);
-        }
+    /**
+     * 测试20: 设备移动数据为原始类型：移动中出发点与速度齐备，到达后清理；未进入围栏的设备共享空列表，复制后列表互不影响
+     */
+    @Test
+    @DisplayName("测试设备原始类型移动数据")
+    void testDevicePrimitiveMoveFields() {
+        Truck truck = createTruck("TRUCK01");
+        truck.setPosX(10.0);
+        context.getTruckMap().put("TRUCK01", truck);
+        assertNull(truck.getLastStartPos(), "未移动时没有出发点");
+        assertFalse(truck.isMoveInProgress());
+
+        engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_MOVE, new MovePayload(new Point(30.0, 0.0), 5.0))
+                .addSubject(SubjectRoleEnum.TRUCK, "TRUCK01");
+        engine.stepNextEvent();
+        engine.stepNextEvent();
+        assertTrue(truck.isMoveInProgress(), "开始移动后出发点、目标点与速度齐备");
+        assertEquals(10.0, truck.getLastStartX(), 1e-9);
+        assertEquals(0.0, truck.getLastStartY(), 1e-9);
+        assertEquals(5.0, truck.getSpeed(), 1e-9);
+        assertEquals(20.0, truck.getInterpolatedPos(2000, 0.1).getX(), 1e-9, "插值从出发点起算");
+
+        engine.runUntil(10000);
+        assertEquals(DeviceStateEnum.IDLE, truck.getState());
+        assertEquals(30.0, truck.getPosX(), 1e-9);
+        assertFalse(truck.isMoveInProgress(), "到达后清理本段移动数据");
+        assertNull(truck.getLastStartPos());
+        assertEquals(0.0, truck.getSpeed(), "到达后速度恢复为未设置");
+        assertSame(java.util.Collections.emptyList(), truck.getInFenceIds(), "不在围栏内时不单独分配列表");
+
+        truck.setNotDoneWiList(new java.util.ArrayList<>(java.util.Collections.singletonList("WI001")));
+        BaseDevice copy = truck.copy();
+        assertEquals(truck.getNotDoneWiList(), copy.getNotDoneWiList());
+        assertNotSame(truck.getNotDoneWiList(), copy.getNotDoneWiList(), "非空列表复制后互不影响");
     }
 }
@@ -0,0 +1,481 @@
+package engine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import common.consts.BizTypeEnum;
+import common.consts.DeviceStateEnum;
+import common.consts.EventTypeEnum;
+import common.consts.StepStopReasonEnum;
+import common.consts.StopConditionTypeEnum;
+import common.consts.SubjectRoleEnum;
+import engine.payload.MovePayload;
+import engine.session.SimSession;
+import engine.session.SimSessionManager;
+import model.bo.GlobalContext;
+import model.entity.*;
+import model.dto.request.CreateSessionReq;
+import model.dto.request.MoveCommandReq;
+import model.dto.request.StepBatchReq;
+import model.dto.request.StepUntilReq;
+import model.dto.request.StopConditionReq;
+import model.dto.response.StepBatchResp;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 仿真会话测试
+ * 单写线程指令执行、多会话隔离与分叉、检查点与指令日志重放、批量指令
+ */
+@DisplayName("仿真会话测试")
+class SimSessionTest extends AbstractSimulationTest {
+
+    /**
+     * 测试1: 多线程提交的指令在单写线程上按序执行，异常原样返回
+     */
+    @Test
+    @DisplayName("测试单写线程指令管道")
+    void testCommandExecutor() throws Exception {
+        // 环形队列：多生产者下每个生产者内部保持先后顺序，回绕后不丢不重
+        MpscRingBuffer<long[]> ring = new MpscRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 20_000;
+        java.util.concurrent.CountDownLatch start = new java.util.concurrent.CountDownLatch(1);
+        for (int p = 0; p < producers; p++) {
+            final int producerId = p;
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    long[] item = {producerId, i};
+                    while (!ring.offer(item)) {
+                        Thread.yield();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        long[] expected = new long[producers];
+        int received = 0;
+        while (received < producers * perProducer) {
+            long[] item = ring.poll();
+            if (item == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(expected[(int) item[0]]++, item[1], "同一生产者的元素应按序出队");
+            received++;
+        }
+        assertNull(ring.poll(), "全部消费后队列应为空");
+
+        // 执行器：并发提交也只在单写线程上执行，业务异常原样抛出
+        Thread[] executedOn = new Thread[1];
+        commandExecutor.run(() -> executedOn[0] = Thread.currentThread());
+        assertNotSame(Thread.currentThread(), executedOn[0], "指令应在仿真线程执行");
+        assertEquals(Integer.valueOf(3), commandExecutor.call(() -> commandExecutor.call(() -> 3)), "仿真线程内嵌套调用应直接执行");
+        StepBatchReq bad = new StepBatchReq();
+        bad.setUntilSimTime(-1L);
+        assertThrows(common.exception.BusinessException.class, () -> algorithmApi.stepBatch(bad));
+    }
+
+    /**
+     * 测试2: 多个仿真会话互相隔离，各自使用自己的物理参数并可并行推进
+     */
+    @Test
+    @DisplayName("测试多仿真会话隔离")
+    void testIndependentSessions() throws Exception {
+        int defaultLogSize = eventLog.listSince(0).size();
+        CreateSessionReq reqA = new CreateSessionReq();
+        reqA.setSessionId("TEST_A");
+        CreateSessionReq reqB = new CreateSessionReq();
+        reqB.setArrivalThreshold(100.0);
+        SimSession a = sessionManager.create(reqA);
+        SimSession b = sessionManager.create(reqB);
+        try {
+            assertEquals("TEST_A", a.getId());
+            assertNotSame(a.getContext(), b.getContext());
+            assertNotSame(GlobalContext.getInstance(), a.getContext());
+            assertEquals(100.0, b.getPhysicsConfig().getArrivalThreshold(), 1e-9);
+            assertEquals(engine.getContext().getPhysicsConfig().getArrivalThreshold(),
+                    a.getPhysicsConfig().getArrivalThreshold(), 1e-9, "未覆盖的参数沿用默认会话");
+            assertThrows(common.exception.BusinessException.class, () -> sessionManager.create(reqA), "会话ID不可重复");
+
+            // 与默认会话重名：在构建组件前拒绝，默认会话的事件日志不被清空
+            commandExecutor.run(() -> {
+                engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.REPORT_IDLE, null);
+                engine.stepNextEvent();
+            });
+            int loggedBefore = eventLog.listSince(0).size();
+            assertTrue(loggedBefore > defaultLogSize);
+            java.nio.file.Path defaultLogDir = java.nio.file.Paths.get("target/test-eventlog", SimSessionManager.DEFAULT_SESSION_ID);
+            long segmentFiles;
+            try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(defaultLogDir)) {
+                segmentFiles = files.count();
+            }
+            assertTrue(segmentFiles > 0);
+            CreateSessionReq defaultReq = new CreateSessionReq();
+            defaultReq.setSessionId(SimSessionManager.DEFAULT_SESSION_ID);
+            assertThrows(common.exception.BusinessException.class, () -> sessionManager.create(defaultReq));
+            assertThrows(common.exception.BusinessException.class, () -> sessionManager.fork("TEST_A", defaultReq));
+            assertEquals(loggedBefore, eventLog.listSince(0).size(), "默认会话的事件日志应保持可读");
+            try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(defaultLogDir)) {
+                assertEquals(segmentFiles, files.count(), "默认会话的段文件不应被删除");
+            }
+            defaultLogSize = loggedBefore;
+
+            // 两个会话装入同名集卡并下发相同指令，在各自的单写线程上并行推进
+            for (SimSession session : new SimSession[]{a, b}) {
+                session.getCommandExecutor().run(() -> session.getContext().getTruckMap().put("TRUCK01", createTruck("TRUCK01")));
+                MoveCommandReq moveReq = new MoveCommandReq();
+                moveReq.setTruckId("TRUCK01");
+                moveReq.setTargetPoint(new Point(30.0, 0.0));
+                moveReq.setSpeed(5.0);
+                session.getAlgorithmApi().moveDevice(moveReq);
+            }
+            StepBatchReq stepReq = new StepBatchReq();
+            stepReq.setMaxEvents(100);
+            java.util.concurrent.CompletableFuture<StepBatchResp> futureA =
+                    java.util.concurrent.CompletableFuture.supplyAsync(() -> a.getAlgorithmApi().stepBatch(stepReq));
+            java.util.concurrent.CompletableFuture<StepBatchResp> futureB =
+                    java.util.concurrent.CompletableFuture.supplyAsync(() -> b.getAlgorithmApi().stepBatch(stepReq));
+            StepBatchResp respA = futureA.get();
+            StepBatchResp respB = futureB.get();
+
+            // A 正常行驶 30m/5m/s；B 的到达阈值为 100m，出发即判定到达
+            assertEquals(6000L, respA.getFinalSimTime());
+            assertEquals(0L, respB.getFinalSimTime());
+            assertEquals(StepStopReasonEnum.QUEUE_EMPTY, respA.getStopReason());
+            assertEquals(StepStopReasonEnum.QUEUE_EMPTY, respB.getStopReason());
+            assertEquals(6000L, a.getEpochPublisher().current().getSimTime(), "各会话发布自己的纪元");
+            assertFalse(a.getEventLog().listSince(0).isEmpty());
+            assertTrue(context.getTruckMap().isEmpty(), "默认会话不受影响");
+            assertEquals(defaultLogSize, eventLog.listSince(0).size(), "默认会话的事件日志不含其他会话的事件");
+
+            assertSame(sessionManager.getDefaultSession(), sessionManager.get(null));
+            assertSame(engine, sessionManager.get(SimSessionManager.DEFAULT_SESSION_ID).getEngine());
+            assertThrows(common.exception.BusinessException.class,
+                    () -> sessionManager.remove(SimSessionManager.DEFAULT_SESSION_ID), "默认会话不可删除");
+        } finally {
+            sessionManager.remove(a.getId());
+            sessionManager.remove(b.getId());
+        }
+        assertThrows(common.exception.BusinessException.class, () -> sessionManager.get("TEST_A"));
+        assertThrows(common.exception.BusinessException.class,
+                () -> a.getCommandExecutor().run(() -> { }), "已删除会话不再接受指令");
+    }
+
+    /**
+     * 测试3: 分叉会话复制上下文与待处理事件，两边独立推进、互不影响
+     */
+    @Test
+    @DisplayName("测试会话分叉推演")
+    void testSessionFork() {
+        YardBlock block = new YardBlock();
+        block.setBlockCode("B01");
+        commandExecutor.run(() -> {
+            context.getTruckMap().put("TRUCK01", createTruck("TRUCK01"));
+            context.getYardBlockMap().put("B01", block);
+        });
+        MoveCommandReq moveReq = new MoveCommandReq();
+        moveReq.setTruckId("TRUCK01");
+        moveReq.setTargetPoint(new Point(30.0, 0.0));
+        moveReq.setSpeed(5.0);
+        algorithmApi.moveDevice(moveReq);
+        StepBatchReq stepReq = new StepBatchReq();
+        stepReq.setMaxEvents(2);
+        algorithmApi.stepBatch(stepReq);
+        assertEquals(DeviceStateEnum.MOVING, context.getTruckMap().get("TRUCK01").getState());
+
+        SimSession fork = sessionManager.fork(null, null);
+        try {
+            assertEquals(SimSessionManager.DEFAULT_SESSION_ID, fork.getParentSessionId());
+            Truck forkedTruck = fork.getContext().getTruckMap().get("TRUCK01");
+            assertNotSame(context.getTruckMap().get("TRUCK01"), forkedTruck, "可变实体逐个复制");
+            assertSame(block, fork.getContext().getYardBlockMap().get("B01"), "静态数据共享");
+            assertEquals(DeviceStateEnum.MOVING, forkedTruck.getState());
+            assertEquals(DeviceStateEnum.MOVING, fork.getEpochPublisher().current().getDevices().get(0).getState(),
+                    "分叉后立即发布初始纪元");
+
+            // 分叉会话推进到完成，源会话不受影响
+            StepBatchReq drain = new StepBatchReq();
+            drain.setMaxEvents(100);
+            StepBatchResp forkResp = fork.getAlgorithmApi().stepBatch(drain);
+            assertEquals(6000L, forkResp.getFinalSimTime());
+            assertEquals(30.0, forkedTruck.getPosX(), 1e-6);
+            assertEquals(0L, context.getSimTime(), "源会话时钟不变");
+            assertEquals(DeviceStateEnum.MOVING, context.getTruckMap().get("TRUCK01").getState());
+            assertEquals(0.0, context.getTruckMap().get("TRUCK01").getPosX(), 1e-6);
+
+            // 源会话的待处理事件仍在，推进结果与分叉一致
+            StepBatchResp sourceResp = algorithmApi.stepBatch(drain);
+            assertEquals(forkResp.getProcessedCount(), sourceResp.getProcessedCount());
+            assertEquals(6000L, sourceResp.getFinalSimTime());
+            assertEquals(30.0, context.getTruckMap().get("TRUCK01").getPosX(), 1e-6);
+        } finally {
+            sessionManager.remove(fork.getId());
+        }
+    }
+
+    /**
+     * 测试4: 检查点写入后恢复，实体、待处理事件（含取消标记）与暂停状态完全还原
+     */
+    @Test
+    @DisplayName("测试二进制检查点与恢复")
+    void testCheckpointRestore() throws Exception {
+        WorkInstruction wi = createWorkInstruction("WI001", "CONTAINER001", BizTypeEnum.DSCH);
+        wi.setDispatchTime(java.time.LocalDateTime.of(2024, 5, 1, 8, 30, 15, 123_000_000));
+        context.getWorkInstructionMap().put("WI001", wi);
+        context.getContainerMap().put("CONTAINER001", createContainer("CONTAINER001", "VESSEL"));
+        context.getTruckMap().put("TRUCK01", createTruck("TRUCK01"));
+        YardBlock block = new YardBlock();
+        block.setBlockCode("B01");
+        block.setInvertX(100.0);
+        YardBlock.Stack stack = new YardBlock.Stack();
+        stack.setRow(1);
+        YardBlock.Slot slot = new YardBlock.Slot();
+        slot.setTier(1);
+        slot.setHasContainer(true);
+        slot.setCurrentContainerId("CONTAINER001");
+        stack.getSlots().add(slot);
+        block.getStacks().add(stack);
+        context.getYardBlockMap().put("B01", block);
+        Vessel vessel = new Vessel();
+        vessel.setVesselId("V01");
+        VesselBay bay = new VesselBay();
+        bay.setBayNo("01");
+        bay.getColInfos().add(new VesselBay.Column());
+        vessel.getBays().add(bay);
+        context.getVesselMap().put("V01", vessel);
+        Fence fence = new Fence();
+        fence.setNodeId("F01");
+        fence.setPosX(500.0);
+        fence.setPosY(500.0);
+        fence.setRadius(5.0);
+        context.getFenceMap().put("F01", fence);
+
+        // 暂停一条独立链，留下一个行驶中的到达事件与一个已取消的栅栏事件
+        SimEvent badMove = engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.CMD_MOVE, new MovePayload(new Point(10.0, 0.0), 5.0));
+        badMove.addSubject(SubjectRoleEnum.TRUCK, "TRUCK99");
+        engine.stepNextEvent();
+        MoveCommandReq moveReq = new MoveCommandReq();
+        moveReq.setTruckId("TRUCK01");
+        moveReq.setTargetPoint(new Point(30.0, 0.0));
+        moveReq.setSpeed(5.0);
+        algorithmApi.moveDevice(moveReq);
+        engine.stepNextEvent();
+        engine.stepNextEvent();
+        SimEvent toggle = engine.scheduleEvent(SimEvent.NO_PARENT, 3000, EventTypeEnum.CMD_FENCE_TOGGLE, common.consts.FenceStateEnum.BLOCKED);
+        toggle.addSubject(SubjectRoleEnum.FENCE, "F01");
+        engine.cancelEvent(toggle.getEventId());
+        java.util.Set<Long> suspended = engine.getSuspendedChainIds();
+        Truck before = context.getTruckMap().get("TRUCK01");
+        assertEquals(DeviceStateEnum.MOVING, before.getState());
+
+        SimSession session = sessionManager.getDefaultSession();
+        model.dto.response.CheckpointResp written = checkpointService.checkpoint(session, "test-ckpt");
+        assertEquals(2, written.getPendingEventCount());
+        assertTrue(written.getSizeBytes() > 0);
+
+        commandExecutor.run(() -> {
+            context.clearAll();
+            engine.reset();
+        });
+        model.dto.response.CheckpointResp restored = checkpointService.restore(session, "test-ckpt");
+        assertEquals(written.getEntityCount(), restored.getEntityCount());
+        assertEquals(2, restored.getPendingEventCount());
+
+        assertEquals(before, context.getTruckMap().get("TRUCK01"), "设备全部字段应还原");
+        assertEquals(wi, context.getWorkInstructionMap().get("WI001"));
+        assertEquals(block, context.getYardBlockMap().get("B01"));
+        assertEquals(vessel, context.getVesselMap().get("V01"));
+        assertEquals(fence, context.getFenceMap().get("F01"));
+        assertEquals(suspended, engine.getSuspendedChainIds(), "暂停状态应还原");
+        SimEvent fresh = engine.scheduleEvent(SimEvent.NO_PARENT, 0, EventTypeEnum.REPORT_IDLE, null);
+        assertTrue(fresh.getEventId() > toggle.getEventId(), "恢复后新事件ID应大于检查点中的事件ID");
+        assertTrue(engine.cancelEvent(fresh.getEventId()));
+
+        engine.runUntil(10000);
+        assertEquals(30.0, context.getTruckMap().get("TRUCK01").getPosX(), 1e-6, "恢复的到达事件应正常处理");
+        assertEquals(common.consts.FenceStateEnum.PASSABLE.getCode(), context.getFenceMap().get("F01").getStatus(),
+                "已取消的事件恢复后仍为取消");
+
+        // 文件损坏时拒绝恢复
+        java.nio.file.Path file = java.nio.file.Paths.get("target/test-checkpoints/test-ckpt.ckpt");
+        byte[] bytes = java.nio.file.Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x5A;
+        java.nio.file.Files.write(file, bytes);
+        assertThrows(common.exception.BusinessException.class, () -> checkpointService.restore(session, "test-ckpt"));
+        assertThrows(common.exception.BusinessException.class, () -> checkpointService.restore(session, "../escape"));
+    }
+
+    /**
+     * 测试5: 记录指令日志后无头重放，事件序列一致；篡改记录的摘要后能定位到不一致的指令
+     */
+    @Test
+    @DisplayName("测试指令日志与确定性重放")
+    void testJournalReplay() throws Exception {
+        commandExecutor.run(() -> {
+            context.getTruckMap().put("TRUCK01", createTruck("TRUCK01"));
+            context.getTruckMap().put("TRUCK02", createTruck("TRUCK02"));
+        });
+        SimSession session = sessionManager.getDefaultSession();
+        // 基准检查点之前已有待处理事件
+        MoveCommandReq first = new MoveCommandReq();
+        first.setTruckId("TRUCK01");
+        first.setTargetPoint(new Point(20.0, 0.0));
+        first.setSpeed(5.0);
+        algorithmApi.moveDevice(first);
+
+        // target 目录跨次运行保留，先清掉上次的记录
+        java.nio.file.Files.deleteIfExists(java.nio.file.Paths.get("target/test-journals/test-journal.journal"));
+        java.nio.file.Files.deleteIfExists(java.nio.file.Paths.get("target/test-checkpoints/test-journal-base.ckpt"));
+        model.dto.response.JournalResp started = journalReplayService.start(session, "test-journal");
+        assertEquals(1, started.getBaseCheckpoint().getPendingEventCount());
+        // 同名日志不覆盖已有记录与基准检查点
+        assertThrows(common.exception.BusinessException.class, () -> journalReplayService.start(session, "test-journal"));
+        assertTrue(session.getJournal().isActive(), "拒绝重名后原日志应继续记录");
+        try {
+            MoveCommandReq second = new MoveCommandReq();
+            second.setTruckId("TRUCK02");
+            second.setTargetPoint(new Point(0.0, 40.0));
+            second.setSpeed(4.0);
+            algorithmApi.moveDevice(second);
+            StepBatchReq batch = new StepBatchReq();
+            batch.setMaxEvents(3);
+            algorithmApi.stepBatch(batch);
+            // 取消失败的指令同样记录，重放时结果一致
+            algorithmApi.cancelEvent(999_999L);
+            StopConditionReq arrived = new StopConditionReq();
+            arrived.setType(StopConditionTypeEnum.SUBJECT);
+            arrived.setSubjectId("TRUCK02");
+            StepUntilReq until = new StepUntilReq();
+            until.setConditions(java.util.Collections.singletonList(arrived));
+            until.setUntilSimTime(20000L);
+            algorithmApi.stepUntil(until);
+            StepBatchReq drain = new StepBatchReq();
+            drain.setUntilSimTime(20000L);
+            drain.setWallClockBudgetMs(60_000L);
+            algorithmApi.stepBatch(drain);
+        } finally {
+            journalReplayService.stop(session);
+        }
+        assertEquals(40.0, context.getTruckMap().get("TRUCK02").getPosY(), 1e-6);
+        // 日志停止后的指令不再记录
+        algorithmApi.stepNextEvent();
+
+        java.nio.file.Path file = java.nio.file.Paths.get("target/test-journals/test-journal.journal");
+        List<String> lines = java.nio.file.Files.readAllLines(file);
+        assertEquals(6, lines.size(), "日志头 + 5 条指令");
+
+        model.dto.response.ReplayResp replay = journalReplayService.replay("test-journal");
+        assertTrue(replay.isDeterministic(), replay.getMessage());
+        assertEquals(5, replay.getCommandCount());
+        assertEquals(20000L, replay.getFinalSimTime());
+        assertEquals(engine.getEventDigest(), replay.getActualDigest(), "重放摘要与原运行一致");
+        assertEquals(1, sessionManager.list().size(), "重放用的临时会话已删除");
+
+        // 篡改第 2 条指令（批量推进）记录的摘要
+        com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
+        com.fasterxml.jackson.databind.node.ObjectNode tampered =
+                (com.fasterxml.jackson.databind.node.ObjectNode) mapper.readTree(lines.get(2));
+        tampered.put("digest", tampered.get("digest").asLong() + 1);
+        lines.set(2, mapper.writeValueAsString(tampered));
+        java.nio.file.Files.write(file, lines);
+        model.dto.response.ReplayResp diverged = journalReplayService.replay("test-journal");
+        assertFalse(diverged.isDeterministic());
+        assertEquals(Long.valueOf(2), diverged.getDivergedAtSeq());
+        assertEquals(common.consts.CommandTypeEnum.STEP_BATCH, diverged.getDivergedCommand());
+        assertEquals(2, diverged.getCommandCount());
+    }
+
+    /**
+     * 测试6: 批量指令在一个写线程任务内执行，返回逐条结果；失败与未通过校验的指令不影响其余指令
+     */
+    @Test
+    @DisplayName("测试批量指令与逐条结果")
+    void testCommandBatch() throws Exception {
+        SimSession session = sessionManager.create(null);
+        try {
+            GlobalContext ctx = session.getContext();
+            int n = 300;
+            session.getCommandExecutor().run(() -> {
+                for (int i = 0; i < n; i++) {
+                    ctx.getTruckMap().put("TRUCK" + i, createTruck("TRUCK" + i));
+                }
+                session.getEngine().reset();
+            });
+
+            // 失败与未通过校验的指令夹在批次中间，前后的移动指令都应执行
+            int half = n / 2;
+            List<model.dto.request.BatchCommandReq> commands = new java.util.ArrayList<>();
+            for (int i = 0; i < half; i++) {
+                commands.add(batchMove("TRUCK" + i, i, 10.0));
+            }
+            commands.add(batchMove("GHOST", 1, 10.0));                      // 设备不存在
+            model.dto.request.BatchCommandReq noBody = new model.dto.request.BatchCommandReq();
+            noBody.setType(common.consts.CommandTypeEnum.MOVE);
+            commands.add(noBody);                                           // 缺少请求体
+            model.dto.request.BatchCommandReq step = new model.dto.request.BatchCommandReq();
+            step.setType(common.consts.CommandTypeEnum.STEP_NEXT);
+            commands.add(step);                                             // 推进类指令
+            model.dto.request.BatchCommandReq cancel = new model.dto.request.BatchCommandReq();
+            cancel.setType(common.consts.CommandTypeEnum.CANCEL);
+            cancel.setEventId("999999");
+            commands.add(cancel);                                           // 事件不存在
+            model.dto.request.BatchCommandReq badId = new model.dto.request.BatchCommandReq();
+            badId.setType(common.consts.CommandTypeEnum.CANCEL);
+            badId.setEventId("abc");
+            commands.add(badId);                                            // 事件ID格式错误
+            commands.add(batchMove("TRUCK0", 1, 0.0));                      // 速度非法
+            String[] expected = {"FAILED", "REJECTED", "REJECTED", "FAILED", "REJECTED", "FAILED"};
+            for (int i = half; i < n; i++) {
+                commands.add(batchMove("TRUCK" + i, i, 10.0));
+            }
+            model.dto.request.CommandBatchReq req = new model.dto.request.CommandBatchReq();
+            req.setCommands(commands);
+
+            long epochBefore = session.getEpochPublisher().current().getEpoch();
+            MockMvc mvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+            byte[] body = mvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders
+                            .post("/sim/command/batch").param("sessionId", session.getId())
+                            .contentType(org.springframework.http.MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsBytes(req)))
+                    .andReturn().getResponse().getContentAsByteArray();
+            JsonNode data = objectMapper.readTree(body).get("data");
+            assertEquals(n, data.get("appliedCount").asInt());
+            assertEquals(3, data.get("failedCount").asInt());
+            assertEquals(3, data.get("rejectedCount").asInt());
+            JsonNode results = data.get("results");
+            assertEquals(commands.size(), results.size());
+            for (int i = 0; i < commands.size(); i++) {
+                JsonNode result = results.get(i);
+                assertEquals(i, result.get("index").asInt());
+                boolean bad = i >= half && i < half + expected.length;
+                assertEquals(bad ? expected[i - half] : "APPLIED", result.get("status").asText(), "第 " + i + " 条");
+                if (bad) {
+                    assertFalse(result.get("message").asText().isEmpty());
+                }
+            }
+            assertEquals("MOVE", results.get(half + 1).get("type").asText());
+            assertTrue(session.getEpochPublisher().current().getEpoch() <= epochBefore + 1, "整批至多发布一个纪元");
+
+            // 失败指令前后的移动全部生效
+            session.getCommandExecutor().run(() -> session.getEngine().runUntil(10_000_000));
+            for (int i = 0; i < n; i++) {
+                assertEquals(i, ctx.getTruckMap().get("TRUCK" + i).getPosX(), 1e-6);
+            }
+            assertThrows(common.exception.BusinessException.class,
+                    () -> session.getAlgorithmApi().executeBatch(new model.dto.request.CommandBatchReq()));
+        } finally {
+            sessionManager.remove(session.getId());
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package engine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import common.consts.DeviceStateEnum;
+import common.consts.DeviceTypeEnum;
+import engine.session.SimSession;
+import model.bo.GlobalContext;
+import model.entity.*;
+import model.dto.request.MoveCommandReq;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 空间索引测试
+ * 栅栏网格、设备空间索引与统一设备登记表
+ */
+@DisplayName("空间索引测试")
+class SpatialIndexTest extends AbstractSimulationTest {
+
+    /**
+     * 测试1: 栅栏网格索引的查找结果与遍历全部栅栏一致；移动时的阻断/限速检查与到达后的所在栅栏走索引
+     */
+    @Test
+    @DisplayName("测试栅栏空间网格索引")
+    void testFenceGridIndex() {
+        SimSession session = sessionManager.create(null);
+        try {
+            GlobalContext ctx = session.getContext();
+            String blocked = common.consts.FenceStateEnum.BLOCKED.getCode();
+            session.getCommandExecutor().run(() -> {
+                for (int i = 0; i < 60; i++) {
+                    for (int j = 0; j < 50; j++) {
+                        Fence fence = new Fence();
+                        fence.setNodeId(String.format("F%02d_%02d", i, j));
+                        fence.setPosX(i * 20.0);
+                        fence.setPosY(j * 20.0);
+                        fence.setRadius((i + j) % 7 == 0 ? 15.0 : 5.0);
+                        if ((i * 50 + j) % 5 == 0) {
+                            fence.setSpeedLimit(1.0);
+                        }
+                        if ((i * 50 + j) % 11 == 0) {
+                            fence.setStatus(blocked);
+                        }
+                        ctx.getFenceMap().put(fence.getNodeId(), fence);
+                    }
+                }
+                ctx.getTruckMap().put("TRUCK01", createTruck("TRUCK01"));
+                ctx.getTruckMap().put("TRUCK02", createTruck("TRUCK02"));
+                session.getEngine().reset();
+            });
+            assertEquals(3000, ctx.getFenceMap().size());
+
+            // 随机点：网格查找与遍历全部栅栏一致（包括第一个命中的顺序）
+            java.util.Random random = new java.util.Random(42);
+            session.getCommandExecutor().run(() -> {
+                for (int k = 0; k < 2000; k++) {
+                    Point p = new Point(random.nextDouble() * 1250 - 25, random.nextDouble() * 1050 - 25);
+                    List<String> linear = new java.util.ArrayList<>();
+                    Fence firstBlocked = null;
+                    Double firstLimit = null;
+                    for (Fence fence : ctx.getFenceMap().values()) {
+                        if (fence.contains(p)) {
+                            linear.add(fence.getNodeId());
+                            if (firstBlocked == null && blocked.equals(fence.getStatus())) {
+                                firstBlocked = fence;
+                            }
+                            if (firstLimit == null && fence.getSpeedLimit() != null) {
+                                firstLimit = fence.getSpeedLimit();
+                            }
+                        }
+                    }
+                    assertEquals(linear, ctx.getFenceMap().fenceIdsAt(p));
+                    assertSame(firstBlocked, ctx.getFenceMap().findBlocking(p, blocked));
+                    assertEquals(firstLimit, ctx.getFenceMap().speedLimitAt(p));
+                }
+            });
+
+            // 驶向阻断栅栏的集卡进入等待；栅栏开关只改状态，不需要重建索引
+            MoveCommandReq moveReq = new MoveCommandReq();
+            moveReq.setTruckId("TRUCK01");
+            moveReq.setTargetPoint(new Point(0.0, 220.0)); // F00_11 阻断
+            moveReq.setSpeed(5.0);
+            session.getAlgorithmApi().moveDevice(moveReq);
+            session.getCommandExecutor().run(() -> session.getEngine().runUntil(1000));
+            assertEquals(DeviceStateEnum.WAITING, ctx.getTruckMap().get("TRUCK01").getState());
+            assertTrue(ctx.getFenceMap().get("F00_11").getWaitingTrucks().contains("TRUCK01"));
+
+            // 驶入限速栅栏，按限速计算行驶时间；到达后所在栅栏更新
+            moveReq = new MoveCommandReq();
+            moveReq.setTruckId("TRUCK02");
+            moveReq.setTargetPoint(new Point(20.0, 0.0)); // F01_00 限速 1
+            moveReq.setSpeed(5.0);
+            session.getAlgorithmApi().moveDevice(moveReq);
+            session.getCommandExecutor().run(() -> session.getEngine().runUntil(10000));
+            assertEquals(DeviceStateEnum.MOVING, ctx.getTruckMap().get("TRUCK02").getState(), "限速下 20 米需 20 秒");
+            session.getCommandExecutor().run(() -> session.getEngine().runUntil(30000));
+            Truck arrived = ctx.getTruckMap().get("TRUCK02");
+            assertEquals(DeviceStateEnum.IDLE, arrived.getState());
+            assertEquals(java.util.Collections.singletonList("F01_00"), arrived.getInFenceIds());
+
+            // 经表的增删会使索引失效并重建
+            session.getCommandExecutor().run(() -> {
+                ctx.getFenceMap().remove("F01_00");
+                assertTrue(ctx.getFenceMap().fenceIdsAt(new Point(20.0, 0.0)).isEmpty());
+                Fence moved = ctx.getFenceMap().get("F02_00");
+                moved.setPosX(20.0);
+                ctx.getFenceMap().invalidate();
+                assertEquals(java.util.Collections.singletonList("F02_00"), ctx.getFenceMap().fenceIdsAt(new Point(20.0, 0.0)));
+            });
+        } finally {
+            sessionManager.remove(session.getId());
+        }
+    }
+
+    /**
+     * 测试2: 设备空间索引的最近邻与范围查询与遍历全部设备（含行驶中的插值位置）的结果一致
+     */
+    @Test
+    @DisplayName("测试设备最近邻与范围查询")
+    void testDeviceSpatialQuery() throws Exception {
+        SimSession session = sessionManager.create(null);
+        try {
+            GlobalContext ctx = session.getContext();
+            java.util.Random random = new java.util.Random(7);
+            session.getCommandExecutor().run(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    Truck truck = createTruck(String.format("TRUCK%04d", i));
+                    truck.setPosX(random.nextDouble() * 2000);
+                    truck.setPosY(random.nextDouble() * 2000);
+                    if (i % 4 == 1) {
+                        truck.setState(DeviceStateEnum.WORKING);
+                    }
+                    ctx.getTruckMap().put(truck.getId(), truck);
+                }
+                QcDevice qc = createQcDevice("QC05");
+                qc.setPosX(1000.0);
+                qc.setPosY(1000.0);
+                ctx.getQcMap().put("QC05", qc);
+                session.getEngine().reset();
+            });
+            // 部分集卡出发，推进到行驶途中
+            for (int i = 0; i < 2000; i += 10) {
+                MoveCommandReq moveReq = new MoveCommandReq();
+                moveReq.setTruckId(String.format("TRUCK%04d", i));
+                moveReq.setTargetPoint(new Point(random.nextDouble() * 2000, random.nextDouble() * 2000));
+                moveReq.setSpeed(5.0 + random.nextDouble() * 10);
+                session.getAlgorithmApi().moveDevice(moveReq);
+            }
+            session.getCommandExecutor().run(() -> session.getEngine().runUntil(60000));
+            long moving = ctx.getTruckMap().values().stream().filter(t -> t.getState() == DeviceStateEnum.MOVING).count();
+            assertTrue(moving > 50, "应有行驶途中的集卡");
+
+            service.algorithm.impl.DeviceSpatialService spatial =
+                    webApplicationContext.getBean(service.algorithm.impl.DeviceSpatialService.class);
+            for (int q = 0; q < 50; q++) {
+                double x = random.nextDouble() * 2200 - 100;
+                double y = random.nextDouble() * 2200 - 100;
+                List<String> expected = session.getCommandExecutor().call(() -> {
+                    List<model.bo.DeviceIndex.Hit> all = new java.util.ArrayList<>();
+                    for (Truck t : ctx.getTruckMap().values()) {
+                        if (t.getState() == DeviceStateEnum.IDLE || t.getState() == DeviceStateEnum.MOVING) {
+                            Point p = t.getInterpolatedPos(ctx.getSimTime(), ctx.getPhysicsConfig().getArrivalThreshold());
+                            all.add(new model.bo.DeviceIndex.Hit(t, p, Math.hypot(p.getX() - x, p.getY() - y)));
+                        }
+                    }
+                    all.sort(java.util.Comparator.comparingDouble(model.bo.DeviceIndex.Hit::getDistance)
+                            .thenComparing(h -> h.getDevice().getId()));
+                    List<String> ids = new java.util.ArrayList<>();
+                    for (model.bo.DeviceIndex.Hit h : all) {
+                        if (ids.size() < 5 || h.getDistance() <= 120) {
+                            ids.add(h.getDevice().getId() + (h.getDistance() <= 120 ? "" : "*"));
+                        }
+                    }
+                    return ids;
+                });
+                model.dto.request.NearbyDeviceReq req = new model.dto.request.NearbyDeviceReq();
+                req.setX(x);
+                req.setY(y);
+                req.setK(5);
+                req.setTypes(java.util.Collections.singletonList(DeviceTypeEnum.ELECTRIC_TRUCK));
+                req.setStates(java.util.Arrays.asList(DeviceStateEnum.IDLE, DeviceStateEnum.MOVING));
+                List<String> nearest = new java.util.ArrayList<>();
+                spatial.nearest(session, req).getDevices().forEach(d -> nearest.add(d.getId()));
+                List<String> expectedNearest = new java.util.ArrayList<>();
+                for (int i = 0; i < 5; i++) {
+                    expectedNearest.add(expected.get(i).replace("*", ""));
+                }
+                assertEquals(expectedNearest, nearest, "最近邻与遍历一致");
+                req.setRadius(120.0);
+                List<String> within = new java.util.ArrayList<>();
+                spatial.within(session, req).getDevices().forEach(d -> within.add(d.getId()));
+                List<String> expectedWithin = new java.util.ArrayList<>();
+                for (String id : expected) {
+                    if (!id.endsWith("*")) {
+                        expectedWithin.add(id);
+                    }
+                }
+                assertEquals(expectedWithin, within, "范围查询与遍历一致");
+            }
+
+            // 经 HTTP 查询岸桥最近的空闲集卡
+            MockMvc mvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+            byte[] body = mvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders
+                            .get("/sim/state/devices/nearest").param("sessionId", session.getId())
+                            .param("deviceId", "QC05").param("k", "3").param("states", "IDLE"))
+                    .andReturn().getResponse().getContentAsByteArray();
+            JsonNode data = objectMapper.readTree(body).get("data");
+            assertEquals(1000.0, data.get("x").asDouble(), 1e-9);
+            assertEquals(3, data.get("devices").size());
+            double last = 0;
+            for (JsonNode d : data.get("devices")) {
+                assertEquals("IDLE", d.get("state").asText());
+                assertNotEquals("QC05", d.get("id").asText());
+                assertTrue(d.get("distance").asDouble() >= last);
+                last = d.get("distance").asDouble();
+            }
+
+            // 到达后位置更新；删除设备后索引重建
+            session.getCommandExecutor().run(() -> session.getEngine().runUntil(10_000_000));
+            session.getCommandExecutor().run(() -> {
+                Truck t = ctx.getTruckMap().get("TRUCK0000");
+                List<model.bo.DeviceIndex.Hit> hits = ctx.deviceIndex().within(t.getPosX(), t.getPosY(), 0.0,
+                        ctx.getSimTime(), 0.01, d -> true);
+                assertEquals("TRUCK0000", hits.get(0).getDevice().getId());
+                ctx.getTruckMap().remove("TRUCK0000");
+                assertTrue(ctx.deviceIndex().within(t.getPosX(), t.getPosY(), 0.0, ctx.getSimTime(), 0.01,
+                        d -> "TRUCK0000".equals(d.getId())).isEmpty());
+            });
+            model.dto.request.NearbyDeviceReq bad = new model.dto.request.NearbyDeviceReq();
+            assertThrows(common.exception.BusinessException.class, () -> spatial.nearest(session, bad));
+        } finally {
+            sessionManager.remove(session.getId());
+        }
+    }
+
+    /**
+     * 测试3: 统一设备登记表按句柄查设备，与逐表查找结果一致；句柄在删除与重新加入后保持不变
+     */
+    @Test
+    @DisplayName("测试统一设备登记表与整数句柄")
+    void testDeviceRegistry() {
+        GlobalContext ctx = new GlobalContext();
+        for (int i = 0; i < 3000; i++) {
+            ctx.getTruckMap().put("T" + i, createTruck("T" + i));
+            ctx.getQcMap().put("Q" + i, createQcDevice("Q" + i));
+            ctx.getAscMap().put("A" + i, createAscDevice("A" + i));
+        }
+        // 同一ID同时出现在集卡表与岸桥表时取集卡，与原先的逐表查找一致
+        ctx.getQcMap().put("T0", createQcDevice("T0"));
+
+        model.bo.DeviceRegistry registry = ctx.deviceRegistry();
+        assertSame(ctx.getTruckMap().get("T0"), ctx.getDevice("T0"));
+        assertSame(ctx.getAscMap().get("A2999"), ctx.getDevice("A2999"));
+        assertNull(ctx.getDevice("NONE"));
+        assertNull(ctx.getDevice(null));
+        assertEquals(model.bo.IdDictionary.NONE, registry.handleOf("NONE"));
+        assertEquals(9000, registry.capacity());
+        for (String id : new String[]{"T17", "Q17", "A17"}) {
+            int h = registry.handleOf(id);
+            assertSame(ctx.getDevice(id), registry.get(h));
+            assertEquals(id, registry.get(h).getId());
+        }
+
+        // 删除后句柄不再对应设备，重新加入沿用原句柄
+        int handle = registry.handleOf("Q42");
+        ctx.getQcMap().remove("Q42");
+        assertNull(registry.get(handle));
+        assertNull(ctx.getDevice("Q42"));
+        QcDevice again = createQcDevice("Q42");
+        ctx.getQcMap().put("Q42", again);
+        assertEquals(handle, registry.handleOf("Q42"));
+        assertSame(again, registry.get(handle));
+
+        // 全部ID的查找结果与逐表查找一致
+        for (String prefix : new String[]{"T", "Q", "A"}) {
+            for (int i = 0; i < 3000; i++) {
+                String id = prefix + i;
+                BaseDevice d = ctx.getTruckMap().get(id);
+                if (d == null) d = ctx.getQcMap().get(id);
+                if (d == null) d = ctx.getAscMap().get(id);
+                assertSame(d, ctx.getDevice(id), id);
+            }
+        }
+    }
+}
@@ -0,0 +1,608 @@
+package engine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import common.Result;
+import common.consts.BizTypeEnum;
+import common.consts.DeviceStateEnum;
+import common.consts.DeviceTypeEnum;
+import common.consts.WiStatusEnum;
+import engine.session.SimSession;
+import model.bo.GlobalContext;
+import model.entity.*;
+import model.dto.request.MoveCommandReq;
+import model.dto.request.StepBatchReq;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import service.algorithm.impl.ColumnarCodec;
+import service.algorithm.impl.StateEpochPublisher;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 状态纪元发布测试
+ * 纪元快照、增量、序列化缓存、列式格式、状态查询、批量插值与增量发布
+ */
+@DisplayName("状态纪元发布测试")
+class StateEpochPublisherTest extends AbstractSimulationTest {
+
+    /**
+     * 测试1: 指令执行后发布状态纪元，已发布的快照不随后续推进变化
+     */
+    @Test
+    @DisplayName("测试状态纪元发布")
+    void testStateEpochPublishing() {
+        context.getTruckMap().put("TRUCK01", createTruck("TRUCK01"));
+        MoveCommandReq moveReq = new MoveCommandReq();
+        moveReq.setTruckId("TRUCK01");
+        moveReq.setTargetPoint(new Point(30.0, 0.0));
+        moveReq.setSpeed(5.0);
+        algorithmApi.moveDevice(moveReq);
+
+        StepBatchReq req = new StepBatchReq();
+        req.setMaxEvents(2);
+        algorithmApi.stepBatch(req);
+        model.dto.snapshot.PortSnapshotDto moving = epochPublisher.current();
+        assertEquals(0L, moving.getSimTime());
+        assertEquals(DeviceStateEnum.MOVING, moving.getDevices().get(0).getState(), "快照应包含本次推进的结果");
+        assertThrows(UnsupportedOperationException.class, () -> moving.getDevices().clear(), "快照只读");
+
+        req.setMaxEvents(null);
+        req.setUntilSimTime(10000L);
+        algorithmApi.stepBatch(req);
+        model.dto.snapshot.PortSnapshotDto arrived = epochPublisher.current();
+        assertTrue(arrived.getEpoch() > moving.getEpoch(), "纪元应递增");
+        assertEquals(10000L, arrived.getSimTime());
+        assertEquals(30.0, arrived.getDevices().get(0).getPosX(), 1e-6);
+        assertEquals(DeviceStateEnum.MOVING, moving.getDevices().get(0).getState(), "旧纪元不受后续推进影响");
+        assertEquals(0.0, moving.getDevices().get(0).getPosX(), 1e-6);
+    }
+
+    /**
+     * 测试2: 按纪元增量查询只返回变化和删除的实体，未变化实体沿用上一纪元的快照对象
+     */
+    @Test
+    @DisplayName("测试增量状态快照")
+    void testDeltaSnapshot() {
+        SimSession session = sessionManager.create(null);
+        try {
+            StateEpochPublisher publisher = session.getEpochPublisher();
+            session.getCommandExecutor().run(() -> {
+                for (int i = 0; i < 200; i++) {
+                    WorkInstruction wi = createWorkInstruction("WI" + i, "CNTR" + i, BizTypeEnum.DSCH);
+                    session.getContext().getWorkInstructionMap().put(wi.getWiRefNo(), wi);
+                    session.getContext().getContainerMap().put("CNTR" + i, createContainer("CNTR" + i, "YARD001"));
+                }
+                session.getContext().getTruckMap().put("TRUCK01", createTruck("TRUCK01"));
+                session.getContext().getTruckMap().put("TRUCK02", createTruck("TRUCK02"));
+                // 直接装入实体不改变状态版本，重置后发布包含它们的纪元
+                session.getEngine().reset();
+            });
+            model.dto.snapshot.PortSnapshotDto base = publisher.current();
+            assertEquals(200, base.getWorkInstructions().size());
+            assertEquals(200, base.getContainers().size());
+
+            model.dto.snapshot.StateDeltaDto none = publisher.since(base.getEpoch());
+            assertTrue(none.isEmpty());
+            assertFalse(none.isFull());
+            model.dto.snapshot.StateDeltaDto all = publisher.since(0L);
+            assertEquals(2, all.getDevices().size());
+            assertEquals(200, all.getWorkInstructions().size());
+
+            MoveCommandReq moveReq = new MoveCommandReq();
+            moveReq.setTruckId("TRUCK01");
+            moveReq.setTargetPoint(new Point(30.0, 0.0));
+            moveReq.setSpeed(5.0);
+            session.getAlgorithmApi().moveDevice(moveReq);
+            StepBatchReq drain = new StepBatchReq();
+            drain.setMaxEvents(100);
+            session.getAlgorithmApi().stepBatch(drain);
+
+            model.dto.snapshot.PortSnapshotDto moved = publisher.current();
+            model.dto.snapshot.StateDeltaDto delta = publisher.since(base.getEpoch());
+            assertEquals(moved.getEpoch(), delta.getEpoch());
+            assertEquals(1, delta.getDevices().size(), "只返回变化的设备");
+            assertEquals("TRUCK01", delta.getDevices().get(0).getId());
+            assertEquals(30.0, delta.getDevices().get(0).getPosX(), 1e-6);
+            assertTrue(delta.getWorkInstructions().isEmpty());
+            assertTrue(delta.getContainers().isEmpty());
+            assertSame(base.getWorkInstructions().get(0), moved.getWorkInstructions().get(0), "未变化实体不重建快照");
+
+            // 修改一条作业指令、删除一台集卡和一个集装箱
+            session.getCommandExecutor().run(() -> {
+                session.getContext().getWorkInstructionMap().get("WI7").setWiStatus(WiStatusEnum.COMPLETED.getCode());
+                session.getContext().getTruckMap().remove("TRUCK02");
+                session.getContext().getContainerMap().remove("CNTR3");
+                session.getEngine().reset();
+            });
+            model.dto.snapshot.StateDeltaDto changed = publisher.since(moved.getEpoch());
+            assertTrue(changed.getDevices().isEmpty());
+            assertEquals(java.util.Collections.singletonList("TRUCK02"), changed.getRemovedDeviceIds());
+            assertEquals(java.util.Collections.singletonList("CNTR3"), changed.getRemovedContainerIds());
+            assertEquals(1, changed.getWorkInstructions().size());
+            assertEquals("WI7", changed.getWorkInstructions().get(0).getWiRefNo());
+            model.dto.snapshot.StateDeltaDto fromBase = publisher.since(base.getEpoch());
+            assertEquals(1, fromBase.getDevices().size());
+            assertEquals(1, fromBase.getRemovedDeviceIds().size(), "跨多个纪元的增量合并");
+
+            // 无效的起始纪元返回全量
+            model.dto.snapshot.StateDeltaDto future = publisher.since(publisher.current().getEpoch() + 10);
+            assertTrue(future.isFull());
+            assertEquals(1, future.getDevices().size());
+            assertEquals(199, future.getContainers().size());
+            assertTrue(future.getRemovedDeviceIds().isEmpty());
+        } finally {
+            sessionManager.remove(session.getId());
+        }
+    }
+
+    /**
+     * 测试3: 快照流式序列化结果与 ObjectMapper 一致，同一纪元/状态版本只序列化一次，并发读取共享同一份字节
+     */
+    @Test
+    @DisplayName("测试快照流式序列化与字节缓存")
+    void testSnapshotJsonCache() throws Exception {
+        SimSession session = sessionManager.create(null);
+        try {
+            StateEpochPublisher publisher = session.getEpochPublisher();
+            session.getCommandExecutor().run(() -> {
+                Truck truck = createTruck("TRUCK01");
+                truck.setCurrWiRefNo("WI\"1\"");
+                session.getContext().getTruckMap().put("TRUCK01", truck);
+                session.getContext().getQcMap().put("QC01", createQcDevice("QC01"));
+                Fence fence = new Fence();
+                fence.setNodeId("F01");
+                fence.setPosX(10.0);
+                fence.setPosY(0.0);
+                fence.setRadius(5.0);
+                fence.getWaitingTrucks().add("TRUCK09");
+                session.getContext().getFenceMap().put("F01", fence);
+                ChargingStation station = new ChargingStation();
+                station.setStationCode("CS01");
+                station.setPosX(1.0);
+                station.setPosY(2.0);
+                session.getContext().getChargingStationMap().put("CS01", station);
+                WorkInstruction wi = createWorkInstruction("WI01", "CNTR01", BizTypeEnum.LOAD);
+                wi.setDispatchCheId("TRUCK01");
+                session.getContext().getWorkInstructionMap().put("WI01", wi);
+                session.getContext().getContainerMap().put("CNTR01", createContainer("CNTR01", "集装箱区"));
+                session.getEngine().reset();
+            });
+
+            model.dto.snapshot.PortSnapshotDto snapshot = publisher.current();
+            JsonNode expected = objectMapper.readTree(objectMapper.writeValueAsBytes(snapshot));
+            assertEquals(expected, objectMapper.readTree(publisher.currentJson().asUnquotedUTF8()));
+            JsonNode wrapped = objectMapper.readTree(objectMapper.writeValueAsBytes(
+                    Result.success("查询成功", new RawValue(publisher.currentJson()))));
+            assertEquals(expected, wrapped.get("data"), "作为原始值写入响应体");
+
+            // 并发读取同一纪元共享一次序列化
+            java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(8);
+            try {
+                List<java.util.concurrent.Future<com.fasterxml.jackson.core.SerializableString>> futures = new java.util.ArrayList<>();
+                for (int i = 0; i < 32; i++) {
+                    futures.add(pool.submit(publisher::currentJson));
+                }
+                for (java.util.concurrent.Future<com.fasterxml.jackson.core.SerializableString> f : futures) {
+                    assertSame(futures.get(0).get(), f.get());
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+
+            MoveCommandReq moveReq = new MoveCommandReq();
+            moveReq.setTruckId("TRUCK01");
+            moveReq.setTargetPoint(new Point(30.0, 0.0));
+            moveReq.setSpeed(5.0);
+            session.getAlgorithmApi().moveDevice(moveReq);
+            assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(publisher.current())),
+                    objectMapper.readTree(publisher.currentJson().asUnquotedUTF8()), "新纪元重新序列化");
+
+            // 全量状态按状态版本缓存
+            Object first = ((RawValue) stateController.getAllState(session.getId()).getData()).rawValue();
+            Object second = ((RawValue) stateController.getAllState(session.getId()).getData()).rawValue();
+            assertSame(first, second);
+            assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(session.getContext())),
+                    objectMapper.readTree(((com.fasterxml.jackson.core.SerializableString) first).asUnquotedUTF8()));
+            StepBatchReq drain = new StepBatchReq();
+            drain.setMaxEvents(100);
+            session.getAlgorithmApi().stepBatch(drain);
+            Object third = ((RawValue) stateController.getAllState(session.getId()).getData()).rawValue();
+            assertNotSame(first, third, "状态版本变化后重新序列化");
+        } finally {
+            sessionManager.remove(session.getId());
+        }
+    }
+
+    /**
+     * 测试4: 列式二进制格式按 Accept 协商，快照/增量/事件往返一致；万台设备规模下体积小于 JSON 的一半
+     */
+    @Test
+    @DisplayName("测试列式二进制格式")
+    void testColumnarWireFormat() throws Exception {
+        SimSession session = sessionManager.create(null);
+        try {
+            StateEpochPublisher publisher = session.getEpochPublisher();
+            session.getCommandExecutor().run(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    Truck truck = createTruck(String.format("TRUCK%05d", i));
+                    truck.setPosX(i * 1.5);
+                    truck.setPosY(-i * 0.25);
+                    truck.setPowerLevel(20.0 + i % 80);
+                    truck.setState(i % 3 == 0 ? DeviceStateEnum.MOVING : DeviceStateEnum.IDLE);
+                    session.getContext().getTruckMap().put(truck.getId(), truck);
+                }
+                session.getContext().getQcMap().put("QC01", createQcDevice("QC01"));
+                Fence fence = new Fence();
+                fence.setNodeId("F01");
+                fence.setPosX(10.0);
+                fence.setPosY(0.0);
+                fence.setRadius(5.0);
+                fence.getWaitingTrucks().add("TRUCK00001");
+                session.getContext().getFenceMap().put("F01", fence);
+                WorkInstruction wi = createWorkInstruction("WI01", "CNTR01", BizTypeEnum.LOAD);
+                session.getContext().getWorkInstructionMap().put("WI01", wi);
+                session.getContext().getContainerMap().put("CNTR01", createContainer("CNTR01", "YARD001"));
+                session.getEngine().reset();
+            });
+            model.dto.snapshot.PortSnapshotDto snapshot = publisher.current();
+
+            // 通过 HTTP 协商：默认仍为 JSON，Accept 列式时返回二进制
+            MockMvc mvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+            org.springframework.mock.web.MockHttpServletResponse jsonResp = mvc.perform(
+                    org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/sim/state/snapshot")
+                            .param("sessionId", session.getId())).andReturn().getResponse();
+            assertTrue(jsonResp.getContentType().startsWith("application/json"));
+            byte[] binary = mvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders
+                    .get("/sim/state/snapshot").param("sessionId", session.getId())
+                    .accept(ColumnarCodec.MEDIA_TYPE_VALUE)).andReturn().getResponse().getContentAsByteArray();
+            Result decoded = ColumnarCodec.read(binary);
+            assertEquals(200, decoded.getCode());
+            assertEquals("查询成功", decoded.getMsg());
+            assertEquals(snapshot, decoded.getData(), "快照往返一致");
+            assertSame(publisher.currentColumnar(), publisher.currentColumnar(), "同一纪元只编码一次");
+
+            // 增量与事件
+            MoveCommandReq moveReq = new MoveCommandReq();
+            moveReq.setTruckId("TRUCK00002");
+            moveReq.setTargetPoint(new Point(30.0, 0.0));
+            moveReq.setSpeed(5.0);
+            session.getAlgorithmApi().moveDevice(moveReq);
+            StepBatchReq drain = new StepBatchReq();
+            drain.setMaxEvents(100);
+            session.getAlgorithmApi().stepBatch(drain);
+            session.getCommandExecutor().run(() -> {
+                session.getContext().getTruckMap().remove("TRUCK00003");
+                session.getEngine().reset();
+            });
+            model.dto.snapshot.StateDeltaDto delta = publisher.since(snapshot.getEpoch());
+            assertEquals(delta, ColumnarCodec.read(writeColumnar(Result.success(delta))).getData());
+            assertEquals(java.util.Collections.singletonList("TRUCK00003"), delta.getRemovedDeviceIds());
+            model.dto.request.EventLogQuery query = new model.dto.request.EventLogQuery();
+            query.setLimit(100);
+            model.dto.response.EventLogPageResp page = session.getEventLog().query(query);
+            assertFalse(page.getEntries().isEmpty());
+            byte[] eventBytes = mvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders
+                    .get("/sim/events").param("sessionId", session.getId()).param("limit", "100")
+                    .accept(ColumnarCodec.MEDIA_TYPE_VALUE)).andReturn().getResponse().getContentAsByteArray();
+            assertEquals(page, ColumnarCodec.read(eventBytes).getData());
+            assertEquals(session.getEventLog().listSince(0),
+                    ColumnarCodec.read(writeColumnar(Result.success(session.getEventLog().listSince(0)))).getData());
+            assertNull(ColumnarCodec.read(writeColumnar(Result.error("失败"))).getData());
+
+            // 体积对比（10001 台设备）
+            byte[] json = objectMapper.writeValueAsBytes(snapshot);
+            byte[] columnar = ColumnarCodec.encode(snapshot);
+            assertEquals(snapshot, ColumnarCodec.read(writeColumnar(Result.success(snapshot))).getData());
+            assertTrue(columnar.length * 2 < json.length, "列式编码体积应小于 JSON 的一半");
+        } finally {
+            sessionManager.remove(session.getId());
+        }
+    }
+
+    /**
+     * 测试5: 状态查询按条件过滤、投影字段并按ID分页，结果与对全量快照的线性过滤一致
+     */
+    @Test
+    @DisplayName("测试状态过滤/投影/分页查询")
+    void testStateQuery() throws Exception {
+        SimSession session = sessionManager.create(null);
+        try {
+            StateEpochPublisher publisher = session.getEpochPublisher();
+            session.getCommandExecutor().run(() -> {
+                for (int i = 0; i < 500; i++) {
+                    Truck truck = createTruck(String.format("TRUCK%03d", i));
+                    truck.setState(i % 3 == 0 ? DeviceStateEnum.IDLE : DeviceStateEnum.MOVING);
+                    truck.setPowerLevel((double) (i % 100));
+                    session.getContext().getTruckMap().put(truck.getId(), truck);
+                }
+                session.getContext().getQcMap().put("QC01", createQcDevice("QC01"));
+                for (int i = 0; i < 10; i++) {
+                    Fence fence = new Fence();
+                    fence.setNodeId("F0" + i);
+                    fence.setPosX(i * 10.0);
+                    fence.setPosY(0.0);
+                    fence.setRadius(5.0);
+                    fence.setStatus(i % 2 == 0 ? common.consts.FenceStateEnum.BLOCKED.getCode()
+                            : common.consts.FenceStateEnum.PASSABLE.getCode());
+                    session.getContext().getFenceMap().put(fence.getNodeId(), fence);
+                }
+                for (int i = 0; i < 60; i++) {
+                    WorkInstruction wi = createWorkInstruction(String.format("WI%02d", i), "CNTR" + i, BizTypeEnum.LOAD);
+                    wi.setQueueName(i % 2 == 0 ? "Q_A" : "Q_B");
+                    wi.setWiStatus(i % 3 == 0 ? WiStatusEnum.COMPLETED.getCode() : WiStatusEnum.PENDING.getCode());
+                    wi.setDispatchCheId(String.format("TRUCK%03d", i));
+                    session.getContext().getWorkInstructionMap().put(wi.getWiRefNo(), wi);
+                }
+                session.getEngine().reset();
+            });
+
+            // 空闲且电量低于 30 的电动集卡，按ID分页取完
+            model.dto.request.StateQueryReq req = new model.dto.request.StateQueryReq();
+            req.setEntity(common.consts.StateEntityEnum.DEVICE);
+            req.setFilters(java.util.Arrays.asList(
+                    filter("state", common.consts.FilterOpEnum.EQ, "IDLE"),
+                    filter("type", common.consts.FilterOpEnum.IN, null, "ELECTRIC_TRUCK", "DIESEL_TRUCK"),
+                    filter("powerLevel", common.consts.FilterOpEnum.LT, 30)));
+            req.setFields(java.util.Arrays.asList("id", "powerLevel"));
+            req.setLimit(20);
+            List<String> expected = new java.util.ArrayList<>();
+            for (model.dto.snapshot.DeviceSnapshotDto d : publisher.current().getDevices()) {
+                if (d.getState() == DeviceStateEnum.IDLE && d.getType() == DeviceTypeEnum.ELECTRIC_TRUCK && d.getPowerLevel() < 30) {
+                    expected.add(d.getId());
+                }
+            }
+            java.util.Collections.sort(expected);
+            List<String> paged = new java.util.ArrayList<>();
+            int pages = 0;
+            String cursor = null;
+            do {
+                req.setCursor(cursor);
+                model.dto.response.StateQueryResp page = publisher.query(req);
+                assertTrue(page.getItems().size() <= 20);
+                for (Object item : page.getItems()) {
+                    Map<?, ?> row = (Map<?, ?>) item;
+                    assertEquals(java.util.Arrays.asList("id", "powerLevel"), new java.util.ArrayList<>(row.keySet()), "只返回投影字段");
+                    assertTrue((Double) row.get("powerLevel") < 30);
+                    paged.add((String) row.get("id"));
+                }
+                cursor = page.getNextCursor();
+                pages++;
+            } while (cursor != null);
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, paged, "分页结果与线性过滤一致");
+            assertEquals((expected.size() + 19) / 20, pages);
+
+            // 指定队列中未完成的作业指令，投影作业号与执行设备
+            req = new model.dto.request.StateQueryReq();
+            req.setEntity(common.consts.StateEntityEnum.WORK_INSTRUCTION);
+            req.setFilters(java.util.Arrays.asList(
+                    filter("queueName", null, "Q_A"),
+                    filter("wiStatus", common.consts.FilterOpEnum.NE, WiStatusEnum.COMPLETED.getCode())));
+            req.setFields(java.util.Arrays.asList("wiRefNo", "dispatchCheId"));
+            model.dto.response.StateQueryResp wis = publisher.query(req);
+            assertEquals(20, wis.getItems().size());
+            assertNull(wis.getNextCursor());
+            assertEquals("WI02", ((Map<?, ?>) wis.getItems().get(0)).get("wiRefNo"));
+            assertEquals("TRUCK002", ((Map<?, ?>) wis.getItems().get(0)).get("dispatchCheId"));
+
+            // 不投影时返回完整快照；经 HTTP 查询封锁的栅栏
+            req = new model.dto.request.StateQueryReq();
+            req.setEntity(common.consts.StateEntityEnum.FENCE);
+            req.setFilters(java.util.Collections.singletonList(
+                    filter("status", null, common.consts.FenceStateEnum.BLOCKED.getCode())));
+            assertTrue(publisher.query(req).getItems().get(0) instanceof model.dto.snapshot.FenceSnapshotDto);
+            MockMvc mvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+            byte[] body = mvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders
+                            .post("/sim/state/query").param("sessionId", session.getId())
+                            .contentType(org.springframework.http.MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsBytes(req)))
+                    .andReturn().getResponse().getContentAsByteArray();
+            JsonNode fences = objectMapper.readTree(body).get("data");
+            assertEquals(publisher.current().getEpoch(), fences.get("epoch").asLong());
+            assertEquals(5, fences.get("items").size());
+            assertEquals("F00", fences.get("items").get(0).get("nodeId").asText());
+
+            // 状态变化后查询新纪元，索引按纪元重建
+            session.getCommandExecutor().run(() -> {
+                session.getContext().getTruckMap().get("TRUCK000").setState(DeviceStateEnum.MOVING);
+                session.getEngine().reset();
+            });
+            req = new model.dto.request.StateQueryReq();
+            req.setEntity(common.consts.StateEntityEnum.DEVICE);
+            req.setFilters(java.util.Arrays.asList(filter("state", null, "IDLE"), filter("type", null, "ELECTRIC_TRUCK")));
+            req.setLimit(1);
+            assertEquals("TRUCK003", ((model.dto.snapshot.DeviceSnapshotDto) publisher.query(req).getItems().get(0)).getId());
+
+            // 未知字段与非法条数
+            model.dto.request.StateQueryReq bad = new model.dto.request.StateQueryReq();
+            bad.setEntity(common.consts.StateEntityEnum.DEVICE);
+            bad.setFields(java.util.Collections.singletonList("noSuchField"));
+            assertThrows(common.exception.BusinessException.class, () -> publisher.query(bad));
+            bad.setFields(null);
+            bad.setLimit(0);
+            assertThrows(common.exception.BusinessException.class, () -> publisher.query(bad));
+        } finally {
+            sessionManager.remove(session.getId());
+        }
+    }
+
+    /**
+     * 测试6: 行驶中设备的批量插值位置与轨迹采样与 getInterpolatedPos 一致，出发前取出发点、到达后取目标点
+     */
+    @Test
+    @DisplayName("测试批量插值位置与轨迹采样")
+    void testBulkPositionsAndTrajectory() throws Exception {
+        SimSession session = sessionManager.create(null);
+        try {
+            GlobalContext ctx = session.getContext();
+            StateEpochPublisher publisher = session.getEpochPublisher();
+            java.util.Random random = new java.util.Random(11);
+            session.getCommandExecutor().run(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    Truck truck = createTruck(String.format("TRUCK%04d", i));
+                    truck.setPosX(random.nextDouble() * 3000);
+                    truck.setPosY(random.nextDouble() * 3000);
+                    ctx.getTruckMap().put(truck.getId(), truck);
+                }
+                session.getEngine().reset();
+            });
+            for (int i = 0; i < 5000; i += 2) {
+                MoveCommandReq moveReq = new MoveCommandReq();
+                moveReq.setTruckId(String.format("TRUCK%04d", i));
+                moveReq.setTargetPoint(new Point(random.nextDouble() * 3000, random.nextDouble() * 3000));
+                moveReq.setSpeed(5.0 + random.nextDouble() * 10);
+                session.getAlgorithmApi().moveDevice(moveReq);
+            }
+            session.getCommandExecutor().run(() -> session.getEngine().runUntil(1000));
+
+            model.dto.response.DevicePositionsResp positions = publisher.movingPositions(30_000L);
+            assertEquals(2500, positions.getIds().size());
+            double threshold = ctx.getPhysicsConfig().getArrivalThreshold();
+            session.getCommandExecutor().run(() -> {
+                for (int i = 0; i < positions.getIds().size(); i++) {
+                    Point expected = ctx.getTruckMap().get(positions.getIds().get(i)).getInterpolatedPos(30_000L, threshold);
+                    assertEquals(expected.getX(), positions.getPosX()[i], 1e-9);
+                    assertEquals(expected.getY(), positions.getPosY()[i], 1e-9);
+                }
+            });
+            assertEquals(0, publisher.movingPositions(null).getTime() - publisher.current().getSimTime());
+
+            // 轨迹：行驶中设备逐点插值，静止设备为当前坐标
+            model.dto.response.TrajectoryResp trajectory = publisher.trajectories(
+                    java.util.Arrays.asList("TRUCK0000", "TRUCK0001"), 1000, 301_000, 1000);
+            assertEquals(301, trajectory.getSampleCount());
+            model.dto.snapshot.DeviceTrajectoryDto moving = trajectory.getDevices().get(0);
+            assertTrue(moving.isMoving());
+            session.getCommandExecutor().run(() -> {
+                Truck t = ctx.getTruckMap().get("TRUCK0000");
+                for (int s = 0; s < 301; s++) {
+                    Point expected = t.getInterpolatedPos(1000 + s * 1000L, threshold);
+                    assertEquals(expected.getX(), moving.getPosX()[s], 1e-9);
+                    assertEquals(expected.getY(), moving.getPosY()[s], 1e-9);
+                }
+            });
+            model.dto.snapshot.DeviceTrajectoryDto still = trajectory.getDevices().get(1);
+            assertFalse(still.isMoving());
+            assertEquals(ctx.getTruckMap().get("TRUCK0001").getPosX(), still.getPosX()[300], 1e-9);
+            assertThrows(common.exception.BusinessException.class,
+                    () -> publisher.trajectories(java.util.Collections.singletonList("NOPE"), 0, 10, 1));
+            assertThrows(common.exception.BusinessException.class,
+                    () -> publisher.trajectories(java.util.Collections.singletonList("TRUCK0000"), 0, 10_000_000, 1));
+
+            // 经 HTTP 查询
+            MockMvc mvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+            byte[] body = mvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders
+                            .get("/sim/state/positions").param("sessionId", session.getId()).param("time", "30000"))
+                    .andReturn().getResponse().getContentAsByteArray();
+            JsonNode data = objectMapper.readTree(body).get("data");
+            assertEquals(2500, data.get("posX").size());
+            assertEquals(positions.getPosX()[7], data.get("posX").get(7).asDouble(), 1e-9);
+
+            // 早于出发的时刻取出发点，晚于到达的时刻取目标点
+            model.dto.response.DevicePositionsResp early = publisher.movingPositions(-1L);
+            model.dto.response.DevicePositionsResp late = publisher.movingPositions(10_000_000L);
+            assertEquals(positions.getIds(), late.getIds());
+            session.getCommandExecutor().run(() -> {
+                for (int i = 0; i < late.getIds().size(); i++) {
+                    Truck t = ctx.getTruckMap().get(late.getIds().get(i));
+                    assertEquals(t.getLastStartPos().getX(), early.getPosX()[i], 1e-9);
+                    assertEquals(t.getLastStartPos().getY(), early.getPosY()[i], 1e-9);
+                    assertEquals(t.getCurrentTargetPos().getX(), late.getPosX()[i], 1e-9);
+                    assertEquals(t.getCurrentTargetPos().getY(), late.getPosY()[i], 1e-9);
+                }
+            });
+        } finally {
+            sessionManager.remove(session.getId());
+        }
+    }
+
+    /**
+     * 测试7: 每个纪元少量设备变化时，增量发布与全量重建的快照一致，增量只含登记变化的设备；设备删除与新增正确反映
+     */
+    @Test
+    @DisplayName("测试设备增量发布")
+    void testIncrementalDevicePublish() {
+        SimSession session = sessionManager.create(null);
+        try {
+            GlobalContext ctx = session.getContext();
+            StateEpochPublisher publisher = session.getEpochPublisher();
+            int n = 1000;
+            Truck[] trucks = new Truck[n];
+            for (int i = 0; i < n; i++) {
+                Truck truck = createTruck(String.format("TRUCK%05d", i));
+                truck.setPosX(i * 1.5);
+                truck.setPosY(i * 0.5);
+                truck.setSpeed(10.0);
+                truck.setCurrentTargetPos(new Point(i * 1.5 + 100, i * 0.5));
+                truck.setLastStartPos(new Point(i * 1.5, i * 0.5));
+                if (i % 3 == 0) {
+                    truck.setState(DeviceStateEnum.MOVING);
+                }
+                trucks[i] = truck;
+            }
+            session.getCommandExecutor().run(() -> {
+                for (Truck truck : trucks) {
+                    ctx.getTruckMap().put(truck.getId(), truck);
+                }
+                session.getEngine().reset();
+            });
+            assertEquals(n, publisher.current().getDevices().size());
+            assertEquals((n + 2) / 3, publisher.movingPositions(0L).getIds().size());
+
+            // 每个纪元 1% 的集卡变化
+            // 直接在写线程上发布（版本号与引擎无关，任务结束时引擎还会再发布一个无变化的纪元）
+            long[] version = {Long.MIN_VALUE};
+            session.getCommandExecutor().run(() -> {
+                for (int round = 0; round < 5; round++) {
+                    for (int i = round; i < n; i += 100) {
+                        trucks[i].setPosX(trucks[i].getPosX() + 1);
+                        trucks[i].setState(trucks[i].getState() == DeviceStateEnum.MOVING ? DeviceStateEnum.IDLE : DeviceStateEnum.MOVING);
+                        ctx.markDirty(trucks[i]);
+                    }
+                    publisher.publish(version[0]++);
+                    assertEquals(n / 100, publisher.since(publisher.current().getEpoch() - 1).getDevices().size(),
+                            "只有本纪元变化的设备进入增量");
+                    List<model.dto.snapshot.DeviceSnapshotDto> rebuilt = new java.util.ArrayList<>(n);
+                    for (Truck truck : ctx.getTruckMap().values()) {
+                        rebuilt.add(model.dto.snapshot.DeviceSnapshotDto.from(truck));
+                    }
+                    assertEquals(rebuilt, publisher.current().getDevices(), "增量发布与全量重建一致");
+                }
+            });
+            long moving = ctx.getTruckMap().values().stream().filter(t -> t.getState() == DeviceStateEnum.MOVING).count();
+            assertEquals(moving, publisher.movingPositions(0L).getIds().size(), "行驶表随设备状态更新");
+
+            // 发布只检查登记过的设备：未登记的表外修改不进入快照，登记后才发布
+            session.getCommandExecutor().run(() -> {
+                trucks[1].setPosX(-1.0);
+                publisher.publish(version[0]++);
+                assertTrue(publisher.since(publisher.current().getEpoch() - 1).getDevices().isEmpty());
+                ctx.markDirty(trucks[1]);
+                publisher.publish(version[0]++);
+                assertEquals(-1.0, publisher.since(publisher.current().getEpoch() - 1).getDevices().get(0).getPosX(), 1e-9);
+            });
+
+            // 删除与新增设备
+            session.getCommandExecutor().run(() -> {
+                ctx.getTruckMap().remove("TRUCK00000");
+                publisher.publish(version[0]++);
+                assertEquals(java.util.Collections.singletonList("TRUCK00000"),
+                        publisher.since(publisher.current().getEpoch() - 1).getRemovedDeviceIds());
+                ctx.getTruckMap().put("TRUCK_NEW", createTruck("TRUCK_NEW"));
+                publisher.publish(version[0]++);
+                assertEquals(java.util.Collections.singletonList("TRUCK_NEW"), publisher.since(publisher.current().getEpoch() - 1)
+                        .getDevices().stream().map(model.dto.snapshot.DeviceSnapshotDto::getId).collect(java.util.stream.Collectors.toList()));
+            });
+            assertEquals(n, publisher.current().getDevices().size());
+        } finally {
+            sessionManager.remove(session.getId());
+        }
+    }
+}